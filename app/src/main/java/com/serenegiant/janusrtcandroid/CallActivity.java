@@ -35,6 +35,8 @@ import android.widget.Toast;
 
 import com.serenegiant.janus.JanusCallback;
 import com.serenegiant.janus.JanusRTCClient;
+import com.serenegiant.janus.ReconnectScheduler;
+import com.serenegiant.janus.RtcStatsDelta;
 
 import org.appspot.apprtc.AppRTCAudioManager;
 import org.appspot.apprtc.AppRTCAudioManager.AudioDevice;
@@ -183,6 +185,10 @@ public class CallActivity extends BaseActivity
 	@Nullable
 	private VideoFileRenderer videoFileRenderer;
 	private final List<VideoSink> remoteRenderers = new ArrayList<>();
+	/**
+	 * ids of remote feeds that entered the room, accessed only on UI thread
+	 */
+	private final List<Long> remoteFeeds = new ArrayList<>();
 	private Toast logToast;
 	private boolean commandLineRun;
 	private boolean activityRunning;
@@ -248,6 +254,24 @@ public class CallActivity extends BaseActivity
 
 		remoteRenderers.add(remoteProxyRenderer);
 
+		// request the substream/temporal layer that fits the size of the remote view
+		final View.OnLayoutChangeListener layoutChangeListener
+			= new View.OnLayoutChangeListener() {
+			@Override
+			public void onLayoutChange(final View v,
+				final int left, final int top, final int right, final int bottom,
+				final int oldLeft, final int oldTop, final int oldRight, final int oldBottom) {
+
+				if ((right - left != oldRight - oldLeft)
+					|| (bottom - top != oldBottom - oldTop)) {
+
+					reportRemoteViewSize();
+				}
+			}
+		};
+		pipRenderer.addOnLayoutChangeListener(layoutChangeListener);
+		fullscreenRenderer.addOnLayoutChangeListener(layoutChangeListener);
+
 		final Intent intent = getIntent();
 		final EglBase eglBase = EglBase.create();
 
@@ -774,6 +798,20 @@ public class CallActivity extends BaseActivity
 		remoteProxyRenderer.setTarget(isSwappedFeeds ? pipRenderer : fullscreenRenderer);
 		fullscreenRenderer.setMirror(isSwappedFeeds);
 		pipRenderer.setMirror(!isSwappedFeeds);
+		reportRemoteViewSize();
+	}
+
+	/**
+	 * notify the size of the view that remote feeds are rendered to
+	 */
+	private void reportRemoteViewSize() {
+		final View view = isSwappedFeeds ? pipRenderer : fullscreenRenderer;
+		if ((janusClient == null) || (view == null)) return;
+		final int width = view.getVisibility() == View.VISIBLE ? view.getWidth() : 0;
+		final int height = view.getVisibility() == View.VISIBLE ? view.getHeight() : 0;
+		for (final long feedId: remoteFeeds) {
+			janusClient.setFeedViewSize(feedId, width, height);
+		}
 	}
 
 	// -----Implementation of com.serenegiant.janus.JanusClient.AppRTCSignalingEvents ---------------
@@ -883,11 +921,26 @@ public class CallActivity extends BaseActivity
 		@Override
 		public void onEnter(final PublisherInfo info) {
 			if (DEBUG) Log.v(TAG, "onEnter:" + info);
+			runOnUiThread(new Runnable() {
+				@Override
+				public void run() {
+					if (!remoteFeeds.contains(info.id)) {
+						remoteFeeds.add(info.id);
+					}
+					reportRemoteViewSize();
+				}
+			});
 		}
 		
 		@Override
 		public void onLeave(final PublisherInfo info, final int numUsers) {
 			if (DEBUG) Log.v(TAG, "onLeave:" + info + ",numUsers=" + numUsers);
+			runOnUiThread(new Runnable() {
+				@Override
+				public void run() {
+					remoteFeeds.remove(Long.valueOf(info.id));
+				}
+			});
 		}
 		
 		@Override
@@ -954,5 +1007,39 @@ public class CallActivity extends BaseActivity
 			reportError(description);
 		}
 
+		@Override
+		public void onReconnectStateChanged(
+			@NonNull final ReconnectScheduler.State state,
+			final int failureCount, final long delayMs) {
+
+			if (DEBUG) Log.v(TAG, "onReconnectStateChanged:" + state
+				+ ",failures=" + failureCount + ",delay=" + delayMs);
+			runOnUiThread(new Runnable() {
+				@Override
+				public void run() {
+					switch (state) {
+					case BACKOFF:
+						logAndToast("Connection lost, retry in " + delayMs + "ms");
+						break;
+					case CIRCUIT_OPEN:
+						logAndToast("Server unreachable, pause reconnecting for "
+							+ (delayMs / 1000) + "s");
+						break;
+					case CONNECTED:
+						logAndToast("Reconnected");
+						break;
+					default:
+						break;
+					}
+				}
+			});
+		}
+
+		@Override
+		public void onStatsReady(@NonNull final RtcStatsDelta stats) {
+			if (DEBUG) Log.v(TAG, "onStatsReady:" + stats);
+			hudFragment.updateStatistics(stats);
+		}
+
 	};
 }
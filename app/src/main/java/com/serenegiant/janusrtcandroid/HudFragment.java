@@ -9,8 +9,13 @@ package com.serenegiant.janusrtcandroid;/*
  */
 
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.support.annotation.NonNull;
 import android.support.v4.app.Fragment;
+import android.util.LongSparseArray;
 import android.util.TypedValue;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -18,20 +23,54 @@ import android.view.ViewGroup;
 import android.widget.ImageButton;
 import android.widget.TextView;
 
-import org.webrtc.StatsReport;
-
-import java.util.HashMap;
-import java.util.Map;
-
-import static org.appspot.apprtc.AppRTCConst.VIDEO_TRACK_ID;
+import com.serenegiant.janus.RtcStatsDelta;
 
 /**
  * Fragment for HUD statistics display.
+ * RtcStatsDelta are aggregated on a private background thread and
+ * only changed texts are pushed to the TextViews at most every MIN_REFRESH_INTERVAL_MS
  */
 public class HudFragment extends Fragment {
 	private static final boolean DEBUG = true;	// set false on production
 	private static final String TAG = HudFragment.class.getSimpleName();
 
+	/** minimum interval of updating TextViews[ミリ秒], independent of the stats period */
+	private static final long MIN_REFRESH_INTERVAL_MS = 500;
+	/** drop RtcStatsDelta of the PeerConnection that is not updated for this time[ミリ秒] */
+	private static final long STALE_MS = 3000;
+
+	private static final int TEXT_ENCODER = 0;
+	private static final int TEXT_BWE = 1;
+	private static final int TEXT_CONNECTION = 2;
+	private static final int TEXT_VIDEO_SEND = 3;
+	private static final int TEXT_VIDEO_RECV = 4;
+	private static final int NUM_TEXTS = 5;
+
+	/** header of each text, indexed by TEXT_XXX */
+	private static final String[] HEADERS = {
+		"",
+		"bwe\n",
+		"connection\n",
+		"video send\n",
+		"video recv\n",
+	};
+	private static final String LABEL_FPS = "Fps:  ";
+	private static final String LABEL_TARGET_BR = "Target BR: ";
+	private static final String LABEL_ACTUAL_BR = "Actual BR: ";
+	private static final String LABEL_CPU = "CPU%: ";
+	private static final String LABEL_FREQ = ". Freq: ";
+	private static final String LABEL_SEND_BW = "SendBandwidth=";
+	private static final String LABEL_RECV_BW = "ReceiveBandwidth=";
+	private static final String LABEL_RTT = " Rtt=";
+	private static final String LABEL_BITRATE = " Bitrate=";
+	private static final String LABEL_VIDEO_BITRATE = " VideoBitrate=";
+	private static final String LABEL_FRAME_RATE = " FrameRate=";
+	private static final String LABEL_LOSS = " PacketLoss=";
+	private static final String UNIT_KBPS = "kbps";
+	private static final String UNIT_MS = "ms";
+	private static final String UNIT_PERCENT = "%";
+	private static final String LABEL_PUBLISHER = "publisher";
+
 	private TextView encoderStatView;
 	private TextView hudViewBwe;
 	private TextView hudViewConnection;
@@ -41,8 +80,57 @@ public class HudFragment extends Fragment {
 	private boolean videoCallEnabled;
 	private boolean displayHud;
 	private volatile boolean isRunning;
-	private CpuMonitor cpuMonitor;
-	
+	private volatile CpuMonitor cpuMonitor;
+
+	private final Handler mUIHandler = new Handler(Looper.getMainLooper());
+	private HandlerThread mStatsThread;
+	private Handler mStatsHandler;
+	/** TextViews indexed by TEXT_XXX, only accessed on UI thread */
+	private final TextView[] mTextViews = new TextView[NUM_TEXTS];
+	/** texts currently shown, only accessed on UI thread */
+	private final String[] mShownTexts = new String[NUM_TEXTS];
+
+	// followings are only accessed on mStatsThread
+	/** latest RtcStatsDelta of each PeerConnection, key=pluginId */
+	private final LongSparseArray<RtcStatsDelta> mLatest = new LongSparseArray<>();
+	/** label of each PeerConnection, key=pluginId */
+	private final LongSparseArray<String> mNames = new LongSparseArray<>();
+	private final StringBuilder[] mBuilders = new StringBuilder[NUM_TEXTS];
+	private boolean mAggregateScheduled;
+	private long mLastAggregateMs;
+
+	private final Object mSync = new Object();
+	/** texts waiting to be shown, null when unchanged, guarded by mSync */
+	private final String[] mPendingTexts = new String[NUM_TEXTS];
+	/** guarded by mSync */
+	private boolean mRefreshPosted;
+
+	/**
+	 * コンストラクタ
+	 */
+	public HudFragment() {
+		super();
+		for (int i = 0; i < NUM_TEXTS; i++) {
+			mBuilders[i] = new StringBuilder(256);
+		}
+	}
+
+	@Override
+	public void onCreate(final Bundle savedInstanceState) {
+		super.onCreate(savedInstanceState);
+		mStatsThread = new HandlerThread(TAG);
+		mStatsThread.start();
+		mStatsHandler = new Handler(mStatsThread.getLooper());
+	}
+
+	@Override
+	public void onDestroy() {
+		mUIHandler.removeCallbacks(mRefreshTask);
+		mStatsHandler.removeCallbacksAndMessages(null);
+		mStatsThread.quit();
+		super.onDestroy();
+	}
+
 	@Override
 	public View onCreateView(
 		@NonNull final LayoutInflater inflater,
@@ -57,6 +145,14 @@ public class HudFragment extends Fragment {
 		hudViewVideoSend = controlView.findViewById(R.id.hud_stat_video_send);
 		hudViewVideoRecv = controlView.findViewById(R.id.hud_stat_video_recv);
 		toggleDebugButton = controlView.findViewById(R.id.button_toggle_debug);
+		mTextViews[TEXT_ENCODER] = encoderStatView;
+		mTextViews[TEXT_BWE] = hudViewBwe;
+		mTextViews[TEXT_CONNECTION] = hudViewConnection;
+		mTextViews[TEXT_VIDEO_SEND] = hudViewVideoSend;
+		mTextViews[TEXT_VIDEO_RECV] = hudViewVideoRecv;
+		for (int i = 0; i < NUM_TEXTS; i++) {
+			mShownTexts[i] = null;
+		}
 		
 		toggleDebugButton.setOnClickListener(new View.OnClickListener() {
 			@Override
@@ -91,6 +187,10 @@ public class HudFragment extends Fragment {
 	@Override
 	public void onStop() {
 		isRunning = false;
+		mUIHandler.removeCallbacks(mRefreshTask);
+		synchronized (mSync) {
+			mRefreshPosted = false;
+		}
 		super.onStop();
 	}
 	
@@ -109,102 +209,171 @@ public class HudFragment extends Fragment {
 		hudViewVideoRecv.setTextSize(TypedValue.COMPLEX_UNIT_PT, 5);
 	}
 	
-	private Map<String, String> getReportMap(final StatsReport report) {
-		Map<String, String> reportMap = new HashMap<>();
-		for (StatsReport.Value value : report.values) {
-			reportMap.put(value.name, value.value);
-		}
-		return reportMap;
-	}
-	
-	public void updateEncoderStatistics(final StatsReport[] reports) {
-		if (!isRunning || !displayHud) {
+	/**
+	 * update statistics of a PeerConnection,
+	 * this can be called from any thread(usually JanusCallback#onStatsReady)
+	 * and returns immediately
+	 * @param stats
+	 */
+	public void updateStatistics(@NonNull final RtcStatsDelta stats) {
+		if (!isRunning || !displayHud || (mStatsHandler == null)) {
 			return;
 		}
-		final StringBuilder encoderStat = new StringBuilder(128);
-		final StringBuilder bweStat = new StringBuilder();
-		final StringBuilder connectionStat = new StringBuilder();
-		final StringBuilder videoSendStat = new StringBuilder();
-		final StringBuilder videoRecvStat = new StringBuilder();
-		String fps = null;
-		String targetBitrate = null;
-		String actualBitrate = null;
-		
-		for (final StatsReport report : reports) {
-			if (report.type.equals("ssrc") && report.id.contains("ssrc") && report.id.contains("send")) {
-				// Send video statistics.
-				Map<String, String> reportMap = getReportMap(report);
-				String trackId = reportMap.get("googTrackId");
-				if (trackId != null && trackId.contains(VIDEO_TRACK_ID)) {
-					fps = reportMap.get("googFrameRateSent");
-					videoSendStat.append(report.id).append("\n");
-					for (StatsReport.Value value : report.values) {
-						String name = value.name.replace("goog", "");
-						videoSendStat.append(name).append("=").append(value.value).append("\n");
+		mStatsHandler.post(new Runnable() {
+			@Override
+			public void run() {
+				mLatest.put(stats.pluginId, stats);
+				if (!mAggregateScheduled) {
+					// several PeerConnections report in the same stats period,
+					// so aggregate them together not more often than MIN_REFRESH_INTERVAL_MS
+					mAggregateScheduled = true;
+					final long delay = mLastAggregateMs + MIN_REFRESH_INTERVAL_MS
+						- SystemClock.uptimeMillis();
+					mStatsHandler.postDelayed(mAggregateTask, delay > 0 ? delay : 0);
+				}
+			}
+		});
+	}
+
+	/**
+	 * aggregate latest RtcStatsDelta into texts, run on mStatsThread
+	 */
+	private final Runnable mAggregateTask = new Runnable() {
+		@Override
+		public void run() {
+			mAggregateScheduled = false;
+			mLastAggregateMs = SystemClock.uptimeMillis();
+			if (!isRunning) {
+				return;
+			}
+			removeStale();
+			for (int i = 0; i < NUM_TEXTS; i++) {
+				mBuilders[i].setLength(0);
+				mBuilders[i].append(HEADERS[i]);
+			}
+			final StringBuilder encoder = mBuilders[TEXT_ENCODER];
+			final StringBuilder bwe = mBuilders[TEXT_BWE];
+			final StringBuilder connection = mBuilders[TEXT_CONNECTION];
+			final StringBuilder send = mBuilders[TEXT_VIDEO_SEND];
+			final StringBuilder recv = mBuilders[TEXT_VIDEO_RECV];
+			final int n = mLatest.size();
+			for (int i = 0; i < n; i++) {
+				final RtcStatsDelta stats = mLatest.valueAt(i);
+				final String name = getName(stats);
+				connection.append(name).append(LABEL_RTT);
+				appendRounded(connection, stats.rttMs).append(UNIT_MS).append('\n');
+				if (stats.publisher) {
+					bwe.append(LABEL_SEND_BW);
+					appendKbps(bwe, stats.availableSendBitrate).append('\n');
+					send.append(name).append(LABEL_BITRATE);
+					appendKbps(send, stats.sendBitrate).append(LABEL_VIDEO_BITRATE);
+					appendKbps(send, stats.sendVideoBitrate).append(LABEL_FRAME_RATE);
+					appendRounded(send, stats.sendFps).append('\n');
+					if (videoCallEnabled) {
+						encoder.append(LABEL_FPS);
+						appendRounded(encoder, stats.sendFps).append('\n');
+						encoder.append(LABEL_TARGET_BR);
+						appendKbps(encoder, stats.availableSendBitrate).append('\n');
+						encoder.append(LABEL_ACTUAL_BR);
+						appendKbps(encoder, stats.sendVideoBitrate).append('\n');
 					}
+				} else {
+					bwe.append(name).append(' ').append(LABEL_RECV_BW);
+					appendKbps(bwe, stats.availableRecvBitrate).append('\n');
+					recv.append(name).append(LABEL_BITRATE);
+					appendKbps(recv, stats.recvBitrate).append(LABEL_VIDEO_BITRATE);
+					appendKbps(recv, stats.recvVideoBitrate).append(LABEL_FRAME_RATE);
+					appendRounded(recv, stats.recvFps).append(LABEL_LOSS);
+					appendRounded(recv, stats.recvPacketLossRate * 100).append(UNIT_PERCENT)
+						.append('\n');
 				}
-			} else if (report.type.equals("ssrc") && report.id.contains("ssrc")
-				&& report.id.contains("recv")) {
-				// Receive video statistics.
-				Map<String, String> reportMap = getReportMap(report);
-				// Check if this stat is for video track.
-				String frameWidth = reportMap.get("googFrameWidthReceived");
-				if (frameWidth != null) {
-					videoRecvStat.append(report.id).append("\n");
-					for (StatsReport.Value value : report.values) {
-						String name = value.name.replace("goog", "");
-						videoRecvStat.append(name).append("=").append(value.value).append("\n");
+			}
+			final CpuMonitor monitor = cpuMonitor;
+			if (monitor != null) {
+				encoder.append(LABEL_CPU)
+					.append(monitor.getCpuUsageCurrent())
+					.append('/')
+					.append(monitor.getCpuUsageAverage())
+					.append(LABEL_FREQ)
+					.append(monitor.getFrequencyScaleAverage());
+			}
+			boolean changed = false;
+			synchronized (mSync) {
+				for (int i = 0; i < NUM_TEXTS; i++) {
+					final String pending = mPendingTexts[i];
+					if ((pending == null) || !pending.contentEquals(mBuilders[i])) {
+						// String is created only when the text changed
+						mPendingTexts[i] = mBuilders[i].toString();
+						changed = true;
 					}
 				}
-			} else if (report.id.equals("bweforvideo")) {
-				// BWE statistics.
-				Map<String, String> reportMap = getReportMap(report);
-				targetBitrate = reportMap.get("googTargetEncBitrate");
-				actualBitrate = reportMap.get("googActualEncBitrate");
-				
-				bweStat.append(report.id).append("\n");
-				for (StatsReport.Value value : report.values) {
-					String name = value.name.replace("goog", "").replace("Available", "");
-					bweStat.append(name).append("=").append(value.value).append("\n");
+				if (changed && !mRefreshPosted) {
+					mRefreshPosted = true;
+					mUIHandler.post(mRefreshTask);
+				}
+			}
+		}
+	};
+
+	/**
+	 * push changed texts to TextViews, run on UI thread
+	 */
+	private final Runnable mRefreshTask = new Runnable() {
+		@Override
+		public void run() {
+			synchronized (mSync) {
+				mRefreshPosted = false;
+				if (!isRunning || (encoderStatView == null)) {
+					return;
 				}
-			} else if (report.type.equals("googCandidatePair")) {
-				// Connection statistics.
-				Map<String, String> reportMap = getReportMap(report);
-				String activeConnection = reportMap.get("googActiveConnection");
-				if (activeConnection != null && activeConnection.equals("true")) {
-					connectionStat.append(report.id).append("\n");
-					for (StatsReport.Value value : report.values) {
-						String name = value.name.replace("goog", "");
-						connectionStat.append(name).append("=").append(value.value).append("\n");
+				for (int i = 0; i < NUM_TEXTS; i++) {
+					final String text = mPendingTexts[i];
+					// mPendingTexts keeps the same instance while unchanged
+					if ((text != null) && (text != mShownTexts[i])) {
+						mShownTexts[i] = text;
+						mTextViews[i].setText(text);
 					}
 				}
 			}
 		}
-		hudViewBwe.setText(bweStat.toString());
-		hudViewConnection.setText(connectionStat.toString());
-		hudViewVideoSend.setText(videoSendStat.toString());
-		hudViewVideoRecv.setText(videoRecvStat.toString());
-		
-		if (videoCallEnabled) {
-			if (fps != null) {
-				encoderStat.append("Fps:  ").append(fps).append("\n");
-			}
-			if (targetBitrate != null) {
-				encoderStat.append("Target BR: ").append(targetBitrate).append("\n");
-			}
-			if (actualBitrate != null) {
-				encoderStat.append("Actual BR: ").append(actualBitrate).append("\n");
+	};
+
+	/**
+	 * remove RtcStatsDelta of PeerConnections that were already released
+	 */
+	private void removeStale() {
+		long latest = 0;
+		for (int i = mLatest.size() - 1; i >= 0; i--) {
+			latest = Math.max(latest, mLatest.valueAt(i).timestampMs);
+		}
+		for (int i = mLatest.size() - 1; i >= 0; i--) {
+			if (latest - mLatest.valueAt(i).timestampMs > STALE_MS) {
+				mNames.remove(mLatest.keyAt(i));
+				mLatest.removeAt(i);
 			}
 		}
-		
-		if (cpuMonitor != null) {
-			encoderStat.append("CPU%: ")
-				.append(cpuMonitor.getCpuUsageCurrent())
-				.append("/")
-				.append(cpuMonitor.getCpuUsageAverage())
-				.append(". Freq: ")
-				.append(cpuMonitor.getFrequencyScaleAverage());
+	}
+
+	/**
+	 * get label of the PeerConnection, created only once for each PeerConnection
+	 * @param stats
+	 * @return
+	 */
+	private String getName(@NonNull final RtcStatsDelta stats) {
+		String name = mNames.get(stats.pluginId);
+		if (name == null) {
+			name = stats.publisher ? LABEL_PUBLISHER
+				: (stats.feedId != 0 ? "feed " + stats.feedId : "subscriber " + stats.pluginId);
+			mNames.put(stats.pluginId, name);
 		}
-		encoderStatView.setText(encoderStat.toString());
+		return name;
+	}
+
+	private static StringBuilder appendKbps(@NonNull final StringBuilder sb, final long bps) {
+		return sb.append((bps + 500) / 1000).append(UNIT_KBPS);
+	}
+
+	private static StringBuilder appendRounded(@NonNull final StringBuilder sb, final double value) {
+		return sb.append(Math.round(value));
 	}
 }
@@ -0,0 +1,75 @@
+package com.serenegiant.janus;
+
+import android.support.annotation.NonNull;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.serenegiant.janus.response.EventRoom;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * parsing of one long poll response(recorded events, maxev=8) into EventRoom,
+ * string -> JSONObject -> string -> Gson path and the streaming EventDecoder
+ * that HttpTransport uses
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LongPollEventBench {
+
+	private String mResponse;
+	private Gson mGson;
+
+	@Setup
+	public void setup() {
+		final StringBuilder sb = new StringBuilder("[");
+		for (int i = 0; i < RecordedEvents.ALL.length; i++) {
+			if (i > 0) sb.append(',');
+			sb.append(RecordedEvents.ALL[i]);
+		}
+		mResponse = sb.append(']').toString();
+		mGson = new GsonBuilder()
+			.registerTypeAdapterFactory(new JanusTypeAdapterFactory())
+			.create();
+	}
+
+	@Benchmark
+	public void jsonObjectAndGson(final Blackhole blackhole) throws Exception {
+		final JSONArray events = (JSONArray)new JSONTokener(mResponse).nextValue();
+		final int n = events.length();
+		for (int i = 0; i < n; i++) {
+			final JSONObject body = events.getJSONObject(i);
+			blackhole.consume(mGson.fromJson(body.toString(), EventRoom.class));
+		}
+	}
+
+	@Benchmark
+	public int streaming(final Blackhole blackhole) throws Exception {
+		return EventDecoder.decode(new StringReader(mResponse), new EventDecoder.Sink() {
+			@Override
+			public void onEvent(@NonNull final EventRoom event) {
+				blackhole.consume(event);
+			}
+		});
+	}
+}
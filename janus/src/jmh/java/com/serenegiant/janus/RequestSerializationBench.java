@@ -0,0 +1,115 @@
+package com.serenegiant.janus;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.serenegiant.janus.request.Join;
+import com.serenegiant.janus.request.JsepSdp;
+import com.serenegiant.janus.request.Message;
+import com.serenegiant.janus.request.Trickle;
+
+import org.appspot.apprtc.util.RecordedSdps;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.RequestBody;
+import okio.Buffer;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+/**
+ * request serialization through Retrofit Gson converter,
+ * the same path as VideoRoom/LongPoll calls of HttpTransport
+ * (Converter#convert and writing RequestBody),
+ * converter of plain Gson(reflective) is kept as the baseline of JanusTypeAdapterFactory
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RequestSerializationBench {
+	private static final long SESSION_ID = 3870519484418461L;
+	private static final long HANDLE_ID = 8118458296733815L;
+
+	private Message mOffer;
+	private Trickle mTrickle;
+	private Converter<Message, RequestBody> mMessageConverter;
+	private Converter<Trickle, RequestBody> mTrickleConverter;
+	private Converter<Message, RequestBody> mReflectiveMessageConverter;
+	private Converter<Trickle, RequestBody> mReflectiveTrickleConverter;
+	private final Buffer mBuffer = new Buffer();
+
+	@Setup
+	public void setup() {
+		final TransactionManager manager = new TransactionManager();
+		mOffer = new Message(manager, SESSION_ID, HANDLE_ID,
+			new Join(1234, "publisher", "user", "display", null),
+			new JsepSdp("offer", RecordedSdps.CHROME_OFFER), null);
+		mTrickle = new Trickle(manager, SESSION_ID, HANDLE_ID,
+			new Trickle.Candidate(0, "0",
+				"candidate:842163049 1 udp 1677729535 203.0.113.10 40101 typ srflx "
+				+ "raddr 0.0.0.0 rport 0 generation 0 ufrag sK4f network-cost 999"),
+			null);
+		final Gson gson = new GsonBuilder()
+			.registerTypeAdapterFactory(new JanusTypeAdapterFactory())
+			.create();
+		final Annotation[] none = new Annotation[0];
+		final Retrofit retrofit = createRetrofit(gson);
+		mMessageConverter = retrofit.requestBodyConverter(Message.class, none, none);
+		mTrickleConverter = retrofit.requestBodyConverter(Trickle.class, none, none);
+		final Retrofit reflective = createRetrofit(new Gson());
+		mReflectiveMessageConverter = reflective.requestBodyConverter(Message.class, none, none);
+		mReflectiveTrickleConverter = reflective.requestBodyConverter(Trickle.class, none, none);
+	}
+
+	private static Retrofit createRetrofit(final Gson gson) {
+		return new Retrofit.Builder()
+			.baseUrl("https://janus.example.com/")
+			.addConverterFactory(GsonConverterFactory.create(gson))
+			.build();
+	}
+
+	/**
+	 * join with offer SDP of Chrome
+	 */
+	@Benchmark
+	public long messageWithOffer() throws IOException {
+		return write(mMessageConverter.convert(mOffer));
+	}
+
+	@Benchmark
+	public long trickle() throws IOException {
+		return write(mTrickleConverter.convert(mTrickle));
+	}
+
+	@Benchmark
+	public long messageWithOfferReflective() throws IOException {
+		return write(mReflectiveMessageConverter.convert(mOffer));
+	}
+
+	@Benchmark
+	public long trickleReflective() throws IOException {
+		return write(mReflectiveTrickleConverter.convert(mTrickle));
+	}
+
+	private long write(final RequestBody body) throws IOException {
+		body.writeTo(mBuffer);
+		final long size = mBuffer.size();
+		mBuffer.clear();
+		return size;
+	}
+}
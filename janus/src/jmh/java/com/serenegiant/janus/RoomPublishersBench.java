@@ -0,0 +1,112 @@
+package com.serenegiant.janus;
+
+import com.serenegiant.janus.response.Plugin;
+import com.serenegiant.janus.response.PublisherInfo;
+import com.serenegiant.janus.response.Session;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * publisher updates of Room with different number of participants,
+ * each event is followed by Room#getPublishers like the UI reading the list
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RoomPublishersBench {
+	/** janus-gateway sends publishers list in chunks when many publishers join */
+	private static final int CHUNK = 50;
+	private static final long BASE_ID = 6419437437012474L;
+
+	@Param({"10", "100", "1000"})
+	public int participants;
+
+	private final Session mSession = new Session("success", null, new Session.Data(3870519484418461L));
+	private final Plugin mPlugin = new Plugin("success", null, new Plugin.Data(8118458296733815L));
+	private PublisherInfo[][] mChunks;
+	private PublisherInfo[] mFull;
+	private Room mRoom;
+	private int mIndex;
+
+	@Setup
+	public void setup() {
+		mFull = new PublisherInfo[participants];
+		for (int i = 0; i < participants; i++) {
+			mFull[i] = new PublisherInfo(BASE_ID + i, "p" + i, "opus", "vp8", false);
+		}
+		mChunks = new PublisherInfo[(participants + CHUNK - 1) / CHUNK][];
+		for (int i = 0; i < mChunks.length; i++) {
+			final int n = Math.min(CHUNK, participants - i * CHUNK);
+			mChunks[i] = new PublisherInfo[n];
+			System.arraycopy(mFull, i * CHUNK, mChunks[i], 0, n);
+		}
+		mRoom = new Room(mSession, mPlugin);
+		mRoom.updatePublishers(mFull);
+	}
+
+	/**
+	 * joined event and publishers events in chunks into empty room
+	 */
+	@Benchmark
+	public List<PublisherInfo> joinAll() {
+		final Room room = new Room(mSession, mPlugin);
+		List<PublisherInfo> result = null;
+		for (final PublisherInfo[] chunk: mChunks) {
+			room.updatePublishers(chunk);
+			result = room.getPublishers();
+		}
+		return result;
+	}
+
+	/**
+	 * publishers event with the full list, nobody is new
+	 */
+	@Benchmark
+	public List<PublisherInfo> updateWithFullList() {
+		mRoom.updatePublishers(mFull);
+		return mRoom.getPublishers();
+	}
+
+	/**
+	 * talking/stopped-talking, the state of each publisher changes every round
+	 */
+	@Benchmark
+	public List<PublisherInfo> talking() {
+		final int index = next();
+		mRoom.updatePublisher(BASE_ID + index, ((mIndex / participants) & 1) == 0);
+		return mRoom.getPublishers();
+	}
+
+	/**
+	 * leaving and the publisher joins again
+	 */
+	@Benchmark
+	public List<PublisherInfo> leaveAndJoin() {
+		final int index = next();
+		mRoom.removePublisher(BASE_ID + index);
+		mRoom.getPublishers();
+		mRoom.updatePublishers(new PublisherInfo[] {mFull[index]});
+		return mRoom.getPublishers();
+	}
+
+	private int next() {
+		mIndex++;
+		return mIndex % participants;
+	}
+}
@@ -0,0 +1,39 @@
+package com.serenegiant.janus;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TransactionIdGenerator, one id for each request to janus-gateway
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TransactionIdGeneratorBench {
+	private final TransactionIdGenerator mRandom
+		= new TransactionIdGenerator.RandomIdGenerator();
+	private final TransactionIdGenerator mCounter
+		= new TransactionIdGenerator.CounterIdGenerator();
+
+	@Benchmark
+	public String random() {
+		return mRandom.next();
+	}
+
+	@Benchmark
+	public String counter() {
+		return mCounter.next();
+	}
+}
@@ -0,0 +1,176 @@
+package com.serenegiant.janus;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.serenegiant.janus.response.EventRoom;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TransactionManager#get and #handleTransaction under contention,
+ * 8 threads share one TransactionManager like executor lanes of JanusRTCClient
+ * and the long poll/websocket receiving thread,
+ * previous static HashMap implementation(Legacy) is kept as the baseline
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class TransactionManagerBench {
+	/**
+	 * number of transactions that are waiting for their responses
+	 */
+	private static final int PENDING = 1024;
+
+	private static final TransactionManager.TransactionCallback HANDLED
+		= (transaction, body) -> true;
+	/** keeps the transaction pending */
+	private static final TransactionManager.TransactionCallback NOT_HANDLED
+		= (transaction, body) -> false;
+
+	private final EventRoom mAck = new EventRoom("ack", JanusId.NONE, null, null, null);
+	private TransactionManager mManager;
+	private String[] mPending;
+
+	@Setup
+	public void setup() {
+		mManager = new TransactionManager();
+		mPending = new String[PENDING];
+		for (int i = 0; i < PENDING; i++) {
+			mPending[i] = mManager.get(NOT_HANDLED);
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		mManager.clearTransactions();
+	}
+
+	/**
+	 * register and handle, one request - response cycle
+	 */
+	@Benchmark
+	public boolean getAndHandle() {
+		final String transaction = mManager.get(HANDLED);
+		return mManager.handleTransaction(transaction, mAck);
+	}
+
+	/**
+	 * lookup of pending transactions, e.g. events that are not the response
+	 */
+	@Benchmark
+	public boolean handlePending() {
+		final String transaction = mPending[ThreadLocalRandom.current().nextInt(PENDING)];
+		return mManager.handleTransaction(transaction, mAck);
+	}
+
+	/**
+	 * get without callback(e.g. keepalive/trickle)
+	 */
+	@Benchmark
+	public String getWithoutCallback() {
+		return mManager.get(null);
+	}
+
+	@Benchmark
+	public boolean getAndHandleLegacy(final Legacy legacy) {
+		final String transaction = legacy.get(Legacy.LENGTH, HANDLED);
+		return legacy.handleTransaction(transaction, mAck);
+	}
+
+	@Benchmark
+	public boolean handlePendingLegacy(final Legacy legacy) {
+		final String transaction = legacy.mPending[ThreadLocalRandom.current().nextInt(PENDING)];
+		return legacy.handleTransaction(transaction, mAck);
+	}
+
+	@Benchmark
+	public String getWithoutCallbackLegacy(final Legacy legacy) {
+		return legacy.get(Legacy.LENGTH, null);
+	}
+
+	/**
+	 * previous implementation of TransactionManager, shared by all threads
+	 * like its static HashMap. random transaction id from one java.util.Random,
+	 * one monitor guards the map and the callback is called while holding it.
+	 * handled transaction is removed so that the map does not grow while measuring
+	 */
+	@State(Scope.Benchmark)
+	public static class Legacy {
+		private static final int LENGTH = 12;
+		private static final String STR
+			= "0123456789abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ";
+
+		private final Random mRandom = new Random();
+		private final Map<String, TransactionManager.TransactionCallback>
+			mTransactions = new HashMap<>();
+		private String[] mPending;
+
+		@Setup
+		public void setup() {
+			mPending = new String[PENDING];
+			for (int i = 0; i < PENDING; i++) {
+				mPending[i] = get(LENGTH, NOT_HANDLED);
+			}
+		}
+
+		@TearDown
+		public void tearDown() {
+			synchronized (mTransactions) {
+				mTransactions.clear();
+			}
+		}
+
+		public String get(final int length,
+			@Nullable final TransactionManager.TransactionCallback callback) {
+
+			final StringBuilder sb = new StringBuilder(length);
+			for (int i = 0; i < length; i++) {
+				sb.append(STR.charAt(mRandom.nextInt(STR.length())));
+			}
+			final String transaction = sb.toString();
+			if (callback != null) {
+				synchronized (mTransactions) {
+					mTransactions.put(transaction, callback);
+				}
+			}
+			return transaction;
+		}
+
+		public boolean handleTransaction(@NonNull final String transaction,
+			@NonNull final EventRoom body) {
+
+			synchronized (mTransactions) {
+				final TransactionManager.TransactionCallback callback
+					= mTransactions.get(transaction);
+				final boolean result = (callback != null)
+					&& callback.onReceived(transaction, body);
+				if (result) {
+					mTransactions.remove(transaction);
+				}
+				return result;
+			}
+		}
+	}
+}
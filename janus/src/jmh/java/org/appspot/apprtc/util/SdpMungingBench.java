@@ -0,0 +1,87 @@
+package org.appspot.apprtc.util;
+
+import org.appspot.apprtc.PeerConnectionParameters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.appspot.apprtc.AppRTCConst.*;
+
+/**
+ * SdpUtils#preferCodec/#setStartBitrate and SdpTransformerChain on recorded SDPs,
+ * previous regex implementation(LegacySdpUtils) is kept as the baseline
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SdpMungingBench {
+
+	@Param({"chrome", "janus", "janus-multistream"})
+	public String sdp;
+
+	private String mSdp;
+	private SdpTransformerChain mChain;
+
+	@Setup
+	public void setup() {
+		switch (sdp) {
+		case "janus":
+			mSdp = RecordedSdps.JANUS_OFFER;
+			break;
+		case "janus-multistream":
+			mSdp = RecordedSdps.JANUS_MULTISTREAM_OFFER;
+			break;
+		default:
+			mSdp = RecordedSdps.CHROME_OFFER;
+			break;
+		}
+		mChain = SdpTransformerChain.create(new PeerConnectionParameters(true, false, false,
+			1280, 720, 30, 0, VIDEO_CODEC_H264,
+			true, false, 32,
+			AUDIO_CODEC_OPUS, false, false, false,
+			false, false, false,
+			false, false, false,
+			false, null), true);
+	}
+
+	@Benchmark
+	public String preferCodec() {
+		return SdpUtils.preferCodec(mSdp, VIDEO_CODEC_H264, false);
+	}
+
+	@Benchmark
+	public String preferCodecLegacy() {
+		return LegacySdpUtils.preferCodec(mSdp, VIDEO_CODEC_H264, false);
+	}
+
+	@Benchmark
+	public String setStartBitrate() {
+		return SdpUtils.setStartBitrate(AUDIO_CODEC_OPUS, false, mSdp, 32);
+	}
+
+	@Benchmark
+	public String setStartBitrateLegacy() {
+		return LegacySdpUtils.setStartBitrate(AUDIO_CODEC_OPUS, false, mSdp, 32);
+	}
+
+	/**
+	 * remote SDP munging of one negotiation with JanusPlugin
+	 */
+	@Benchmark
+	public String transformerChain() {
+		return mChain.apply(mSdp, true);
+	}
+}
@@ -0,0 +1,201 @@
+package com.serenegiant.janus;
+/*
+ * JanusRTCAndroid
+ * Video chat sample app using videoroom plugin on janus-gateway server and WebRTC.
+ *
+ * Copyright (c) 2018 saki t_saki@serenegiant.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+*/
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * AIMD(additive increase/multiplicative decrease) bitrate control of the publisher.
+ * target bitrate is decreased multiplicatively on slowlink(uplink) from janus-gateway
+ * or when the bandwidth estimation of the selected candidate pair falls below it,
+ * and increased additively up to the bandwidth estimation while the link is stable.
+ * resolution and frame rate are stepped down when the target gets low,
+ * and stepped up with hysteresis so that they do not flap around the threshold
+ */
+public class AimdBitratePolicy implements BitratePolicy {
+	public static final int DEFAULT_MIN_BITRATE_BPS = 100000;
+	public static final int DEFAULT_MAX_BITRATE_BPS = 2000000;
+	/** multiplicative decrease factor */
+	private static final double DECREASE_FACTOR = 0.85;
+	/** additive increase per second, ratio to the maximum bitrate */
+	private static final double INCREASE_RATIO_PER_SEC = 0.05;
+	/** no increase for this time after decrease[ミリ秒] */
+	private static final long HOLD_MS = 2000;
+	/** bandwidth estimation lower than target * this value is regarded as congestion */
+	private static final double BWE_CONGESTION_RATIO = 0.8;
+	/** bitrate change smaller than this ratio is not applied */
+	private static final double MIN_CHANGE_RATIO = 0.05;
+	/** scale down factor of resolution of each level */
+	private static final double[] SCALE_DOWN_BY = { 1.0, 1.5, 2.0 };
+	/** frame rate divisor of each level */
+	private static final int[] FRAMERATE_DIVISOR = { 1, 1, 2 };
+	/** step down to the next level when target / max bitrate is lower than this */
+	private static final double[] STEP_DOWN_RATIO = { 0.4, 0.2 };
+	/** step up only when target / max bitrate exceeds STEP_DOWN_RATIO * this */
+	private static final double STEP_UP_HYSTERESIS = 1.5;
+
+	private final int mMinBitrateBps;
+	private final int mMaxBitrateBps;
+	private final int mMaxFramerate;
+	private double mTargetBps;
+	private int mLevel;
+	private int mSlowLinkLost;
+	private long mLastDecreaseMs;
+	@Nullable
+	private EncodingTarget mApplied;
+
+	/**
+	 * コンストラクタ
+	 * @param maxBitrateBps 0 or negative value means DEFAULT_MAX_BITRATE_BPS
+	 * @param maxFramerate
+	 */
+	public AimdBitratePolicy(final int maxBitrateBps, final int maxFramerate) {
+		this(DEFAULT_MIN_BITRATE_BPS, maxBitrateBps, maxFramerate);
+	}
+
+	/**
+	 * コンストラクタ
+	 * @param minBitrateBps
+	 * @param maxBitrateBps 0 or negative value means DEFAULT_MAX_BITRATE_BPS
+	 * @param maxFramerate
+	 */
+	public AimdBitratePolicy(final int minBitrateBps,
+		final int maxBitrateBps, final int maxFramerate) {
+
+		mMaxBitrateBps = maxBitrateBps > 0 ? maxBitrateBps : DEFAULT_MAX_BITRATE_BPS;
+		if ((minBitrateBps <= 0) || (minBitrateBps > mMaxBitrateBps)) {
+			throw new IllegalArgumentException("invalid bitrate range:"
+				+ minBitrateBps + "-" + mMaxBitrateBps);
+		}
+		if (maxFramerate <= 0) {
+			throw new IllegalArgumentException("invalid frame rate:" + maxFramerate);
+		}
+		mMinBitrateBps = minBitrateBps;
+		mMaxFramerate = maxFramerate;
+		reset();
+	}
+
+	@Override
+	public void reset() {
+		mTargetBps = mMaxBitrateBps;
+		mLevel = 0;
+		mSlowLinkLost = 0;
+		mLastDecreaseMs = Long.MIN_VALUE / 2;
+		mApplied = null;
+	}
+
+	@Override
+	public void onSlowLink(final boolean uplink, final int lost) {
+		// downlink is about the media this client receives
+		if (uplink) {
+			// janus-gateway may send slowlink without lost count
+			mSlowLinkLost += Math.max(lost, 1);
+		}
+	}
+
+	@Nullable
+	@Override
+	public EncodingTarget onStats(@NonNull final RtcStatsDelta stats) {
+		if (!stats.publisher) {
+			return null;
+		}
+		final long now = stats.timestampMs;
+		final long available = stats.availableSendBitrate;
+		final boolean bweDropped = (available > 0)
+			&& (available < mTargetBps * BWE_CONGESTION_RATIO);
+		if ((mSlowLinkLost > 0) || bweDropped) {
+			double target = mTargetBps * DECREASE_FACTOR;
+			if (bweDropped) {
+				target = Math.min(target, available);
+			}
+			mTargetBps = Math.max(target, mMinBitrateBps);
+			mLastDecreaseMs = now;
+		} else if (now - mLastDecreaseMs >= HOLD_MS) {
+			// do not go beyond the bandwidth estimation, probing is left to WebRTC,
+			// otherwise the target saw-tooths around it
+			final double limit = available > 0
+				? Math.min(Math.max(available, mMinBitrateBps), mMaxBitrateBps)
+				: mMaxBitrateBps;
+			final double increased = mTargetBps
+				+ mMaxBitrateBps * INCREASE_RATIO_PER_SEC * stats.intervalMs / 1000.0;
+			mTargetBps = Math.max(mTargetBps, Math.min(increased, limit));
+		}
+		mSlowLinkLost = 0;
+		updateLevel();
+		return update();
+	}
+
+	/**
+	 * current target bitrate[bps], this may not be applied yet
+	 * @return
+	 */
+	public int getTargetBitrate() {
+		return (int)mTargetBps;
+	}
+
+	/**
+	 * step resolution/frame rate level according to the target bitrate with hysteresis
+	 */
+	private void updateLevel() {
+		final double ratio = mTargetBps / mMaxBitrateBps;
+		while ((mLevel < STEP_DOWN_RATIO.length) && (ratio < STEP_DOWN_RATIO[mLevel])) {
+			mLevel++;
+		}
+		while ((mLevel > 0) && (ratio >= STEP_DOWN_RATIO[mLevel - 1] * STEP_UP_HYSTERESIS)) {
+			mLevel--;
+		}
+	}
+
+	/**
+	 * @return new EncodingTarget if it should be applied, otherwise null
+	 */
+	@Nullable
+	private EncodingTarget update() {
+		final int target = (int)mTargetBps;
+		final int framerate = Math.max(mMaxFramerate / FRAMERATE_DIVISOR[mLevel], 1);
+		final double scale = SCALE_DOWN_BY[mLevel];
+		final EncodingTarget applied = mApplied;
+		if (applied != null) {
+			final int diff = Math.abs(target - applied.maxBitrateBps);
+			final boolean bitrateChanged = (diff >= applied.maxBitrateBps * MIN_CHANGE_RATIO)
+				// always follow when the target reached the limits
+				|| ((diff > 0) && ((target == mMinBitrateBps) || (target == mMaxBitrateBps)));
+			if (!bitrateChanged
+				&& (scale == applied.scaleDownBy) && (framerate == applied.maxFramerate)) {
+
+				return null;
+			}
+		}
+		mApplied = new EncodingTarget(target, scale, framerate);
+		return mApplied;
+	}
+
+	@Override
+	public String toString() {
+		return "AimdBitratePolicy{" +
+			"min=" + mMinBitrateBps +
+			", max=" + mMaxBitrateBps +
+			", target=" + (int)mTargetBps +
+			", level=" + mLevel +
+			", applied=" + mApplied +
+			'}';
+	}
+}
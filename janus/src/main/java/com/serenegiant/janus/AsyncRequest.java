@@ -0,0 +1,156 @@
+package com.serenegiant.janus;
+/*
+ * JanusRTCAndroid
+ * Video chat sample app using videoroom plugin on janus-gateway server and WebRTC.
+ *
+ * Copyright (c) 2018 saki t_saki@serenegiant.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+*/
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * asynchronous request of JanusTransport with timeout and cancellation.
+ * Exactly one of Callback#onResponse/#onFailure is called unless the request is canceled,
+ * both are not called after #cancel.
+ * Callbacks are called on the thread that completes the request
+ * (OkHttp dispatcher, WebSocket reader or timer thread),
+ * so they must not block and must marshal PeerConnection work onto its executor.
+ * @param <T>
+ */
+/*package*/ class AsyncRequest<T>
+	implements JanusTransport.Cancelable, JanusTransport.Callback<T> {
+
+	private static final boolean DEBUG = false;	// set false on production
+	private static final String TAG = AsyncRequest.class.getSimpleName();
+
+	private static final int ST_RUNNING = 0;
+	private static final int ST_COMPLETED = 1;
+	private static final int ST_CANCELED = 2;
+
+	@NonNull
+	private final JanusTransport.Callback<T> mCallback;
+	private final AtomicInteger mState = new AtomicInteger(ST_RUNNING);
+	@Nullable
+	private volatile JanusTransport.Cancelable mCall;
+	@Nullable
+	private volatile HashedWheelTimer.Timeout mTimeout;
+
+	/**
+	 * コンストラクタ
+	 * @param callback
+	 */
+	public AsyncRequest(@NonNull final JanusTransport.Callback<T> callback) {
+		mCallback = callback;
+	}
+
+	/**
+	 * set underlying call and start timeout
+	 * @param call
+	 * @param timeoutMs 0以下ならタイムアウトしない
+	 * @param timer
+	 * @return this
+	 */
+	@NonNull
+	public AsyncRequest<T> start(@NonNull final JanusTransport.Cancelable call,
+		final long timeoutMs, @NonNull final HashedWheelTimer timer) {
+
+		mCall = call;
+		if ((timeoutMs > 0) && (mState.get() == ST_RUNNING)) {
+			mTimeout = timer.newTimeout(mTimeoutTask, timeoutMs, TimeUnit.MILLISECONDS);
+		}
+		switch (mState.get()) {
+		case ST_COMPLETED:
+			// completed while starting
+			cancelTimeout();
+			break;
+		case ST_CANCELED:
+			// canceled while starting
+			cancelTimeout();
+			call.cancel();
+			break;
+		default:
+			break;
+		}
+		return this;
+	}
+
+	@Override
+	public void onResponse(@NonNull final T response) {
+		if (mState.compareAndSet(ST_RUNNING, ST_COMPLETED)) {
+			cancelTimeout();
+			mCallback.onResponse(response);
+		}
+	}
+
+	@Override
+	public void onFailure(@NonNull final Throwable t) {
+		if (mState.compareAndSet(ST_RUNNING, ST_COMPLETED)) {
+			cancelTimeout();
+			mCallback.onFailure(t);
+		}
+	}
+
+	@Override
+	public void cancel() {
+		if (mState.compareAndSet(ST_RUNNING, ST_CANCELED)) {
+			if (DEBUG) Log.v(TAG, "cancel:");
+			cancelTimeout();
+			final JanusTransport.Cancelable call = mCall;
+			if (call != null) {
+				call.cancel();
+			}
+		}
+	}
+
+	@Override
+	public boolean isCanceled() {
+		return mState.get() == ST_CANCELED;
+	}
+
+	/**
+	 * @return true if the request completed(succeeded, failed or timed out)
+	 */
+	public boolean isCompleted() {
+		return mState.get() == ST_COMPLETED;
+	}
+
+	private void cancelTimeout() {
+		final HashedWheelTimer.Timeout timeout = mTimeout;
+		if (timeout != null) {
+			timeout.cancel();
+		}
+	}
+
+	private final Runnable mTimeoutTask = new Runnable() {
+		@Override
+		public void run() {
+			if (mState.compareAndSet(ST_RUNNING, ST_COMPLETED)) {
+				if (DEBUG) Log.v(TAG, "timeout:");
+				final JanusTransport.Cancelable call = mCall;
+				if (call != null) {
+					call.cancel();
+				}
+				mCallback.onFailure(new InterruptedIOException("timeout"));
+			}
+		}
+	};
+}
@@ -0,0 +1,139 @@
+package com.serenegiant.janus;
+/*
+ * JanusRTCAndroid
+ * Video chat sample app using videoroom plugin on janus-gateway server and WebRTC.
+ *
+ * Copyright (c) 2018 saki t_saki@serenegiant.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+*/
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * policy of adaptive bitrate control of the publisher,
+ * set with JanusClient#setBitratePolicy.
+ * all methods are called on the statistics lane of JanusRTCClient,
+ * so the implementation does not need to be thread safe
+ */
+public interface BitratePolicy {
+
+	/**
+	 * encoding constraints of the local video that the policy requests
+	 */
+	public static class EncodingTarget {
+		/** maximum bitrate of the video encoder[bps] */
+		public final int maxBitrateBps;
+		/** scale down factor of the resolution, 1.0 means captured size */
+		public final double scaleDownBy;
+		/** maximum frame rate[fps] */
+		public final int maxFramerate;
+
+		/**
+		 * コンストラクタ
+		 * @param maxBitrateBps
+		 * @param scaleDownBy
+		 * @param maxFramerate
+		 */
+		public EncodingTarget(final int maxBitrateBps,
+			final double scaleDownBy, final int maxFramerate) {
+
+			this.maxBitrateBps = maxBitrateBps;
+			this.scaleDownBy = scaleDownBy;
+			this.maxFramerate = maxFramerate;
+		}
+
+		/**
+		 * split maxBitrateBps into the layers of simulcast(lowest resolution first).
+		 * each layer has a quarter of the pixels of the upper one, so the bitrate
+		 * is distributed in proportion to the pixels and the total does not exceed
+		 * maxBitrateBps
+		 * @param numLayers
+		 * @return maximum bitrate of each layer[bps]
+		 */
+		@NonNull
+		public int[] splitForSimulcast(final int numLayers) {
+			final int[] result = new int[Math.max(numLayers, 1)];
+			long total = 0;
+			for (int i = 0; i < result.length; i++) {
+				total += 1L << (2 * i);
+			}
+			for (int i = 0; i < result.length; i++) {
+				result[i] = (int)(maxBitrateBps * (1L << (2 * i)) / total);
+			}
+			return result;
+		}
+
+		/**
+		 * whether resolution or frame rate is different from the other
+		 * @param other
+		 * @return
+		 */
+		public boolean isFormatChanged(@Nullable final EncodingTarget other) {
+			return (other == null)
+				|| (scaleDownBy != other.scaleDownBy)
+				|| (maxFramerate != other.maxFramerate);
+		}
+
+		@Override
+		public boolean equals(final Object o) {
+			if (this == o) return true;
+			if (!(o instanceof EncodingTarget)) return false;
+			final EncodingTarget other = (EncodingTarget) o;
+			return (maxBitrateBps == other.maxBitrateBps)
+				&& !isFormatChanged(other);
+		}
+
+		@Override
+		public int hashCode() {
+			int result = maxBitrateBps;
+			final long scale = Double.doubleToLongBits(scaleDownBy);
+			result = 31 * result + (int)(scale ^ (scale >>> 32));
+			result = 31 * result + maxFramerate;
+			return result;
+		}
+
+		@Override
+		public String toString() {
+			return "EncodingTarget{" +
+				"maxBitrateBps=" + maxBitrateBps +
+				", scaleDownBy=" + scaleDownBy +
+				", maxFramerate=" + maxFramerate +
+				'}';
+		}
+	}
+
+	/**
+	 * janus-gateway reported slowlink event on the publisher handle
+	 * @param uplink true: janus-gateway is missing packets sent from this client
+	 * @param lost number of lost packets janus-gateway reported
+	 */
+	public void onSlowLink(final boolean uplink, final int lost);
+
+	/**
+	 * rates of the publisher PeerConnection are updated,
+	 * only called while stats events are enabled(JanusClient#enableStatsEvents)
+	 * @param stats
+	 * @return new EncodingTarget to apply, null if it should not be changed
+	 */
+	@Nullable
+	public EncodingTarget onStats(@NonNull final RtcStatsDelta stats);
+
+	/**
+	 * clear the state, called when the policy is set
+	 * and when the publisher is (re)created
+	 */
+	public void reset();
+}
@@ -19,6 +19,8 @@ package com.serenegiant.janus;
  *
 */
 
+import org.appspot.apprtc.RoomConnectionParameters;
+
 public class Const {
 	/** Janus-gatewayサーバーとの接続タイムアウト設定[ミリ秒] */
 	/*package*/ static final long HTTP_CONNECT_TIMEOUT_MS = 3000;
@@ -27,4 +29,13 @@ public class Const {
 	/*package*/ static final long HTTP_READ_TIMEOUT_MS_LONG_POLL = 45000;
 	/** Janus-gatewayサーバーへの書き込みタイムアウト設定[ミリ秒] */
 	/*package*/ static final long HTTP_WRITE_TIMEOUT_MS = 3000;
+	/** 非同期要求(join/offer/answer/trickle/detach等)の応答待ちタイムアウト[ミリ秒] */
+	/*package*/ static final long REQUEST_TIMEOUT_MS = 10000;
+	/** 切断時に各プラグインのdetachが終わるのを待つ最大時間[ミリ秒] */
+	/*package*/ static final long DETACH_TIMEOUT_MS = 3000;
+	/** 同一ホスト(janus-gatewayサーバー)への同時要求数の上限 */
+	/*package*/ static final int HTTP_MAX_REQUESTS_PER_HOST = 16;
+	/** 1回のlong pollで受け取る最大イベント数(maxev) */
+	/*package*/ static final int LONG_POLL_MAX_EVENTS
+		= RoomConnectionParameters.DEFAULT_LONG_POLL_MAX_EVENTS;
 }
@@ -0,0 +1,103 @@
+package com.serenegiant.janus;
+/*
+ * JanusRTCAndroid
+ * Video chat sample app using videoroom plugin on janus-gateway server and WebRTC.
+ *
+ * Copyright (c) 2018 saki t_saki@serenegiant.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+*/
+
+import android.support.annotation.NonNull;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.serenegiant.janus.response.EventRoom;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+
+/**
+ * single pass streaming decoder of events from janus-gateway server
+ * long poll/WebSocketで受信したイベントを
+ * 文字列→JSONObject→文字列→Gsonと何度も変換せずに
+ * JsonReaderで1回読むだけでEventRoomへ変換する
+ * TypeAdapterは状態を持たないのでJanusTypeAdapterFactoryのものを共有する
+ */
+/*package*/ class EventDecoder {
+
+	/**
+	 * callback interface to receive decoded events
+	 */
+	public interface Sink {
+		public void onEvent(@NonNull final EventRoom event);
+	}
+
+	private EventDecoder() {
+		// インスタンス化をエラーとするためにデフォルトコンストラクタをprivateに
+	}
+
+	/**
+	 * decode one event or JSON array of events(long poll with maxev)
+	 * and pass them to sink in received order
+	 * @param in
+	 * @param sink
+	 * @return number of decoded events
+	 * @throws IOException
+	 */
+	public static int decode(@NonNull final Reader in, @NonNull final Sink sink)
+		throws IOException {
+
+		final JsonReader reader = new JsonReader(in);
+		int result = 0;
+		try {
+			switch (reader.peek()) {
+			case BEGIN_ARRAY:
+				reader.beginArray();
+				while (reader.hasNext()) {
+					sink.onEvent(JanusTypeAdapterFactory.EVENT_ROOM.read(reader));
+					result++;
+				}
+				reader.endArray();
+				break;
+			case BEGIN_OBJECT:
+				sink.onEvent(JanusTypeAdapterFactory.EVENT_ROOM.read(reader));
+				result++;
+				break;
+			default:
+				throw new JsonParseException("unexpected event:" + reader.peek());
+			}
+		} catch (final IllegalStateException | NumberFormatException e) {
+			throw new JsonParseException(e);
+		}
+		return result;
+	}
+
+	/**
+	 * decode single event
+	 * @param text
+	 * @return
+	 * @throws IOException
+	 */
+	@NonNull
+	public static EventRoom decode(@NonNull final String text) throws IOException {
+		final JsonReader reader = new JsonReader(new StringReader(text));
+		try {
+			return JanusTypeAdapterFactory.EVENT_ROOM.read(reader);
+		} catch (final IllegalStateException | NumberFormatException e) {
+			throw new JsonParseException(e);
+		}
+	}
+}
@@ -0,0 +1,134 @@
+package com.serenegiant.janus;
+/*
+ * JanusRTCAndroid
+ * Video chat sample app using videoroom plugin on janus-gateway server and WebRTC.
+ *
+ * Copyright (c) 2018 saki t_saki@serenegiant.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+*/
+
+
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * executor lanes for JanusRTCClient and JanusPlugin.
+ * PeerConnectionFactory has its own thread-affine lane(single thread)
+ * and each plugin handle has its own serial lane on the small shared pool,
+ * so that slow work of a subscriber does not delay others.
+ */
+/*package*/ final class ExecutorLanes {
+	private static final boolean DEBUG = false;	// set false on production
+	private static final String TAG = ExecutorLanes.class.getSimpleName();
+
+	private ExecutorLanes() {
+		// インスタンス化をエラーとするためにデフォルトコンストラクタをprivateに
+	}
+
+	/**
+	 * number of threads of the shared pool
+	 */
+	/*package*/ static final int POOL_SIZE
+		= Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+	/**
+	 * lane for PeerConnectionFactory and client level operations.
+	 * always runs on the same thread to ensure new peer connection factory is
+	 * created on the same thread as previously destroyed factory.
+	 */
+	/*package*/ static final SerialExecutor FACTORY = new SerialExecutor("factory",
+		Executors.newSingleThreadExecutor(new LaneThreadFactory("janus-factory", false)));
+
+	private static final ThreadPoolExecutor sPool;
+	static {
+		sPool = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE,
+			30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+			new LaneThreadFactory("janus-lane", true));
+		sPool.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * live lanes for statistics, guarded by itself
+	 */
+	private static final List<SerialExecutor> sLanes = new ArrayList<>();
+
+	/**
+	 * create new serial lane on the shared pool
+	 * @param name
+	 * @return
+	 */
+	@NonNull
+	/*package*/ static SerialExecutor newLane(@NonNull final String name) {
+		final SerialExecutor result = new SerialExecutor(name, sPool);
+		synchronized (sLanes) {
+			sLanes.add(result);
+		}
+		return result;
+	}
+
+	/**
+	 * remove the lane from statistics,
+	 * tasks already queued(and even submitted later) are still executed
+	 * @param lane
+	 */
+	/*package*/ static void release(@NonNull final SerialExecutor lane) {
+		synchronized (sLanes) {
+			sLanes.remove(lane);
+		}
+	}
+
+	/**
+	 * get statistics of the factory lane and all live lanes
+	 * @return
+	 */
+	@NonNull
+	/*package*/ static List<ExecutorStats> getStats() {
+		final List<ExecutorStats> result = new ArrayList<>();
+		result.add(FACTORY.getStats());
+		synchronized (sLanes) {
+			for (final SerialExecutor lane: sLanes) {
+				result.add(lane.getStats());
+			}
+		}
+		return result;
+	}
+
+	private static class LaneThreadFactory implements ThreadFactory {
+		@NonNull
+		private final String mName;
+		private final boolean mDaemon;
+		private final AtomicInteger mCount = new AtomicInteger();
+
+		private LaneThreadFactory(@NonNull final String name, final boolean daemon) {
+			mName = name;
+			mDaemon = daemon;
+		}
+
+		@Override
+		public Thread newThread(@NonNull final Runnable r) {
+			final Thread result = new Thread(r, mName + "-" + mCount.incrementAndGet());
+			result.setDaemon(mDaemon);
+			return result;
+		}
+	}
+}
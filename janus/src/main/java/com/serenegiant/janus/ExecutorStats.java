@@ -0,0 +1,75 @@
+package com.serenegiant.janus;
+/*
+ * JanusRTCAndroid
+ * Video chat sample app using videoroom plugin on janus-gateway server and WebRTC.
+ *
+ * Copyright (c) 2018 saki t_saki@serenegiant.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+*/
+
+
+import android.support.annotation.NonNull;
+
+/**
+ * snapshot of statistics of an executor lane
+ */
+public class ExecutorStats {
+	/** name of the lane */
+	@NonNull
+	public final String name;
+	/** number of tasks waiting or running */
+	public final int queueDepth;
+	/** number of executed tasks */
+	public final long executed;
+	/** average time from submit to start of tasks[マイクロ秒] */
+	public final long avgLatencyUs;
+	/** maximum time from submit to start of tasks[マイクロ秒] */
+	public final long maxLatencyUs;
+	/** average execution time of tasks[マイクロ秒] */
+	public final long avgRunUs;
+
+	/**
+	 * コンストラクタ
+	 * @param name
+	 * @param queueDepth
+	 * @param executed
+	 * @param avgLatencyUs
+	 * @param maxLatencyUs
+	 * @param avgRunUs
+	 */
+	public ExecutorStats(@NonNull final String name,
+		final int queueDepth, final long executed,
+		final long avgLatencyUs, final long maxLatencyUs, final long avgRunUs) {
+
+		this.name = name;
+		this.queueDepth = queueDepth;
+		this.executed = executed;
+		this.avgLatencyUs = avgLatencyUs;
+		this.maxLatencyUs = maxLatencyUs;
+		this.avgRunUs = avgRunUs;
+	}
+
+	@Override
+	public String toString() {
+		return "ExecutorStats{" +
+			"name='" + name + '\'' +
+			", queueDepth=" + queueDepth +
+			", executed=" + executed +
+			", avgLatencyUs=" + avgLatencyUs +
+			", maxLatencyUs=" + maxLatencyUs +
+			", avgRunUs=" + avgRunUs +
+			'}';
+	}
+}
@@ -0,0 +1,293 @@
+package com.serenegiant.janus;
+/*
+ * JanusRTCAndroid
+ * Video chat sample app using videoroom plugin on janus-gateway server and WebRTC.
+ *
+ * Copyright (c) 2018 saki t_saki@serenegiant.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+*/
+
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * approximate timer for large number of timeouts that are usually canceled
+ * before expiring(like transaction timeout).
+ * Adding and canceling timeout is O(1) and lock free,
+ * expiration is checked once per tick by a single worker thread.
+ * The worker thread waits without ticking while no timeout is pending.
+ */
+/*package*/ class HashedWheelTimer {
+	private static final boolean DEBUG = false;	// set false on production
+	private static final String TAG = HashedWheelTimer.class.getSimpleName();
+
+	/**
+	 * handle of scheduled task
+	 */
+	public static final class Timeout {
+		private static final int ST_INIT = 0;
+		private static final int ST_CANCELED = 1;
+		private static final int ST_EXPIRED = 2;
+
+		@NonNull
+		private final HashedWheelTimer mTimer;
+		@NonNull
+		private final Runnable mTask;
+		/** deadline relative to the start time of the timer[ナノ秒] */
+		private final long mDeadline;
+		private final AtomicInteger mState = new AtomicInteger(ST_INIT);
+		private long mRemainingRounds;
+		// double linked list in the bucket, only accessed from worker thread
+		private Timeout mNext;
+		private Timeout mPrev;
+		private Bucket mBucket;
+
+		private Timeout(@NonNull final HashedWheelTimer timer,
+			@NonNull final Runnable task, final long deadline) {
+
+			mTimer = timer;
+			mTask = task;
+			mDeadline = deadline;
+		}
+
+		/**
+		 * cancel this timeout
+		 * @return true: canceled, false: already expired or canceled
+		 */
+		public boolean cancel() {
+			if (mState.compareAndSet(ST_INIT, ST_CANCELED)) {
+				// canceled timeout is removed lazily when worker thread visits the bucket
+				mTimer.mPending.decrementAndGet();
+				return true;
+			}
+			return false;
+		}
+
+		public boolean isCanceled() {
+			return mState.get() == ST_CANCELED;
+		}
+
+		public boolean isExpired() {
+			return mState.get() == ST_EXPIRED;
+		}
+
+		private void expire() {
+			if (mState.compareAndSet(ST_INIT, ST_EXPIRED)) {
+				mTimer.mPending.decrementAndGet();
+				try {
+					mTask.run();
+				} catch (final Exception e) {
+					Log.w(TAG, e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * slot of the wheel, only accessed from worker thread
+	 */
+	private static final class Bucket {
+		private Timeout mHead;
+		private Timeout mTail;
+
+		private void add(@NonNull final Timeout timeout) {
+			timeout.mBucket = this;
+			if (mHead == null) {
+				mHead = mTail = timeout;
+			} else {
+				mTail.mNext = timeout;
+				timeout.mPrev = mTail;
+				mTail = timeout;
+			}
+		}
+
+		private void remove(@NonNull final Timeout timeout) {
+			if (timeout.mBucket != this) return;
+			if (timeout.mPrev != null) {
+				timeout.mPrev.mNext = timeout.mNext;
+			}
+			if (timeout.mNext != null) {
+				timeout.mNext.mPrev = timeout.mPrev;
+			}
+			if (timeout == mHead) {
+				mHead = timeout.mNext;
+			}
+			if (timeout == mTail) {
+				mTail = timeout.mPrev;
+			}
+			timeout.mPrev = timeout.mNext = null;
+			timeout.mBucket = null;
+		}
+
+		private void expire(final long deadline) {
+			Timeout timeout = mHead;
+			while (timeout != null) {
+				final Timeout next = timeout.mNext;
+				if (timeout.isCanceled()) {
+					remove(timeout);
+				} else if (timeout.mRemainingRounds <= 0) {
+					if (timeout.mDeadline <= deadline) {
+						remove(timeout);
+						timeout.expire();
+					}
+				} else {
+					timeout.mRemainingRounds--;
+				}
+				timeout = next;
+			}
+		}
+	}
+
+	private final long mTickNs;
+	@NonNull
+	private final Bucket[] mWheel;
+	private final int mMask;
+	private final long mStartTime = System.nanoTime();
+	private final ConcurrentLinkedQueue<Timeout> mAdded = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger mPending = new AtomicInteger();
+	private final Object mSync = new Object();
+	private volatile boolean mStarted;
+	/** true while worker thread is waiting for new timeout */
+	private volatile boolean mIdle;
+	private long mTick;
+
+	/**
+	 * コンストラクタ
+	 * @param tickDuration
+	 * @param unit
+	 * @param ticksPerWheel number of slots, rounded up to power of 2
+	 */
+	public HashedWheelTimer(final long tickDuration, @NonNull final TimeUnit unit,
+		final int ticksPerWheel) {
+
+		if (tickDuration <= 0) {
+			throw new IllegalArgumentException("tickDuration must be positive");
+		}
+		mTickNs = unit.toNanos(tickDuration);
+		int n = 1;
+		while (n < ticksPerWheel) {
+			n <<= 1;
+		}
+		mWheel = new Bucket[n];
+		for (int i = 0; i < n; i++) {
+			mWheel[i] = new Bucket();
+		}
+		mMask = n - 1;
+	}
+
+	/**
+	 * schedule task
+	 * @param task
+	 * @param delay
+	 * @param unit
+	 * @return
+	 */
+	@NonNull
+	public Timeout newTimeout(@NonNull final Runnable task,
+		final long delay, @NonNull final TimeUnit unit) {
+
+		final Timeout timeout = new Timeout(this, task,
+			System.nanoTime() - mStartTime + unit.toNanos(delay));
+		mPending.incrementAndGet();
+		mAdded.add(timeout);
+		if (!mStarted) {
+			synchronized (mSync) {
+				if (!mStarted) {
+					final Thread worker = new Thread(mWorkerTask, TAG);
+					worker.setDaemon(true);
+					worker.start();
+					mStarted = true;
+				}
+			}
+		}
+		if (mIdle) {
+			// take the lock only when worker thread is waiting
+			synchronized (mSync) {
+				mSync.notify();
+			}
+		}
+		return timeout;
+	}
+
+	/**
+	 * number of timeouts that are neither expired nor canceled
+	 * @return
+	 */
+	public int pendingTimeouts() {
+		return mPending.get();
+	}
+
+	private final Runnable mWorkerTask = new Runnable() {
+		@Override
+		public void run() {
+			if (DEBUG) Log.v(TAG, "worker:start");
+			for ( ; ; ) {
+				// wait without ticking while no timeout is pending
+				synchronized (mSync) {
+					mIdle = true;
+					try {
+						while ((mPending.get() <= 0) && mAdded.isEmpty()) {
+							mSync.wait();
+						}
+					} catch (final InterruptedException e) {
+						break;
+					} finally {
+						mIdle = false;
+					}
+				}
+				final long deadline = waitForNextTick();
+				if (deadline < 0) break;
+				transferAdded();
+				mWheel[(int)(mTick & mMask)].expire(deadline);
+				mTick++;
+			}
+			if (DEBUG) Log.v(TAG, "worker:finished");
+		}
+	};
+
+	/**
+	 * @return current time relative to start time or -1 if interrupted
+	 */
+	private long waitForNextTick() {
+		final long deadline = mTickNs * (mTick + 1);
+		for ( ; ; ) {
+			final long current = System.nanoTime() - mStartTime;
+			final long sleepMs = (deadline - current + 999999) / 1000000;
+			if (sleepMs <= 0) {
+				return current;
+			}
+			try {
+				Thread.sleep(sleepMs);
+			} catch (final InterruptedException e) {
+				return -1;
+			}
+		}
+	}
+
+	private void transferAdded() {
+		for (Timeout timeout = mAdded.poll(); timeout != null; timeout = mAdded.poll()) {
+			if (timeout.isCanceled()) continue;
+			final long calculated = timeout.mDeadline / mTickNs;
+			timeout.mRemainingRounds = (calculated - mTick) / mWheel.length;
+			// do not schedule into the past
+			final long ticks = Math.max(calculated, mTick);
+			mWheel[(int)(ticks & mMask)].add(timeout);
+		}
+	}
+}
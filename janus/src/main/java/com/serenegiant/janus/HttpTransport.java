@@ -0,0 +1,565 @@
+package com.serenegiant.janus;
+/*
+ * JanusRTCAndroid
+ * Video chat sample app using videoroom plugin on janus-gateway server and WebRTC.
+ *
+ * Copyright (c) 2018 saki t_saki@serenegiant.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+*/
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import com.google.gson.JsonParseException;
+import com.serenegiant.janus.request.Attach;
+import com.serenegiant.janus.request.Claim;
+import com.serenegiant.janus.request.Creator;
+import com.serenegiant.janus.request.Destroy;
+import com.serenegiant.janus.request.Detach;
+import com.serenegiant.janus.request.KeepAlive;
+import com.serenegiant.janus.request.Message;
+import com.serenegiant.janus.request.Trickle;
+import com.serenegiant.janus.request.TrickleBatch;
+import com.serenegiant.janus.request.TrickleCompleted;
+import com.serenegiant.janus.response.EventRoom;
+import com.serenegiant.janus.response.Plugin;
+import com.serenegiant.janus.response.ServerInfo;
+import com.serenegiant.janus.response.Session;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+import retrofit2.Response;
+
+/**
+ * JanusTransport implementation over http/https,
+ * requests are sent with VideoRoom API interface and
+ * events are received with LongPoll API interface
+ */
+/*package*/ class HttpTransport implements JanusTransport {
+	private static final boolean DEBUG = false;	// set false on production
+	private static final String TAG = HttpTransport.class.getSimpleName();
+
+	@NonNull
+	private final VideoRoom mVideoRoom;
+	@NonNull
+	private final LongPoll mLongPoll;
+	@NonNull
+	private final String mApiName;
+	@NonNull
+	private final Executor mExecutor;
+	private final int mMaxEvents;
+	@NonNull
+	private final ReconnectScheduler mReconnectScheduler;
+	private final long mRequestTimeoutMs;
+	@NonNull
+	private final HashedWheelTimer mTimer;
+	@NonNull
+	private final List<Call<?>> mCurrentCalls = new ArrayList<>();
+	private volatile boolean mPolling;
+	/**
+	 * incremented every time long poll starts,
+	 * to ignore the callbacks and the retries of the canceled long poll
+	 */
+	private volatile int mPollGeneration;
+	@Nullable
+	private volatile ActivityListener mActivityListener;
+
+	/**
+	 * コンストラクタ
+	 * @param videoRoom API interface for normal REST access
+	 * @param longPoll API interface for long poll
+	 * @param apiName
+	 * @param executor executor to deliver events
+	 */
+	public HttpTransport(@NonNull final VideoRoom videoRoom,
+		@NonNull final LongPoll longPoll,
+		@NonNull final String apiName,
+		@NonNull final Executor executor) {
+
+		this(videoRoom, longPoll, apiName, executor,
+			Const.LONG_POLL_MAX_EVENTS, new ReconnectScheduler());
+	}
+
+	/**
+	 * コンストラクタ
+	 * @param videoRoom API interface for normal REST access
+	 * @param longPoll API interface for long poll
+	 * @param apiName
+	 * @param executor executor to deliver events
+	 * @param maxEvents maximum number of events that are received with one long poll(maxev),
+	 * 					1以下なら従来通り1回のlong pollで1イベントずつ受け取る
+	 * @param reconnectScheduler scheduler to retry long poll when it failed
+	 */
+	public HttpTransport(@NonNull final VideoRoom videoRoom,
+		@NonNull final LongPoll longPoll,
+		@NonNull final String apiName,
+		@NonNull final Executor executor,
+		final int maxEvents,
+		@NonNull final ReconnectScheduler reconnectScheduler) {
+
+		this(videoRoom, longPoll, apiName, executor,
+			maxEvents, reconnectScheduler, Const.REQUEST_TIMEOUT_MS);
+	}
+
+	/**
+	 * コンストラクタ
+	 * @param videoRoom API interface for normal REST access
+	 * @param longPoll API interface for long poll
+	 * @param apiName
+	 * @param executor executor to deliver events
+	 * @param maxEvents maximum number of events that are received with one long poll(maxev),
+	 * 					1以下なら従来通り1回のlong pollで1イベントずつ受け取る
+	 * @param reconnectScheduler scheduler to retry long poll when it failed
+	 * @param requestTimeoutMs timeout of each asynchronous request, 0以下ならOkHttpのタイムアウトのみ
+	 */
+	public HttpTransport(@NonNull final VideoRoom videoRoom,
+		@NonNull final LongPoll longPoll,
+		@NonNull final String apiName,
+		@NonNull final Executor executor,
+		final int maxEvents,
+		@NonNull final ReconnectScheduler reconnectScheduler,
+		final long requestTimeoutMs) {
+
+		mVideoRoom = videoRoom;
+		mLongPoll = longPoll;
+		mApiName = apiName;
+		mExecutor = executor;
+		mMaxEvents = maxEvents;
+		mReconnectScheduler = reconnectScheduler;
+		mRequestTimeoutMs = requestTimeoutMs;
+		mTimer = TransactionManager.getTimer();
+	}
+
+	@NonNull
+	@Override
+	public Cancelable getInfo(@NonNull final JanusTransport.Callback<ServerInfo> callback) {
+		return enqueue(mVideoRoom.getInfo(mApiName), callback);
+	}
+
+	@NonNull
+	@Override
+	public Cancelable create(@NonNull final Creator creator,
+		@NonNull final JanusTransport.Callback<Session> callback) {
+
+		return enqueue(mVideoRoom.create(mApiName, creator), callback);
+	}
+
+	@NonNull
+	@Override
+	public Cancelable attach(final long sessionId,
+		@NonNull final Attach attach,
+		@NonNull final JanusTransport.Callback<Plugin> callback) {
+
+		return enqueue(mVideoRoom.attach(mApiName, JanusId.toBigInteger(sessionId), attach), callback);
+	}
+
+	@NonNull
+	@Override
+	public Cancelable send(final long sessionId,
+		final long handleId,
+		@NonNull final Message message,
+		@NonNull final JanusTransport.Callback<EventRoom> callback) {
+
+		return enqueue(mVideoRoom.offer(mApiName,
+			JanusId.toBigInteger(sessionId), JanusId.toBigInteger(handleId), message), callback);
+	}
+
+	@NonNull
+	@Override
+	public Cancelable trickle(final long sessionId,
+		final long handleId,
+		@NonNull final Trickle trickle,
+		@NonNull final JanusTransport.Callback<EventRoom> callback) {
+
+		return enqueue(mVideoRoom.trickle(mApiName,
+			JanusId.toBigInteger(sessionId), JanusId.toBigInteger(handleId), trickle), callback);
+	}
+
+	@NonNull
+	@Override
+	public Cancelable trickleCompleted(final long sessionId,
+		final long handleId,
+		@NonNull final TrickleCompleted trickle,
+		@NonNull final JanusTransport.Callback<EventRoom> callback) {
+
+		return enqueue(mVideoRoom.trickleCompleted(mApiName,
+			JanusId.toBigInteger(sessionId), JanusId.toBigInteger(handleId), trickle), callback);
+	}
+
+	@NonNull
+	@Override
+	public Cancelable trickle(final long sessionId,
+		final long handleId,
+		@NonNull final TrickleBatch trickle,
+		@NonNull final JanusTransport.Callback<EventRoom> callback) {
+
+		return enqueue(mVideoRoom.trickle(mApiName,
+			JanusId.toBigInteger(sessionId), JanusId.toBigInteger(handleId), trickle), callback);
+	}
+
+	@NonNull
+	@Override
+	public Cancelable detach(final long sessionId,
+		final long handleId,
+		@NonNull final Detach detach,
+		@NonNull final JanusTransport.Callback<Detach> callback) {
+
+		final Call<Void> call = mVideoRoom.detach(mApiName,
+			JanusId.toBigInteger(sessionId), JanusId.toBigInteger(handleId), detach);
+		// 応答本体は無いので要求自体を返す
+		return enqueue(call, true, new JanusTransport.Callback<Void>() {
+			@Override
+			public void onResponse(@NonNull final Void response) {
+				callback.onResponse(detach);
+			}
+
+			@Override
+			public void onFailure(@NonNull final Throwable t) {
+				callback.onFailure(t);
+			}
+		});
+	}
+
+	@Override
+	public void destroy(final long sessionId,
+		@NonNull final Destroy destroy) throws IOException {
+
+		final Call<Void> call = mVideoRoom.destroy(mApiName, JanusId.toBigInteger(sessionId), destroy);
+		addCall(call);
+		try {
+			call.execute();
+		} finally {
+			removeCall(call);
+		}
+	}
+
+	@NonNull
+	@Override
+	public Cancelable keepAlive(final long sessionId,
+		@NonNull final KeepAlive keepAlive,
+		@NonNull final JanusTransport.Callback<EventRoom> callback) {
+
+		return enqueue(mVideoRoom.keepAlive(mApiName,
+			JanusId.toBigInteger(sessionId), keepAlive), callback);
+	}
+
+	@Override
+	public void setActivityListener(@Nullable final ActivityListener listener) {
+		mActivityListener = listener;
+	}
+
+	@Override
+	public void startEvents(final long sessionId,
+		@NonNull final EventListener listener) {
+
+		if (DEBUG) Log.v(TAG, "startEvents:");
+		mReconnectScheduler.setListener(listener::onReconnectStateChanged);
+		mPollGeneration++;
+		mPolling = true;
+		longPoll(sessionId, listener);
+	}
+
+	@Override
+	public void cancel() {
+		if (DEBUG) Log.v(TAG, "cancel:");
+		mPolling = false;
+		synchronized (mCurrentCalls) {
+			for (final Call<?> call: mCurrentCalls) {
+				if ((call != null) && !call.isCanceled()) {
+					try {
+						call.cancel();
+					} catch (final Exception e) {
+						Log.w(TAG, e);
+					}
+				}
+			}
+			mCurrentCalls.clear();
+		}
+	}
+
+	@NonNull
+	@Override
+	public Cancelable claim(final long sessionId,
+		@NonNull final Claim claim,
+		@NonNull final JanusTransport.Callback<EventRoom> callback) {
+
+		return enqueue(mVideoRoom.claim(mApiName,
+			JanusId.toBigInteger(sessionId), claim), callback);
+	}
+
+	/**
+	 * HTTP has no persistent connection, so only cancels the requests
+	 * that may be stuck on the old network.
+	 * OkHttpClient opens a new connection for next request.
+	 * failure count of ReconnectScheduler is kept until long poll succeeds
+	 * so that repeated resume does not bypass the backoff
+	 */
+	@Override
+	public void reconnect() {
+		if (DEBUG) Log.v(TAG, "reconnect:");
+		cancel();
+	}
+
+	@Override
+	public void release() {
+		cancel();
+		mReconnectScheduler.release();
+	}
+
+//--------------------------------------------------------------------------------
+	/**
+	 * long poll asynchronously
+	 * 失敗した時はReconnectSchedulerで待機してから再度long pollする
+	 */
+	private void longPoll(final long sessionId,
+		@NonNull final EventListener listener) {
+
+		if (DEBUG) Log.v(TAG, "longPoll:");
+		final Call<ResponseBody> call = mMaxEvents > 1
+			? mLongPoll.getEvent(mApiName, JanusId.toBigInteger(sessionId), mMaxEvents)
+			: mLongPoll.getEvent(mApiName, JanusId.toBigInteger(sessionId));
+		final int generation = mPollGeneration;
+		addCall(call);
+		notifyActivity();
+		call.enqueue(new retrofit2.Callback<ResponseBody>() {
+			@Override
+			public void onResponse(@NonNull final Call<ResponseBody> call,
+				@NonNull final Response<ResponseBody> response) {
+
+				if (DEBUG) Log.v(TAG, "longPoll:onResponse");
+				removeCall(call);
+				if (!isPolling(generation)) {
+					closeQuietly(response);
+					return;
+				}
+				if (!response.isSuccessful()) {
+					closeQuietly(response);
+					retry(call);
+					return;
+				}
+				final List<EventRoom> events = new ArrayList<>();
+				try {
+					decodeLongPoll(response, events);
+				} catch (final JsonParseException | IOException e) {
+					// 空・壊れた応答はネットワークの切断ではないのでresumeさせずに
+					// バックオフしてからlong pollし直す
+					Log.w(TAG, "longPoll:failed to decode", e);
+					deliver(events, listener);
+					retry(call);
+					return;
+				}
+				// デコードできた時だけ成功として扱う
+				mReconnectScheduler.onSuccess();
+				deliver(events, listener);
+				recall(call);
+			}
+
+			@Override
+			public void onFailure(@NonNull final Call<ResponseBody> call, @NonNull final Throwable t) {
+				if (DEBUG) Log.v(TAG, "longPoll:onFailure=" + t);
+				// removeCallは未キャンセルの呼び出しをキャンセルするので先に確認しておく
+				final boolean canceled = call.isCanceled();
+				removeCall(call);
+				if (isPolling(generation) && !canceled) {
+					// 障害の最初の1回だけ通知して、以降はReconnectSchedulerに任せる
+					final boolean first = mReconnectScheduler.getFailureCount() == 0;
+					retry(call);
+					if (first) {
+						listener.onFailure(t);
+					}
+				}
+			}
+
+			private void retry(final Call<ResponseBody> call) {
+				mReconnectScheduler.onFailure(() -> {
+					if (isPolling(generation)) {
+						recall(call);
+					}
+				});
+			}
+
+			private void recall(final Call<ResponseBody> call) {
+				final Call<ResponseBody> newCall = call.clone();
+				addCall(newCall);
+				notifyActivity();
+				newCall.enqueue(this);
+			}
+
+			private void deliver(@NonNull final List<EventRoom> events,
+				@NonNull final EventListener listener) {
+
+				if (events.isEmpty()) return;
+				try {
+					mExecutor.execute(() -> {
+						for (final EventRoom event: events) {
+							listener.onEvent(event);
+						}
+					});
+				} catch (final Exception e) {
+					if (isPolling(generation)) {
+						listener.onFailure(e);
+					}
+				}
+			}
+		});
+	}
+
+	private boolean isPolling(final int generation) {
+		return mPolling && (generation == mPollGeneration);
+	}
+
+	/**
+	 * long pollによるjanus-gatewayサーバーからの受信イベントのデコード
+	 * maxevを指定したときはJSON arrayで複数のイベントが返ってくるので
+	 * 受信した順にeventsへ追加する
+	 * @param response
+	 * @param events
+	 * @throws IOException
+	 */
+	private static void decodeLongPoll(@NonNull final Response<ResponseBody> response,
+		@NonNull final List<EventRoom> events) throws IOException {
+
+		if (DEBUG) Log.v(TAG, "decodeLongPoll:");
+		final ResponseBody responseBody = response.body();
+		if (responseBody == null) {
+			throw new IOException("empty response");
+		}
+		try {
+			// ResponseBody全体を文字列にせずにストリームから直接デコードする
+			EventDecoder.decode(responseBody.charStream(), new EventDecoder.Sink() {
+				@Override
+				public void onEvent(@NonNull final EventRoom event) {
+					events.add(event);
+				}
+			});
+		} finally {
+			responseBody.close();
+		}
+	}
+
+	private static void closeQuietly(@NonNull final Response<ResponseBody> response) {
+		final ResponseBody responseBody = response.body();
+		if (responseBody != null) {
+			responseBody.close();
+		}
+	}
+
+	/**
+	 * execute call asynchronously
+	 * @param call
+	 * @param callback
+	 * @param <T>
+	 * @return
+	 */
+	@NonNull
+	private <T> Cancelable enqueue(@NonNull final Call<T> call,
+		@NonNull final JanusTransport.Callback<T> callback) {
+
+		return enqueue(call, false, callback);
+	}
+
+	/**
+	 * execute call asynchronously with timeout
+	 * @param call
+	 * @param emptyBody true: response without body is success(Call<Void>),
+	 * 					Callback#onResponse is called with null
+	 * @param callback
+	 * @param <T>
+	 * @return
+	 */
+	@SuppressWarnings("ConstantConditions")
+	@NonNull
+	private <T> Cancelable enqueue(@NonNull final Call<T> call,
+		final boolean emptyBody,
+		@NonNull final JanusTransport.Callback<T> callback) {
+
+		final AsyncRequest<T> request = new AsyncRequest<>(callback);
+		addCall(call);
+		notifyActivity();
+		call.enqueue(new retrofit2.Callback<T>() {
+			@Override
+			public void onResponse(@NonNull final Call<T> call,
+				@NonNull final Response<T> response) {
+
+				removeCall(call);
+				final T body = response.body();
+				if (response.isSuccessful() && ((body != null) || emptyBody)) {
+					request.onResponse(body);
+				} else {
+					request.onFailure(new RuntimeException("unexpected response:" + response));
+				}
+			}
+
+			@Override
+			public void onFailure(@NonNull final Call<T> call,
+				@NonNull final Throwable t) {
+
+				removeCall(call);
+				request.onFailure(t);
+			}
+		});
+		return request.start(new Cancelable() {
+			@Override
+			public void cancel() {
+				removeCall(call);
+				call.cancel();
+			}
+
+			@Override
+			public boolean isCanceled() {
+				return call.isCanceled();
+			}
+		}, mRequestTimeoutMs, mTimer);
+	}
+
+	/**
+	 * long poll and other requests also keep the session alive on janus-gateway
+	 */
+	private void notifyActivity() {
+		final ActivityListener listener = mActivityListener;
+		if (listener != null) {
+			listener.onActivity();
+		}
+	}
+
+	/**
+	 * set call that is currently in progress
+	 * @param call
+	 */
+	private void addCall(@NonNull final Call<?> call) {
+		synchronized (mCurrentCalls) {
+			mCurrentCalls.add(call);
+		}
+	}
+
+	private void removeCall(@NonNull final Call<?> call) {
+		synchronized (mCurrentCalls) {
+			mCurrentCalls.remove(call);
+		}
+		if (!call.isCanceled()) {
+			try {
+				call.cancel();
+			} catch (final Exception e) {
+				Log.w(TAG, e);
+			}
+		}
+	}
+}
@@ -123,4 +123,22 @@ public interface JanusCallback {
 	 */
 	public void onChannelError(final String description);
 
+	/**
+	 * Callback fired when the state of reconnecting to janus-gateway server changed.
+	 * delayMs is the delay until next retry when the state is BACKOFF or CIRCUIT_OPEN.
+	 * @param state
+	 * @param failureCount number of consecutive failures
+	 * @param delayMs
+	 */
+	public void onReconnectStateChanged(@NonNull final ReconnectScheduler.State state,
+		final int failureCount, final long delayMs);
+
+	/**
+	 * Callback fired when stats of each PeerConnection are collected
+	 * while stats events are enabled with JanusClient#enableStatsEvents.
+	 * called on the stats thread
+	 * @param stats
+	 */
+	public void onStatsReady(@NonNull final RtcStatsDelta stats);
+
 }
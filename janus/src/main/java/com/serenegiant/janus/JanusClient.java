@@ -10,6 +10,7 @@ package com.serenegiant.janus;/*
  *
 */
 
+import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
 import org.appspot.apprtc.RoomConnectionParameters;
@@ -82,6 +83,77 @@ public interface JanusClient {
 	 */
 	public void enableStatsEvents(final boolean enable, final int periodMs);
 
+	/**
+	 * set policy of adaptive bitrate control of the publisher,
+	 * the policy is fed with stats only while stats events are enabled
+	 * @param policy null: disable adaptive bitrate control
+	 */
+	public void setBitratePolicy(@Nullable final BitratePolicy policy);
+
+	/**
+	 * resume the session after the network changed(ex. Wi-Fi <-> cellular),
+	 * claims the existing session on new connection and restarts ICE
+	 * of each PeerConnection instead of attaching to the plugin again
+	 */
+	public void resume();
+
+	/**
+	 * mark the feed visible/invisible on the screen,
+	 * subscribers of visible feeds are set up before the others
+	 * @param feedId id of the publisher
+	 * @param visible
+	 */
+	public void setFeedVisible(final long feedId, final boolean visible);
+
+	/**
+	 * select simulcast substream/temporal layer of the feed that this client receives,
+	 * the publisher of the feed should publish with simulcast(SdpParameters#simulcastLayers).
+	 * ex. thumbnail views can receive the lowest layer to save downlink and decoding
+	 * @param feedId id of the publisher
+	 * @param substream 0-2, 0 is the lowest resolution, negative value does not change it
+	 * @param temporal 0-2, 0 is the lowest frame rate, negative value does not change it
+	 */
+	public void configureSubstream(final long feedId, final int substream, final int temporal);
+
+	/**
+	 * notify the size that the feed is rendered with,
+	 * substream/temporal layer is selected automatically by SubstreamPolicy
+	 * and requested after the size stops changing.
+	 * this can be called from any thread
+	 * @param feedId id of the publisher
+	 * @param width [pixels], 0 if the feed is not visible
+	 * @param height [pixels], 0 if the feed is not visible
+	 */
+	public void setFeedViewSize(final long feedId, final int width, final int height);
+
+	/**
+	 * set policy to select substream/temporal layer from the view size
+	 * @param policy null to use the default policy(ViewportSubstreamPolicy)
+	 */
+	public void setSubstreamPolicy(@Nullable final SubstreamPolicy policy);
+
+	/**
+	 * get setup timing(queued/setup time and time to first frame) of each feed
+	 * @return
+	 */
+	@NonNull
+	public List<SubscriberScheduler.FeedStats> getSubscriberStats();
+
+	/**
+	 * get queue depth and task latency of each executor lane
+	 * (PeerConnectionFactory lane and lanes of each plugin handle)
+	 * @return
+	 */
+	@NonNull
+	public List<ExecutorStats> getExecutorStats();
+
+	/**
+	 * get statistics of keepalive(number of keepalives and RTT) as a health metric
+	 * @return null if the session is not created yet
+	 */
+	@Nullable
+	public KeepAliveScheduler.Stats getKeepAliveStats();
+
 	/**
 	 * Asynchronously connect to an Janus-gateway room URL using supplied connection
 	 * parameters. Once connection is established onConnectedToRoom()
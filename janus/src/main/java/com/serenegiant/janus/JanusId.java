@@ -0,0 +1,134 @@
+package com.serenegiant.janus;
+/*
+ * JanusRTCAndroid
+ * Video chat sample app using videoroom plugin on janus-gateway server and WebRTC.
+ *
+ * Copyright (c) 2018 saki t_saki@serenegiant.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+*/
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.math.BigInteger;
+
+/**
+ * helper for ids(session id, plugin handle id, publisher id, feed id) of janus-gateway
+ * janus-gatewayのidは64ビット符号無し整数なので符号無しとして扱うlongで保持する
+ * Long#toUnsignedString等はAPI>=26でしか使えないので自前で変換する
+ * BigIntegerとの相互変換は公開APIとの互換性維持用
+ */
+public final class JanusId {
+	/**
+	 * janus-gateway never uses 0 as id, so 0 means "no id"
+	 */
+	public static final long NONE = 0;
+
+	/** 2^64 - 1 */
+	private static final BigInteger MAX = BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE);
+	/** (2^64 - 1) / 10 */
+	private static final long MAX_DIV_10 = 1844674407370955161L;
+	/** (2^64 - 1) % 10 */
+	private static final int MAX_MOD_10 = 5;
+
+	private JanusId() {
+		// インスタンス化をエラーとするためにデフォルトコンストラクタをprivateに
+	}
+
+	/**
+	 * format id as unsigned decimal
+	 * @param id
+	 * @return
+	 */
+	@NonNull
+	public static String toString(final long id) {
+		if (id >= 0) {
+			return Long.toString(id);
+		}
+		// 符号無しで2で割ってから5で割ると10で割った商になる
+		final long quotient = (id >>> 1) / 5;
+		final long remainder = id - quotient * 10;
+		return Long.toString(quotient) + remainder;
+	}
+
+	/**
+	 * parse unsigned decimal as id
+	 * @param value
+	 * @return
+	 * @throws NumberFormatException
+	 */
+	public static long parse(@NonNull final CharSequence value) throws NumberFormatException {
+		final int n = value.length();
+		if ((n == 0) || (n > 20)) {
+			throw new NumberFormatException("invalid id:" + value);
+		}
+		long result = 0;
+		for (int i = 0; i < n; i++) {
+			final int digit = value.charAt(i) - '0';
+			if ((digit < 0) || (digit > 9)) {
+				throw new NumberFormatException("invalid id:" + value);
+			}
+			if ((result < 0) || (result > MAX_DIV_10)
+				|| ((result == MAX_DIV_10) && (digit > MAX_MOD_10))) {
+
+				throw new NumberFormatException("id out of range:" + value);
+			}
+			result = result * 10 + digit;
+		}
+		return result;
+	}
+
+	/**
+	 * convert id into BigInteger for compatibility
+	 * @param id
+	 * @return null if id is NONE
+	 */
+	@Nullable
+	public static BigInteger toBigInteger(final long id) {
+		if (id == NONE) {
+			return null;
+		}
+		final BigInteger result = BigInteger.valueOf(id & Long.MAX_VALUE);
+		return id < 0 ? result.setBit(63) : result;
+	}
+
+	/**
+	 * convert BigInteger into id for compatibility
+	 * @param id
+	 * @return NONE if id is null
+	 * @throws IllegalArgumentException id is out of 64 bit unsigned range
+	 */
+	public static long valueOf(@Nullable final BigInteger id) {
+		if (id == null) {
+			return NONE;
+		}
+		if ((id.signum() < 0) || (id.compareTo(MAX) > 0)) {
+			throw new IllegalArgumentException("id out of range:" + id);
+		}
+		return id.longValue();
+	}
+
+	/**
+	 * hash value of id for open addressing hash table
+	 * idはランダムな値だけど下位ビットだけを使うとかたよるかもしれないので混ぜる
+	 * @param id
+	 * @return
+	 */
+	public static int hash(final long id) {
+		long h = id * 0x9E3779B97F4A7C15L;
+		h ^= h >>> 32;
+		return (int)(h ^ (h >>> 16));
+	}
+}
@@ -24,51 +24,49 @@ import android.support.annotation.NonNull;
 import android.text.TextUtils;
 import android.util.Log;
 
-import com.google.gson.Gson;
 import com.serenegiant.janus.request.Attach;
 import com.serenegiant.janus.request.Configure;
+import com.serenegiant.janus.request.ConfigureSubstream;
 import com.serenegiant.janus.request.Detach;
 import com.serenegiant.janus.request.Join;
 import com.serenegiant.janus.request.JsepSdp;
 import com.serenegiant.janus.request.Message;
 import com.serenegiant.janus.request.Start;
+import com.serenegiant.janus.request.Subscribe;
 import com.serenegiant.janus.request.Trickle;
-import com.serenegiant.janus.request.TrickleCompleted;
+import com.serenegiant.janus.request.TrickleBatch;
 import com.serenegiant.janus.response.EventRoom;
 import com.serenegiant.janus.response.Plugin;
 import com.serenegiant.janus.response.PublisherInfo;
 import com.serenegiant.janus.response.Session;
+import com.serenegiant.janus.response.StreamInfo;
 
-import org.appspot.apprtc.AppRTCConst;
 import org.appspot.apprtc.PeerConnectionParameters;
 import org.appspot.apprtc.RoomConnectionParameters;
 import org.appspot.apprtc.RtcEventLog;
-import org.appspot.apprtc.util.SdpUtils;
-import org.json.JSONObject;
+import org.appspot.apprtc.util.SdpTransformerChain;
 import org.webrtc.DataChannel;
 import org.webrtc.IceCandidate;
 import org.webrtc.MediaConstraints;
 import org.webrtc.MediaStream;
+import org.webrtc.MediaStreamTrack;
 import org.webrtc.PeerConnection;
+import org.webrtc.RTCStatsCollectorCallback;
 import org.webrtc.RtpReceiver;
+import org.webrtc.RtpTransceiver;
 import org.webrtc.SdpObserver;
 import org.webrtc.SessionDescription;
 
-import java.io.IOException;
-import java.math.BigInteger;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
+import java.util.Map;
 
 import javax.annotation.Nullable;
 
-import okhttp3.ResponseBody;
-import retrofit2.Call;
-import retrofit2.Callback;
-import retrofit2.Response;
-
 /*package*/ abstract class JanusPlugin implements PeerConnection.Observer {
 	private static final boolean DEBUG = false;	// set false on production
 	
@@ -101,13 +99,21 @@ import retrofit2.Response;
 		 */
 		public void onEnter(@NonNull final JanusPlugin plugin);
 	
+		/**
+		 * callback when streams of the feed are added to multistream subscriber
+		 * @param plugin
+		 * @param info
+		 */
+		public void onEnterFeed(@NonNull final JanusPlugin plugin,
+			@NonNull final PublisherInfo info);
+	
 		/**
 		 * callback when other publisher leaved from room
 		 * @param plugin
 		 * @param pluginId
 		 */
 		public void onLeave(@NonNull final JanusPlugin plugin,
-			@NonNull final BigInteger pluginId, final int numUsers);
+			final long pluginId, final int numUsers);
 		
 		/**
 		 * callback when MediaStream is added to PeerConnection
@@ -117,6 +123,15 @@ import retrofit2.Response;
 		public void onAddRemoteStream(@NonNull final JanusPlugin plugin,
 			@NonNull final MediaStream remoteStream);
 		
+		/**
+		 * callback when remote track is added to multistream subscriber
+		 * @param plugin
+		 * @param feedId feed id of the track, JanusId.NONE if unknown
+		 * @param track
+		 */
+		public void onAddRemoteTrack(@NonNull final JanusPlugin plugin,
+			final long feedId, @NonNull final MediaStreamTrack track);
+		
 		/**
 		 * callback when MediaStream is removed from PeerConnection
 		 * @param plugin
@@ -196,13 +211,21 @@ import retrofit2.Response;
 	private final List<IceCandidate> queuedRemoteCandidates = new ArrayList<>();
 
 	@NonNull
-	protected final VideoRoom mVideoRoom;
+	protected final JanusTransport mTransport;
+	@NonNull
+	protected final TransactionManager mTransactionManager;
 	@NonNull
 	protected final Session mSession;
 	@NonNull
 	protected final JanusPluginCallback mCallback;
-	protected final ExecutorService executor = JanusRTCClient.executor;
-	protected final List<Call<?>> mCurrentCalls = new ArrayList<>();
+	/**
+	 * lane of this plugin handle on the shared pool,
+	 * all PeerConnection work and signaling of this plugin run on it in order
+	 */
+	protected final SerialExecutor executor;
+	@NonNull
+	private final TrickleBatcher mTrickleBatcher;
+	protected final List<JanusTransport.Cancelable> mCurrentCalls = new ArrayList<>();
 	private final boolean isLoopback;
 	private final boolean isVideoCallEnabled;
 	protected RoomState mRoomState = RoomState.UNINITIALIZED;
@@ -210,17 +233,28 @@ import retrofit2.Response;
 	@Nullable
 	protected Room mRoom;
 	protected SessionDescription mLocalSdp;
+	/**
+	 * true while setting local SDP, accessed only on executor
+	 */
+	private boolean mSettingLocalSdp;
 	protected SessionDescription mRemoteSdp;
 	protected boolean isInitiator;
 	protected boolean isError;
-	private final boolean preferIsac;
+	/**
+	 * SDP munging built once from PeerConnectionParameters
+	 */
+	@NonNull
+	private final SdpTransformerChain mSdpTransformers;
 	
 	/**
 	 * constructor
+	 * @param transport
+	 * @param transactionManager
 	 * @param session
 	 * @param callback
 	 */
-	public JanusPlugin(@NonNull VideoRoom videoRoom,
+	public JanusPlugin(@NonNull final JanusTransport transport,
+		@NonNull final TransactionManager transactionManager,
 		@NonNull final Session session,
 		@NonNull final JanusPluginCallback callback,
 		@NonNull final PeerConnectionParameters peerConnectionParameters,
@@ -228,7 +262,8 @@ import retrofit2.Response;
 		@NonNull final MediaConstraints sdpMediaConstraints,
 		final boolean isVideoCallEnabled) {
 		
-		this.mVideoRoom = videoRoom;
+		this.mTransport = transport;
+		this.mTransactionManager = transactionManager;
 		this.mSession = session;
 		this.mCallback = callback;
 		this.peerConnectionParameters = peerConnectionParameters;
@@ -236,10 +271,11 @@ import retrofit2.Response;
 		this.sdpMediaConstraints = sdpMediaConstraints;
 		this.isVideoCallEnabled = isVideoCallEnabled;
 		this.isLoopback = peerConnectionParameters.loopback;
-		
-		// Check if ISAC is used by default.
-		preferIsac = peerConnectionParameters.audioCodec != null
-			&& peerConnectionParameters.audioCodec.equals(AppRTCConst.AUDIO_CODEC_ISAC);
+		this.executor = ExecutorLanes.newLane(getClass().getSimpleName());
+		this.mTrickleBatcher = new TrickleBatcher(executor,
+			roomConnectionParameters.trickleBatchWindowMs, this::sendTrickleBatch);
+		this.mSdpTransformers
+			= SdpTransformerChain.create(peerConnectionParameters, isVideoCallEnabled);
 	}
 	
 	@Override
@@ -251,8 +287,8 @@ import retrofit2.Response;
 		}
 	}
 	
-	BigInteger id() {
-		return mPlugin != null ? mPlugin.id() : null;
+	long id() {
+		return mPlugin != null ? mPlugin.id() : JanusId.NONE;
 	}
 	
 	@Nullable
@@ -260,6 +296,19 @@ import retrofit2.Response;
 		return peerConnection;
 	}
 	
+	/**
+	 * request RTCStatsReport of the PeerConnection on the executor of this plugin
+	 * so that it is not called while the PeerConnection is being disposed
+	 * @param callback called on the signaling thread of libwebrtc
+	 */
+	/*package*/ void getStats(@NonNull final RTCStatsCollectorCallback callback) {
+		executor.execute(() -> {
+			if ((peerConnection != null) && !isError) {
+				peerConnection.getStats(callback);
+			}
+		});
+	}
+
 	/**
 	 * PeerConnection関係をセット
 	 * @param peerConnection
@@ -298,6 +347,125 @@ import retrofit2.Response;
 		});
 	}
 	
+	/**
+	 * restart ICE on the existing PeerConnection after the network changed,
+	 * keeps the plugin handle and the session so that join/attach are not necessary.
+	 * publisher creates new offer with IceRestart constraint and
+	 * subscriber requests new offer from janus-gateway by configure with restart
+	 */
+	public void restartIce() {
+		if (DEBUG) Log.v(TAG, "restartIce:");
+		executor.execute(() -> {
+			if ((peerConnection == null) || isError
+				|| (mRoomState != RoomState.CONNECTED)) {
+				return;
+			}
+			mLocalSdp = null;
+			if (isInitiator) {
+				final MediaConstraints constraints = new MediaConstraints();
+				constraints.mandatory.addAll(sdpMediaConstraints.mandatory);
+				constraints.optional.addAll(sdpMediaConstraints.optional);
+				constraints.mandatory.add(
+					new MediaConstraints.KeyValuePair("IceRestart", "true"));
+				peerConnection.createOffer(mSdpObserver, constraints);
+			} else {
+				requestRestart();
+			}
+		});
+	}
+
+	/**
+	 * request new offer with ICE restart from janus-gateway(subscriber only),
+	 * the offer arrives as an event and the answer is sent as usual
+	 */
+	private void requestRestart() {
+		if (DEBUG) Log.v(TAG, "requestRestart:");
+		final Message message = new Message(mTransactionManager, mRoom,
+			new Configure(true, true, true),
+			mTransactionCallback);
+		final AckContinuation continuation = new AckContinuation() {
+			@Override
+			protected void onEvent(@NonNull final EventRoom event) {
+				// long pollで受信した時と同じくexecutor上で処理する
+				executor.execute(() -> handlePluginEvent(message.transaction, event));
+			}
+
+			@Override
+			protected void onAck() {
+				// 新しいofferはイベントとして届く
+			}
+
+			@Override
+			protected void onError(@NonNull final Throwable t) {
+				mTransactionManager.removeTransaction(message.transaction);
+				reportError(t);
+			}
+		};
+		continuation.start(mTransport.send(mSession.id(), mPlugin.id(), message, continuation));
+	}
+
+	/**
+	 * select simulcast substream/temporal layer of the feed that janus-gateway relays
+	 * (subscriber only), ignored when this plugin does not subscribe the feed
+	 * @param feedId id of the publisher
+	 * @param substream 0-2, negative value does not change substream
+	 * @param temporal 0-2, negative value does not change temporal layer
+	 */
+	public void configureSubstream(final long feedId, final int substream, final int temporal) {
+		if (DEBUG) Log.v(TAG, "configureSubstream:" + JanusId.toString(feedId)
+			+ ",substream=" + substream + ",temporal=" + temporal);
+		executor.execute(() -> {
+			if ((mRoomState != RoomState.CONNECTED) || isError) {
+				return;
+			}
+			final ConfigureSubstream body
+				= createConfigureSubstream(feedId, substream, temporal);
+			if (body != null) {
+				sendConfigureSubstream(body);
+			}
+		});
+	}
+
+	/**
+	 * create configure request to select simulcast layers, called on executor
+	 * @param feedId
+	 * @param substream
+	 * @param temporal
+	 * @return null if this plugin does not subscribe the feed
+	 */
+	@Nullable
+	protected ConfigureSubstream createConfigureSubstream(final long feedId,
+		final int substream, final int temporal) {
+
+		return null;
+	}
+
+	private void sendConfigureSubstream(@NonNull final ConfigureSubstream body) {
+		if (DEBUG) Log.v(TAG, "sendConfigureSubstream:" + body);
+		final Message message = new Message(mTransactionManager, mRoom,
+			body, mTransactionCallback);
+		final AckContinuation continuation = new AckContinuation() {
+			@Override
+			protected void onEvent(@NonNull final EventRoom event) {
+				// long pollで受信した時と同じくexecutor上で処理する
+				executor.execute(() -> handlePluginEvent(message.transaction, event));
+			}
+
+			@Override
+			protected void onAck() {
+				// 結果は"configured"イベントとして届く
+			}
+
+			@Override
+			protected void onError(@NonNull final Throwable t) {
+				// 受信中のストリームはそのままなので致命的なエラーにはしない
+				mTransactionManager.removeTransaction(message.transaction);
+				Log.w(TAG, t);
+			}
+		};
+		continuation.start(mTransport.send(mSession.id(), mPlugin.id(), message, continuation));
+	}
+
 	private void drainCandidates() {
 		if (DEBUG) Log.v(TAG, "drainCandidates:");
 		if (!queuedRemoteCandidates.isEmpty()) {
@@ -336,84 +504,83 @@ import retrofit2.Response;
 			if (peerConnection == null || isError) {
 				return;
 			}
-			String sdpDescription = sdp.description;
-			if (preferIsac) {
-				sdpDescription = SdpUtils.preferCodec(sdpDescription, AppRTCConst.AUDIO_CODEC_ISAC, true);
-			}
-			if (isVideoCallEnabled) {
-				sdpDescription =
-					SdpUtils.preferCodec(sdpDescription,
-						peerConnectionParameters.getSdpVideoCodecName(), false);
-			}
-			if (peerConnectionParameters.audioStartBitrate > 0) {
-				sdpDescription = SdpUtils.setStartBitrate(
-					AppRTCConst.AUDIO_CODEC_OPUS, false, sdpDescription, peerConnectionParameters.audioStartBitrate);
-			}
+			final String sdpDescription = mungeSdp(sdp.description, true);
 			if (DEBUG) Log.d(TAG, "Set remote SDP.");
 			final SessionDescription sdpRemote = new SessionDescription(sdp.type, sdpDescription);
 			peerConnection.setRemoteDescription(mSdpObserver, sdpRemote);
 		});
 	}
 
+	/**
+	 * apply SdpTransformerChain to SDP,
+	 * SDP is parsed once and serialized once only when it is changed
+	 * @param description
+	 * @param isRemote true: remote SDP, start bitrate is set only to remote SDP
+	 * @return
+	 */
+	@NonNull
+	private String mungeSdp(@NonNull final String description, final boolean isRemote) {
+		return mSdpTransformers.apply(description, isRemote);
+	}
+
 	@NonNull
 	protected abstract String getPType();
 
-	protected abstract BigInteger getFeedId();
+	/**
+	 * @return feed id to subscribe, JanusId.NONE if publisher
+	 */
+	protected abstract long getFeedId();
 
 	/**
 	 * attach to VideoRoom plugin
 	 */
 	public void attach() {
 		if (DEBUG) Log.v(TAG, "attach:");
-		final Attach attach = new Attach(mSession,
+		final Attach attach = new Attach(mTransactionManager, mSession,
 			"janus.plugin.videoroom",
 			null);
-		final Call<Plugin> call = mVideoRoom.attach(
-			roomConnectionParameters.apiName, mSession.id(), attach);
-		addCall(call);
-		call.enqueue(new Callback<Plugin>() {
+		final JanusTransport.Cancelable[] call = new JanusTransport.Cancelable[1];
+		call[0] = mTransport.attach(mSession.id(), attach,
+			new JanusTransport.Callback<Plugin>() {
 			@Override
-			public void onResponse(@NonNull final Call<Plugin> call,
-				@NonNull final Response<Plugin> response) {
-
-				if (response.isSuccessful() && (response.body() != null)) {
-					removeCall(call);
-					final Plugin plugin = response.body();
-					if ("success".equals(plugin.janus)) {
-						mPlugin = plugin;
-						mRoom = new Room(mSession, mPlugin);
-						mRoomState = RoomState.ATTACHED;
-						// プラグインにアタッチできた＼(^o^)／
-						if (DEBUG) Log.v(TAG, "attach:success");
-						mCallback.onAttach(JanusPlugin.this);
-						// ルームへjoin
-						executor.execute(() -> {
-							try {
-								join();
-							} catch (final Exception e) {
-								reportError(e);
-							}
-						});
-					} else {
-						reportError(new RuntimeException("unexpected response:" + response));
-					}
+			public void onResponse(@NonNull final Plugin plugin) {
+				if (call[0] != null) {
+					removeCall(call[0]);
+				}
+				if ("success".equals(plugin.janus)) {
+					mPlugin = plugin;
+					mRoom = new Room(mSession, mPlugin);
+					mRoomState = RoomState.ATTACHED;
+					// プラグインにアタッチできた＼(^o^)／
+					if (DEBUG) Log.v(TAG, "attach:success");
+					mCallback.onAttach(JanusPlugin.this);
+					// ルームへjoin
+					executor.execute(() -> {
+						try {
+							join();
+						} catch (final Exception e) {
+							reportError(e);
+						}
+					});
 				} else {
-					reportError(new RuntimeException("unexpected response:" + response));
+					reportError(new RuntimeException("unexpected response:" + plugin));
 				}
 			}
 			
 			@Override
-			public void onFailure(@NonNull final Call<Plugin> call,
-				@NonNull final Throwable t) {
-
+			public void onFailure(@NonNull final Throwable t) {
+				if (call[0] != null) {
+					removeCall(call[0]);
+				}
 				reportError(t);
 			}
 		});
+		addCall(call[0]);
 	}
 	
 	/**
 	 * join to Room
-	 * @throws IOException
+	 * 要求は非同期で送信するのでexecutorをブロックしない
 	 */
 	public void join() {
 		if (DEBUG) Log.v(TAG, "join:");
@@ -421,38 +588,51 @@ import retrofit2.Response;
 			? Build.MODEL : roomConnectionParameters.userName;
 		final String displayName = TextUtils.isEmpty(roomConnectionParameters.displayName)
 			? Build.MODEL : roomConnectionParameters.displayName;
-		final Message message = new Message(mRoom,
-			new Join(roomConnectionParameters.roomId, getPType(), userName, displayName, getFeedId()),
+		final Message message = new Message(mTransactionManager, mRoom,
+			createJoinBody(roomConnectionParameters.roomId, userName, displayName),
 			mTransactionCallback);
 		if (DEBUG) Log.v(TAG, "join:" + message);
-		final Call<EventRoom> call = mVideoRoom.join(roomConnectionParameters.apiName,
-			mSession.id(), mPlugin.id(), message);
-		addCall(call);
-		try {
-			final Response<EventRoom> response = call.execute();
-			if (response.isSuccessful() && (response.body() != null)) {
-				removeCall(call);
-				final EventRoom join = response.body();
-				if ("event".equals(join.janus)) {
-					if (DEBUG) Log.v(TAG, "多分ここにはこない, ackが返ってくるはず");
-					handlePluginEvent(message.transaction, join);
-				} else if (!"ack".equals(join.janus)
-					&& !"keepalive".equals(join.janus)) {
-
-					throw new RuntimeException("unexpected response:" + response);
-				}
+		final AckContinuation continuation = new AckContinuation() {
+			@Override
+			protected void onEvent(@NonNull final EventRoom join) {
+				if (DEBUG) Log.v(TAG, "多分ここにはこない, ackが返ってくるはず");
+				// long pollで受信した時と同じくexecutor上で処理する
+				executor.execute(() -> handlePluginEvent(message.transaction, join));
+			}
+
+			@Override
+			protected void onAck() {
 				// 実際の応答はlong pollで待機
-			} else {
-				throw new RuntimeException("unexpected response:" + response);
 			}
-		} catch (final Exception e) {
-			TransactionManager.removeTransaction(message.transaction);
-			cancelCall();
-			detach();
-			reportError(e);
-		}
+
+			@Override
+			protected void onError(@NonNull final Throwable t) {
+				mTransactionManager.removeTransaction(message.transaction);
+				// detachはPeerConnectionを破棄するのでexecutor上で実行する
+				executor.execute(() -> {
+					cancelCall();
+					detach();
+					reportError(t);
+				});
+			}
+		};
+		continuation.start(mTransport.send(mSession.id(), mPlugin.id(), message, continuation));
 	}
 	
+	/**
+	 * create message body of join request
+	 * @param roomId
+	 * @param userName
+	 * @param displayName
+	 * @return
+	 */
+	@NonNull
+	protected Object createJoinBody(final int roomId,
+		@NonNull final String userName, @NonNull final String displayName) {
+
+		return new Join(roomId, getPType(), userName, displayName, getFeedId());
+	}
+
 	/**
 	 * detach from VideoRoom plugin
 	 */
@@ -464,18 +644,24 @@ import retrofit2.Response;
 
 			mRoomState = RoomState.CLOSED;
 			if (DEBUG) Log.v(TAG, "detach:");
+			mTrickleBatcher.cancel();
 			cancelCall();
-			final Call<Void> call = mVideoRoom.detach(
-				roomConnectionParameters.apiName,
-				mSession.id(), mPlugin.id(),
-				new Detach(mSession, mTransactionCallback));
-			addCall(call);
-			try {
-				call.execute();
-			} catch (final IOException e) {
-				if (DEBUG) Log.w(TAG, e);
+			if (mPlugin != null) {
+				// 応答を待たずにPeerConnectionの破棄へ進む
+				mTransport.detach(mSession.id(), mPlugin.id(),
+					new Detach(mTransactionManager, mSession, mTransactionCallback),
+					new JanusTransport.Callback<Detach>() {
+						@Override
+						public void onResponse(@NonNull final Detach response) {
+							if (DEBUG) Log.v(TAG, "detach:success");
+						}
+
+						@Override
+						public void onFailure(@NonNull final Throwable t) {
+							if (DEBUG) Log.w(TAG, t);
+						}
+					});
 			}
-			removeCall(call);
 			if (DEBUG) Log.d(TAG, "Closing peer connection.");
 			mRoom = null;
 			mPlugin = null;
@@ -492,6 +678,8 @@ import retrofit2.Response;
 				peerConnection.dispose();
 				peerConnection = null;
 			}
+			// 以降に投入されたタスクも実行されるので統計からはずすだけ
+			ExecutorLanes.release(executor);
 		}
 	}
 
@@ -501,48 +689,44 @@ import retrofit2.Response;
 			reportError(new RuntimeException("Sending offer SDP in non connected state."));
 			return;
 		}
-		final Call<EventRoom> call = mVideoRoom.offer(
-			roomConnectionParameters.apiName,
-			mSession.id(),
-			mPlugin.id(),
-			new Message(mRoom,
-				new Configure(true, true),
-				new JsepSdp("offer", sdp.description),
-				mTransactionCallback)
-		);
-		addCall(call);
-		try {
-			final Response<EventRoom> response = call.execute();
-			if (DEBUG) Log.v(TAG, "sendOfferSdp:response=" + response
-				+ "\n" + response.body());
-			if (response.isSuccessful() && (response.body() != null)) {
-				removeCall(call);
-				final EventRoom offer = response.body();
-				if ("event".equals(offer.janus)) {
-					if (DEBUG) Log.v(TAG, "多分ここにはこない, ackが返ってくるはず");
-					final SessionDescription answerSdp
-						= new SessionDescription(
+		final AckContinuation continuation = new AckContinuation() {
+			@Override
+			protected void onEvent(@NonNull final EventRoom offer) {
+				if (DEBUG) Log.v(TAG, "多分ここにはこない, ackが返ってくるはず");
+				final SessionDescription answerSdp
+					= new SessionDescription(
+					SessionDescription.Type.fromCanonicalForm("answer"),
+					offer.jsep.sdp);
+				// onRemoteDescriptionはexecutor上でPeerConnectionへセットする
+				mCallback.onRemoteDescription(JanusPlugin.this, answerSdp);
+				onAck();
+			}
+
+			@Override
+			protected void onAck() {
+				// 実際の待機はlong pollで行う
+				if (isLoopback) {
+					// In loopback mode rename this offer to answer and route it back.
+					mCallback.onRemoteDescription(JanusPlugin.this, new SessionDescription(
 						SessionDescription.Type.fromCanonicalForm("answer"),
-						offer.jsep.sdp);
-					mCallback.onRemoteDescription(this, answerSdp);
-				} else if (!"ack".equals(offer.janus)
-					&& !"keepalive".equals(offer.janus)) {
-					throw new RuntimeException("unexpected response " + response);
+						sdp.description));
 				}
-				// 実際の待機はlong pollで行う
-			} else {
-				throw new RuntimeException("failed to send offer sdp");
 			}
-			if (isLoopback) {
-				// In loopback mode rename this offer to answer and route it back.
-				mCallback.onRemoteDescription(this, new SessionDescription(
-					SessionDescription.Type.fromCanonicalForm("answer"),
-					sdp.description));
+
+			@Override
+			protected void onError(@NonNull final Throwable t) {
+				cancelCall();
+				reportError(t);
 			}
-		} catch (final Exception e) {
-			cancelCall();
-			reportError(e);
-		}
+		};
+		continuation.start(mTransport.send(
+			mSession.id(),
+			mPlugin.id(),
+			new Message(mTransactionManager, mRoom,
+				new Configure(true, true),
+				new JsepSdp("offer", sdp.description),
+				mTransactionCallback),
+			continuation));
 	}
 	
 	private void sendAnswerSdp(final SessionDescription sdp, final boolean isLoopback) {
@@ -551,82 +735,106 @@ import retrofit2.Response;
 			Log.e(TAG, "Sending answer in loopback mode.");
 			return;
 		}
-		final Call<ResponseBody> call = mVideoRoom.send(
-			roomConnectionParameters.apiName,
+		final Continuation<EventRoom> continuation = new Continuation<EventRoom>() {
+			@Override
+			protected void onSuccess(@NonNull final EventRoom response) {
+				if (DEBUG) Log.v(TAG, "sendAnswerSdpInternal:response=" + response);
+				executor.execute(JanusPlugin.this::onAnswerSent);
+			}
+
+			@Override
+			protected void onError(@NonNull final Throwable t) {
+				cancelCall();
+				reportError(t);
+			}
+		};
+		continuation.start(mTransport.send(
 			mSession.id(),
 			mPlugin.id(),
-			new Message(mRoom,
+			new Message(mTransactionManager, mRoom,
 				new Start(1234),
 				new JsepSdp("answer", sdp.description),
-				mTransactionCallback)
-		);
-		addCall(call);
-		try {
-			final Response<ResponseBody> response = call.execute();
-			if (DEBUG) Log.v(TAG, "sendAnswerSdpInternal:response=" + response
-				+ "\n" + response.body());
-			removeCall(call);
-		} catch (final IOException e) {
-			cancelCall();
-			reportError(e);
-		}
+				mTransactionCallback),
+			continuation));
 	}
 
+	/**
+	 * called on executor when janus-gateway accepted the answer
+	 */
+	protected void onAnswerSent() {
+	}
+
+	/**
+	 * send local ice candidate, candidates are held for a short window
+	 * and sent in one trickle request
+	 * @param candidate null: gathering completed
+	 * @param isLoopback
+	 */
 	public void sendLocalIceCandidate(final IceCandidate candidate, final boolean isLoopback) {
 		if (DEBUG) Log.v(TAG, "sendLocalIceCandidate:");
 		if ((mSession == null) || (mPlugin == null)) return;
 
-		final Call<EventRoom> call;
 		if (candidate != null) {
-			call = mVideoRoom.trickle(
-				roomConnectionParameters.apiName,
-				mSession.id(),
-				mPlugin.id(),
-				new Trickle(mRoom, candidate, mTransactionCallback)
-			);
+			mTrickleBatcher.add(new Trickle.Candidate(
+				candidate.sdpMLineIndex, candidate.sdpMid, candidate.sdp));
 		} else {
-			call = mVideoRoom.trickleCompleted(
-				roomConnectionParameters.apiName,
-				mSession.id(),
-				mPlugin.id(),
-				new TrickleCompleted(mRoom, mTransactionCallback)
-			);
+			mTrickleBatcher.complete();
 		}
-		addCall(call);
-		try {
-			final Response<EventRoom> response = call.execute();
-//				if (DEBUG) Log.v(TAG, "sendLocalIceCandidate:response=" + response
-//					+ "\n" + response.body());
-			if (response.isSuccessful() && (response.body() != null)) {
-				removeCall(call);
-				final EventRoom join = response.body();
-				if ("event".equals(join.janus)) {
-					if (DEBUG) Log.v(TAG, "多分ここにはこない, ackが返ってくるはず");
-//					// FIXME 正常に処理できた…Roomの情報を更新する
-//					IceCandidate remoteCandidate = null;
-//					// FIXME removeCandidateを生成する
-//					if (remoteCandidate != null) {
-//						mCallback.onRemoteIceCandidate(this, remoteCandidate);
-//					} else {
-//						// FIXME remoteCandidateがなかった時
-//					}
-				} else if (!"ack".equals(join.janus)
-					&& !"keepalive".equals(join.janus)) {
-
-					throw new RuntimeException("unexpected response " + response);
-				}
+	}
+
+	/**
+	 * statistics of trickle requests(candidates per request and time to server ack)
+	 * @return
+	 */
+	@NonNull
+	public TrickleBatcher.Stats getTrickleStats() {
+		return mTrickleBatcher.getStats();
+	}
+
+	/**
+	 * send candidates held by TrickleBatcher in one request,
+	 * this is called on the executor
+	 * @param batch
+	 */
+	private void sendTrickleBatch(@NonNull final TrickleBatcher.Batch batch) {
+		if (DEBUG) Log.v(TAG, "sendTrickleBatch:" + batch);
+		if ((mSession == null) || (mPlugin == null) || (mRoom == null)) return;
+
+		final AckContinuation continuation = new AckContinuation() {
+			@Override
+			protected void onEvent(@NonNull final EventRoom join) {
+				if (DEBUG) Log.v(TAG, "多分ここにはこない, ackが返ってくるはず");
+				onAck();
+			}
+
+			@Override
+			protected void onAck() {
 				// 実際の待機はlong pollで行う
-			} else {
-				throw new RuntimeException("unexpected response " + response);
+				mTrickleBatcher.onAck(batch);
+				if (isLoopback) {
+					for (final Trickle.Candidate candidate: batch.candidates) {
+						mCallback.onRemoteIceCandidate(JanusPlugin.this,
+							new IceCandidate(candidate.sdpMid, candidate.sdpMLineIndex, candidate.candidate));
+					}
+				}
 			}
-			if ((candidate != null) && isLoopback) {
-				mCallback.onRemoteIceCandidate(this, candidate);
+
+			@Override
+			protected void onError(@NonNull final Throwable t) {
+				// detachはPeerConnectionを破棄するのでexecutor上で実行する
+				executor.execute(() -> {
+					cancelCall();
+					detach();
+					reportError(t);
+				});
 			}
-		} catch (final IOException e) {
-			cancelCall();
-			detach();
-			reportError(e);
-		}
+		};
+		continuation.start(mTransport.trickle(
+			mSession.id(),
+			mPlugin.id(),
+			new TrickleBatch(mTransactionManager, mRoom,
+				batch.candidates, batch.completed, mTransactionCallback),
+			continuation));
 	}
 
 //--------------------------------------------------------------------------------
@@ -773,14 +981,17 @@ import retrofit2.Response;
 		/**
 		 * usually this is called from from long poll
 		 * 実際の処理は上位クラスの#onReceivedへ移譲
+		 * このプラグインのトランザクションなのでこのプラグインのレーン上で処理して
+		 * 常に処理済みとして返す
 		 * @param body
 		 * @return
 		 */
 		@Override
 		public boolean onReceived(@NonNull final String transaction,
-			 final JSONObject body) {
+			 @NonNull final EventRoom body) {
 
-			return JanusPlugin.this.onReceived(transaction, body);
+			executor.execute(() -> JanusPlugin.this.onReceived(transaction, body));
+			return true;
 		}
 	};
 	
@@ -790,10 +1001,10 @@ import retrofit2.Response;
 	 * @return
 	 */
 	protected boolean onReceived(@NonNull final String transaction,
-		final JSONObject body) {
+		@NonNull final EventRoom body) {
 
 		if (DEBUG) Log.v(TAG, "onReceived:");
-		final String janus = body.optString("janus");
+		final String janus = body.janus;
 		boolean handled = false;
 		if (!TextUtils.isEmpty(janus)) {
 			switch (janus) {
@@ -805,13 +1016,9 @@ import retrofit2.Response;
 				// do nothing
 				return true;
 			case "event":
-			{
 				// プラグインイベント
-				final Gson gson = new Gson();
-				final EventRoom event = gson.fromJson(body.toString(), EventRoom.class);
-				handled = handlePluginEvent(transaction, event);
+				handled = handlePluginEvent(transaction, body);
 				break;
-			}
 			case "media":
 			case "webrtcup":
 			case "slowlink":
@@ -842,7 +1049,7 @@ import retrofit2.Response;
 
 		if (DEBUG) Log.v(TAG, "handlePluginEvent:");
 		// XXX このsenderはPublisherとして接続したときのVideoRoomプラグインのidらしい
-		final BigInteger sender = room.sender;
+		final long sender = room.sender;
 		final String eventType = (room.plugindata != null) && (room.plugindata.data != null)
 			? room.plugindata.data.videoroom : null;
 		// FIXME plugindata.pluginが"janus.plugin.videoroom"かどうかのチェックをしたほうが良いかも
@@ -854,6 +1061,7 @@ import retrofit2.Response;
 			case "joined":
 				return handlePluginEventJoined(transaction, room);
 			case "event":
+			case "updated":
 				return handlePluginEventEvent(transaction, room);
 			}
 		}
@@ -890,6 +1098,8 @@ import retrofit2.Response;
 			}
 		}
 		if (this instanceof Subscriber) {
+			// Subscriberは"joined"ではなく"attached"が返ってくる
+			mRoomState = RoomState.CONNECTED;
 			mCallback.onEnter(this);
 		}
 		return true;	// true: 処理済み
@@ -937,14 +1147,15 @@ import retrofit2.Response;
 		if ((room.plugindata != null)
 			&& (room.plugindata.data != null)) {
 
-//			if (room.plugindata.data.unpublished != null) {
-//				// XXX なにか処理必要？
-//			}
-			if (room.plugindata.data.leaving != null) {
+			// 配信を停止したPublisherもそのfeedのSubscriberは不要になるので退出と同様に扱う
+			// 退出時はunpublishedとleavingの両方が来ることがあるが2回目は何もしない
+			final long left = room.plugindata.data.leaving != JanusId.NONE
+				? room.plugindata.data.leaving : room.plugindata.data.unpublished;
+			if (left != JanusId.NONE) {
 				// FIXME ここは即プラグインマップから削除してその上でonLeaveを呼ぶほうがよい？
 				executor.execute( () -> {
 					mCallback.onLeave(JanusPlugin.this,
-						room.plugindata.data.leaving,
+						left,
 						mRoom.getNumPublishers());
 				});
 			}
@@ -983,24 +1194,109 @@ import retrofit2.Response;
 	 * @return
 	 */
 	protected boolean handleWebRTCEvent(@NonNull final String transaction,
-		final JSONObject body) {
+		@NonNull final EventRoom body) {
 
 		if (DEBUG) Log.v(TAG, "handleWebRTCEvent:" + body);
 		return false;	// true: handled
 	}
 
 //================================================================================
+	/**
+	 * continuation stage of asynchronous signaling request
+	 * JanusTransportのコールバックはexecutor以外のスレッドから呼ばれるので
+	 * PeerConnectionを操作する時は各実装でexecutorへ投げること
+	 * 要求中はmCurrentCallsに登録して#cancelCallでキャンセルできるようにする
+	 * @param <T>
+	 */
+	protected abstract class Continuation<T> implements JanusTransport.Callback<T> {
+		@Nullable
+		private JanusTransport.Cancelable mCall;
+		private boolean mCompleted;
+
+		/**
+		 * register request as current call
+		 * @param call return value of JanusTransport method called with this continuation
+		 */
+		public void start(@NonNull final JanusTransport.Cancelable call) {
+			synchronized (mCurrentCalls) {
+				// 送信失敗等で既に完了している時は登録しない
+				if (!mCompleted) {
+					mCall = call;
+					mCurrentCalls.add(call);
+				}
+			}
+		}
+
+		@Override
+		public final void onResponse(@NonNull final T response) {
+			finish();
+			try {
+				onSuccess(response);
+			} catch (final Exception e) {
+				onError(e);
+			}
+		}
+
+		@Override
+		public final void onFailure(@NonNull final Throwable t) {
+			finish();
+			onError(t);
+		}
+
+		private void finish() {
+			synchronized (mCurrentCalls) {
+				mCompleted = true;
+				if (mCall != null) {
+					mCurrentCalls.remove(mCall);
+				}
+			}
+		}
+
+		protected abstract void onSuccess(@NonNull final T response);
+		protected abstract void onError(@NonNull final Throwable t);
+	}
+
+	/**
+	 * continuation for requests that janus-gateway replies ack
+	 * and sends actual response as an event later
+	 */
+	protected abstract class AckContinuation extends Continuation<EventRoom> {
+		@Override
+		protected void onSuccess(@NonNull final EventRoom response) {
+			if ("event".equals(response.janus)) {
+				onEvent(response);
+			} else if ("ack".equals(response.janus)
+				|| "keepalive".equals(response.janus)) {
+
+				onAck();
+			} else {
+				onError(new RuntimeException("unexpected response:" + response));
+			}
+		}
+
+		/**
+		 * called when the reply is the event itself instead of ack
+		 * @param event
+		 */
+		protected abstract void onEvent(@NonNull final EventRoom event);
+
+		/**
+		 * called when ack is replied, actual response arrives as an event later
+		 */
+		protected abstract void onAck();
+	}
+
 	/**
 	 * set call that is currently in progress
 	 * @param call
 	 */
-	protected void addCall(@NonNull final Call<?> call) {
+	protected void addCall(@NonNull final JanusTransport.Cancelable call) {
 		synchronized (mCurrentCalls) {
 			mCurrentCalls.add(call);
 		}
 	}
 	
-	protected void removeCall(@NonNull final Call<?> call) {
+	protected void removeCall(@NonNull final JanusTransport.Cancelable call) {
 		synchronized (mCurrentCalls) {
 			mCurrentCalls.remove(call);
 		}
@@ -1018,7 +1314,7 @@ import retrofit2.Response;
 	 */
 	protected void cancelCall() {
 		synchronized (mCurrentCalls) {
-			for (final Call<?> call: mCurrentCalls) {
+			for (final JanusTransport.Cancelable call: mCurrentCalls) {
 				if ((call != null) && !call.isCanceled()) {
 					try {
 						call.cancel();
@@ -1050,20 +1346,13 @@ import retrofit2.Response;
 				reportError(new RuntimeException("Multiple SDP create."));
 				return;
 			}
-			String sdpDescription = origSdp.description;
-			if (preferIsac) {
-				sdpDescription = SdpUtils.preferCodec(sdpDescription, AppRTCConst.AUDIO_CODEC_ISAC, true);
-			}
-			if (isVideoCallEnabled) {
-				sdpDescription =
-					SdpUtils.preferCodec(sdpDescription,
-						peerConnectionParameters.getSdpVideoCodecName(), false);
-			}
+			final String sdpDescription = mungeSdp(origSdp.description, false);
 			final SessionDescription sdp = new SessionDescription(origSdp.type, sdpDescription);
 			mLocalSdp = sdp;
 			executor.execute(() -> {
 				if (peerConnection != null && !isError) {
 					Log.d(TAG, "SdpObserver: Set local SDP from " + sdp.type);
+					mSettingLocalSdp = true;
 					peerConnection.setLocalDescription(mSdpObserver, sdp);
 				}
 			});
@@ -1076,10 +1365,14 @@ import retrofit2.Response;
 				if (peerConnection == null || isError) {
 					return;
 				}
+				// ICE restartの時は既に両方のSDPがセットされているので
+				// null checkではなくローカルSDPをセットしたかどうかで判断する
+				final boolean localSet = mSettingLocalSdp;
+				mSettingLocalSdp = false;
 				if (isInitiator) {
 					// For offering peer connection we first create offer and set
 					// local SDP, then after receiving answer set remote SDP.
-					if (peerConnection.getRemoteDescription() == null) {
+					if (localSet) {
 						// We've just set our local SDP so time to send it.
 						if (DEBUG) Log.d(TAG, "SdpObserver: Local SDP set successfully");
 						onLocalDescription(mLocalSdp);
@@ -1092,7 +1385,7 @@ import retrofit2.Response;
 				} else {
 					// For answering peer connection we set remote SDP and then
 					// create answer and set local SDP.
-					if (peerConnection.getLocalDescription() != null) {
+					if (localSet) {
 						// We've just set our local SDP so time to send it, drain
 						// remote and send local ICE candidates.
 						if (DEBUG) Log.d(TAG, "SdpObserver: Local SDP set successfully");
@@ -1124,7 +1417,8 @@ import retrofit2.Response;
 		 * コンストラクタ
 		 * @param session
 		 */
-		public Publisher(@NonNull VideoRoom videoRoom,
+		public Publisher(@NonNull final JanusTransport transport,
+			@NonNull final TransactionManager transactionManager,
 			@NonNull final Session session,
 			@NonNull final JanusPluginCallback callback,
 			@NonNull final PeerConnectionParameters peerConnectionParameters,
@@ -1132,7 +1426,7 @@ import retrofit2.Response;
 			@NonNull final MediaConstraints sdpMediaConstraints,
 			final boolean isVideoCallEnabled) {
 
-			super(videoRoom, session, callback,
+			super(transport, transactionManager, session, callback,
 				peerConnectionParameters,
 				roomConnectionParameters,
 				sdpMediaConstraints,
@@ -1147,8 +1441,8 @@ import retrofit2.Response;
 		}
 
 		@Override
-		protected BigInteger getFeedId() {
-			return null;
+		protected long getFeedId() {
+			return JanusId.NONE;
 		}
 
 		protected boolean handlePluginEvent(@NonNull final String transaction,
@@ -1171,12 +1465,17 @@ import retrofit2.Response;
 
 				// ローカルキャッシュ
 				final EventRoom.Data data = room.plugindata.data;
-				if (data.unpublished != null) {
-					mRoom.updatePublisher(data.unpublished, false);
+				if (data.unpublished != JanusId.NONE) {
+					mRoom.unpublishPublisher(data.unpublished);
 				}
-				if (data.leaving != null) {
+				if (data.leaving != JanusId.NONE) {
 					mRoom.removePublisher(data.leaving);
 				}
+				if ("talking".equals(data.videoroom)) {
+					mRoom.updatePublisher(data.id, true);
+				} else if ("stopped-talking".equals(data.videoroom)) {
+					mRoom.updatePublisher(data.id, false);
+				}
 				@NonNull
 				final List<PublisherInfo> changed = mRoom.updatePublishers(data.publishers);
 				if (!changed.isEmpty()) {
@@ -1201,7 +1500,8 @@ import retrofit2.Response;
 		 * コンストラクタ
 		 * @param session
 		 */
-		public Subscriber(@NonNull VideoRoom videoRoom,
+		public Subscriber(@NonNull final JanusTransport transport,
+			@NonNull final TransactionManager transactionManager,
 			@NonNull final Session session,
 			@NonNull final JanusPluginCallback callback,
 			@NonNull final PeerConnectionParameters peerConnectionParameters,
@@ -1210,7 +1510,7 @@ import retrofit2.Response;
 			@NonNull final PublisherInfo info,
 			final boolean isVideoCallEnabled) {
 
-			super(videoRoom, session, callback,
+			super(transport, transactionManager, session, callback,
 				peerConnectionParameters,
 				roomConnectionParameters,
 				sdpMediaConstraints,
@@ -1226,19 +1526,357 @@ import retrofit2.Response;
 			return "subscriber";
 		}
 
-		protected BigInteger getFeedId() {
+		protected long getFeedId() {
 			return info.id;
 		}
 
+		@Nullable
+		@Override
+		protected ConfigureSubstream createConfigureSubstream(final long feedId,
+			final int substream, final int temporal) {
+
+			return feedId == info.id ? ConfigureSubstream.of(substream, temporal) : null;
+		}
+
+		@Override
+		protected void onRemoteDescription(@NonNull final SessionDescription sdp) {
+			if (DEBUG) Log.v(TAG, "onRemoteDescription:\n" + sdp.description);
+			
+			super.onRemoteDescription(sdp);
+			if (sdp.type == SessionDescription.Type.OFFER) {
+				createAnswer();
+			}
+		}
+
+	}
+
+	/**
+	 * multistream subscriber
+	 * 全てのリモートPublisherを1つのハンドル/PeerConnectionで受信する
+	 * 最初のfeedでjoinした後はsubscribe/unsubscribeでfeedを追加/削除して
+	 * janus-gatewayからのofferで再ネゴシエーションする
+	 * 各feedはUnified PlanのPeerConnectionのtransceiver(mid)に対応する
+	 */
+	public static class MultistreamSubscriber extends JanusPlugin {
+		/**
+		 * feeds that should be subscribed, accessed only on executor
+		 */
+		private final LongHashMap<PublisherInfo> mFeeds = new LongHashMap<>();
+		/**
+		 * feeds that streams are already added, accessed only on executor
+		 */
+		private final LongHashMap<PublisherInfo> mEntered = new LongHashMap<>();
+		/**
+		 * active streams keyed by mid, accessed only on executor
+		 */
+		private final Map<String, StreamInfo> mStreams = new HashMap<>();
+		private final List<Long> mPendingSubscribe = new ArrayList<>();
+		private final List<Long> mPendingUnsubscribe = new ArrayList<>();
+		private boolean mJoinSent;
+		/**
+		 * true while waiting offer/answer of join or subscribe/unsubscribe,
+		 * janus-gateway can not renegotiate while previous one is in progress
+		 */
+		private boolean mUpdating;
+		/**
+		 * transaction of subscribe/unsubscribe in progress, accessed only on executor
+		 */
+		@Nullable
+		private String mUpdateTransaction;
+
+		/**
+		 * コンストラクタ
+		 * @param session
+		 */
+		public MultistreamSubscriber(@NonNull final JanusTransport transport,
+			@NonNull final TransactionManager transactionManager,
+			@NonNull final Session session,
+			@NonNull final JanusPluginCallback callback,
+			@NonNull final PeerConnectionParameters peerConnectionParameters,
+			@NonNull final RoomConnectionParameters roomConnectionParameters,
+			@NonNull final MediaConstraints sdpMediaConstraints,
+			final boolean isVideoCallEnabled) {
+
+			super(transport, transactionManager, session, callback,
+				peerConnectionParameters,
+				roomConnectionParameters,
+				sdpMediaConstraints,
+				isVideoCallEnabled);
+
+			if (DEBUG) Log.v(TAG, "MultistreamSubscriber:");
+		}
+		
+		@NonNull
+		@Override
+		protected String getPType() {
+			return "subscriber";
+		}
+
+		@Override
+		protected long getFeedId() {
+			return JanusId.NONE;
+		}
+
+		@Nullable
+		@Override
+		protected ConfigureSubstream createConfigureSubstream(final long feedId,
+			final int substream, final int temporal) {
+
+			for (final StreamInfo stream: mStreams.values()) {
+				if ((stream.feed_id == feedId) && "video".equals(stream.type)) {
+					return ConfigureSubstream.of(stream.mid, substream, temporal);
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * add feed to subscribe,
+		 * feeds that are added before join are subscribed with join request
+		 * @param info
+		 */
+		public void subscribe(@NonNull final PublisherInfo info) {
+			if (DEBUG) Log.v(TAG, "subscribe:" + info);
+			executor.execute(() -> {
+				if (mFeeds.containsKey(info.id)) {
+					return;
+				}
+				mFeeds.put(info.id, info);
+				if (mJoinSent) {
+					if (!mPendingUnsubscribe.remove(info.id)) {
+						mPendingSubscribe.add(info.id);
+					}
+					flushUpdates();
+				}
+			});
+		}
+
+		/**
+		 * remove feed
+		 * @param feedId
+		 */
+		public void unsubscribe(final long feedId) {
+			if (DEBUG) Log.v(TAG, "unsubscribe:" + JanusId.toString(feedId));
+			executor.execute(() -> {
+				if (mFeeds.remove(feedId) == null) {
+					return;
+				}
+				mEntered.remove(feedId);
+				if (mJoinSent) {
+					if (!mPendingSubscribe.remove(feedId)) {
+						mPendingUnsubscribe.add(feedId);
+					}
+					flushUpdates();
+				}
+			});
+		}
+
+		@NonNull
+		@Override
+		protected Object createJoinBody(final int roomId,
+			@NonNull final String userName, @NonNull final String displayName) {
+
+			final List<Long> feeds = new ArrayList<>();
+			for (final PublisherInfo info: mFeeds.values()) {
+				feeds.add(info.id);
+			}
+			mJoinSent = true;
+			mUpdating = true;
+			return Subscribe.join(roomId, feeds);
+		}
+
+		@Override
+		protected boolean handlePluginEvent(@NonNull final String transaction,
+			@NonNull final EventRoom room) {
+
+			if ((room.plugindata != null)
+				&& (room.plugindata.data != null)
+				&& (room.plugindata.data.streams != null)) {
+
+				// offerをセットする前にmidとfeedの対応を更新する
+				updateStreams(room.plugindata.data.streams);
+			}
+			return super.handlePluginEvent(transaction, room);
+		}
+
+		@Override
+		protected boolean handlePluginEventAttached(@NonNull final String transaction,
+			@NonNull final EventRoom room) {
+
+			mRoomState = RoomState.CONNECTED;
+			return super.handlePluginEventAttached(transaction, room);
+		}
+
+		@Override
+		protected boolean handlePluginEventEvent(@NonNull final String transaction,
+			@NonNull final EventRoom room) {
+
+			final boolean result = super.handlePluginEventEvent(transaction, room);
+			if (mUpdating && (room.jsep == null)
+				&& transaction.equals(mUpdateTransaction)) {
+
+				// エラー(error_code)または再ネゴシエーション不要("updated"でjsepなし)の時は
+				// offerが来ないのでここで次のsubscribe/unsubscribeへ進む
+				if (DEBUG) Log.v(TAG, "handlePluginEventEvent:update finished without offer");
+				mUpdateTransaction = null;
+				mUpdating = false;
+				flushUpdates();
+			}
+			return result;
+		}
+
 		@Override
 		protected void onRemoteDescription(@NonNull final SessionDescription sdp) {
 			if (DEBUG) Log.v(TAG, "onRemoteDescription:\n" + sdp.description);
 			
+			if (sdp.type == SessionDescription.Type.OFFER) {
+				// "updated"の再ネゴシエーション時は前回のanswerが残っているのでクリアする
+				mLocalSdp = null;
+			}
 			super.onRemoteDescription(sdp);
 			if (sdp.type == SessionDescription.Type.OFFER) {
 				createAnswer();
 			}
 		}
 
+		@Override
+		protected void onAnswerSent() {
+			if (DEBUG) Log.v(TAG, "onAnswerSent:");
+			mUpdateTransaction = null;
+			mUpdating = false;
+			flushUpdates();
+		}
+
+		@Override
+		public void onAddTrack(final RtpReceiver receiver, final MediaStream[] streams) {
+			super.onAddTrack(receiver, streams);
+			final MediaStreamTrack track = receiver.track();
+			if (track == null) {
+				return;
+			}
+			executor.execute(() -> {
+				final StreamInfo stream = findStream(receiver);
+				if (DEBUG) Log.v(TAG, "onAddTrack:" + stream);
+				mCallback.onAddRemoteTrack(MultistreamSubscriber.this,
+					stream != null ? stream.feed_id : JanusId.NONE, track);
+			});
+		}
+
+		/**
+		 * 保持しているstreamsを更新して新しく追加されたfeedを通知する
+		 * @param streams
+		 */
+		private void updateStreams(@NonNull final StreamInfo[] streams) {
+			if (DEBUG) Log.v(TAG, "updateStreams:" + streams.length);
+			mStreams.clear();
+			final LongHashMap<PublisherInfo> present = new LongHashMap<>();
+			for (final StreamInfo stream: streams) {
+				if ((stream != null) && stream.active
+					&& (stream.mid != null) && (stream.feed_id != JanusId.NONE)) {
+
+					mStreams.put(stream.mid, stream);
+					final PublisherInfo info = mFeeds.get(stream.feed_id);
+					if (info != null) {
+						present.put(stream.feed_id, info);
+					}
+				}
+			}
+			for (final PublisherInfo info: mEntered.values()) {
+				if (!present.containsKey(info.id)) {
+					// 退出はPublisher側の"leaving"/"unpublished"で通知する
+					mEntered.remove(info.id);
+				}
+			}
+			for (final PublisherInfo info: present.values()) {
+				if (!mEntered.containsKey(info.id)) {
+					mEntered.put(info.id, info);
+					mCallback.onEnterFeed(this, info);
+				}
+			}
+		}
+
+		@Nullable
+		private StreamInfo findStream(@NonNull final RtpReceiver receiver) {
+			final PeerConnection pc = getPeerConnection();
+			if (pc != null) {
+				for (final RtpTransceiver transceiver: pc.getTransceivers()) {
+					if (receiver.id().equals(transceiver.getReceiver().id())) {
+						final String mid = transceiver.getMid();
+						return mid != null ? mStreams.get(mid) : null;
+					}
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * send pending subscribe/unsubscribe if renegotiation is not in progress,
+		 * feeds that are added/removed meanwhile are sent together in one request
+		 */
+		private void flushUpdates() {
+			if (mUpdating || (mRoomState != RoomState.CONNECTED)) {
+				return;
+			}
+			// 退出等でjanus-gatewayが既に取り除いたfeedはunsubscribeしない
+			for (final Iterator<Long> it = mPendingUnsubscribe.iterator(); it.hasNext(); ) {
+				if (!hasStream(it.next())) {
+					it.remove();
+				}
+			}
+			final Subscribe body;
+			if (!mPendingSubscribe.isEmpty()) {
+				body = Subscribe.subscribe(mPendingSubscribe);
+				mPendingSubscribe.clear();
+			} else if (!mPendingUnsubscribe.isEmpty()) {
+				body = Subscribe.unsubscribe(mPendingUnsubscribe);
+				mPendingUnsubscribe.clear();
+			} else {
+				return;
+			}
+			if (DEBUG) Log.v(TAG, "flushUpdates:" + body);
+			mUpdating = true;
+			final Message message = new Message(mTransactionManager, mRoom,
+				body, mTransactionCallback);
+			mUpdateTransaction = message.transaction;
+			final AckContinuation continuation = new AckContinuation() {
+				@Override
+				protected void onEvent(@NonNull final EventRoom event) {
+					// long pollで受信した時と同じくexecutor上で処理する
+					executor.execute(() -> handlePluginEvent(message.transaction, event));
+				}
+
+				@Override
+				protected void onAck() {
+					// 新しいofferは"updated"イベントとして届く
+				}
+
+				@Override
+				protected void onError(@NonNull final Throwable t) {
+					mTransactionManager.removeTransaction(message.transaction);
+					Log.w(TAG, t);
+					executor.execute(() -> {
+						if (message.transaction.equals(mUpdateTransaction)) {
+							mUpdateTransaction = null;
+							mUpdating = false;
+							flushUpdates();
+						}
+					});
+				}
+			};
+			continuation.start(mTransport.send(mSession.id(), mPlugin.id(), message, continuation));
+		}
+
+		/**
+		 * @param feedId
+		 * @return true if janus-gateway relays any stream of the feed
+		 */
+		private boolean hasStream(final long feedId) {
+			for (final StreamInfo stream: mStreams.values()) {
+				if (stream.feed_id == feedId) {
+					return true;
+				}
+			}
+			return false;
+		}
 	}
 }
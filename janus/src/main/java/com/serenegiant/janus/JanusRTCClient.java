@@ -42,6 +42,8 @@ import org.appspot.apprtc.PeerConnectionParameters;
 import org.appspot.apprtc.RecordedAudioToFileController;
 import org.appspot.apprtc.RoomConnectionParameters;
 import org.appspot.apprtc.RtcEventLog;
+import org.appspot.apprtc.SdpParameters;
+import org.appspot.apprtc.util.SdpTransformers;
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.webrtc.AudioSource;
@@ -58,6 +60,8 @@ import org.webrtc.MediaStream;
 import org.webrtc.MediaStreamTrack;
 import org.webrtc.PeerConnection;
 import org.webrtc.PeerConnectionFactory;
+import org.webrtc.RTCStats;
+import org.webrtc.RTCStatsReport;
 import org.webrtc.RtpParameters;
 import org.webrtc.RtpSender;
 import org.webrtc.RtpTransceiver;
@@ -68,6 +72,7 @@ import org.webrtc.SurfaceTextureHelper;
 import org.webrtc.VideoCapturer;
 import org.webrtc.VideoDecoderFactory;
 import org.webrtc.VideoEncoderFactory;
+import org.webrtc.VideoFrame;
 import org.webrtc.VideoSink;
 import org.webrtc.VideoSource;
 import org.webrtc.VideoTrack;
@@ -82,30 +87,24 @@ import org.webrtc.voiceengine.WebRtcAudioUtils;
 import java.io.File;
 import java.io.IOException;
 import java.lang.ref.WeakReference;
-import java.math.BigInteger;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
-import java.util.Map;
 import java.util.Timer;
 import java.util.TimerTask;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
+import okhttp3.Dispatcher;
 import okhttp3.Interceptor;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
-import okhttp3.ResponseBody;
 import okhttp3.logging.HttpLoggingInterceptor;
-import retrofit2.Call;
-import retrofit2.Callback;
-import retrofit2.Response;
 import retrofit2.Retrofit;
 import retrofit2.converter.gson.GsonConverterFactory;
 
@@ -114,6 +113,10 @@ import static com.serenegiant.janus.Const.*;
 public class JanusRTCClient implements JanusClient {
 	private static final boolean DEBUG = false;	// set false on production
 	private static final String TAG = JanusRTCClient.class.getSimpleName();
+	/**
+	 * delay to request the layer after the view size stops changing[ミリ秒]
+	 */
+	private static final long SUBSTREAM_DEBOUNCE_MS = 300;
 	
 	private static PeerConnection.SdpSemantics SDP_SEMANTICS = PeerConnection.SdpSemantics.UNIFIED_PLAN;
 
@@ -128,8 +131,32 @@ public class JanusRTCClient implements JanusClient {
 	 * Executor thread is started once in private ctor and is used for all
 	 * peer connection API calls to ensure new peer connection factory is
 	 * created on the same thread as previously destroyed factory.
+	 * PeerConnection of each plugin uses its own lane(JanusPlugin#executor)
+	 */
+	static final SerialExecutor executor = ExecutorLanes.FACTORY;
+	/**
+	 * lane for statistics polling so that it does not queue behind factory operations
+	 */
+	private final SerialExecutor mStatsExecutor = ExecutorLanes.newLane("stats");
+	/**
+	 * accessed only on mStatsExecutor
+	 */
+	private final RtcStatsCollector mStatsCollector = new RtcStatsCollector();
+	/**
+	 * adaptive bitrate control of the publisher, accessed only on mStatsExecutor
+	 */
+	@Nullable
+	private BitratePolicy mBitratePolicy;
+	/**
+	 * EncodingTarget applied to the local video, accessed only on executor
+	 */
+	@Nullable
+	private BitratePolicy.EncodingTarget mEncodingTarget;
+	/**
+	 * selects substream/temporal layer of remote feeds from their view size
 	 */
-	static final ExecutorService executor = Executors.newSingleThreadExecutor();
+	@NonNull
+	private final SubstreamSelector mSubstreamSelector;
 
 	private final Object mSync = new Object();
 	private final WeakReference<Context> mWeakContext;
@@ -141,10 +168,17 @@ public class JanusRTCClient implements JanusClient {
 	private final RoomConnectionParameters roomConnectionParameters;
 	@NonNull
 	private final JanusCallback mCallback;
+	@NonNull
+	private final TransactionManager mTransactionManager = new TransactionManager();
 	private final boolean dataChannelEnabled;
 //--------------------------------------------------------------------------------
 	@NonNull
 	private final Timer statsTimer = new Timer();
+	/**
+	 * set when destroy starts, stats tasks that are already queued
+	 * on mStatsExecutor are skipped after that
+	 */
+	private volatile boolean mReleased;
 	@Nullable
 	private PeerConnectionFactory factory;
 	private boolean videoCapturerStopped;
@@ -157,6 +191,11 @@ public class JanusRTCClient implements JanusClient {
 	 */
 	@Nullable
 	private RecordedAudioToFileController saveRecordedAudioToFile = null;
+	/**
+	 * lane for writing recorded audio samples to the file
+	 */
+	@Nullable
+	private SerialExecutor mAudioExecutor;
 	@Nullable
 	private VideoSink localRender;
 	@Nullable
@@ -188,16 +227,35 @@ public class JanusRTCClient implements JanusClient {
 	private boolean renderVideo = true;
 //--------------------------------------------------------------------------------
 
-	private VideoRoom mJanus;
-	private LongPoll mLongPoll;
-	@NonNull
-	private final List<Call<?>> mCurrentCalls = new ArrayList<>();
+	@Nullable
+	private JanusTransport mTransport;
 	@NonNull
-	private final Map<BigInteger, JanusPlugin> mAttachedPlugins
-		= new ConcurrentHashMap<BigInteger, JanusPlugin>();
+	private final LongHashMap<JanusPlugin> mAttachedPlugins
+		= new LongHashMap<JanusPlugin>();
 	private ConnectionState mConnectionState;
 	private ServerInfo mServerInfo;
 	private Session mSession;
+	@Nullable
+	private KeepAliveScheduler mKeepAliveScheduler;
+	@Nullable
+	private SessionResumer mSessionResumer;
+	@Nullable
+	private SessionBootstrap mBootstrap;
+	@Nullable
+	private ServerInfoCache mServerInfoCache;
+	@Nullable
+	private volatile SubscriberScheduler mSubscriberScheduler;
+	/**
+	 * subscriber that receives all remote feeds when multistream is enabled,
+	 * accessed only on executor
+	 */
+	@Nullable
+	private JanusPlugin.MultistreamSubscriber mMultistreamSubscriber;
+	/**
+	 * feeds that are subscribed by mMultistreamSubscriber, accessed only on executor
+	 */
+	@NonNull
+	private final LongHashMap<PublisherInfo> mMultistreamFeeds = new LongHashMap<>();
 
 	/**
 	 * コンストラクタ
@@ -241,6 +299,10 @@ public class JanusRTCClient implements JanusClient {
 
 		this.mConnectionState = ConnectionState.UNINITIALIZED;
 		this.dataChannelEnabled = peerConnectionParameters.dataChannelParameters != null;
+		this.mSubstreamSelector = new SubstreamSelector(
+			createDefaultSubstreamPolicy(peerConnectionParameters),
+			SUBSTREAM_DEBOUNCE_MS,
+			(feedId, layer) -> configureSubstream(feedId, layer.substream, layer.temporal));
 
 		final String fieldTrials = peerConnectionParameters.getFieldTrials();
 		executor.execute(() -> {
@@ -343,6 +405,27 @@ public class JanusRTCClient implements JanusClient {
 		});
 	}
 	
+	@NonNull
+	@Override
+	public List<ExecutorStats> getExecutorStats() {
+		return ExecutorLanes.getStats();
+	}
+
+	@Nullable
+	@Override
+	public KeepAliveScheduler.Stats getKeepAliveStats() {
+		final KeepAliveScheduler scheduler = mKeepAliveScheduler;
+		return scheduler != null ? scheduler.getStats() : null;
+	}
+
+	@Override
+	public void resume() {
+		if (DEBUG) Log.v(TAG, "resume:");
+		executor.execute(() -> {
+			resumeInternal();
+		});
+	}
+
 	private TimerTask mTimerTask;
 	@Override
 	public void enableStatsEvents(boolean enable, int periodMs) {
@@ -352,7 +435,7 @@ public class JanusRTCClient implements JanusClient {
 			mTimerTask = new TimerTask() {
 				@Override
 				public void run() {
-					executor.execute(() -> getStats());
+					mStatsExecutor.execute(() -> getStats());
 				}
 			};
 			try {
@@ -365,6 +448,17 @@ public class JanusRTCClient implements JanusClient {
 		}
 	}
 
+	@Override
+	public void setBitratePolicy(@Nullable final BitratePolicy policy) {
+		if (DEBUG) Log.v(TAG, "setBitratePolicy:" + policy);
+		mStatsExecutor.execute(() -> {
+			mBitratePolicy = policy;
+			if (policy != null) {
+				policy.reset();
+			}
+		});
+	}
+
 	private void cancelTimerTask() {
 		if (mTimerTask != null) {
 			mTimerTask.cancel();
@@ -451,7 +545,8 @@ public class JanusRTCClient implements JanusClient {
 		if (peerConnectionParameters.saveInputAudioToFile) {
 			if (!peerConnectionParameters.useOpenSLES) {
 				if (DEBUG) Log.d(TAG, "Enable recording of microphone input audio to file");
-				saveRecordedAudioToFile = new RecordedAudioToFileController(executor);
+				mAudioExecutor = ExecutorLanes.newLane("audio");
+				saveRecordedAudioToFile = new RecordedAudioToFileController(mAudioExecutor);
 			} else {
 				// TODO(henrika): ensure that the UI reflects that if OpenSL ES is selected,
 				// then the "Save inut audio to file" option shall be grayed out.
@@ -725,7 +820,7 @@ public class JanusRTCClient implements JanusClient {
 		
 		final JanusPlugin.Publisher publisher
 			= new JanusPlugin.Publisher(
-				mJanus, mSession,
+				mTransport, mTransactionManager, mSession,
 				mJanusPluginCallback,
 				peerConnectionParameters,
 				roomConnectionParameters,
@@ -834,6 +929,7 @@ public class JanusRTCClient implements JanusClient {
 		final Context context = getContext();
 		if ((context == null) || (factory == null) || isError) {
 			Log.e(TAG, "createSubscriber:Peerconnection factory is not created");
+			onSubscriberFailed(info.id);
 			return;
 		}
 		if (DEBUG) Log.d(TAG, "createSubscriber:Create peer connection.");
@@ -843,31 +939,12 @@ public class JanusRTCClient implements JanusClient {
 				rootEglBase.getEglBaseContext(), rootEglBase.getEglBaseContext());
 		}
 		
-		// Create SDP constraints.
-		final MediaConstraints sdpMediaConstraints = new MediaConstraints();
-		sdpMediaConstraints.mandatory.add(
-			new MediaConstraints.KeyValuePair("OfferToReceiveAudio", "true"));
-		sdpMediaConstraints.mandatory.add(
-			new MediaConstraints.KeyValuePair("OfferToReceiveVideo", "true"));
-		sdpMediaConstraints.optional.add(
-			new MediaConstraints.KeyValuePair("DtlsSrtpKeyAgreement", "true"));
-
-		final PeerConnection.RTCConfiguration rtcConfig =
-			new PeerConnection.RTCConfiguration(mCallback.getIceServers(this));
-		// TCP candidates are only useful when connecting to a server that supports
-		// ICE-TCP.
-		rtcConfig.tcpCandidatePolicy = PeerConnection.TcpCandidatePolicy.DISABLED;
-		rtcConfig.bundlePolicy = PeerConnection.BundlePolicy.MAXBUNDLE;
-		rtcConfig.rtcpMuxPolicy = PeerConnection.RtcpMuxPolicy.REQUIRE;
-		rtcConfig.continualGatheringPolicy = PeerConnection.ContinualGatheringPolicy.GATHER_CONTINUALLY;
-		// Use ECDSA encryption.
-		rtcConfig.keyType = PeerConnection.KeyType.ECDSA;
-		// Enable DTLS for normal calls and disable for loopback calls.
-		rtcConfig.enableDtlsSrtp = !peerConnectionParameters.loopback;
+		final MediaConstraints sdpMediaConstraints = createSubscriberSdpConstraints();
+		final PeerConnection.RTCConfiguration rtcConfig = createSubscriberRtcConfig();
 		rtcConfig.sdpSemantics = SDP_SEMANTICS;
 		
 		final JanusPlugin.Subscriber subscriber = new JanusPlugin.Subscriber(
-			mJanus, mSession, mJanusPluginCallback,
+			mTransport, mTransactionManager, mSession, mJanusPluginCallback,
 			peerConnectionParameters,
 			roomConnectionParameters,
 			sdpMediaConstraints,
@@ -894,6 +971,7 @@ public class JanusRTCClient implements JanusClient {
 				// answer to get the remote track.
 				remoteVideoTrack = getRemoteVideoTrack(peerConnection);
 				if (remoteVideoTrack != null) {
+					watchFirstFrame(info.id, remoteVideoTrack);
 					remoteVideoTrack.setEnabled(renderVideo);
 					for (final VideoSink remoteSink : remoteSinks) {
 						remoteVideoTrack.addSink(remoteSink);
@@ -935,6 +1013,221 @@ public class JanusRTCClient implements JanusClient {
 		subscriber.attach();
 	}
 
+	/**
+	 * add feed to the multistream subscriber,
+	 * the multistream subscriber is created and attached with the first feed
+	 * @param info
+	 */
+	private void subscribeMultistream(@NonNull final PublisherInfo info) {
+		if (DEBUG) Log.v(TAG, "subscribeMultistream:" + info);
+		if (mMultistreamFeeds.containsKey(info.id)) {
+			return;
+		}
+		mMultistreamFeeds.put(info.id, info);
+		if (mMultistreamSubscriber != null) {
+			mMultistreamSubscriber.subscribe(info);
+			return;
+		}
+
+		final Context context = getContext();
+		if ((context == null) || (factory == null) || isError) {
+			Log.e(TAG, "subscribeMultistream:Peerconnection factory is not created");
+			mMultistreamFeeds.remove(info.id);
+			return;
+		}
+		if (isVideoCallEnabled()) {
+			factory.setVideoHwAccelerationOptions(
+				rootEglBase.getEglBaseContext(), rootEglBase.getEglBaseContext());
+		}
+		final PeerConnection.RTCConfiguration rtcConfig = createSubscriberRtcConfig();
+		// 各feedをtransceiverとして受信するのでUnified Plan固定
+		rtcConfig.sdpSemantics = PeerConnection.SdpSemantics.UNIFIED_PLAN;
+		final JanusPlugin.MultistreamSubscriber subscriber
+			= new JanusPlugin.MultistreamSubscriber(
+				mTransport, mTransactionManager, mSession, mJanusPluginCallback,
+				peerConnectionParameters,
+				roomConnectionParameters,
+				createSubscriberSdpConstraints(),
+				isVideoCallEnabled());
+		final PeerConnection peerConnection
+			= factory.createPeerConnection(rtcConfig, subscriber);
+
+		RtcEventLog rtcEventLog = null;
+		if (peerConnectionParameters.enableRtcEventLog) {
+			rtcEventLog = new RtcEventLog(peerConnection);
+			rtcEventLog.start(createRtcEventLogOutputFile());
+		}
+		if (DEBUG) Log.d(TAG, "subscribeMultistream: Peer connection created.");
+
+		mMultistreamSubscriber = subscriber;
+		subscriber.setPeerConnection(peerConnection, null, rtcEventLog);
+		// 最初のfeedはjoin要求で一緒に送る
+		subscriber.subscribe(info);
+		subscriber.attach();
+	}
+
+	/**
+	 * SDP constraints for subscribers(receive only)
+	 * @return
+	 */
+	@NonNull
+	private MediaConstraints createSubscriberSdpConstraints() {
+		final MediaConstraints sdpMediaConstraints = new MediaConstraints();
+		sdpMediaConstraints.mandatory.add(
+			new MediaConstraints.KeyValuePair("OfferToReceiveAudio", "true"));
+		sdpMediaConstraints.mandatory.add(
+			new MediaConstraints.KeyValuePair("OfferToReceiveVideo", "true"));
+		sdpMediaConstraints.optional.add(
+			new MediaConstraints.KeyValuePair("DtlsSrtpKeyAgreement", "true"));
+		return sdpMediaConstraints;
+	}
+
+	/**
+	 * RTCConfiguration for subscribers, sdpSemantics should be set by caller
+	 * @return
+	 */
+	@NonNull
+	private PeerConnection.RTCConfiguration createSubscriberRtcConfig() {
+		final PeerConnection.RTCConfiguration rtcConfig =
+			new PeerConnection.RTCConfiguration(mCallback.getIceServers(this));
+		// TCP candidates are only useful when connecting to a server that supports
+		// ICE-TCP.
+		rtcConfig.tcpCandidatePolicy = PeerConnection.TcpCandidatePolicy.DISABLED;
+		rtcConfig.bundlePolicy = PeerConnection.BundlePolicy.MAXBUNDLE;
+		rtcConfig.rtcpMuxPolicy = PeerConnection.RtcpMuxPolicy.REQUIRE;
+		rtcConfig.continualGatheringPolicy = PeerConnection.ContinualGatheringPolicy.GATHER_CONTINUALLY;
+		// Use ECDSA encryption.
+		rtcConfig.keyType = PeerConnection.KeyType.ECDSA;
+		// Enable DTLS for normal calls and disable for loopback calls.
+		rtcConfig.enableDtlsSrtp = !peerConnectionParameters.loopback;
+		return rtcConfig;
+	}
+
+	/**
+	 * clear multistream subscriber and its feeds, accessed only on executor
+	 */
+	private void clearMultistream() {
+		mMultistreamSubscriber = null;
+		mMultistreamFeeds.clear();
+	}
+
+	/**
+	 * mark the feed visible/invisible on the screen,
+	 * subscribers of visible feeds are set up first
+	 * @param feedId
+	 * @param visible
+	 */
+	@Override
+	public void setFeedVisible(final long feedId, final boolean visible) {
+		final SubscriberScheduler scheduler = mSubscriberScheduler;
+		if (scheduler != null) {
+			scheduler.setVisible(feedId, visible);
+		}
+	}
+
+	@Override
+	public void configureSubstream(final long feedId,
+		final int substream, final int temporal) {
+
+		if (DEBUG) Log.v(TAG, "configureSubstream:" + JanusId.toString(feedId));
+		executor.execute(() -> {
+			if (mMultistreamFeeds.containsKey(feedId)) {
+				if (mMultistreamSubscriber != null) {
+					mMultistreamSubscriber.configureSubstream(feedId, substream, temporal);
+				}
+				return;
+			}
+			final List<JanusPlugin> plugins;
+			synchronized (mAttachedPlugins) {
+				plugins = mAttachedPlugins.values();
+			}
+			for (final JanusPlugin plugin: plugins) {
+				if ((plugin instanceof JanusPlugin.Subscriber)
+					&& (plugin.getFeedId() == feedId)) {
+
+					plugin.configureSubstream(feedId, substream, temporal);
+				}
+			}
+		});
+	}
+
+	@Override
+	public void setFeedViewSize(final long feedId, final int width, final int height) {
+		mSubstreamSelector.setViewSize(feedId, width, height);
+	}
+
+	@Override
+	public void setSubstreamPolicy(@Nullable final SubstreamPolicy policy) {
+		if (DEBUG) Log.v(TAG, "setSubstreamPolicy:" + policy);
+		mSubstreamSelector.setPolicy(policy != null
+			? policy : createDefaultSubstreamPolicy(peerConnectionParameters));
+	}
+
+	/**
+	 * remote publishers are assumed to publish with the same resolution
+	 * and number of layers as this client
+	 * @param parameters
+	 * @return
+	 */
+	@NonNull
+	private static SubstreamPolicy createDefaultSubstreamPolicy(
+		@NonNull final PeerConnectionParameters parameters) {
+
+		final int width = parameters.videoWidth > 0
+			? parameters.videoWidth : AppRTCConst.HD_VIDEO_WIDTH;
+		final int height = parameters.videoHeight > 0
+			? parameters.videoHeight : AppRTCConst.HD_VIDEO_HEIGHT;
+		final SdpParameters sdpParameters = parameters.sdpParameters;
+		final int numLayers = (sdpParameters != null) && sdpParameters.isSimulcastEnabled()
+			? sdpParameters.simulcastLayers : SdpTransformers.MAX_SIMULCAST_LAYERS;
+		return new ViewportSubstreamPolicy(width, height, numLayers);
+	}
+
+	@NonNull
+	@Override
+	public List<SubscriberScheduler.FeedStats> getSubscriberStats() {
+		final SubscriberScheduler scheduler = mSubscriberScheduler;
+		return scheduler != null
+			? scheduler.getStats() : new ArrayList<>();
+	}
+
+	private void onSubscriberFailed(final long feedId) {
+		final SubscriberScheduler scheduler = mSubscriberScheduler;
+		if (scheduler != null) {
+			scheduler.remove(feedId);
+		}
+	}
+
+	/**
+	 * add one-shot sink to record time to first frame of the feed
+	 * @param feedId
+	 * @param track
+	 */
+	private void watchFirstFrame(final long feedId, @NonNull final VideoTrack track) {
+		final SubscriberScheduler scheduler = mSubscriberScheduler;
+		if (scheduler == null) return;
+		track.addSink(new VideoSink() {
+			private boolean received;
+
+			@Override
+			public void onFrame(final VideoFrame frame) {
+				if (!received) {
+					received = true;
+					scheduler.onFirstFrame(feedId);
+					final VideoSink sink = this;
+					// 描画スレッドから呼ばれるのでexecutor上で取り除く
+					executor.execute(() -> {
+						try {
+							track.removeSink(sink);
+						} catch (final Exception e) {
+							// ignore, track is already disposed
+						}
+					});
+				}
+			}
+		});
+	}
+
 	private File createRtcEventLogOutputFile() {
 		if (DEBUG) Log.v(TAG, "createRtcEventLogOutputFile:");
 		DateFormat dateFormat = new SimpleDateFormat("yyyyMMdd_hhmm_ss", Locale.getDefault());
@@ -1027,22 +1320,60 @@ public class JanusRTCClient implements JanusClient {
 		videoSource.adaptOutputFormat(width, height, framerate);
 	}
 
-	@SuppressWarnings("deprecation") // TODO(sakal): getStats is deprecated.
+	/**
+	 * request stats of the publisher and all subscribers, called on mStatsExecutor
+	 * RTCStatsReport is delivered asynchronously for each PeerConnection
+	 */
 	private void getStats() {
 		if (DEBUG) Log.v(TAG, "getStats:");
-		// FIXME 未実装 PublisherのPeerConnectionから取得する
-//		if (peerConnection == null || isError) {
-//			return;
-//		}
-//		boolean success = peerConnection.getStats(new StatsObserver() {
-//			@Override
-//			public void onComplete(final StatsReport[] reports) {
-//				events.onPeerConnectionStatsReady(reports);
-//			}
-//		}, null);
-//		if (!success) {
-//			Log.e(TAG, "getStats() returns false!");
-//		}
+		if (mReleased) {
+			return;
+		}
+		final List<JanusPlugin> plugins;
+		synchronized (mAttachedPlugins) {
+			plugins = mAttachedPlugins.values();
+		}
+		mStatsCollector.beginRound();
+		for (final JanusPlugin plugin: plugins) {
+			final long key = plugin.id();
+			final long feedId = plugin.getFeedId();
+			final boolean publisher = plugin instanceof JanusPlugin.Publisher;
+			plugin.getStats(report -> mStatsExecutor.execute(() -> {
+				handleStatsReport(key, feedId, publisher, report);
+			}));
+		}
+	}
+
+	/**
+	 * parse RTCStatsReport into snapshot and notify rates, called on mStatsExecutor
+	 * @param key
+	 * @param feedId
+	 * @param publisher
+	 * @param report
+	 */
+	private void handleStatsReport(final long key, final long feedId,
+		final boolean publisher, @NonNull final RTCStatsReport report) {
+
+		if (mReleased) {
+			return;
+		}
+		final RtcStatsSnapshot snapshot
+			= mStatsCollector.begin(key, (long)report.getTimestampUs());
+		for (final RTCStats stats: report.getStatsMap().values()) {
+			mStatsCollector.add(snapshot, stats.getType(), stats.getMembers());
+		}
+		final RtcStatsDelta delta = mStatsCollector.end(key, feedId, publisher);
+		if (delta != null) {
+			if (DEBUG) Log.v(TAG, "handleStatsReport:" + delta);
+			mCallback.onStatsReady(delta);
+			final BitratePolicy policy = mBitratePolicy;
+			if (publisher && (policy != null)) {
+				final BitratePolicy.EncodingTarget target = policy.onStats(delta);
+				if (target != null) {
+					setEncodingTarget(target);
+				}
+			}
+		}
 	}
 
 
@@ -1072,56 +1403,25 @@ public class JanusRTCClient implements JanusClient {
 		}
 	}
 
-	/**
-	 * set call that is currently in progress
-	 * @param call
-	 */
-	private void addCall(@NonNull final Call<?> call) {
-		synchronized (mCurrentCalls) {
-			mCurrentCalls.add(call);
-		}
-	}
-	
-	private void removeCall(@NonNull final Call<?> call) {
-		synchronized (mCurrentCalls) {
-			mCurrentCalls.remove(call);
-		}
-		if (!call.isCanceled()) {
-			try {
-				call.cancel();
-			} catch (final Exception e) {
-				Log.w(TAG, e);
-			}
-		}
-	}
-	
 	/**
 	 * cancel call if call is in progress
 	 */
 	private void cancelCall() {
-		synchronized (mCurrentCalls) {
-			for (final Call<?> call: mCurrentCalls) {
-				if ((call != null) && !call.isCanceled()) {
-					try {
-						call.cancel();
-					} catch (final Exception e) {
-						Log.w(TAG, e);
-					}
-				}
-			}
-			mCurrentCalls.clear();
+		final JanusTransport transport = mTransport;
+		if (transport != null) {
+			transport.cancel();
 		}
 	}
 
 //--------------------------------------------------------------------------------
-	private void addPlugin(@NonNull final BigInteger key, @NonNull final JanusPlugin plugin) {
+	private void addPlugin(final long key, @NonNull final JanusPlugin plugin) {
 		synchronized (mAttachedPlugins) {
 			mAttachedPlugins.put(key, plugin);
 		}
 	}
 
 	private void removePlugin(@NonNull final JanusPlugin plugin) {
-		final BigInteger key = plugin.id();
+		final long key = plugin.id();
 		
 		executor.execute(() -> {
 			synchronized (mAttachedPlugins) {
@@ -1130,25 +1430,33 @@ public class JanusRTCClient implements JanusClient {
 		});
 	}
 
-	private JanusPlugin getPlugin(@Nullable final BigInteger key) {
+	@Nullable
+	private JanusPlugin getPlugin(final long key) {
 		synchronized (mAttachedPlugins) {
-			if ((key != null) && mAttachedPlugins.containsKey(key)) {
-				return mAttachedPlugins.get(key);
-			}
+			return mAttachedPlugins.get(key);
 		}
-		return null;
 	}
 	
-	private void leavePlugin(@NonNull BigInteger leavePlugin, final int numUsers) {
+	private void leavePlugin(final long leavePlugin, final int numUsers) {
 		if (DEBUG) Log.v(TAG, "leavePlugin:" + leavePlugin);
+		mSubstreamSelector.remove(leavePlugin);
+		final PublisherInfo info = mMultistreamFeeds.remove(leavePlugin);
+		if (info != null) {
+			// multistream subscriberからそのfeedのstreamだけを取り除く
+			if (mMultistreamSubscriber != null) {
+				mMultistreamSubscriber.unsubscribe(leavePlugin);
+			}
+			mCallback.onLeave(info, numUsers);
+			return;
+		}
+		onSubscriberFailed(leavePlugin);
 		JanusPlugin found = null;
 	
 		synchronized (mAttachedPlugins) {
 			// feederIdが一致するSubscriberを探す
-			for (Map.Entry<BigInteger, JanusPlugin> entry: mAttachedPlugins.entrySet()) {
-				final JanusPlugin plugin = entry.getValue();
+			for (final JanusPlugin plugin: mAttachedPlugins.values()) {
 				if (plugin instanceof JanusPlugin.Subscriber) {
-					if (leavePlugin.equals(plugin.getFeedId())) {
+					if (leavePlugin == plugin.getFeedId()) {
 						found = plugin;
 						break;
 					}
@@ -1158,11 +1466,13 @@ public class JanusRTCClient implements JanusClient {
 		if (DEBUG) Log.v(TAG, "leavePlugin:found=" + found);
 		if (found != null) {
 			// feederIdが一致するSubscriberが見つかった時はdetachする
+			// PeerConnectionの処理と競合しないようにSubscriber自身のexecutor上でdetachして
+			// detachが終わってからonLeaveを呼ぶ
 			final JanusPlugin subscriber = found;
-			executor.execute(() -> {
+			subscriber.executor.execute(() -> {
 				subscriber.detach();
-				mCallback.onLeave(
-					((JanusPlugin.Subscriber)subscriber).info, numUsers);
+				executor.execute(() -> mCallback.onLeave(
+					((JanusPlugin.Subscriber)subscriber).info, numUsers));
 			});
 		}
 	}
@@ -1175,7 +1485,7 @@ public class JanusRTCClient implements JanusClient {
 	private void reportError(@NonNull final Throwable t) {
 		Log.w(TAG, t);
 		cancelCall();
-		TransactionManager.clearTransactions();
+		mTransactionManager.clearTransactions();
 		try {
 			executor.execute(() -> {
 				if (mConnectionState != ConnectionState.ERROR) {
@@ -1193,16 +1503,22 @@ public class JanusRTCClient implements JanusClient {
 	 */
 	private void connectToRoomInternal() {
 		if (DEBUG) Log.v(TAG, "connectToRoomInternal:");
-		// 通常のRESTアクセス用APIインターフェースを生成
-		mJanus = setupRetrofit(
-			setupHttpClient(false, HTTP_READ_TIMEOUT_MS, HTTP_WRITE_TIMEOUT_MS),
-			roomConnectionParameters.roomUrl).create(VideoRoom.class);
-		// long poll用APIインターフェースを生成
-		mLongPoll = setupRetrofit(
-			setupHttpClient(true, HTTP_READ_TIMEOUT_MS_LONG_POLL, HTTP_WRITE_TIMEOUT_MS),
-			roomConnectionParameters.roomUrl).create(LongPoll.class);
+		mTransport = setupTransport(roomConnectionParameters.roomUrl);
+		if (mSubscriberScheduler != null) {
+			mSubscriberScheduler.release();
+		}
+		mSubscriberScheduler = new SubscriberScheduler(
+			roomConnectionParameters.maxParallelSubscribers,
+			new SubscriberScheduler.Starter() {
+				@Override
+				public void start(@NonNull final PublisherInfo info) {
+					executor.execute(() -> {
+						createSubscriber(info);
+					});
+				}
+			});
 		executor.execute(() -> {
-			requestServerInfo();
+			startBootstrap();
 		});
 	}
 
@@ -1221,76 +1537,77 @@ public class JanusRTCClient implements JanusClient {
 	}
 	
 //--------------------------------------------------------------------
-	private void requestServerInfo() {
-		if (DEBUG) Log.v(TAG, "requestServerInfo:");
-		// Janus-gatewayサーバー情報を取得
-		final Call<ServerInfo> call = mJanus.getInfo(roomConnectionParameters.apiName);
-		addCall(call);
-		call.enqueue(new Callback<ServerInfo>() {
+	/**
+	 * request ServerInfo and create session concurrently,
+	 * ServerInfo is read from the on-disk cache if available
+	 */
+	private void startBootstrap() {
+		if (DEBUG) Log.v(TAG, "startBootstrap:");
+		cancelBootstrap();
+		if (mTransport == null) return;
+		final long start = System.nanoTime();
+		final SessionBootstrap bootstrap = new SessionBootstrap(mTransport,
+			mTransactionManager, getServerInfoCache(), roomConnectionParameters.roomUrl);
+		mBootstrap = bootstrap;
+		bootstrap.start(new SessionBootstrap.Listener() {
 			@Override
-			public void onResponse(@NonNull final Call<ServerInfo> call,
-				@NonNull final Response<ServerInfo> response) {
-			
-				if (response.isSuccessful() && (response.body() != null)) {
-					removeCall(call);
-					mServerInfo = response.body();
-					if (DEBUG) Log.v(TAG, "requestServerInfo:success");
-					executor.execute(() -> {
-						createSession();
-					});
-				} else {
-					reportError(new RuntimeException("unexpected response:" + response));
-				}
+			public void onServerInfo(@NonNull final ServerInfo info, final boolean cached) {
+				if (DEBUG) Log.v(TAG, "onServerInfo:cached=" + cached);
+				executor.execute(() -> {
+					if (mBootstrap != bootstrap) return;
+					mServerInfo = info;
+					if (mKeepAliveScheduler != null) {
+						// セッション生成後にServerInfoが届いた時はsession_timeoutを反映させる
+						startKeepAlive();
+					}
+				});
 			}
-			
+
 			@Override
-			public void onFailure(@NonNull final Call<ServerInfo> call,
-				@NonNull final Throwable t) {
+			public void onSessionCreated(@NonNull final Session session) {
+				executor.execute(() -> {
+					if (mBootstrap != bootstrap) return;
+					mSession = session;
+					mConnectionState = ConnectionState.READY;
+					// セッションを生成できた＼(^o^)／
+					if (DEBUG) Log.v(TAG, "createSession:success,"
+						+ (System.nanoTime() - start) / 1000000L + "ms");
+					// パブリッシャーをVideoRoomプラグインにアタッチ
+					longPoll();
+					startKeepAlive();
+					mCallback.onConnectServer(JanusRTCClient.this);
+				});
+			}
 
+			@Override
+			public void onFailure(@NonNull final Throwable t) {
 				reportError(t);
 			}
 		});
 	}
-	
-	private void createSession() {
-		if (DEBUG) Log.v(TAG, "createSession:");
-		// サーバー情報を取得できたらセッションを生成
-		final Call<Session> call = mJanus.create(
-			roomConnectionParameters.apiName, new Creator());
-		addCall(call);
-		call.enqueue(new Callback<Session>() {
-			@Override
-			public void onResponse(@NonNull final Call<Session> call,
-				@NonNull final Response<Session> response) {
-
-				if (response.isSuccessful() && (response.body() != null)) {
-					removeCall(call);
-					mSession = response.body();
-					if ("success".equals(mSession.janus)) {
-						mConnectionState = ConnectionState.READY;
-						// セッションを生成できた＼(^o^)／
-						if (DEBUG) Log.v(TAG, "createSession:success");
-						// パブリッシャーをVideoRoomプラグインにアタッチ
-						executor.execute(() -> {
-							longPoll();
-							mCallback.onConnectServer(JanusRTCClient.this);
-						});
-					} else {
-						mSession = null;
-						reportError(new RuntimeException("unexpected response:" + response));
-					}
-				} else {
-					reportError(new RuntimeException("unexpected response:" + response));
-				}
-			}
-			
-			@Override
-			public void onFailure(@NonNull final Call<Session> call,
-				@NonNull final Throwable t) {
 
-				reportError(t);
+	private void cancelBootstrap() {
+		if (mBootstrap != null) {
+			mBootstrap.cancel();
+			mBootstrap = null;
+		}
+	}
+
+	/**
+	 * get on-disk cache of ServerInfo
+	 * @return null if context is already released
+	 */
+	@Nullable
+	private ServerInfoCache getServerInfoCache() {
+		if (mServerInfoCache == null) {
+			final Context context = getContext();
+			if (context != null) {
+				mServerInfoCache = new ServerInfoCache(
+					new File(context.getCacheDir(), "janus"),
+					ServerInfoCache.DEFAULT_TTL_MS, createGson());
 			}
-		});
+		}
+		return mServerInfoCache;
 	}
 
 	/**
@@ -1300,44 +1617,147 @@ public class JanusRTCClient implements JanusClient {
 		if (DEBUG) Log.v(TAG, "detachAll:");
 		cancelCall();
 		mConnectionState = ConnectionState.CLOSED;
+		final List<JanusPlugin> plugins;
 		synchronized (mAttachedPlugins) {
-			for (final Map.Entry<BigInteger, JanusPlugin> entry:
-				mAttachedPlugins.entrySet()) {
-
-				entry.getValue().detach();
-			}
+			plugins = new ArrayList<>(mAttachedPlugins.values());
 			mAttachedPlugins.clear();
 		}
+		// PeerConnectionの処理と競合しないように各プラグイン自身のexecutor上でdetachする。
+		// 呼び出し後にtransport/PeerConnectionFactoryを破棄するのでdetachが終わるまで待つ
+		final CountDownLatch latch = new CountDownLatch(plugins.size());
+		for (final JanusPlugin plugin: plugins) {
+			plugin.executor.execute(() -> {
+				try {
+					plugin.detach();
+				} finally {
+					latch.countDown();
+				}
+			});
+		}
+		try {
+			if (!latch.await(DETACH_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+				Log.w(TAG, "detachAll:timeout");
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		clearMultistream();
+		mSubstreamSelector.clear();
 	}
 	
+	/**
+	 * start sending keepalive while no other request is sent,
+	 * so that janus-gateway does not reap the session
+	 * even when long poll is interrupted
+	 */
+	private void startKeepAlive() {
+		if (DEBUG) Log.v(TAG, "startKeepAlive:");
+		stopKeepAlive();
+		if ((mSession == null) || (mTransport == null)) return;
+		mKeepAliveScheduler = new KeepAliveScheduler(mTransport, mTransactionManager,
+			mSession.id(), mServerInfo != null ? mServerInfo.session_timeout : -1);
+		mKeepAliveScheduler.start();
+	}
+
+	private void stopKeepAlive() {
+		if (mKeepAliveScheduler != null) {
+			mKeepAliveScheduler.stop();
+			mKeepAliveScheduler = null;
+		}
+	}
+
+	/**
+	 * claim the session on new connection and restart ICE of attached plugins
+	 * instead of creating new session and attaching again,
+	 * this runs on executor
+	 */
+	private void resumeInternal() {
+		if (DEBUG) Log.v(TAG, "resumeInternal:");
+		if ((mSession == null) || (mTransport == null)
+			|| ((mConnectionState != ConnectionState.READY)
+				&& (mConnectionState != ConnectionState.CONNECTED))) {
+			if (DEBUG) Log.v(TAG, "resumeInternal:no session to resume");
+			return;
+		}
+		if (mSessionResumer != null) {
+			if (DEBUG) Log.v(TAG, "resumeInternal:already resuming");
+			return;
+		}
+		stopKeepAlive();
+		final SessionResumer resumer
+			= new SessionResumer(mTransport, mTransactionManager, mSession.id());
+		mSessionResumer = resumer;
+		resumer.resume(new SessionResumer.Listener() {
+			@Override
+			public void onResumed(final long elapsedMs) {
+				if (DEBUG) Log.v(TAG, "onResumed:" + elapsedMs + "ms");
+				executor.execute(() -> {
+					if (mSessionResumer != resumer) return;
+					mSessionResumer = null;
+					longPoll();
+					startKeepAlive();
+					synchronized (mAttachedPlugins) {
+						for (final JanusPlugin plugin: mAttachedPlugins.values()) {
+							plugin.restartIce();
+						}
+					}
+				});
+			}
+
+			@Override
+			public void onResumeFailed(@NonNull final Throwable t) {
+				executor.execute(() -> {
+					if (mSessionResumer != resumer) return;
+					mSessionResumer = null;
+					reportError(t);
+				});
+			}
+		});
+	}
+
+	private void cancelResume() {
+		if (mSessionResumer != null) {
+			mSessionResumer.cancel();
+			mSessionResumer = null;
+		}
+	}
+
 	/**
 	 * destroy session
 	 */
 	private void destroy() {
 		if (DEBUG) Log.v(TAG, "destroy:");
+		// 統計情報の取得を先に止めてからstatsのレーンを解放する
+		mReleased = true;
+		cancelTimerTask();
+		statsTimer.cancel();
+		ExecutorLanes.release(mStatsExecutor);
+		cancelBootstrap();
+		cancelResume();
+		if (mSubscriberScheduler != null) {
+			mSubscriberScheduler.release();
+		}
+		stopKeepAlive();
 		cancelCall();
 		detachAll();
-		if (mSession != null) {
-			final Destroy destroy = new Destroy(mSession, null);
-			final Call<Void> call = mJanus.destroy(
-				roomConnectionParameters.apiName, mSession.id(), destroy);
-			addCall(call);
+		if ((mSession != null) && (mTransport != null)) {
+			final Destroy destroy = new Destroy(mTransactionManager, mSession, null);
 			try {
-				call.execute();
+				mTransport.destroy(mSession.id(), destroy);
 			} catch (final IOException e) {
 				reportError(e);
 			}
-			removeCall(call);
 		}
 		mSession = null;
 		mServerInfo = null;
 		mConnectionState = ConnectionState.CLOSED;
-		TransactionManager.clearTransactions();
-		mJanus = null;
+		mTransactionManager.clearTransactions();
+		if (mTransport != null) {
+			mTransport.release();
+			mTransport = null;
+		}
 		mLocalStream = null;
 		mRemoteStream = null;
-		cancelTimerTask();
-		statsTimer.cancel();
 		if (DEBUG) Log.d(TAG, "Closing audio source.");
 		if (audioSource != null) {
 			audioSource.dispose();
@@ -1364,6 +1784,10 @@ public class JanusRTCClient implements JanusClient {
 			saveRecordedAudioToFile.stop();
 			saveRecordedAudioToFile = null;
 		}
+		if (mAudioExecutor != null) {
+			ExecutorLanes.release(mAudioExecutor);
+			mAudioExecutor = null;
+		}
 		localRender = null;
 		remoteSinks = null;
 		if (factory != null && peerConnectionParameters.aecDump) {
@@ -1389,6 +1813,67 @@ public class JanusRTCClient implements JanusClient {
 		PeerConnectionFactory.shutdownInternalTracer();
 	}
 
+	/**
+	 * apply EncodingTarget requested by BitratePolicy to the local video
+	 * RtpParameters.Encoding of this WebRTC version has only maxBitrateBps,
+	 * so the resolution and frame rate are adapted by VideoSource.
+	 * with simulcast the target is split into the layers and the resolution
+	 * is not changed because it would shrink all of the layers at once
+	 * @param target
+	 */
+	private void setEncodingTarget(@NonNull final BitratePolicy.EncodingTarget target) {
+		if (DEBUG) Log.v(TAG, "setEncodingTarget:" + target);
+		executor.execute(() -> {
+			if (localVideoSender == null || isError) {
+				return;
+			}
+			final RtpParameters parameters = localVideoSender.getParameters();
+			if (parameters.encodings.size() == 0) {
+				Log.w(TAG, "RtpParameters are not ready.");
+				return;
+			}
+			final boolean simulcast = isSimulcastEnabled();
+			if (simulcast) {
+				// SdpTransformers#simulcastと同じく低解像度のレイヤーから順に並んでいる
+				final int[] bitrates
+					= target.splitForSimulcast(parameters.encodings.size());
+				for (int i = 0; i < bitrates.length; i++) {
+					parameters.encodings.get(i).maxBitrateBps = bitrates[i];
+				}
+			} else {
+				for (final RtpParameters.Encoding encoding : parameters.encodings) {
+					encoding.maxBitrateBps = target.maxBitrateBps;
+				}
+			}
+			if (!localVideoSender.setParameters(parameters)) {
+				Log.e(TAG, "RtpSender.setParameters failed.");
+				return;
+			}
+			if ((videoSource != null) && target.isFormatChanged(mEncodingTarget)) {
+				final double scaleDownBy = simulcast ? 1.0 : target.scaleDownBy;
+				videoSource.adaptOutputFormat(
+					(int)(videoWidth / scaleDownBy),
+					(int)(videoHeight / scaleDownBy),
+					Math.min(target.maxFramerate, videoFps));
+			}
+			mEncodingTarget = target;
+		});
+	}
+
+	private boolean isSimulcastEnabled() {
+		return (peerConnectionParameters.sdpParameters != null)
+			&& peerConnectionParameters.sdpParameters.isSimulcastEnabled();
+	}
+
+	private void resetBitratePolicy() {
+		executor.execute(() -> mEncodingTarget = null);
+		mStatsExecutor.execute(() -> {
+			if (mBitratePolicy != null) {
+				mBitratePolicy.reset();
+			}
+		});
+	}
+
 	private void setVideoMaxBitrate(final int maxBitrateKbps) {
 		if (DEBUG) Log.v(TAG, "maxBitrateKbps:");
 		executor.execute(() -> {
@@ -1437,6 +1922,7 @@ public class JanusRTCClient implements JanusClient {
 			if (DEBUG) Log.v(TAG, "onJoin:" + plugin);
 			if (plugin instanceof JanusPlugin.Publisher) {
 				mConnectionState = ConnectionState.CONNECTED;
+				resetBitratePolicy();
 				handleOnJoin(plugin, room);
 				plugin.createOffer();
 			} else if (plugin instanceof JanusPlugin.Subscriber) {
@@ -1450,21 +1936,43 @@ public class JanusRTCClient implements JanusClient {
 			if (DEBUG) Log.v(TAG, "onDetach:" + plugin);
 
 			removePlugin(plugin);
+			if (plugin instanceof JanusPlugin.MultistreamSubscriber) {
+				executor.execute(() -> {
+					if (plugin == mMultistreamSubscriber) {
+						clearMultistream();
+					}
+				});
+			}
 		}
 		
 		@Override
 		public void onEnter(@NonNull final JanusPlugin plugin) {
 			if (DEBUG) Log.v(TAG, "onEnter:" + plugin);
 			if (plugin instanceof JanusPlugin.Subscriber) {
+				final SubscriberScheduler scheduler = mSubscriberScheduler;
+				if (scheduler != null) {
+					scheduler.onSetupCompleted(plugin.getFeedId());
+				}
+				// layer selected before the subscriber is set up
+				mSubstreamSelector.resend(plugin.getFeedId());
 				mCallback.onEnter(((JanusPlugin.Subscriber) plugin).info);
 			}
 		}
 		
+		@Override
+		public void onEnterFeed(@NonNull final JanusPlugin plugin,
+			@NonNull final PublisherInfo info) {
+
+			if (DEBUG) Log.v(TAG, "onEnterFeed:" + plugin + ",info=" + info);
+			mSubstreamSelector.resend(info.id);
+			mCallback.onEnter(info);
+		}
+		
 		@Override
 		public void onLeave(@NonNull final JanusPlugin plugin,
-			@NonNull final BigInteger pluginId, final int numUsers) {
+			final long pluginId, final int numUsers) {
 			
-			if (DEBUG) Log.v(TAG, "onLeave:" + plugin + ",leave=" + pluginId);
+			if (DEBUG) Log.v(TAG, "onLeave:" + plugin + ",leave=" + JanusId.toString(pluginId));
 
 			
 			executor.execute(() -> leavePlugin(pluginId, numUsers));
@@ -1475,9 +1983,33 @@ public class JanusRTCClient implements JanusClient {
 			@NonNull final MediaStream stream) {
 
 			if (DEBUG) Log.v(TAG, "onAddRemoteStream:" + plugin);
+			if ((plugin instanceof JanusPlugin.Subscriber)
+				&& (SDP_SEMANTICS != PeerConnection.SdpSemantics.UNIFIED_PLAN)
+				&& !stream.videoTracks.isEmpty()) {
+
+				watchFirstFrame(plugin.getFeedId(), stream.videoTracks.get(0));
+			}
 			executor.execute(() -> JanusRTCClient.this.onAddRemoteStream(stream));
 		}
 		
+		@Override
+		public void onAddRemoteTrack(@NonNull final JanusPlugin plugin,
+			final long feedId, @NonNull final MediaStreamTrack track) {
+
+			if (DEBUG) Log.v(TAG, "onAddRemoteTrack:" + plugin
+				+ ",feed=" + JanusId.toString(feedId) + ",track=" + track);
+			if (track instanceof VideoTrack) {
+				final VideoTrack videoTrack = (VideoTrack) track;
+				executor.execute(() -> {
+					if (remoteSinks == null) return;
+					videoTrack.setEnabled(renderVideo);
+					for (final VideoSink remoteSink : remoteSinks) {
+						videoTrack.addSink(remoteSink);
+					}
+				});
+			}
+		}
+		
 		@Override
 		public void onRemoveStream(@NonNull final JanusPlugin plugin,
 			@NonNull final MediaStream stream) {
@@ -1534,9 +2066,20 @@ public class JanusRTCClient implements JanusClient {
 			@NonNull final PublisherInfo info) {
 
 			if (DEBUG) Log.v(TAG, "createSubscriber:" + plugin);
-			executor.execute(() -> {
-				JanusRTCClient.this.createSubscriber(info);
-			});
+			if (roomConnectionParameters.multistream) {
+				// 全てのfeedを1つのPeerConnectionで受信する
+				executor.execute(() -> subscribeMultistream(info));
+				return;
+			}
+			final SubscriberScheduler scheduler = mSubscriberScheduler;
+			if (scheduler != null) {
+				// 同時に準備するSubscriberの数を制限して表示中のフィードを優先する
+				scheduler.enqueue(info);
+			} else {
+				executor.execute(() -> {
+					JanusRTCClient.this.createSubscriber(info);
+				});
+			}
 		}
 		
 		@Override
@@ -1553,6 +2096,9 @@ public class JanusRTCClient implements JanusClient {
 		public void onError(@NonNull final JanusPlugin plugin,
 			@NonNull final Throwable t) {
 
+			if (plugin instanceof JanusPlugin.Subscriber) {
+				onSubscriberFailed(plugin.getFeedId());
+			}
 			reportError(t);
 		}
 	};
@@ -1565,128 +2111,118 @@ public class JanusRTCClient implements JanusClient {
 		= new TransactionManager.TransactionCallback() {
 		@Override
 		public boolean onReceived(@NonNull final String transaction,
-			final JSONObject json) {
+			@NonNull final EventRoom event) {
 
-			if (DEBUG) Log.v(TAG, "onReceived:" + json);
+			if (DEBUG) Log.v(TAG, "onReceived:" + event);
 			return false;
 		}
 	};
 
 	/**
-	 * long poll asynchronously
+	 * start receiving events from janus-gateway server asynchronously
 	 */
 	private void longPoll() {
 		if (DEBUG) Log.v(TAG, "longPoll:");
-		if (mSession == null) return;
-		final Call<ResponseBody> call = mLongPoll.getEvent(
-			roomConnectionParameters.apiName, mSession.id());
-		addCall(call);
-		call.enqueue(new Callback<ResponseBody>() {
+		if ((mSession == null) || (mTransport == null)) return;
+		mTransport.startEvents(mSession.id(), new JanusTransport.EventListener() {
 			@Override
-			public void onResponse(@NonNull final Call<ResponseBody> call,
-				@NonNull final Response<ResponseBody> response) {
-
-				if (DEBUG) Log.v(TAG, "longPoll:onResponse");
-				removeCall(call);
+			public void onEvent(@NonNull final EventRoom body) {
 				if ((mConnectionState == ConnectionState.READY)
 					|| (mConnectionState == ConnectionState.CONNECTED)) {
 
-					try {
-						executor.execute(() -> {
-							handleLongPoll(call, response);
-						});
-						recall(call);
-					} catch (final Exception e) {
-						reportError(e);
-					}
+					handleEvent(body);
 				} else {
 					Log.w(TAG, "unexpected state:" + mConnectionState);
 				}
 			}
 			
 			@Override
-			public void onFailure(@NonNull final Call<ResponseBody> call, @NonNull final Throwable t) {
-				if (DEBUG) Log.v(TAG, "longPoll:onFailure=" + t);
-				removeCall(call);
-				// FIXME タイムアウトの時は再度long pollする？
-				if (!(t instanceof IOException) || !"Canceled".equals(t.getMessage())) {
+			public void onFailure(@NonNull final Throwable t) {
+				if (t instanceof IOException) {
+					// WebSocketの切断やlong pollのネットワークエラーの時は
+					// セッションが残っていればclaimして復帰する
+					if (DEBUG) Log.v(TAG, "longPoll:try to resume," + t);
+					resume();
+				} else {
 					reportError(t);
 				}
-				if (mConnectionState != ConnectionState.ERROR) {
-					recall(call);
-				}
 			}
-			
-			private void recall(final Call<ResponseBody> call) {
-				final Call<ResponseBody> newCall = call.clone();
-				addCall(newCall);
-				newCall.enqueue(this);
+
+			@Override
+			public void onReconnectStateChanged(
+				@NonNull final ReconnectScheduler.State state,
+				final int failureCount, final long delayMs) {
+
+				if (DEBUG) Log.v(TAG, "onReconnectStateChanged:" + state
+					+ ",failures=" + failureCount + ",delay=" + delayMs);
+				mCallback.onReconnectStateChanged(state, failureCount, delayMs);
 			}
 		});
 	}
 
 	/**
-	 * long pollによるjanus-gatewayサーバーからの受信イベントの処理の実体
-	 * @param call
-	 * @param response
+	 * janus-gatewayサーバーからの受信イベントの処理の実体
+	 * long poll/WebSocketのどちらから受信した場合もここで処理する
+	 * @param body
 	 */
-	private void handleLongPoll(@NonNull final Call<ResponseBody> call,
-		@NonNull final Response<ResponseBody> response) {
-		
-		if (DEBUG) Log.v(TAG, "handleLongPoll:");
-		final ResponseBody responseBody = response.body();
-		if (response.isSuccessful() && (responseBody != null)) {
-			try {
-				final JSONObject body = new JSONObject(responseBody.string());
-				final String transaction = body.optString("transaction");
-				final BigInteger sender = BigInteger.valueOf(body.optLong("sender"));
-				if (!TextUtils.isEmpty(transaction)) {
-					// トランザクションコールバックでの処理を試みる
-					// WebRTCイベントはトランザクションがない
-					if (TransactionManager.handleTransaction(transaction, body)) {
-						return;	// 処理済みの時はここで終了
-					}
-				}
-				final JanusPlugin plugin = getPlugin(sender);
-				if (plugin != null) {
-					if (DEBUG) Log.v(TAG, "handlePluginEvent: try handle message on plugin specified by sender");
-					if (plugin.onReceived("", body)) {
-						return;
-					}
+	private void handleEvent(@NonNull final EventRoom body) {
+		if (DEBUG) Log.v(TAG, "handleEvent:");
+		final String transaction = body.transaction;
+		final long sender = body.sender;
+		if (!TextUtils.isEmpty(transaction)) {
+			// トランザクションコールバックでの処理を試みる
+			// WebRTCイベントはトランザクションがない
+			if (mTransactionManager.handleTransaction(transaction, body)) {
+				return;	// 処理済みの時はここで終了
+			}
+		}
+		final JanusPlugin plugin = getPlugin(sender);
+		if (plugin != null) {
+			if (DEBUG) Log.v(TAG, "handlePluginEvent: try handle message on plugin specified by sender");
+			// プラグインのレーン上で処理して、処理されなければこのレーンへ戻す
+			plugin.executor.execute(() -> {
+				if (!plugin.onReceived("", body)) {
+					executor.execute(() -> handleUnhandledEvent(body));
 				}
+			});
+			return;
+		}
+		handleUnhandledEvent(body);
+	}
 
-				if (DEBUG) Log.v(TAG, "handleLongPoll:unhandled transaction");
-				final String janus = body.optString("janus");
-				if (!TextUtils.isEmpty(janus)) {
-					switch (janus) {
-					case "ack":
-						// do nothing
-						return;
-					case "keepalive":
-						// サーバー側がタイムアウト(30秒？)した時は{"janus": "keepalive"}が来る
-						// do nothing
-						return;
-					case "event":
-						// プラグインイベント
-						handlePluginEvent(body);
-						break;
-					case "media":
-					case "webrtcup":
-					case "slowlink":
-					case "hangup":
-						// event for WebRTC
-						handleWebRTCEvent(body);
-						break;
-					case "error":
-						reportError(new RuntimeException("error response " + response));
-						break;
-					default:
-						Log.d(TAG, "handleLongPoll:unknown event:" + body);
-						break;
-					}
-				}
-			} catch (final JSONException | IOException e) {
-				reportError(e);
+	/**
+	 * プラグインで処理されなかったイベントの処理
+	 * @param body
+	 */
+	private void handleUnhandledEvent(@NonNull final EventRoom body) {
+		if (DEBUG) Log.v(TAG, "handleEvent:unhandled transaction");
+		final String janus = body.janus;
+		if (!TextUtils.isEmpty(janus)) {
+			switch (janus) {
+			case "ack":
+				// do nothing
+				return;
+			case "keepalive":
+				// サーバー側がタイムアウト(30秒？)した時は{"janus": "keepalive"}が来る
+				// do nothing
+				return;
+			case "event":
+				// プラグインイベント
+				handlePluginEvent(body);
+				break;
+			case "media":
+			case "webrtcup":
+			case "slowlink":
+			case "hangup":
+				// event for WebRTC
+				handleWebRTCEvent(body);
+				break;
+			case "error":
+				reportError(new RuntimeException("error response " + body));
+				break;
+			default:
+				Log.d(TAG, "handleEvent:unknown event:" + body);
+				break;
 			}
 		}
 	}
@@ -1695,11 +2231,8 @@ public class JanusRTCClient implements JanusClient {
 	 * プラグインイベントの処理
 	 * @param body
 	 */
-	private void handlePluginEvent(@NonNull final JSONObject body) {
+	private void handlePluginEvent(@NonNull final EventRoom body) {
 		if (DEBUG) Log.v(TAG, "handlePluginEvent:" + body);
-		final Gson gson = new Gson();
-		final EventRoom event = gson.fromJson(body.toString(), EventRoom.class);
-
 		if (DEBUG) Log.v(TAG, "handlePluginEvent: unhandled event");
 	}
 	
@@ -1716,13 +2249,26 @@ public class JanusRTCClient implements JanusClient {
 	 * WebRTC関係のメッセージの処理
 	 * @param body
 	 */
-	private void handleWebRTCEvent(@NonNull final JSONObject body) {
+	private void handleWebRTCEvent(@NonNull final EventRoom body) {
 		if (DEBUG) Log.v(TAG, "handleWebRTCEvent:" + body);
-		switch (body.optString("janus")) {
+		switch (body.janus) {
+		case "slowlink":
+			if ((body.extras != null)
+				&& (getPlugin(body.sender) instanceof JanusPlugin.Publisher)) {
+
+				final boolean uplink = body.extras.optBoolean("uplink");
+				final int lost = body.extras.optInt("lost");
+				mStatsExecutor.execute(() -> {
+					if (mBitratePolicy != null) {
+						mBitratePolicy.onSlowLink(uplink, lost);
+					}
+				});
+			}
+			mCallback.onEvent(toJSONObject(body));
+			break;
 		case "media":
 		case "webrtcup":
-		case "slowlink":
-			mCallback.onEvent(body);
+			mCallback.onEvent(toJSONObject(body));
 			break;
 		case "hangup":
 			mCallback.onChannelClose();
@@ -1732,7 +2278,62 @@ public class JanusRTCClient implements JanusClient {
 		}
 	}
 
+	/**
+	 * JanusCallback#onEventへ渡すためにデコード済みのイベントをJSONObjectへ戻す
+	 * WebRTC関係のイベントは頻度が低いので都度生成する
+	 * @param body
+	 * @return
+	 */
+	@NonNull
+	private static JSONObject toJSONObject(@NonNull final EventRoom body) {
+		final JSONObject result = new JSONObject();
+		try {
+			if (body.extras != null) {
+				for (final Iterator<String> keys = body.extras.keys(); keys.hasNext(); ) {
+					final String key = keys.next();
+					result.put(key, body.extras.get(key));
+				}
+			}
+			result.put("janus", body.janus);
+			if (body.sender != JanusId.NONE) {
+				result.put("sender", JanusId.toBigInteger(body.sender));
+			}
+			result.putOpt("transaction", body.transaction);
+		} catch (final JSONException e) {
+			Log.w(TAG, e);
+		}
+		return result;
+	}
+
 //================================================================================
+	/**
+	 * roomUrlのスキームに応じてjanus-gatewayサーバーとの通信用のJanusTransportを生成する
+	 * ws://またはwss://ならWebSocket, それ以外はhttp/httpsのlong pollを使う
+	 * @param roomUrl
+	 * @return
+	 */
+	@NonNull
+	private JanusTransport setupTransport(@NonNull final String roomUrl) {
+		if (DEBUG) Log.v(TAG, "setupTransport:" + roomUrl);
+		if (roomUrl.startsWith("ws://") || roomUrl.startsWith("wss://")) {
+			return new WebSocketTransport(
+				setupHttpClient(true, HTTP_READ_TIMEOUT_MS_LONG_POLL, HTTP_WRITE_TIMEOUT_MS),
+				roomUrl, createGson(), executor, mTransactionManager, HTTP_READ_TIMEOUT_MS);
+		} else {
+			// 通常のRESTアクセス用APIインターフェースを生成
+			final VideoRoom videoRoom = setupRetrofit(
+				setupHttpClient(false, HTTP_READ_TIMEOUT_MS, HTTP_WRITE_TIMEOUT_MS),
+				roomUrl).create(VideoRoom.class);
+			// long poll用APIインターフェースを生成
+			final LongPoll longPoll = setupRetrofit(
+				setupHttpClient(true, HTTP_READ_TIMEOUT_MS_LONG_POLL, HTTP_WRITE_TIMEOUT_MS),
+				roomUrl).create(LongPoll.class);
+			return new HttpTransport(videoRoom, longPoll,
+				roomConnectionParameters.apiName, executor,
+				roomConnectionParameters.longPollMaxEvents, new ReconnectScheduler());
+		}
+	}
+
 	/**
 	 * keep first OkHttpClient as singleton
 	 */
@@ -1750,6 +2351,11 @@ public class JanusRTCClient implements JanusClient {
 		OkHttpClient.Builder builder;
 		if (sOkHttpClient == null) {
 		 	builder = new OkHttpClient.Builder();
+			// 要求は非同期で並行に送るので同一ホストへの同時要求数の上限(デフォルトは5)を増やす
+			// Dispatcherは以降newBuilderで生成するOkHttpClientと共有される
+			final Dispatcher dispatcher = new Dispatcher();
+			dispatcher.setMaxRequestsPerHost(HTTP_MAX_REQUESTS_PER_HOST);
+			builder.dispatcher(dispatcher);
 		} else {
 			builder = sOkHttpClient.newBuilder();
 		}
@@ -1809,16 +2415,25 @@ public class JanusRTCClient implements JanusClient {
 
 		if (DEBUG) Log.v(TAG, "setupRetrofit:" + baseUrl);
 		// JSONのパーサーとしてGsonを使う
-		final Gson gson = new GsonBuilder()
-//			.setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES)	// IDENTITY
-			.registerTypeAdapter(Date.class, new DateTypeAdapter())
-			.create();
 		return mCallback.setupRetrofit(
 			new Retrofit.Builder()
 				.baseUrl(baseUrl)
-				.addConverterFactory(GsonConverterFactory.create(gson))
+				.addConverterFactory(GsonConverterFactory.create(createGson()))
 				.client(client)
 			).build();
 	}
 
+	/**
+	 * 要求/応答モデルとJSONの変換用のGsonインスタンスを生成
+	 * @return
+	 */
+	@NonNull
+	private static Gson createGson() {
+		return new GsonBuilder()
+//			.setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES)	// IDENTITY
+			.registerTypeAdapter(Date.class, new DateTypeAdapter())
+			.registerTypeAdapterFactory(new JanusTypeAdapterFactory())
+			.create();
+	}
+
 }
@@ -0,0 +1,218 @@
+package com.serenegiant.janus;
+/*
+ * JanusRTCAndroid
+ * Video chat sample app using videoroom plugin on janus-gateway server and WebRTC.
+ *
+ * Copyright (c) 2018 saki t_saki@serenegiant.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+*/
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.serenegiant.janus.request.Attach;
+import com.serenegiant.janus.request.Claim;
+import com.serenegiant.janus.request.Creator;
+import com.serenegiant.janus.request.Destroy;
+import com.serenegiant.janus.request.Detach;
+import com.serenegiant.janus.request.KeepAlive;
+import com.serenegiant.janus.request.Message;
+import com.serenegiant.janus.request.Trickle;
+import com.serenegiant.janus.request.TrickleBatch;
+import com.serenegiant.janus.request.TrickleCompleted;
+import com.serenegiant.janus.response.EventRoom;
+import com.serenegiant.janus.response.Plugin;
+import com.serenegiant.janus.response.ServerInfo;
+import com.serenegiant.janus.response.Session;
+
+import java.io.IOException;
+
+/**
+ * signaling channel between app and janus-gateway server
+ * HTTP(long poll) / WebSocketどちらでも同じ要求・応答モデルを使う
+ */
+/*package*/ interface JanusTransport {
+	/**
+	 * callback listener for asynchronous request
+	 * this is called on the thread that completes the request(not on the executor),
+	 * so implementation must not block
+	 * @param <T>
+	 */
+	public interface Callback<T> {
+		public void onResponse(@NonNull final T response);
+		public void onFailure(@NonNull final Throwable t);
+	}
+
+	/**
+	 * callback listener for events that are not direct replies of requests
+	 * (long poll responses or messages pushed over WebSocket)
+	 */
+	public interface EventListener {
+		public void onEvent(@NonNull final EventRoom body);
+		public void onFailure(@NonNull final Throwable t);
+		/**
+		 * callback when the state of reconnecting event channel changed
+		 * @param state
+		 * @param failureCount number of consecutive failures
+		 * @param delayMs delay until next retry[ミリ秒]
+		 */
+		public void onReconnectStateChanged(@NonNull final ReconnectScheduler.State state,
+			final int failureCount, final long delayMs);
+	}
+
+	/**
+	 * handle to cancel asynchronous request in progress
+	 */
+	public interface Cancelable {
+		public void cancel();
+		public boolean isCanceled();
+	}
+
+	/**
+	 * callback listener when a request of the session is sent to janus-gateway,
+	 * janus-gateway reaps the session if no request arrives within session_timeout
+	 */
+	public interface ActivityListener {
+		public void onActivity();
+	}
+
+	@NonNull
+	public Cancelable getInfo(@NonNull final Callback<ServerInfo> callback);
+
+	@NonNull
+	public Cancelable create(@NonNull final Creator creator,
+		@NonNull final Callback<Session> callback);
+
+	@NonNull
+	public Cancelable attach(final long sessionId,
+		@NonNull final Attach attach,
+		@NonNull final Callback<Plugin> callback);
+
+	/**
+	 * send message to the plugin asynchronously,
+	 * usually the reply is ack and the actual response arrives as an event
+	 * @param sessionId
+	 * @param handleId
+	 * @param message
+	 * @param callback
+	 * @return
+	 */
+	@NonNull
+	public Cancelable send(final long sessionId,
+		final long handleId,
+		@NonNull final Message message,
+		@NonNull final Callback<EventRoom> callback);
+
+	@NonNull
+	public Cancelable trickle(final long sessionId,
+		final long handleId,
+		@NonNull final Trickle trickle,
+		@NonNull final Callback<EventRoom> callback);
+
+	@NonNull
+	public Cancelable trickleCompleted(final long sessionId,
+		final long handleId,
+		@NonNull final TrickleCompleted trickle,
+		@NonNull final Callback<EventRoom> callback);
+
+	/**
+	 * send multiple local ice candidates(and the completion marker) in one request
+	 * @param sessionId
+	 * @param handleId
+	 * @param trickle
+	 * @param callback
+	 * @return
+	 */
+	@NonNull
+	public Cancelable trickle(final long sessionId,
+		final long handleId,
+		@NonNull final TrickleBatch trickle,
+		@NonNull final Callback<EventRoom> callback);
+
+	/**
+	 * detach from the plugin asynchronously
+	 * janus-gateway returns only success for detach,
+	 * so Callback#onResponse is called with the request itself
+	 * @param sessionId
+	 * @param handleId
+	 * @param detach
+	 * @param callback
+	 * @return
+	 */
+	@NonNull
+	public Cancelable detach(final long sessionId,
+		final long handleId,
+		@NonNull final Detach detach,
+		@NonNull final Callback<Detach> callback);
+
+	public void destroy(final long sessionId,
+		@NonNull final Destroy destroy) throws IOException;
+
+	/**
+	 * send keepalive to prevent janus-gateway from reaping the session
+	 * @param sessionId
+	 * @param keepAlive
+	 * @param callback
+	 * @return
+	 */
+	@NonNull
+	public Cancelable keepAlive(final long sessionId,
+		@NonNull final KeepAlive keepAlive,
+		@NonNull final Callback<EventRoom> callback);
+
+	/**
+	 * claim the existing session on the new connection,
+	 * janus-gateway sends the events of the session to the new connection after this
+	 * @param sessionId
+	 * @param claim
+	 * @param callback
+	 * @return
+	 */
+	@NonNull
+	public Cancelable claim(final long sessionId,
+		@NonNull final Claim claim,
+		@NonNull final Callback<EventRoom> callback);
+
+	/**
+	 * drop the current connection and all requests in progress(including events)
+	 * without releasing the transport, next request opens new connection.
+	 * call this when the network changed and then claim the session
+	 */
+	public void reconnect();
+
+	/**
+	 * set listener to be notified every time a request(including long poll) is sent
+	 * @param listener
+	 */
+	public void setActivityListener(@Nullable final ActivityListener listener);
+
+	/**
+	 * start receiving events of the session
+	 * @param sessionId
+	 * @param listener
+	 */
+	public void startEvents(final long sessionId,
+		@NonNull final EventListener listener);
+
+	/**
+	 * cancel all requests in progress and stop receiving events
+	 */
+	public void cancel();
+
+	/**
+	 * cancel and release related resources
+	 */
+	public void release();
+}
@@ -0,0 +1,1446 @@
+package com.serenegiant.janus;
+/*
+ * JanusRTCAndroid
+ * Video chat sample app using videoroom plugin on janus-gateway server and WebRTC.
+ *
+ * Copyright (c) 2018 saki t_saki@serenegiant.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+*/
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.serenegiant.janus.request.Attach;
+import com.serenegiant.janus.request.Claim;
+import com.serenegiant.janus.request.Configure;
+import com.serenegiant.janus.request.ConfigureSubstream;
+import com.serenegiant.janus.request.Creator;
+import com.serenegiant.janus.request.Destroy;
+import com.serenegiant.janus.request.Detach;
+import com.serenegiant.janus.request.Hangup;
+import com.serenegiant.janus.request.Join;
+import com.serenegiant.janus.request.JsepSdp;
+import com.serenegiant.janus.request.KeepAlive;
+import com.serenegiant.janus.request.Message;
+import com.serenegiant.janus.request.Start;
+import com.serenegiant.janus.request.Subscribe;
+import com.serenegiant.janus.request.Trickle;
+import com.serenegiant.janus.request.TrickleBatch;
+import com.serenegiant.janus.request.TrickleCompleted;
+import com.serenegiant.janus.response.Event;
+import com.serenegiant.janus.response.EventRoom;
+import com.serenegiant.janus.response.Plugin;
+import com.serenegiant.janus.response.PluginInfo;
+import com.serenegiant.janus.response.PublisherInfo;
+import com.serenegiant.janus.response.ServerInfo;
+import com.serenegiant.janus.response.Session;
+import com.serenegiant.janus.response.StreamInfo;
+import com.serenegiant.janus.response.Transport;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * TypeAdapterFactory with hand-written TypeAdapters for all request/response models
+ * リフレクションを使うGsonのデフォルト実装は初回のアダプタ生成が遅く
+ * ART上では読み書き時のアロケーションも多いので
+ * 要求/応答モデルは全て専用のTypeAdapterで変換する
+ * 要求モデルはjanus-gatewayから送られてくることが無いので読み込みはリフレクションへ委譲する
+ */
+public class JanusTypeAdapterFactory implements TypeAdapterFactory {
+
+	/**
+	 * stateless adapters that are shared by all Gson instances
+	 */
+	private static final Map<Class<?>, TypeAdapter<?>> sAdapters = new HashMap<>();
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public <T> TypeAdapter<T> create(final Gson gson, final TypeToken<T> type) {
+		final Class<? super T> clazz = type.getRawType();
+		final TypeAdapter<?> adapter = sAdapters.get(clazz);
+		if (adapter != null) {
+			return (TypeAdapter<T>)adapter;
+		}
+		if (clazz == Message.class) {
+			return (TypeAdapter<T>)new MessageAdapter(gson,
+				gson.getDelegateAdapter(this, TypeToken.get(Message.class)));
+		} else if (clazz == Event.class) {
+			return (TypeAdapter<T>)new EventAdapter(gson);
+		} else if (RequestAdapter.TYPES.containsKey(clazz)) {
+			return (TypeAdapter<T>)new RequestAdapter<>(
+				(RequestWriter<T>)RequestAdapter.TYPES.get(clazz),
+				gson.getDelegateAdapter(this, type));
+		}
+		return null;
+	}
+
+//--------------------------------------------------------------------------------
+// helper methods
+	@Nullable
+	/*package*/ static String nextString(@NonNull final JsonReader reader) throws IOException {
+		if (reader.peek() == JsonToken.NULL) {
+			reader.nextNull();
+			return null;
+		}
+		return reader.nextString();
+	}
+
+	/**
+	 * read id(unsigned 64bit) as primitive long
+	 * janus-gatewayはJavaScriptで扱えるように2^53未満のidを使うので
+	 * 通常はnextLongで文字列を経由せずに読み込める
+	 * longで表せない時はJsonReaderが値を消費しないので文字列として読み直す
+	 * @return id or JanusId.NONE if null
+	 */
+	/*package*/ static long nextId(@NonNull final JsonReader reader) throws IOException {
+		switch (reader.peek()) {
+		case NULL:
+			reader.nextNull();
+			return JanusId.NONE;
+		case NUMBER:
+			try {
+				return reader.nextLong();
+			} catch (final NumberFormatException e) {
+				return JanusId.parse(reader.nextString());
+			}
+		default:
+			return JanusId.parse(reader.nextString());
+		}
+	}
+
+	/*package*/ static int nextInt(@NonNull final JsonReader reader) throws IOException {
+		if (reader.peek() == JsonToken.NULL) {
+			reader.nextNull();
+			return 0;
+		}
+		return reader.nextInt();
+	}
+
+	/*package*/ static boolean nextBoolean(@NonNull final JsonReader reader) throws IOException {
+		switch (reader.peek()) {
+		case NULL:
+			reader.nextNull();
+			return false;
+		case BOOLEAN:
+			return reader.nextBoolean();
+		case STRING:
+			// janus-gatewayはconfiguredなどでtrueの代わりに"ok"を返す
+			final String value = reader.nextString();
+			return "ok".equals(value) || Boolean.parseBoolean(value);
+		default:
+			reader.skipValue();
+			return false;
+		}
+	}
+
+	/**
+	 * read any JSON value as org.json value,
+	 * used only for rarely received fields that are not bound to the model
+	 * @param reader
+	 * @return
+	 */
+	@Nullable
+	/*package*/ static Object readValue(@NonNull final JsonReader reader) throws IOException {
+		try {
+			switch (reader.peek()) {
+			case BEGIN_OBJECT:
+			{
+				final JSONObject result = new JSONObject();
+				reader.beginObject();
+				while (reader.hasNext()) {
+					result.put(reader.nextName(), readValue(reader));
+				}
+				reader.endObject();
+				return result;
+			}
+			case BEGIN_ARRAY:
+			{
+				final JSONArray result = new JSONArray();
+				reader.beginArray();
+				while (reader.hasNext()) {
+					result.put(readValue(reader));
+				}
+				reader.endArray();
+				return result;
+			}
+			case NUMBER:
+			{
+				final String value = reader.nextString();
+				try {
+					return Long.parseLong(value);
+				} catch (final NumberFormatException e) {
+					return Double.parseDouble(value);
+				}
+			}
+			case BOOLEAN:
+				return reader.nextBoolean();
+			case NULL:
+				reader.nextNull();
+				return JSONObject.NULL;
+			default:
+				return reader.nextString();
+			}
+		} catch (final JSONException e) {
+			throw new JsonParseException(e);
+		}
+	}
+
+	/**
+	 * write org.json value
+	 * JsonTreeWriterはjsonValueに対応していないので要素毎に書き込む
+	 * @param writer
+	 * @param value
+	 */
+	/*package*/ static void writeValue(@NonNull final JsonWriter writer,
+		@Nullable final Object value) throws IOException {
+
+		if ((value == null) || (value == JSONObject.NULL)) {
+			writer.nullValue();
+		} else if (value instanceof JSONObject) {
+			final JSONObject obj = (JSONObject)value;
+			writer.beginObject();
+			for (final Iterator<String> keys = obj.keys(); keys.hasNext(); ) {
+				final String key = keys.next();
+				writer.name(key);
+				writeValue(writer, obj.opt(key));
+			}
+			writer.endObject();
+		} else if (value instanceof JSONArray) {
+			final JSONArray array = (JSONArray)value;
+			final int n = array.length();
+			writer.beginArray();
+			for (int i = 0; i < n; i++) {
+				writeValue(writer, array.opt(i));
+			}
+			writer.endArray();
+		} else if (value instanceof Number) {
+			writer.value((Number)value);
+		} else if (value instanceof Boolean) {
+			writer.value((Boolean)value);
+		} else {
+			writer.value(value.toString());
+		}
+	}
+
+	/**
+	 * write id as JSON number(not quoted string),
+	 * JanusId.NONE is written as null and omitted unless serializeNulls is enabled
+	 * as same as null BigInteger with reflective Gson
+	 */
+	/*package*/ static void writeId(@NonNull final JsonWriter writer,
+		final long id) throws IOException {
+
+		if (id == JanusId.NONE) {
+			writer.nullValue();
+		} else if (id > 0) {
+			writer.value(id);
+		} else {
+			// 2^63以上のidは符号無しとして書き込む
+			writer.value(JanusId.toBigInteger(id));
+		}
+	}
+
+	/**
+	 * write substream/temporal of simulcast, null is omitted
+	 */
+	private static void writeLayers(@NonNull final JsonWriter writer,
+		@Nullable final Integer substream, @Nullable final Integer temporal) throws IOException {
+
+		if (substream != null) {
+			writer.name("substream").value(substream);
+		}
+		if (temporal != null) {
+			writer.name("temporal").value(temporal);
+		}
+	}
+
+	/**
+	 * write value of Object field using adapter of its runtime type
+	 */
+	@SuppressWarnings("unchecked")
+	private static void writeObject(@NonNull final Gson gson,
+		@NonNull final JsonWriter writer, @Nullable final Object value) throws IOException {
+
+		if (value != null) {
+			((TypeAdapter<Object>)gson.getAdapter(value.getClass())).write(writer, value);
+		} else {
+			writer.nullValue();
+		}
+	}
+
+//--------------------------------------------------------------------------------
+// requests
+	/**
+	 * serializer of request model
+	 * @param <T>
+	 */
+	private interface RequestWriter<T> {
+		public void write(@NonNull final JsonWriter writer, @NonNull final T value)
+			throws IOException;
+	}
+
+	/**
+	 * 要求モデル用TypeAdapter、書き込みのみを手書きで行う
+	 * @param <T>
+	 */
+	private static class RequestAdapter<T> extends TypeAdapter<T> {
+		private static final Map<Class<?>, RequestWriter<?>> TYPES = new HashMap<>();
+
+		private static <T> void register(@NonNull final Class<T> clazz,
+			@NonNull final RequestWriter<T> writer) {
+
+			TYPES.put(clazz, writer);
+		}
+
+		static {
+			register(Attach.class, new RequestWriter<Attach>() {
+				@Override
+				public void write(@NonNull final JsonWriter writer,
+					@NonNull final Attach value) throws IOException {
+
+					writer.name("janus").value(value.janus);
+					writer.name("transaction").value(value.transaction);
+					writer.name("session_id");
+					writeId(writer, value.session_id);
+					writer.name("plugin").value(value.plugin);
+				}
+			});
+			register(Claim.class, new RequestWriter<Claim>() {
+				@Override
+				public void write(@NonNull final JsonWriter writer,
+					@NonNull final Claim value) throws IOException {
+
+					writer.name("janus").value(value.janus);
+					writer.name("transaction").value(value.transaction);
+					writer.name("session_id");
+					writeId(writer, value.session_id);
+				}
+			});
+			register(Creator.class, new RequestWriter<Creator>() {
+				@Override
+				public void write(@NonNull final JsonWriter writer,
+					@NonNull final Creator value) throws IOException {
+
+					writer.name("janus").value(value.janus);
+					writer.name("transaction").value(value.transaction);
+				}
+			});
+			register(Destroy.class, new RequestWriter<Destroy>() {
+				@Override
+				public void write(@NonNull final JsonWriter writer,
+					@NonNull final Destroy value) throws IOException {
+
+					writer.name("janus").value(value.janus);
+					writer.name("transaction").value(value.transaction);
+					writer.name("session_id");
+					writeId(writer, value.session_id);
+				}
+			});
+			register(Detach.class, new RequestWriter<Detach>() {
+				@Override
+				public void write(@NonNull final JsonWriter writer,
+					@NonNull final Detach value) throws IOException {
+
+					writer.name("janus").value(value.janus);
+					writer.name("transaction").value(value.transaction);
+					writer.name("session_id");
+					writeId(writer, value.session_id);
+				}
+			});
+			register(KeepAlive.class, new RequestWriter<KeepAlive>() {
+				@Override
+				public void write(@NonNull final JsonWriter writer,
+					@NonNull final KeepAlive value) throws IOException {
+
+					writer.name("janus").value(value.janus);
+					writer.name("transaction").value(value.transaction);
+					writer.name("session_id");
+					writeId(writer, value.session_id);
+				}
+			});
+			register(Hangup.class, new RequestWriter<Hangup>() {
+				@Override
+				public void write(@NonNull final JsonWriter writer,
+					@NonNull final Hangup value) throws IOException {
+
+					writer.name("janus").value(value.janus);
+					writer.name("transaction").value(value.transaction);
+					writer.name("session_id");
+					writeId(writer, value.session_id);
+				}
+			});
+			register(Configure.class, new RequestWriter<Configure>() {
+				@Override
+				public void write(@NonNull final JsonWriter writer,
+					@NonNull final Configure value) throws IOException {
+
+					writer.name("request").value(value.request);
+					writer.name("audio").value(value.audio);
+					writer.name("video").value(value.video);
+					if (value.restart != null) {
+						writer.name("restart").value(value.restart);
+					}
+				}
+			});
+			register(ConfigureSubstream.class, new RequestWriter<ConfigureSubstream>() {
+				@Override
+				public void write(@NonNull final JsonWriter writer,
+					@NonNull final ConfigureSubstream value) throws IOException {
+
+					writer.name("request").value(value.request);
+					writeLayers(writer, value.substream, value.temporal);
+					if (value.streams != null) {
+						writer.name("streams");
+						writer.beginArray();
+						for (final ConfigureSubstream.Stream stream: value.streams) {
+							writer.beginObject();
+							writer.name("mid").value(stream.mid);
+							writeLayers(writer, stream.substream, stream.temporal);
+							writer.endObject();
+						}
+						writer.endArray();
+					}
+				}
+			});
+			register(Join.class, new RequestWriter<Join>() {
+				@Override
+				public void write(@NonNull final JsonWriter writer,
+					@NonNull final Join value) throws IOException {
+
+					writer.name("request").value(value.request);
+					writer.name("room").value(value.room);
+					writer.name("ptype").value(value.ptype);
+					writer.name("username").value(value.username);
+					writer.name("display").value(value.display);
+					writer.name("feed");
+					writeId(writer, value.feed);
+				}
+			});
+			register(Subscribe.class, new RequestWriter<Subscribe>() {
+				@Override
+				public void write(@NonNull final JsonWriter writer,
+					@NonNull final Subscribe value) throws IOException {
+
+					writer.name("request").value(value.request);
+					if (value.room != null) {
+						writer.name("room").value(value.room);
+					}
+					if (value.ptype != null) {
+						writer.name("ptype").value(value.ptype);
+					}
+					writer.name("streams");
+					writer.beginArray();
+					for (final Subscribe.Stream stream: value.streams) {
+						writer.beginObject();
+						writer.name("feed");
+						writeId(writer, stream.feed);
+						if (stream.mid != null) {
+							writer.name("mid").value(stream.mid);
+						}
+						writer.endObject();
+					}
+					writer.endArray();
+				}
+			});
+			register(Start.class, new RequestWriter<Start>() {
+				@Override
+				public void write(@NonNull final JsonWriter writer,
+					@NonNull final Start value) throws IOException {
+
+					writer.name("request").value(value.request);
+					writer.name("room").value(value.room);
+				}
+			});
+			register(Trickle.class, new RequestWriter<Trickle>() {
+				@Override
+				public void write(@NonNull final JsonWriter writer,
+					@NonNull final Trickle value) throws IOException {
+
+					writer.name("janus").value(value.janus);
+					writer.name("transaction").value(value.transaction);
+					writer.name("session_id");
+					writeId(writer, value.session_id);
+					writer.name("handle_id");
+					writeId(writer, value.handle_id);
+					writer.name("candidate");
+					if (value.candidate != null) {
+						writer.beginObject();
+						writeCandidate(writer, value.candidate);
+						writer.endObject();
+					} else {
+						writer.nullValue();
+					}
+				}
+			});
+			register(Trickle.Candidate.class, new RequestWriter<Trickle.Candidate>() {
+				@Override
+				public void write(@NonNull final JsonWriter writer,
+					@NonNull final Trickle.Candidate value) throws IOException {
+
+					writeCandidate(writer, value);
+				}
+			});
+			register(TrickleCompleted.class, new RequestWriter<TrickleCompleted>() {
+				@Override
+				public void write(@NonNull final JsonWriter writer,
+					@NonNull final TrickleCompleted value) throws IOException {
+
+					writer.name("janus").value(value.janus);
+					writer.name("transaction").value(value.transaction);
+					writer.name("session_id");
+					writeId(writer, value.session_id);
+					writer.name("handle_id");
+					writeId(writer, value.handle_id);
+					writer.name("candidate");
+					if (value.candidate != null) {
+						writer.beginObject();
+						writer.name("completed").value(value.candidate.completed);
+						writer.endObject();
+					} else {
+						writer.nullValue();
+					}
+				}
+			});
+			register(TrickleCompleted.Candidate.class, new RequestWriter<TrickleCompleted.Candidate>() {
+				@Override
+				public void write(@NonNull final JsonWriter writer,
+					@NonNull final TrickleCompleted.Candidate value) throws IOException {
+
+					writer.name("completed").value(value.completed);
+				}
+			});
+			register(TrickleBatch.class, new RequestWriter<TrickleBatch>() {
+				@Override
+				public void write(@NonNull final JsonWriter writer,
+					@NonNull final TrickleBatch value) throws IOException {
+
+					writer.name("janus").value(value.janus);
+					writer.name("transaction").value(value.transaction);
+					writer.name("session_id");
+					writeId(writer, value.session_id);
+					writer.name("handle_id");
+					writeId(writer, value.handle_id);
+					writer.name("candidates");
+					writer.beginArray();
+					for (final Object candidate: value.candidates) {
+						writer.beginObject();
+						if (candidate instanceof Trickle.Candidate) {
+							writeCandidate(writer, (Trickle.Candidate)candidate);
+						} else if (candidate instanceof TrickleCompleted.Candidate) {
+							writer.name("completed").value(((TrickleCompleted.Candidate)candidate).completed);
+						}
+						writer.endObject();
+					}
+					writer.endArray();
+				}
+			});
+		}
+
+		private static void writeCandidate(@NonNull final JsonWriter writer,
+			@NonNull final Trickle.Candidate value) throws IOException {
+
+			writer.name("sdpMLineIndex").value(value.sdpMLineIndex);
+			writer.name("sdpMid").value(value.sdpMid);
+			writer.name("candidate").value(value.candidate);
+		}
+
+		@NonNull
+		private final RequestWriter<T> mWriter;
+		@NonNull
+		private final TypeAdapter<T> mDelegate;
+
+		private RequestAdapter(@NonNull final RequestWriter<T> writer,
+			@NonNull final TypeAdapter<T> delegate) {
+
+			mWriter = writer;
+			mDelegate = delegate;
+		}
+
+		@Override
+		public void write(final JsonWriter writer, final T value) throws IOException {
+			if (value == null) {
+				writer.nullValue();
+				return;
+			}
+			writer.beginObject();
+			mWriter.write(writer, value);
+			writer.endObject();
+		}
+
+		@Override
+		public T read(final JsonReader reader) throws IOException {
+			return mDelegate.read(reader);
+		}
+	}
+
+	/**
+	 * bodyとjsepは任意のオブジェクトなので実行時の型のアダプタで書き込む
+	 */
+	private static class MessageAdapter extends TypeAdapter<Message> {
+		@NonNull
+		private final Gson mGson;
+		@NonNull
+		private final TypeAdapter<Message> mDelegate;
+
+		private MessageAdapter(@NonNull final Gson gson,
+			@NonNull final TypeAdapter<Message> delegate) {
+
+			mGson = gson;
+			mDelegate = delegate;
+		}
+
+		@Override
+		public void write(final JsonWriter writer, final Message value) throws IOException {
+			if (value == null) {
+				writer.nullValue();
+				return;
+			}
+			writer.beginObject();
+			writer.name("janus").value(value.janus);
+			writer.name("transaction").value(value.transaction);
+			writer.name("session_id");
+			writeId(writer, value.session_id);
+			writer.name("handle_id");
+			writeId(writer, value.handle_id);
+			writer.name("body");
+			writeObject(mGson, writer, value.body);
+			writer.name("jsep");
+			writeObject(mGson, writer, value.jsep);
+			writer.endObject();
+		}
+
+		@Override
+		public Message read(final JsonReader reader) throws IOException {
+			return mDelegate.read(reader);
+		}
+	}
+
+//--------------------------------------------------------------------------------
+// responses
+	/*package*/ static final TypeAdapter<JsepSdp> JSEP = new TypeAdapter<JsepSdp>() {
+		@Override
+		public void write(final JsonWriter writer, final JsepSdp value) throws IOException {
+			if (value == null) {
+				writer.nullValue();
+				return;
+			}
+			writer.beginObject();
+			writer.name("type").value(value.type);
+			writer.name("sdp").value(value.sdp);
+			writer.endObject();
+		}
+
+		@Override
+		public JsepSdp read(final JsonReader reader) throws IOException {
+			if (reader.peek() == JsonToken.NULL) {
+				reader.nextNull();
+				return null;
+			}
+			String type = null;
+			String sdp = null;
+			reader.beginObject();
+			while (reader.hasNext()) {
+				switch (reader.nextName()) {
+				case "type":	type = nextString(reader); break;
+				case "sdp":		sdp = nextString(reader); break;
+				default:		reader.skipValue(); break;
+				}
+			}
+			reader.endObject();
+			return new JsepSdp(type, sdp);
+		}
+	};
+
+	/*package*/ static final TypeAdapter<PublisherInfo> PUBLISHER = new TypeAdapter<PublisherInfo>() {
+		@Override
+		public void write(final JsonWriter writer, final PublisherInfo value) throws IOException {
+			if (value == null) {
+				writer.nullValue();
+				return;
+			}
+			writer.beginObject();
+			writer.name("id");
+			writeId(writer, value.id);
+			writer.name("display").value(value.display);
+			writer.name("audio_codec").value(value.audio_codec);
+			writer.name("video_codec").value(value.video_codec);
+			writer.name("talking").value(value.talking);
+			writer.endObject();
+		}
+
+		@Override
+		public PublisherInfo read(final JsonReader reader) throws IOException {
+			if (reader.peek() == JsonToken.NULL) {
+				reader.nextNull();
+				return null;
+			}
+			long id = JanusId.NONE;
+			String display = null;
+			String audio_codec = null;
+			String video_codec = null;
+			boolean talking = false;
+			reader.beginObject();
+			while (reader.hasNext()) {
+				switch (reader.nextName()) {
+				case "id":			id = nextId(reader); break;
+				case "display":		display = nextString(reader); break;
+				case "audio_codec":	audio_codec = nextString(reader); break;
+				case "video_codec":	video_codec = nextString(reader); break;
+				case "talking":		talking = nextBoolean(reader); break;
+				default:			reader.skipValue(); break;
+				}
+			}
+			reader.endObject();
+			return new PublisherInfo(id, display, audio_codec, video_codec, talking);
+		}
+	};
+
+	/*package*/ static final TypeAdapter<StreamInfo> STREAM = new TypeAdapter<StreamInfo>() {
+		@Override
+		public void write(final JsonWriter writer, final StreamInfo value) throws IOException {
+			if (value == null) {
+				writer.nullValue();
+				return;
+			}
+			writer.beginObject();
+			writer.name("type").value(value.type);
+			writer.name("active").value(value.active);
+			writer.name("mindex").value(value.mindex);
+			writer.name("mid").value(value.mid);
+			writer.name("feed_id");
+			writeId(writer, value.feed_id);
+			writer.name("feed_mid").value(value.feed_mid);
+			writer.name("feed_display").value(value.feed_display);
+			writer.endObject();
+		}
+
+		@Override
+		public StreamInfo read(final JsonReader reader) throws IOException {
+			if (reader.peek() == JsonToken.NULL) {
+				reader.nextNull();
+				return null;
+			}
+			String type = null;
+			// janus-gatewayはactiveがfalseの時しか送ってこないことがある
+			boolean active = true;
+			int mindex = 0;
+			String mid = null;
+			long feed_id = JanusId.NONE;
+			String feed_mid = null;
+			String feed_display = null;
+			reader.beginObject();
+			while (reader.hasNext()) {
+				switch (reader.nextName()) {
+				case "type":			type = nextString(reader); break;
+				case "active":			active = nextBoolean(reader); break;
+				case "mindex":			mindex = nextInt(reader); break;
+				case "mid":				mid = nextString(reader); break;
+				case "feed_id":			feed_id = nextId(reader); break;
+				case "feed_mid":		feed_mid = nextString(reader); break;
+				case "feed_display":	feed_display = nextString(reader); break;
+				default:				reader.skipValue(); break;
+				}
+			}
+			reader.endObject();
+			return new StreamInfo(type, active, mindex, mid, feed_id, feed_mid, feed_display);
+		}
+	};
+
+	/*package*/ static final TypeAdapter<EventRoom.Data> EVENT_ROOM_DATA = new TypeAdapter<EventRoom.Data>() {
+		@Override
+		public void write(final JsonWriter writer, final EventRoom.Data value) throws IOException {
+			if (value == null) {
+				writer.nullValue();
+				return;
+			}
+			writer.beginObject();
+			writer.name("videoroom").value(value.videoroom);
+			writer.name("room").value(value.room);
+			writer.name("description").value(value.description);
+			writer.name("configured").value(value.configured);
+			writer.name("started").value(value.started);
+			writer.name("audio_codec").value(value.audio_codec);
+			writer.name("video_codec").value(value.video_codec);
+			writer.name("unpublished");
+			writeId(writer, value.unpublished);
+			writer.name("leaving");
+			writeId(writer, value.leaving);
+			writer.name("id");
+			writeId(writer, value.id);
+			writer.name("private_id");
+			writeId(writer, value.private_id);
+			writer.name("publishers");
+			if (value.publishers != null) {
+				writer.beginArray();
+				for (final PublisherInfo info: value.publishers) {
+					PUBLISHER.write(writer, info);
+				}
+				writer.endArray();
+			} else {
+				writer.nullValue();
+			}
+			if (value.streams != null) {
+				writer.name("streams");
+				writer.beginArray();
+				for (final StreamInfo info: value.streams) {
+					STREAM.write(writer, info);
+				}
+				writer.endArray();
+			}
+			writer.endObject();
+		}
+
+		@Override
+		public EventRoom.Data read(final JsonReader reader) throws IOException {
+			if (reader.peek() == JsonToken.NULL) {
+				reader.nextNull();
+				return null;
+			}
+			String videoroom = null;
+			int room = 0;
+			String description = null;
+			boolean configured = false;
+			boolean started = false;
+			String audio_codec = null;
+			String video_codec = null;
+			long unpublished = JanusId.NONE;
+			long leaving = JanusId.NONE;
+			long id = JanusId.NONE;
+			long private_id = JanusId.NONE;
+			PublisherInfo[] publishers = null;
+			StreamInfo[] streams = null;
+			reader.beginObject();
+			while (reader.hasNext()) {
+				switch (reader.nextName()) {
+				case "videoroom":	videoroom = nextString(reader); break;
+				case "room":		room = nextInt(reader); break;
+				case "description":	description = nextString(reader); break;
+				case "configured":	configured = nextBoolean(reader); break;
+				case "started":		started = nextBoolean(reader); break;
+				case "audio_codec":	audio_codec = nextString(reader); break;
+				case "video_codec":	video_codec = nextString(reader); break;
+				case "unpublished":	unpublished = nextId(reader); break;
+				case "leaving":		leaving = nextId(reader); break;
+				case "id":			id = nextId(reader); break;
+				case "private_id":	private_id = nextId(reader); break;
+				case "publishers":
+					if (reader.peek() == JsonToken.BEGIN_ARRAY) {
+						final List<PublisherInfo> list = new ArrayList<>();
+						reader.beginArray();
+						while (reader.hasNext()) {
+							list.add(PUBLISHER.read(reader));
+						}
+						reader.endArray();
+						publishers = list.toArray(new PublisherInfo[0]);
+					} else {
+						reader.skipValue();
+					}
+					break;
+				case "streams":
+					if (reader.peek() == JsonToken.BEGIN_ARRAY) {
+						final List<StreamInfo> list = new ArrayList<>();
+						reader.beginArray();
+						while (reader.hasNext()) {
+							list.add(STREAM.read(reader));
+						}
+						reader.endArray();
+						streams = list.toArray(new StreamInfo[0]);
+					} else {
+						reader.skipValue();
+					}
+					break;
+				default:
+					reader.skipValue();
+					break;
+				}
+			}
+			reader.endObject();
+			return new EventRoom.Data(videoroom, room, description,
+				configured, started, audio_codec, video_codec,
+				unpublished, leaving, id, private_id, publishers, streams);
+		}
+	};
+
+	/*package*/ static final TypeAdapter<EventRoom.PluginData> EVENT_ROOM_PLUGIN_DATA = new TypeAdapter<EventRoom.PluginData>() {
+		@Override
+		public void write(final JsonWriter writer, final EventRoom.PluginData value) throws IOException {
+			if (value == null) {
+				writer.nullValue();
+				return;
+			}
+			writer.beginObject();
+			writer.name("plugin").value(value.plugin);
+			writer.name("data");
+			EVENT_ROOM_DATA.write(writer, value.data);
+			writer.endObject();
+		}
+
+		@Override
+		public EventRoom.PluginData read(final JsonReader reader) throws IOException {
+			if (reader.peek() == JsonToken.NULL) {
+				reader.nextNull();
+				return null;
+			}
+			String plugin = null;
+			EventRoom.Data data = null;
+			reader.beginObject();
+			while (reader.hasNext()) {
+				switch (reader.nextName()) {
+				case "plugin":	plugin = nextString(reader); break;
+				case "data":	data = EVENT_ROOM_DATA.read(reader); break;
+				default:		reader.skipValue(); break;
+				}
+			}
+			reader.endObject();
+			return new EventRoom.PluginData(plugin, data);
+		}
+	};
+
+	/**
+	 * janus/transaction/senderとplugindata/jsepはモデルへ直接バインドし、
+	 * それ以外のフィールド(media/slowlink/errorなど頻度の低いもの)はextrasへ入れる
+	 */
+	/*package*/ static final TypeAdapter<EventRoom> EVENT_ROOM = new TypeAdapter<EventRoom>() {
+		@Override
+		public void write(final JsonWriter writer, final EventRoom value) throws IOException {
+			if (value == null) {
+				writer.nullValue();
+				return;
+			}
+			writer.beginObject();
+			writer.name("janus").value(value.janus);
+			writer.name("sender");
+			writeId(writer, value.sender);
+			writer.name("transaction").value(value.transaction);
+			writer.name("plugindata");
+			EVENT_ROOM_PLUGIN_DATA.write(writer, value.plugindata);
+			writer.name("jsep");
+			JSEP.write(writer, value.jsep);
+			writer.endObject();
+		}
+
+		@Override
+		public EventRoom read(final JsonReader reader) throws IOException {
+			if (reader.peek() == JsonToken.NULL) {
+				reader.nextNull();
+				return null;
+			}
+			String janus = null;
+			long sender = JanusId.NONE;
+			String transaction = null;
+			EventRoom.PluginData plugindata = null;
+			JsepSdp jsep = null;
+			JSONObject extras = null;
+			reader.beginObject();
+			while (reader.hasNext()) {
+				final String name = reader.nextName();
+				switch (name) {
+				case "janus":		janus = nextString(reader); break;
+				case "sender":		sender = nextId(reader); break;
+				case "transaction":	transaction = nextString(reader); break;
+				case "plugindata":	plugindata = EVENT_ROOM_PLUGIN_DATA.read(reader); break;
+				case "jsep":		jsep = JSEP.read(reader); break;
+				case "session_id":	reader.skipValue(); break;
+				default:
+					if (extras == null) {
+						extras = new JSONObject();
+					}
+					try {
+						extras.put(name, readValue(reader));
+					} catch (final JSONException e) {
+						throw new JsonParseException(e);
+					}
+					break;
+				}
+			}
+			reader.endObject();
+			return new EventRoom(janus, sender, transaction, plugindata, jsep, extras);
+		}
+	};
+
+	/**
+	 * session id/plugin handle idを受け取るためのdata部分
+	 * @return id or JanusId.NONE
+	 */
+	private static long readIdData(@NonNull final JsonReader reader) throws IOException {
+		long id = JanusId.NONE;
+		reader.beginObject();
+		while (reader.hasNext()) {
+			if ("id".equals(reader.nextName())) {
+				id = nextId(reader);
+			} else {
+				reader.skipValue();
+			}
+		}
+		reader.endObject();
+		return id;
+	}
+
+	private static void writeIdData(@NonNull final JsonWriter writer,
+		final boolean hasData, final long id) throws IOException {
+
+		if (hasData) {
+			writer.beginObject();
+			writer.name("id");
+			writeId(writer, id);
+			writer.endObject();
+		} else {
+			writer.nullValue();
+		}
+	}
+
+	/*package*/ static final TypeAdapter<Session> SESSION = new TypeAdapter<Session>() {
+		@Override
+		public void write(final JsonWriter writer, final Session value) throws IOException {
+			if (value == null) {
+				writer.nullValue();
+				return;
+			}
+			writer.beginObject();
+			writer.name("janus").value(value.janus);
+			writer.name("transaction").value(value.transaction);
+			writer.name("data");
+			writeIdData(writer, value.data != null, value.id());
+			writer.endObject();
+		}
+
+		@Override
+		public Session read(final JsonReader reader) throws IOException {
+			if (reader.peek() == JsonToken.NULL) {
+				reader.nextNull();
+				return null;
+			}
+			String janus = null;
+			String transaction = null;
+			Session.Data data = null;
+			reader.beginObject();
+			while (reader.hasNext()) {
+				switch (reader.nextName()) {
+				case "janus":		janus = nextString(reader); break;
+				case "transaction":	transaction = nextString(reader); break;
+				case "data":
+					if (reader.peek() != JsonToken.NULL) {
+						data = new Session.Data(readIdData(reader));
+					} else {
+						reader.nextNull();
+					}
+					break;
+				default:			reader.skipValue(); break;
+				}
+			}
+			reader.endObject();
+			return new Session(janus, transaction, data);
+		}
+	};
+
+	/*package*/ static final TypeAdapter<Plugin> PLUGIN = new TypeAdapter<Plugin>() {
+		@Override
+		public void write(final JsonWriter writer, final Plugin value) throws IOException {
+			if (value == null) {
+				writer.nullValue();
+				return;
+			}
+			writer.beginObject();
+			writer.name("janus").value(value.janus);
+			writer.name("transaction").value(value.transaction);
+			writer.name("data");
+			writeIdData(writer, value.data != null, value.id());
+			writer.endObject();
+		}
+
+		@Override
+		public Plugin read(final JsonReader reader) throws IOException {
+			if (reader.peek() == JsonToken.NULL) {
+				reader.nextNull();
+				return null;
+			}
+			String janus = null;
+			String transaction = null;
+			Plugin.Data data = null;
+			reader.beginObject();
+			while (reader.hasNext()) {
+				switch (reader.nextName()) {
+				case "janus":		janus = nextString(reader); break;
+				case "transaction":	transaction = nextString(reader); break;
+				case "data":
+					if (reader.peek() != JsonToken.NULL) {
+						data = new Plugin.Data(readIdData(reader));
+					} else {
+						reader.nextNull();
+					}
+					break;
+				default:			reader.skipValue(); break;
+				}
+			}
+			reader.endObject();
+			return new Plugin(janus, transaction, data);
+		}
+	};
+
+	/*package*/ static final TypeAdapter<Transport> TRANSPORT = new TypeAdapter<Transport>() {
+		@Override
+		public void write(final JsonWriter writer, final Transport value) throws IOException {
+			if (value == null) {
+				writer.nullValue();
+				return;
+			}
+			writer.beginObject();
+			writer.name("name").value(value.name);
+			writer.name("author").value(value.author);
+			writer.name("description").value(value.description);
+			writer.name("version_string").value(value.version_string);
+			writer.name("version").value(value.version);
+			writer.endObject();
+		}
+
+		@Override
+		public Transport read(final JsonReader reader) throws IOException {
+			if (reader.peek() == JsonToken.NULL) {
+				reader.nextNull();
+				return null;
+			}
+			String name = null;
+			String author = null;
+			String description = null;
+			String version_string = null;
+			int version = 0;
+			reader.beginObject();
+			while (reader.hasNext()) {
+				switch (reader.nextName()) {
+				case "name":			name = nextString(reader); break;
+				case "author":			author = nextString(reader); break;
+				case "description":		description = nextString(reader); break;
+				case "version_string":	version_string = nextString(reader); break;
+				case "version":			version = nextInt(reader); break;
+				default:				reader.skipValue(); break;
+				}
+			}
+			reader.endObject();
+			return new Transport(name, author, description, version_string, version);
+		}
+	};
+
+	/*package*/ static final TypeAdapter<PluginInfo> PLUGIN_INFO = new TypeAdapter<PluginInfo>() {
+		@Override
+		public void write(final JsonWriter writer, final PluginInfo value) throws IOException {
+			if (value == null) {
+				writer.nullValue();
+				return;
+			}
+			writer.beginObject();
+			writer.name("name").value(value.name);
+			writer.name("author").value(value.author);
+			writer.name("description").value(value.description);
+			writer.name("version_string").value(value.version_string);
+			writer.name("version").value(value.version);
+			writer.endObject();
+		}
+
+		@Override
+		public PluginInfo read(final JsonReader reader) throws IOException {
+			if (reader.peek() == JsonToken.NULL) {
+				reader.nextNull();
+				return null;
+			}
+			String name = null;
+			String author = null;
+			String description = null;
+			String version_string = null;
+			int version = 0;
+			reader.beginObject();
+			while (reader.hasNext()) {
+				switch (reader.nextName()) {
+				case "name":			name = nextString(reader); break;
+				case "author":			author = nextString(reader); break;
+				case "description":		description = nextString(reader); break;
+				case "version_string":	version_string = nextString(reader); break;
+				case "version":			version = nextInt(reader); break;
+				default:				reader.skipValue(); break;
+				}
+			}
+			reader.endObject();
+			return new PluginInfo(name, author, description, version_string, version);
+		}
+	};
+
+	/**
+	 * janus-gatewayはtransports/pluginsを名前をキーにしたJSONオブジェクトで返すので
+	 * 値だけをリストへ入れる
+	 */
+	/*package*/ static final TypeAdapter<ServerInfo.Transports> TRANSPORTS = new TypeAdapter<ServerInfo.Transports>() {
+		@Override
+		public void write(final JsonWriter writer, final ServerInfo.Transports value) throws IOException {
+			if ((value == null) || (value.transports == null)) {
+				writer.nullValue();
+				return;
+			}
+			writer.beginObject();
+			for (final Transport transport: value.transports) {
+				writer.name(String.valueOf(transport.name));
+				TRANSPORT.write(writer, transport);
+			}
+			writer.endObject();
+		}
+
+		@Override
+		public ServerInfo.Transports read(final JsonReader reader) throws IOException {
+			if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+				reader.skipValue();
+				return null;
+			}
+			final List<Transport> transports = new ArrayList<>();
+			reader.beginObject();
+			while (reader.hasNext()) {
+				reader.nextName();
+				final Transport transport = TRANSPORT.read(reader);
+				if (transport != null) {
+					transports.add(transport);
+				}
+			}
+			reader.endObject();
+			return new ServerInfo.Transports(transports);
+		}
+	};
+
+	/*package*/ static final TypeAdapter<ServerInfo.PluginInfos> PLUGIN_INFOS = new TypeAdapter<ServerInfo.PluginInfos>() {
+		@Override
+		public void write(final JsonWriter writer, final ServerInfo.PluginInfos value) throws IOException {
+			if ((value == null) || (value.plugins == null)) {
+				writer.nullValue();
+				return;
+			}
+			writer.beginObject();
+			for (final PluginInfo plugin: value.plugins) {
+				writer.name(String.valueOf(plugin.name));
+				PLUGIN_INFO.write(writer, plugin);
+			}
+			writer.endObject();
+		}
+
+		@Override
+		public ServerInfo.PluginInfos read(final JsonReader reader) throws IOException {
+			if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+				reader.skipValue();
+				return null;
+			}
+			final List<PluginInfo> plugins = new ArrayList<>();
+			reader.beginObject();
+			while (reader.hasNext()) {
+				reader.nextName();
+				final PluginInfo plugin = PLUGIN_INFO.read(reader);
+				if (plugin != null) {
+					plugins.add(plugin);
+				}
+			}
+			reader.endObject();
+			return new ServerInfo.PluginInfos(plugins);
+		}
+	};
+
+	/*package*/ static final TypeAdapter<ServerInfo> SERVER_INFO = new TypeAdapter<ServerInfo>() {
+		@Override
+		public void write(final JsonWriter writer, final ServerInfo value) throws IOException {
+			if (value == null) {
+				writer.nullValue();
+				return;
+			}
+			writer.beginObject();
+			writer.name("janus").value(value.janus);
+			writer.name("transaction").value(value.transaction);
+			writer.name("name").value(value.name);
+			writer.name("version").value(value.version);
+			writer.name("version_string").value(value.version_string);
+			writer.name("author").value(value.author);
+			writer.name("commit_hash").value(value.commit_hash);
+			writer.name("compile_time").value(value.compile_time);
+			writer.name("data_channels").value(value.data_channels);
+			writer.name("session_timeout").value(value.session_timeout);
+			writer.name("ipv6").value(value.ipv6);
+			writer.name("ice_tcp").value(value.ice_tcp);
+			writer.name("transports");
+			TRANSPORTS.write(writer, value.transports);
+			writer.name("plugins");
+			PLUGIN_INFOS.write(writer, value.plugins);
+			writer.endObject();
+		}
+
+		@Override
+		public ServerInfo read(final JsonReader reader) throws IOException {
+			if (reader.peek() == JsonToken.NULL) {
+				reader.nextNull();
+				return null;
+			}
+			String janus = null;
+			String transaction = null;
+			String name = null;
+			int version = 0;
+			String version_string = null;
+			String author = null;
+			String commit_hash = null;
+			String compile_time = null;
+			boolean data_channels = false;
+			int session_timeout = 0;
+			boolean ipv6 = false;
+			boolean ice_tcp = false;
+			ServerInfo.Transports transports = null;
+			ServerInfo.PluginInfos plugins = null;
+			reader.beginObject();
+			while (reader.hasNext()) {
+				switch (reader.nextName()) {
+				case "janus":			janus = nextString(reader); break;
+				case "transaction":		transaction = nextString(reader); break;
+				case "name":			name = nextString(reader); break;
+				case "version":			version = nextInt(reader); break;
+				case "version_string":	version_string = nextString(reader); break;
+				case "author":			author = nextString(reader); break;
+				case "commit_hash":		commit_hash = nextString(reader); break;
+				case "compile_time":	compile_time = nextString(reader); break;
+				case "data_channels":	data_channels = nextBoolean(reader); break;
+				case "session_timeout":	session_timeout = nextInt(reader); break;
+				case "ipv6":			ipv6 = nextBoolean(reader); break;
+				case "ice_tcp":			ice_tcp = nextBoolean(reader); break;
+				case "transports":		transports = TRANSPORTS.read(reader); break;
+				case "plugins":			plugins = PLUGIN_INFOS.read(reader); break;
+				default:				reader.skipValue(); break;
+				}
+			}
+			reader.endObject();
+			return new ServerInfo(janus, transaction, name, version, version_string,
+				author, commit_hash, compile_time, data_channels, session_timeout,
+				ipv6, ice_tcp, transports, plugins);
+		}
+	};
+
+	/**
+	 * 汎用のイベント(plugindata.dataは任意のオブジェクト)
+	 */
+	private static class EventAdapter extends TypeAdapter<Event> {
+		@NonNull
+		private final Gson mGson;
+		@NonNull
+		private final TypeAdapter<Object> mObjectAdapter;
+
+		private EventAdapter(@NonNull final Gson gson) {
+			mGson = gson;
+			mObjectAdapter = gson.getAdapter(Object.class);
+		}
+
+		@Override
+		public void write(final JsonWriter writer, final Event value) throws IOException {
+			if (value == null) {
+				writer.nullValue();
+				return;
+			}
+			writer.beginObject();
+			writer.name("janus").value(value.janus);
+			writer.name("sender").value(value.sender);
+			writer.name("transaction").value(value.transaction);
+			writer.name("plugindata");
+			if (value.plugindata != null) {
+				writer.beginObject();
+				writer.name("plugin").value(value.plugindata.plugin);
+				writer.name("data");
+				writeObject(mGson, writer, value.plugindata.data);
+				writer.endObject();
+			} else {
+				writer.nullValue();
+			}
+			writer.name("jsep");
+			writeValue(writer, value.jsep);
+			writer.endObject();
+		}
+
+		@Override
+		public Event read(final JsonReader reader) throws IOException {
+			if (reader.peek() == JsonToken.NULL) {
+				reader.nextNull();
+				return null;
+			}
+			String janus = null;
+			String sender = null;
+			String transaction = null;
+			Event.PluginData plugindata = null;
+			JSONObject jsep = null;
+			reader.beginObject();
+			while (reader.hasNext()) {
+				switch (reader.nextName()) {
+				case "janus":		janus = nextString(reader); break;
+				case "sender":		sender = nextString(reader); break;
+				case "transaction":	transaction = nextString(reader); break;
+				case "plugindata":
+					if (reader.peek() == JsonToken.BEGIN_OBJECT) {
+						String plugin = null;
+						Object data = null;
+						reader.beginObject();
+						while (reader.hasNext()) {
+							switch (reader.nextName()) {
+							case "plugin":	plugin = nextString(reader); break;
+							case "data":	data = mObjectAdapter.read(reader); break;
+							default:		reader.skipValue(); break;
+							}
+						}
+						reader.endObject();
+						plugindata = new Event.PluginData(plugin, data);
+					} else {
+						reader.skipValue();
+					}
+					break;
+				case "jsep":
+				{
+					final Object value = readValue(reader);
+					jsep = value instanceof JSONObject ? (JSONObject)value : null;
+					break;
+				}
+				default:			reader.skipValue(); break;
+				}
+			}
+			reader.endObject();
+			return new Event(janus, sender, transaction, plugindata, jsep);
+		}
+	}
+
+	static {
+		sAdapters.put(JsepSdp.class, JSEP);
+		sAdapters.put(PublisherInfo.class, PUBLISHER);
+		sAdapters.put(StreamInfo.class, STREAM);
+		sAdapters.put(EventRoom.class, EVENT_ROOM);
+		sAdapters.put(EventRoom.PluginData.class, EVENT_ROOM_PLUGIN_DATA);
+		sAdapters.put(EventRoom.Data.class, EVENT_ROOM_DATA);
+		sAdapters.put(Session.class, SESSION);
+		sAdapters.put(Plugin.class, PLUGIN);
+		sAdapters.put(Transport.class, TRANSPORT);
+		sAdapters.put(PluginInfo.class, PLUGIN_INFO);
+		sAdapters.put(ServerInfo.Transports.class, TRANSPORTS);
+		sAdapters.put(ServerInfo.PluginInfos.class, PLUGIN_INFOS);
+		sAdapters.put(ServerInfo.class, SERVER_INFO);
+	}
+}
@@ -0,0 +1,320 @@
+package com.serenegiant.janus;
+/*
+ * JanusRTCAndroid
+ * Video chat sample app using videoroom plugin on janus-gateway server and WebRTC.
+ *
+ * Copyright (c) 2018 saki t_saki@serenegiant.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+*/
+
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import com.serenegiant.janus.request.KeepAlive;
+import com.serenegiant.janus.response.EventRoom;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * janus-gatewayはsession_timeoutの間リクエストが無いとセッションを破棄するので、
+ * session_timeoutの一部(1/KEEPALIVE_DIVISOR)の間他の通信が無ければkeepaliveを送る
+ * 他のリクエスト(long pollを含む)が流れている間はkeepaliveを送らない。
+ * keepaliveのRTTを接続状態の指標として記録する
+ */
+public class KeepAliveScheduler {
+	private static final boolean DEBUG = false;	// set false on production
+	private static final String TAG = KeepAliveScheduler.class.getSimpleName();
+
+	/**
+	 * time source, replaced with fake clock in tests
+	 */
+	public interface Clock {
+		/**
+		 * @return monotonic time[ミリ秒]
+		 */
+		public long currentTimeMillis();
+	}
+
+	public static final Clock SYSTEM_CLOCK = new Clock() {
+		@Override
+		public long currentTimeMillis() {
+			return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+		}
+	};
+
+	/** ServerInfoが無い時のjanus-gatewayのデフォルトのsession_timeout[秒] */
+	public static final int DEFAULT_SESSION_TIMEOUT_S = 60;
+	/** keepaliveはsession_timeoutの1/KEEPALIVE_DIVISORの間通信が無ければ送る */
+	public static final int KEEPALIVE_DIVISOR = 3;
+	/** number of checks per keepalive interval */
+	private static final int CHECKS_PER_INTERVAL = 4;
+
+	/**
+	 * snapshot of statistics
+	 */
+	public static class Stats {
+		/** number of sent keepalives */
+		public final long sent;
+		/** number of checks that skipped keepalive because other traffic was flowing */
+		public final long skipped;
+		/** number of failed(or timed out) keepalives */
+		public final long failed;
+		/** RTT of the last keepalive[ミリ秒], -1 if no keepalive succeeded yet */
+		public final long lastRttMs;
+		/** average RTT of keepalives[ミリ秒] */
+		public final long avgRttMs;
+		/** maximum RTT of keepalives[ミリ秒] */
+		public final long maxRttMs;
+
+		private Stats(final long sent, final long skipped, final long failed,
+			final long lastRttMs, final long avgRttMs, final long maxRttMs) {
+
+			this.sent = sent;
+			this.skipped = skipped;
+			this.failed = failed;
+			this.lastRttMs = lastRttMs;
+			this.avgRttMs = avgRttMs;
+			this.maxRttMs = maxRttMs;
+		}
+
+		@Override
+		public String toString() {
+			return "Stats{" +
+				"sent=" + sent +
+				", skipped=" + skipped +
+				", failed=" + failed +
+				", lastRttMs=" + lastRttMs +
+				", avgRttMs=" + avgRttMs +
+				", maxRttMs=" + maxRttMs +
+				'}';
+		}
+	}
+
+	/**
+	 * calculate keepalive interval from session_timeout of ServerInfo
+	 * @param sessionTimeoutSec session_timeout[秒], 0: janus-gateway never reaps the session,
+	 * 							負数: unknown(use default)
+	 * @return keepalive interval[ミリ秒], 0 if keepalive is not necessary
+	 */
+	public static long intervalMs(final int sessionTimeoutSec) {
+		if (sessionTimeoutSec == 0) {
+			return 0;
+		}
+		final int timeout = sessionTimeoutSec > 0 ? sessionTimeoutSec : DEFAULT_SESSION_TIMEOUT_S;
+		return TimeUnit.SECONDS.toMillis(timeout) / KEEPALIVE_DIVISOR;
+	}
+
+	private final Object mSync = new Object();
+	@NonNull
+	private final JanusTransport mTransport;
+	@NonNull
+	private final TransactionManager mTransactionManager;
+	private final long mSessionId;
+	private final long mIntervalMs;
+	@NonNull
+	private final Clock mClock;
+	@NonNull
+	private final HashedWheelTimer mTimer;
+	private long mLastActivityMs;
+	private boolean mRunning;
+	@Nullable
+	private HashedWheelTimer.Timeout mTimeout;
+	@Nullable
+	private JanusTransport.Cancelable mInFlight;
+	// statistics, guarded by mSync
+	private long mSent;
+	private long mSkipped;
+	private long mFailed;
+	private long mAcked;
+	private long mLastRttMs = -1;
+	private long mTotalRttMs;
+	private long mMaxRttMs;
+
+	/**
+	 * コンストラクタ
+	 * @param transport
+	 * @param transactionManager
+	 * @param sessionId
+	 * @param sessionTimeoutSec session_timeout of ServerInfo[秒]
+	 */
+	public KeepAliveScheduler(@NonNull final JanusTransport transport,
+		@NonNull final TransactionManager transactionManager,
+		final long sessionId, final int sessionTimeoutSec) {
+
+		this(transport, transactionManager, sessionId,
+			intervalMs(sessionTimeoutSec), SYSTEM_CLOCK, TransactionManager.getTimer());
+	}
+
+	/**
+	 * コンストラクタ
+	 * @param transport
+	 * @param transactionManager
+	 * @param sessionId
+	 * @param intervalMs keepalive interval[ミリ秒], 0以下ならkeepaliveを送らない
+	 * @param clock
+	 * @param timer
+	 */
+	/*package*/ KeepAliveScheduler(@NonNull final JanusTransport transport,
+		@NonNull final TransactionManager transactionManager,
+		final long sessionId, final long intervalMs,
+		@NonNull final Clock clock, @NonNull final HashedWheelTimer timer) {
+
+		mTransport = transport;
+		mTransactionManager = transactionManager;
+		mSessionId = sessionId;
+		mIntervalMs = intervalMs;
+		mClock = clock;
+		mTimer = timer;
+	}
+
+	/**
+	 * start checking idle time and listening activity of the transport
+	 */
+	public void start() {
+		if (DEBUG) Log.v(TAG, "start:interval=" + mIntervalMs);
+		synchronized (mSync) {
+			if (mRunning || (mIntervalMs <= 0)) return;
+			mRunning = true;
+			mLastActivityMs = mClock.currentTimeMillis();
+			scheduleLocked();
+		}
+		mTransport.setActivityListener(mActivityListener);
+	}
+
+	/**
+	 * stop sending keepalive
+	 */
+	public void stop() {
+		if (DEBUG) Log.v(TAG, "stop:");
+		mTransport.setActivityListener(null);
+		synchronized (mSync) {
+			mRunning = false;
+			if (mTimeout != null) {
+				mTimeout.cancel();
+				mTimeout = null;
+			}
+			if (mInFlight != null) {
+				mInFlight.cancel();
+				mInFlight = null;
+			}
+		}
+	}
+
+	public long getIntervalMs() {
+		return mIntervalMs;
+	}
+
+	/**
+	 * get snapshot of statistics
+	 * @return
+	 */
+	@NonNull
+	public Stats getStats() {
+		synchronized (mSync) {
+			return new Stats(mSent, mSkipped, mFailed,
+				mLastRttMs, mAcked > 0 ? mTotalRttMs / mAcked : 0, mMaxRttMs);
+		}
+	}
+
+	/**
+	 * called when a request of the session is sent
+	 */
+	/*package*/ void onActivity() {
+		synchronized (mSync) {
+			mLastActivityMs = mClock.currentTimeMillis();
+		}
+	}
+
+	/**
+	 * check idle time and send keepalive if necessary,
+	 * this is called periodically from the timer
+	 * @return true if keepalive was sent
+	 */
+	/*package*/ boolean check() {
+		final long start;
+		synchronized (mSync) {
+			if (!mRunning) return false;
+			start = mClock.currentTimeMillis();
+			if ((mInFlight != null) || (start - mLastActivityMs < mIntervalMs)) {
+				// 他の通信が流れているかkeepaliveの応答待ち
+				mSkipped++;
+				return false;
+			}
+			mSent++;
+		}
+		if (DEBUG) Log.v(TAG, "check:send keepalive");
+		final JanusTransport.Cancelable call = mTransport.keepAlive(mSessionId,
+			new KeepAlive(mTransactionManager, mSessionId, null),
+			new JanusTransport.Callback<EventRoom>() {
+				@Override
+				public void onResponse(@NonNull final EventRoom response) {
+					final long rtt = mClock.currentTimeMillis() - start;
+					if (DEBUG) Log.v(TAG, "keepalive:rtt=" + rtt);
+					synchronized (mSync) {
+						mInFlight = null;
+						mAcked++;
+						mLastRttMs = rtt;
+						mTotalRttMs += rtt;
+						if (rtt > mMaxRttMs) {
+							mMaxRttMs = rtt;
+						}
+					}
+				}
+
+				@Override
+				public void onFailure(@NonNull final Throwable t) {
+					if (DEBUG) Log.w(TAG, t);
+					synchronized (mSync) {
+						mInFlight = null;
+						mFailed++;
+					}
+				}
+			});
+		synchronized (mSync) {
+			// 既に応答が返ってきている時はセットしない
+			if (mRunning && (mSent - mAcked - mFailed > 0)) {
+				mInFlight = call;
+			}
+		}
+		return true;
+	}
+
+	private void scheduleLocked() {
+		mTimeout = mTimer.newTimeout(mCheckTask,
+			Math.max(1, mIntervalMs / CHECKS_PER_INTERVAL), TimeUnit.MILLISECONDS);
+	}
+
+	private final Runnable mCheckTask = new Runnable() {
+		@Override
+		public void run() {
+			check();
+			synchronized (mSync) {
+				if (mRunning) {
+					scheduleLocked();
+				}
+			}
+		}
+	};
+
+	private final JanusTransport.ActivityListener mActivityListener
+		= new JanusTransport.ActivityListener() {
+		@Override
+		public void onActivity() {
+			KeepAliveScheduler.this.onActivity();
+		}
+	};
+}
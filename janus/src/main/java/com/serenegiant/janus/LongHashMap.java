@@ -0,0 +1,231 @@
+package com.serenegiant.janus;
+/*
+ * JanusRTCAndroid
+ * Video chat sample app using videoroom plugin on janus-gateway server and WebRTC.
+ *
+ * Copyright (c) 2018 saki t_saki@serenegiant.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+*/
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * open addressing(linear probing) hash map with primitive long key
+ * キーのボクシングやエントリーオブジェクトの生成をしないので
+ * イベント受信毎のsenderからのプラグイン検索でアロケーションが発生しない
+ * JanusId.NONE(0)は空きスロットを示すのでキーとして使えない
+ * スレッドセーフではないので必要なら呼び出し側で同期すること
+ * @param <V>
+ */
+/*package*/ class LongHashMap<V> {
+	private static final int DEFAULT_CAPACITY = 16;
+
+	private long[] mKeys;
+	private Object[] mValues;
+	private int mSize;
+	/** mKeys.length - 1, capacity is always power of 2 */
+	private int mMask;
+
+	/**
+	 * コンストラクタ
+	 */
+	public LongHashMap() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * コンストラクタ
+	 * @param expectedSize
+	 */
+	public LongHashMap(final int expectedSize) {
+		allocate(capacityFor(expectedSize));
+	}
+
+	public int size() {
+		return mSize;
+	}
+
+	public boolean isEmpty() {
+		return mSize == 0;
+	}
+
+	public boolean containsKey(final long key) {
+		return indexOf(key) >= 0;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Nullable
+	public V get(final long key) {
+		if (key == JanusId.NONE) {
+			return null;
+		}
+		for (int i = JanusId.hash(key) & mMask; ; i = (i + 1) & mMask) {
+			final long k = mKeys[i];
+			if (k == key) {
+				return (V)mValues[i];
+			} else if (k == JanusId.NONE) {
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * @param key
+	 * @param value
+	 * @return previous value or null
+	 * @throws IllegalArgumentException key is JanusId.NONE
+	 */
+	@SuppressWarnings("unchecked")
+	@Nullable
+	public V put(final long key, @NonNull final V value) {
+		if (key == JanusId.NONE) {
+			throw new IllegalArgumentException("JanusId.NONE can not be a key");
+		}
+		for (int i = JanusId.hash(key) & mMask; ; i = (i + 1) & mMask) {
+			final long k = mKeys[i];
+			if (k == key) {
+				final V prev = (V)mValues[i];
+				mValues[i] = value;
+				return prev;
+			} else if (k == JanusId.NONE) {
+				mKeys[i] = key;
+				mValues[i] = value;
+				if (++mSize > (mKeys.length >> 1)) {
+					// load factor 0.5
+					rehash(mKeys.length << 1);
+				}
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * @param key
+	 * @return removed value or null
+	 */
+	@SuppressWarnings("unchecked")
+	@Nullable
+	public V remove(final long key) {
+		final int index = indexOf(key);
+		if (index < 0) {
+			return null;
+		}
+		final V result = (V)mValues[index];
+		// tombstoneを使わずに後続のエントリーを詰める(backward shift deletion)
+		int hole = index;
+		for (int i = (index + 1) & mMask; mKeys[i] != JanusId.NONE; i = (i + 1) & mMask) {
+			final int home = JanusId.hash(mKeys[i]) & mMask;
+			// homeがholeとiの間(循環)に無ければholeへ移動できる
+			if (((i - home) & mMask) >= ((i - hole) & mMask)) {
+				mKeys[hole] = mKeys[i];
+				mValues[hole] = mValues[i];
+				hole = i;
+			}
+		}
+		mKeys[hole] = JanusId.NONE;
+		mValues[hole] = null;
+		mSize--;
+		return result;
+	}
+
+	public void clear() {
+		Arrays.fill(mKeys, JanusId.NONE);
+		Arrays.fill(mValues, null);
+		mSize = 0;
+	}
+
+	/**
+	 * @return copy of values
+	 */
+	@SuppressWarnings("unchecked")
+	@NonNull
+	public List<V> values() {
+		final List<V> result = new ArrayList<>(mSize);
+		final int n = mKeys.length;
+		for (int i = 0; i < n; i++) {
+			if (mKeys[i] != JanusId.NONE) {
+				result.add((V)mValues[i]);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return copy of keys
+	 */
+	@NonNull
+	public long[] keys() {
+		final long[] result = new long[mSize];
+		final int n = mKeys.length;
+		int j = 0;
+		for (int i = 0; i < n; i++) {
+			if (mKeys[i] != JanusId.NONE) {
+				result[j++] = mKeys[i];
+			}
+		}
+		return result;
+	}
+
+	private int indexOf(final long key) {
+		if (key == JanusId.NONE) {
+			return -1;
+		}
+		for (int i = JanusId.hash(key) & mMask; ; i = (i + 1) & mMask) {
+			final long k = mKeys[i];
+			if (k == key) {
+				return i;
+			} else if (k == JanusId.NONE) {
+				return -1;
+			}
+		}
+	}
+
+	private void allocate(final int capacity) {
+		mKeys = new long[capacity];
+		mValues = new Object[capacity];
+		mMask = capacity - 1;
+	}
+
+	private void rehash(final int capacity) {
+		final long[] keys = mKeys;
+		final Object[] values = mValues;
+		allocate(capacity);
+		final int n = keys.length;
+		for (int i = 0; i < n; i++) {
+			final long key = keys[i];
+			if (key != JanusId.NONE) {
+				int j = JanusId.hash(key) & mMask;
+				while (mKeys[j] != JanusId.NONE) {
+					j = (j + 1) & mMask;
+				}
+				mKeys[j] = key;
+				mValues[j] = values[i];
+			}
+		}
+	}
+
+	private static int capacityFor(final int expectedSize) {
+		int capacity = DEFAULT_CAPACITY;
+		while (capacity < expectedSize * 2) {
+			capacity <<= 1;
+		}
+		return capacity;
+	}
+}
@@ -27,6 +27,7 @@ import okhttp3.ResponseBody;
 import retrofit2.Call;
 import retrofit2.http.GET;
 import retrofit2.http.Path;
+import retrofit2.http.Query;
 
 /**
  * API interface of janus-gateway for long poll over http/https
@@ -37,6 +38,20 @@ public interface LongPoll {
 		@Path("api") final String api,
 		@Path("session_id") final BigInteger sessionId);
 
+	/**
+	 * get events with a single long poll request
+	 * janus-gateway returns JSON array of events when maxev is specified
+	 * @param api
+	 * @param sessionId
+	 * @param maxev maximum number of events that can be returned at once
+	 * @return
+	 */
+	@GET("{api}/{session_id}")
+	public Call<ResponseBody> getEvent(
+		@Path("api") final String api,
+		@Path("session_id") final BigInteger sessionId,
+		@Query("maxev") final int maxev);
+
 	@GET("{api}/{session_id}")
 	public Call<EventRoom> getRoomEvent(
 		@Path("api") final String api,
@@ -0,0 +1,338 @@
+package com.serenegiant.janus;
+/*
+ * JanusRTCAndroid
+ * Video chat sample app using videoroom plugin on janus-gateway server and WebRTC.
+ *
+ * Copyright (c) 2018 saki t_saki@serenegiant.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+*/
+
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.serenegiant.janus.response.PublisherInfo;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * id-indexed registry of remote publishers in the room
+ * janus-gatewayからのjoined/leaving/unpublished/talkingイベントを差分として適用し
+ * 変更毎に単調増加するversionを振る
+ * UIやsubscribe処理は不変なスナップショットか指定したversion以降の変更だけを受け取れるので
+ * イベント毎に一覧全体をコピーする必要がない
+ * 全てのメソッドはスレッドセーフ
+ */
+public class ParticipantRegistry {
+	/**
+	 * default number of changes that are kept for #getChangesSince
+	 */
+	public static final int DEFAULT_MAX_HISTORY = 4096;
+
+	public enum ChangeType {
+		/** new publisher joined(started publishing) */
+		JOINED,
+		/** publisher left the room */
+		LEFT,
+		/** publisher stopped publishing */
+		UNPUBLISHED,
+		/** talking state of publisher changed */
+		TALKING,
+	}
+
+	/**
+	 * one incremental update
+	 */
+	public static class Change {
+		/** version of the registry after this change */
+		public final long version;
+		@NonNull
+		public final ChangeType type;
+		public final long id;
+		/** PublisherInfo after this change, removed one for LEFT/UNPUBLISHED */
+		@NonNull
+		public final PublisherInfo info;
+
+		private Change(final long version, @NonNull final ChangeType type,
+			@NonNull final PublisherInfo info) {
+
+			this.version = version;
+			this.type = type;
+			this.id = info.id;
+			this.info = info;
+		}
+
+		@Override
+		public String toString() {
+			return "Change{" +
+				"version=" + version +
+				", type=" + type +
+				", id=" + JanusId.toString(id) +
+				'}';
+		}
+	}
+
+	/**
+	 * immutable list of publishers at the version
+	 */
+	public static class Snapshot {
+		public final long version;
+		/** publishers in the order they joined, unmodifiable */
+		@NonNull
+		public final List<PublisherInfo> publishers;
+
+		private Snapshot(final long version, @NonNull final List<PublisherInfo> publishers) {
+			this.version = version;
+			this.publishers = Collections.unmodifiableList(publishers);
+		}
+	}
+
+	/**
+	 * changes between two versions
+	 */
+	public static class ChangeSet {
+		public final long fromVersion;
+		public final long toVersion;
+		/** changes in the order they were applied, unmodifiable */
+		@NonNull
+		public final List<Change> changes;
+		/**
+		 * false if some changes after fromVersion were already discarded from the history,
+		 * the caller should take a snapshot instead
+		 */
+		public final boolean complete;
+
+		private ChangeSet(final long fromVersion, final long toVersion,
+			@NonNull final List<Change> changes, final boolean complete) {
+
+			this.fromVersion = fromVersion;
+			this.toVersion = toVersion;
+			this.changes = Collections.unmodifiableList(changes);
+			this.complete = complete;
+		}
+
+		public boolean isEmpty() {
+			return changes.isEmpty();
+		}
+	}
+
+	private static class Entry {
+		@NonNull
+		private final PublisherInfo info;
+		/** order of joined, used to keep the order of snapshot */
+		private final long seq;
+
+		private Entry(@NonNull final PublisherInfo info, final long seq) {
+			this.info = info;
+			this.seq = seq;
+		}
+	}
+
+	private static final Comparator<Entry> JOIN_ORDER = new Comparator<Entry>() {
+		@Override
+		public int compare(final Entry o1, final Entry o2) {
+			return Long.compare(o1.seq, o2.seq);
+		}
+	};
+
+	private final int mMaxHistory;
+	private final LongHashMap<Entry> mEntries = new LongHashMap<>();
+	private final ArrayDeque<Change> mHistory = new ArrayDeque<>();
+	private long mVersion;
+	private long mSeq;
+	/**
+	 * cache of the latest snapshot, null if changed after it was created
+	 */
+	@Nullable
+	private Snapshot mSnapshot;
+
+	/**
+	 * コンストラクタ
+	 */
+	public ParticipantRegistry() {
+		this(DEFAULT_MAX_HISTORY);
+	}
+
+	/**
+	 * コンストラクタ
+	 * @param maxHistory number of changes that are kept for #getChangesSince
+	 */
+	public ParticipantRegistry(final int maxHistory) {
+		mMaxHistory = Math.max(maxHistory, 1);
+	}
+
+	/**
+	 * add publishers that are not registered yet
+	 * janus-gatewayはjoined/eventのpublishersで新しいPublisherだけでなく
+	 * 既に通知したPublisherも送ってくることがあるので登録済みのものは無視する
+	 * @param publishers
+	 * @return publishers that were newly added
+	 */
+	@NonNull
+	public synchronized List<PublisherInfo> join(@Nullable final PublisherInfo[] publishers) {
+		if ((publishers == null) || (publishers.length == 0)) {
+			return Collections.emptyList();
+		}
+		final List<PublisherInfo> result = new ArrayList<>();
+		for (final PublisherInfo info: publishers) {
+			if ((info != null) && (info.id != JanusId.NONE)
+				&& !mEntries.containsKey(info.id)) {
+
+				mEntries.put(info.id, new Entry(info, ++mSeq));
+				addChange(ChangeType.JOINED, info);
+				result.add(info);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * remove publisher that left the room
+	 * @param id
+	 * @return true if the publisher was registered
+	 */
+	public synchronized boolean leave(final long id) {
+		return remove(id, ChangeType.LEFT);
+	}
+
+	/**
+	 * remove publisher that stopped publishing
+	 * @param id
+	 * @return true if the publisher was registered
+	 */
+	public synchronized boolean unpublish(final long id) {
+		return remove(id, ChangeType.UNPUBLISHED);
+	}
+
+	/**
+	 * update talking state of the publisher
+	 * スナップショットで渡したPublisherInfoは変更せずに新しいPublisherInfoと入れ替える
+	 * @param id
+	 * @param talking
+	 * @return true if the state was changed
+	 */
+	public synchronized boolean setTalking(final long id, final boolean talking) {
+		final Entry entry = mEntries.get(id);
+		if ((entry == null) || (entry.info.talking == talking)) {
+			return false;
+		}
+		final PublisherInfo info = new PublisherInfo(entry.info.id, entry.info.display,
+			entry.info.audio_codec, entry.info.video_codec, talking);
+		mEntries.put(id, new Entry(info, entry.seq));
+		addChange(ChangeType.TALKING, info);
+		return true;
+	}
+
+	/**
+	 * @param id
+	 * @return registered PublisherInfo or null
+	 */
+	@Nullable
+	public synchronized PublisherInfo get(final long id) {
+		final Entry entry = mEntries.get(id);
+		return entry != null ? entry.info : null;
+	}
+
+	public synchronized boolean contains(final long id) {
+		return mEntries.containsKey(id);
+	}
+
+	public synchronized int size() {
+		return mEntries.size();
+	}
+
+	/**
+	 * @return current version, incremented on every change
+	 */
+	public synchronized long getVersion() {
+		return mVersion;
+	}
+
+	/**
+	 * get immutable snapshot of current publishers,
+	 * the same instance is returned until the registry is changed
+	 * @return
+	 */
+	@NonNull
+	public synchronized Snapshot getSnapshot() {
+		if (mSnapshot == null) {
+			final List<Entry> entries = mEntries.values();
+			Collections.sort(entries, JOIN_ORDER);
+			final List<PublisherInfo> publishers = new ArrayList<>(entries.size());
+			for (final Entry entry: entries) {
+				publishers.add(entry.info);
+			}
+			mSnapshot = new Snapshot(mVersion, publishers);
+		}
+		return mSnapshot;
+	}
+
+	/**
+	 * get changes that were applied after the version
+	 * @param version version that the caller already has
+	 * @return
+	 */
+	@NonNull
+	public synchronized ChangeSet getChangesSince(final long version) {
+		final List<Change> changes = new ArrayList<>();
+		if (version >= mVersion) {
+			return new ChangeSet(version, mVersion, changes, true);
+		}
+		final Change oldest = mHistory.peekFirst();
+		// 履歴に残っているのはoldest.version以降なのでその直前までを持っていれば差分で追いつける
+		final boolean complete = (oldest != null) && (oldest.version <= version + 1);
+		final Iterator<Change> itr = mHistory.descendingIterator();
+		while (itr.hasNext()) {
+			final Change change = itr.next();
+			if (change.version <= version) {
+				break;
+			}
+			changes.add(change);
+		}
+		Collections.reverse(changes);
+		return new ChangeSet(version, mVersion, changes, complete);
+	}
+
+	/**
+	 * remove all publishers, this is also recorded as LEFT
+	 */
+	public synchronized void clear() {
+		for (final Entry entry: mEntries.values()) {
+			remove(entry.info.id, ChangeType.LEFT);
+		}
+	}
+
+	private boolean remove(final long id, @NonNull final ChangeType type) {
+		final Entry entry = mEntries.remove(id);
+		if (entry != null) {
+			addChange(type, entry.info);
+			return true;
+		}
+		return false;
+	}
+
+	private void addChange(@NonNull final ChangeType type, @NonNull final PublisherInfo info) {
+		mSnapshot = null;
+		mHistory.addLast(new Change(++mVersion, type, info));
+		while (mHistory.size() > mMaxHistory) {
+			mHistory.removeFirst();
+		}
+	}
+}
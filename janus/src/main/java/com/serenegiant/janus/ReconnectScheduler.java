@@ -0,0 +1,237 @@
+package com.serenegiant.janus;
+/*
+ * JanusRTCAndroid
+ * Video chat sample app using videoroom plugin on janus-gateway server and WebRTC.
+ *
+ * Copyright (c) 2018 saki t_saki@serenegiant.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+*/
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * long pollが失敗した時の再接続スケジューラー
+ * 連続して失敗するごとに待ち時間を指数関数的に延ばし(上限あり)、
+ * ジッターを加えて複数クライアントが同時に再接続しないようにする。
+ * 連続失敗回数がしきい値に達するとサーキットブレーカーを開いて
+ * 一定時間再接続を止め、その後1回だけ試行(HALF_OPEN)する。
+ * 成功すると失敗回数をリセットしてCONNECTEDに戻る
+ */
+public class ReconnectScheduler {
+	private static final boolean DEBUG = false;	// set false on production
+	private static final String TAG = ReconnectScheduler.class.getSimpleName();
+
+	public enum State {
+		/** 正常に通信できている */
+		CONNECTED,
+		/** 失敗したので待機してから再接続する */
+		BACKOFF,
+		/** 連続失敗回数が上限に達したので再接続を一時停止中 */
+		CIRCUIT_OPEN,
+		/** CIRCUIT_OPENの待機が終わって試験的に再接続中 */
+		HALF_OPEN,
+	}
+
+	/**
+	 * callback listener of state transitions
+	 */
+	public interface Listener {
+		/**
+		 * @param state new state
+		 * @param failureCount number of consecutive failures
+		 * @param delayMs delay until next retry[ミリ秒], 0 when CONNECTED/HALF_OPEN
+		 */
+		public void onStateChanged(@NonNull final State state,
+			final int failureCount, final long delayMs);
+	}
+
+	/** 最初の再接続までの待ち時間[ミリ秒] */
+	public static final long DEFAULT_BASE_DELAY_MS = 500;
+	/** 再接続までの最大待ち時間[ミリ秒] */
+	public static final long DEFAULT_MAX_DELAY_MS = 30000;
+	/** サーキットブレーカーを開く連続失敗回数 */
+	public static final int DEFAULT_FAILURE_THRESHOLD = 8;
+	/** サーキットブレーカーを開いている時間[ミリ秒] */
+	public static final long DEFAULT_OPEN_DURATION_MS = 60000;
+
+	private final long mBaseDelayMs;
+	private final long mMaxDelayMs;
+	private final int mFailureThreshold;
+	private final long mOpenDurationMs;
+	@NonNull
+	private final Random mRandom;
+	@NonNull
+	private final ScheduledExecutorService mScheduler;
+	@Nullable
+	private Listener mListener;
+	@NonNull
+	private State mState = State.CONNECTED;
+	private int mFailureCount;
+
+	/**
+	 * コンストラクタ
+	 * デフォルト設定を使う
+	 */
+	public ReconnectScheduler() {
+		this(DEFAULT_BASE_DELAY_MS, DEFAULT_MAX_DELAY_MS,
+			DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_DURATION_MS, new Random());
+	}
+
+	/**
+	 * コンストラクタ
+	 * @param baseDelayMs delay of first retry[ミリ秒]
+	 * @param maxDelayMs upper limit of delay[ミリ秒]
+	 * @param failureThreshold number of consecutive failures to open the circuit
+	 * @param openDurationMs period to keep the circuit open[ミリ秒]
+	 * @param random random generator for jitter
+	 */
+	public ReconnectScheduler(final long baseDelayMs, final long maxDelayMs,
+		final int failureThreshold, final long openDurationMs,
+		@NonNull final Random random) {
+
+		mBaseDelayMs = baseDelayMs;
+		mMaxDelayMs = maxDelayMs;
+		mFailureThreshold = failureThreshold;
+		mOpenDurationMs = openDurationMs;
+		mRandom = random;
+		mScheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(@NonNull final Runnable r) {
+				final Thread t = new Thread(r, TAG);
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	public synchronized void setListener(@Nullable final Listener listener) {
+		mListener = listener;
+	}
+
+	@NonNull
+	public synchronized State getState() {
+		return mState;
+	}
+
+	public synchronized int getFailureCount() {
+		return mFailureCount;
+	}
+
+	/**
+	 * call when request succeeded, reset failure count and close the circuit
+	 */
+	public void onSuccess() {
+		final Listener listener;
+		synchronized (this) {
+			mFailureCount = 0;
+			if (mState == State.CONNECTED) return;
+			mState = State.CONNECTED;
+			listener = mListener;
+		}
+		if (DEBUG) Log.v(TAG, "onSuccess:reset");
+		if (listener != null) {
+			listener.onStateChanged(State.CONNECTED, 0, 0);
+		}
+	}
+
+	/**
+	 * call when request failed, run retry task after backoff delay
+	 * @param retry
+	 * @return delay until retry task runs[ミリ秒]
+	 */
+	public long onFailure(@NonNull final Runnable retry) {
+		final Listener listener;
+		final State state;
+		final int failureCount;
+		final long delayMs;
+		synchronized (this) {
+			failureCount = ++mFailureCount;
+			if ((mState == State.HALF_OPEN) || (failureCount >= mFailureThreshold)) {
+				mState = State.CIRCUIT_OPEN;
+				delayMs = mOpenDurationMs;
+			} else {
+				mState = State.BACKOFF;
+				delayMs = nextDelayMs(failureCount);
+			}
+			state = mState;
+			listener = mListener;
+		}
+		if (DEBUG) Log.v(TAG, "onFailure:state=" + state
+			+ ",failures=" + failureCount + ",delay=" + delayMs);
+		if (listener != null) {
+			listener.onStateChanged(state, failureCount, delayMs);
+		}
+		try {
+			mScheduler.schedule(new Runnable() {
+				@Override
+				public void run() {
+					if (state == State.CIRCUIT_OPEN) {
+						halfOpen();
+					}
+					retry.run();
+				}
+			}, delayMs, TimeUnit.MILLISECONDS);
+		} catch (final RejectedExecutionException e) {
+			// ignore, already released
+		}
+		return delayMs;
+	}
+
+	/**
+	 * cancel pending retry and release related resources
+	 */
+	public void release() {
+		synchronized (this) {
+			mListener = null;
+		}
+		mScheduler.shutdownNow();
+	}
+
+	/**
+	 * calculate backoff delay with jitter,
+	 * half of the exponential delay is fixed and other half is random(equal jitter)
+	 * @param failureCount
+	 * @return
+	 */
+	/*package*/ long nextDelayMs(final int failureCount) {
+		final int shift = Math.min(failureCount - 1, 30);
+		final long exp = Math.min(mMaxDelayMs, mBaseDelayMs << shift);
+		final long half = exp / 2;
+		return half + (long)(mRandom.nextDouble() * (exp - half));
+	}
+
+	private void halfOpen() {
+		final Listener listener;
+		final int failureCount;
+		synchronized (this) {
+			if (mState != State.CIRCUIT_OPEN) return;
+			mState = State.HALF_OPEN;
+			failureCount = mFailureCount;
+			listener = mListener;
+		}
+		if (listener != null) {
+			listener.onStateChanged(State.HALF_OPEN, failureCount, 0);
+		}
+	}
+}
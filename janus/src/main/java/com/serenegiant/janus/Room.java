@@ -27,22 +27,18 @@ import com.serenegiant.janus.response.PublisherInfo;
 import com.serenegiant.janus.response.Session;
 
 import java.math.BigInteger;
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
 public class Room {
 	/**
 	 * セッションId
 	 */
-	@NonNull
-	public final BigInteger sessionId;
+	public final long sessionId;
 
 	/**
 	 * プラグインId
 	 */
-	@NonNull
-	public final BigInteger pluginId;
+	public final long pluginId;
 	
 	/**
 	 * 接続状態
@@ -54,13 +50,13 @@ public class Room {
 	 * EventRoom.plugindata.data.idの値
 	 * publisherとしての自id
 	 */
-	public BigInteger publisherId;
+	public long publisherId;
 	
 	/**
-	 * holds list of connected remote publisher
+	 * holds connected remote publishers
 	 */
-	private final List<PublisherInfo> publishers
-		= new ArrayList<>();
+	@NonNull
+	private final ParticipantRegistry mParticipants = new ParticipantRegistry();
 	
 	/**
 	 * Constructor
@@ -73,13 +69,22 @@ public class Room {
 	}
 	
 	/**
-	 * 現在保持しているPublisherInfoリストのコピーを返す
-	 * @return
+	 * 現在のPublisherの一覧を返す
+	 * 変更が無ければ同じインスタンスを返すので呼び出す毎のコピーは発生しない
+	 * @return unmodifiable list
 	 */
+	@NonNull
 	public List<PublisherInfo> getPublishers() {
-		synchronized (this.publishers) {
-			return new ArrayList<>(this.publishers);
-		}
+		return mParticipants.getSnapshot().publishers;
+	}
+
+	/**
+	 * registry of remote publishers to get versioned snapshots/changes
+	 * @return
+	 */
+	@NonNull
+	public ParticipantRegistry getParticipants() {
+		return mParticipants;
 	}
 
 	/**
@@ -91,70 +96,62 @@ public class Room {
 	public List<PublisherInfo> updatePublishers(
 		@Nullable final PublisherInfo[] newPublishers) {
 
-		final List<PublisherInfo> result = new ArrayList<>();
-		if (newPublishers != null) {
-			final List<PublisherInfo> newList = Arrays.asList(newPublishers);
-			result.addAll(newList);
-			
-			synchronized (this.publishers) {
-				// 既にRoomに登録されているPublisherを除く=未登録分
-				result.removeAll(this.publishers);
-			}
-		}
-		return result;
+		return mParticipants.join(newPublishers);
 	}
 	
 	/**
 	 * 指定したidのPublisherを一覧から取り除く
 	 * @param id
-	 * @return
+	 * @return true if the publisher was removed
 	 */
-	@NonNull
-	public List<PublisherInfo> removePublisher(
-		@NonNull final BigInteger id) {
-		
-		synchronized (this.publishers) {
-			PublisherInfo found = null;
-			for (PublisherInfo info: publishers) {
-				if (id.equals(info.id)) {
-					found = info;
-					break;
-				}
-			}
-			if (found != null) {
-				publishers.remove(found);
-			}
-			return new ArrayList<>(this.publishers);
-		}
+	public boolean removePublisher(final long id) {
+		return mParticipants.leave(id);
 	}
 	
+	/**
+	 * 指定したidのPublisherを一覧から取り除く
+	 * for compatibility with BigInteger ids
+	 * @param id
+	 * @return true if the publisher was removed
+	 */
+	public boolean removePublisher(@NonNull final BigInteger id) {
+		return removePublisher(JanusId.valueOf(id));
+	}
+
+	/**
+	 * 指定したidのPublisherが配信を停止したので一覧から取り除く
+	 * 再度配信を開始した時は新しいPublisherとして通知される
+	 * @param id
+	 * @return true if the publisher was removed
+	 */
+	public boolean unpublishPublisher(final long id) {
+		return mParticipants.unpublish(id);
+	}
+
 	/**
 	 * 指定したidのPublisherが存在すればそのtalkingフラグを更新する
 	 * @param id
 	 * @param talking
 	 */
-	public void updatePublisher(@NonNull final BigInteger id, final boolean talking) {
-		synchronized (this.publishers) {
-			PublisherInfo found = null;
-			for (PublisherInfo info: publishers) {
-				if (id.equals(info.id)) {
-					found = info;
-					break;
-				}
-			}
-			if (found != null) {
-				found.talking = talking;
-			}
-		}
+	public void updatePublisher(final long id, final boolean talking) {
+		mParticipants.setTalking(id, talking);
 	}
 	
+	/**
+	 * 指定したidのPublisherが存在すればそのtalkingフラグを更新する
+	 * for compatibility with BigInteger ids
+	 * @param id
+	 * @param talking
+	 */
+	public void updatePublisher(@NonNull final BigInteger id, final boolean talking) {
+		updatePublisher(JanusId.valueOf(id), talking);
+	}
+
 	/**
 	 * このRoomインスタンスが保持しているPublisherの数を返す
 	 * @return
 	 */
 	public int getNumPublishers() {
-		synchronized (this.publishers) {
-			return this.publishers.size();
-		}
+		return mParticipants.size();
 	}
 }
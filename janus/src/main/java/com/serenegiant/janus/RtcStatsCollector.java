@@ -0,0 +1,190 @@
+package com.serenegiant.janus;
+/*
+ * JanusRTCAndroid
+ * Video chat sample app using videoroom plugin on janus-gateway server and WebRTC.
+ *
+ * Copyright (c) 2018 saki t_saki@serenegiant.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+*/
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.Map;
+
+/**
+ * keeps RtcStatsHistory of each PeerConnection and calculates RtcStatsDelta.
+ * one round of polling is #beginRound and (#begin, #add..., #end) for each PeerConnection,
+ * reports arrive asynchronously so histories that were not updated in the previous round
+ * (detached plugins) are removed at the next #beginRound.
+ * not thread safe, accessed only on the stats lane
+ */
+/*package*/ class RtcStatsCollector {
+	/**
+	 * default number of snapshots kept for each PeerConnection
+	 */
+	public static final int DEFAULT_HISTORY_SIZE = 30;
+
+	private final int mHistorySize;
+	@NonNull
+	private final LongHashMap<RtcStatsHistory> mHistories = new LongHashMap<>();
+	private long mRound;
+
+	public RtcStatsCollector() {
+		this(DEFAULT_HISTORY_SIZE);
+	}
+
+	/**
+	 * コンストラクタ
+	 * @param historySize number of snapshots kept for each PeerConnection, at least 2
+	 */
+	public RtcStatsCollector(final int historySize) {
+		mHistorySize = historySize;
+	}
+
+	/**
+	 * start polling round, histories not updated in the previous round are removed
+	 */
+	public void beginRound() {
+		for (final long key: mHistories.keys()) {
+			final RtcStatsHistory history = mHistories.get(key);
+			if ((history != null) && (history.round != mRound)) {
+				mHistories.remove(key);
+			}
+		}
+		mRound++;
+	}
+
+	/**
+	 * start a snapshot of the PeerConnection
+	 * @param key plugin id
+	 * @param timestampUs timestamp of RTCStatsReport[マイクロ秒]
+	 * @return snapshot to fill with #add
+	 */
+	@NonNull
+	public RtcStatsSnapshot begin(final long key, final long timestampUs) {
+		RtcStatsHistory history = mHistories.get(key);
+		if (history == null) {
+			history = new RtcStatsHistory(mHistorySize);
+			mHistories.put(key, history);
+		}
+		history.round = mRound;
+		return history.obtain(timestampUs);
+	}
+
+	/**
+	 * add one RTCStats to the snapshot
+	 * @param snapshot
+	 * @param type
+	 * @param members
+	 */
+	public void add(@NonNull final RtcStatsSnapshot snapshot,
+		@NonNull final String type, @NonNull final Map<String, Object> members) {
+
+		snapshot.add(type, members);
+	}
+
+	/**
+	 * commit the snapshot of the PeerConnection and calculate rates
+	 * against the previous one
+	 * @param key plugin id
+	 * @param feedId
+	 * @param publisher
+	 * @return null if this is the first snapshot or timestamps are not increasing
+	 */
+	@Nullable
+	public RtcStatsDelta end(final long key, final long feedId, final boolean publisher) {
+		final RtcStatsHistory history = mHistories.get(key);
+		if (history == null) {
+			return null;
+		}
+		history.commit();
+		final RtcStatsSnapshot current = history.get(0);
+		final RtcStatsSnapshot previous = history.get(1);
+		return (current != null) && (previous != null)
+			? delta(key, feedId, publisher, current, previous) : null;
+	}
+
+	@Nullable
+	public RtcStatsHistory getHistory(final long key) {
+		return mHistories.get(key);
+	}
+
+	public void clear() {
+		mHistories.clear();
+	}
+
+	@Nullable
+	/*package*/ static RtcStatsDelta delta(final long key, final long feedId, final boolean publisher,
+		@NonNull final RtcStatsSnapshot current, @NonNull final RtcStatsSnapshot previous) {
+
+		final long intervalUs = current.timestampUs - previous.timestampUs;
+		if (intervalUs <= 0) {
+			return null;
+		}
+		long sendBytes = 0, sendVideoBytes = 0;
+		long maxSendFrames = 0;
+		final int numOutbound = current.getOutboundCount();
+		for (int i = 0; i < numOutbound; i++) {
+			final RtcStatsSnapshot.RtpStats stats = current.getOutbound(i);
+			final RtcStatsSnapshot.RtpStats prev = previous.find(stats.ssrc, true);
+			if (prev != null) {
+				final long bytes = nonNegative(stats.bytes - prev.bytes);
+				sendBytes += bytes;
+				if (stats.isVideo()) {
+					sendVideoBytes += bytes;
+					maxSendFrames = Math.max(maxSendFrames, nonNegative(stats.frames - prev.frames));
+				}
+			}
+		}
+		long recvBytes = 0, recvVideoBytes = 0;
+		long maxRecvFrames = 0;
+		long received = 0, lost = 0;
+		final int numInbound = current.getInboundCount();
+		for (int i = 0; i < numInbound; i++) {
+			final RtcStatsSnapshot.RtpStats stats = current.getInbound(i);
+			final RtcStatsSnapshot.RtpStats prev = previous.find(stats.ssrc, false);
+			if (prev != null) {
+				final long bytes = nonNegative(stats.bytes - prev.bytes);
+				recvBytes += bytes;
+				received += nonNegative(stats.packets - prev.packets);
+				lost += nonNegative(stats.packetsLost - prev.packetsLost);
+				if (stats.isVideo()) {
+					recvVideoBytes += bytes;
+					maxRecvFrames = Math.max(maxRecvFrames, nonNegative(stats.frames - prev.frames));
+				}
+			}
+		}
+		final RtcStatsSnapshot.CandidatePairStats pair = current.getCandidatePair();
+		final double seconds = intervalUs / 1e6;
+		return new RtcStatsDelta(key, feedId, publisher,
+			current.timestampUs / 1000, intervalUs / 1000,
+			Math.round(sendBytes * 8 / seconds), Math.round(sendVideoBytes * 8 / seconds),
+			maxSendFrames / seconds,
+			Math.round(recvBytes * 8 / seconds), Math.round(recvVideoBytes * 8 / seconds),
+			maxRecvFrames / seconds,
+			(received + lost) > 0 ? lost / (double)(received + lost) : 0,
+			pair != null ? Math.round(pair.availableOutgoingBitrate) : 0,
+			pair != null ? Math.round(pair.availableIncomingBitrate) : 0,
+			pair != null ? pair.currentRoundTripTime * 1000 : 0);
+	}
+
+	/**
+	 * counters are reset when the stream is recreated
+	 */
+	private static long nonNegative(final long value) {
+		return value > 0 ? value : 0;
+	}
+}
@@ -0,0 +1,101 @@
+package com.serenegiant.janus;
+/*
+ * JanusRTCAndroid
+ * Video chat sample app using videoroom plugin on janus-gateway server and WebRTC.
+ *
+ * Copyright (c) 2018 saki t_saki@serenegiant.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+*/
+
+/**
+ * rates of one PeerConnection calculated from the latest two RtcStatsSnapshots,
+ * delivered through JanusCallback#onStatsReady
+ */
+public class RtcStatsDelta {
+	/** plugin(handle) id of the PeerConnection */
+	public final long pluginId;
+	/** feed id of the subscriber, JanusId.NONE for the publisher and multistream subscriber */
+	public final long feedId;
+	public final boolean publisher;
+	/** timestamp of the latest RTCStatsReport[ミリ秒] */
+	public final long timestampMs;
+	/** interval between the two RTCStatsReports[ミリ秒] */
+	public final long intervalMs;
+	/** audio + video[bps] */
+	public final long sendBitrate;
+	/** [bps] */
+	public final long sendVideoBitrate;
+	/** frames encoded per second, the highest one of video streams(simulcast) */
+	public final double sendFps;
+	/** audio + video[bps] */
+	public final long recvBitrate;
+	/** [bps] */
+	public final long recvVideoBitrate;
+	/** frames decoded per second, the highest one of video streams */
+	public final double recvFps;
+	/** lost packets / expected packets of inbound streams in the interval[0-1] */
+	public final double recvPacketLossRate;
+	/** bandwidth estimation of the selected candidate pair[bps], 0 if unknown */
+	public final long availableSendBitrate;
+	/** [bps], 0 if unknown */
+	public final long availableRecvBitrate;
+	/** [ミリ秒], 0 if unknown */
+	public final double rttMs;
+
+	/*package*/ RtcStatsDelta(final long pluginId, final long feedId, final boolean publisher,
+		final long timestampMs, final long intervalMs,
+		final long sendBitrate, final long sendVideoBitrate, final double sendFps,
+		final long recvBitrate, final long recvVideoBitrate, final double recvFps,
+		final double recvPacketLossRate,
+		final long availableSendBitrate, final long availableRecvBitrate,
+		final double rttMs) {
+
+		this.pluginId = pluginId;
+		this.feedId = feedId;
+		this.publisher = publisher;
+		this.timestampMs = timestampMs;
+		this.intervalMs = intervalMs;
+		this.sendBitrate = sendBitrate;
+		this.sendVideoBitrate = sendVideoBitrate;
+		this.sendFps = sendFps;
+		this.recvBitrate = recvBitrate;
+		this.recvVideoBitrate = recvVideoBitrate;
+		this.recvFps = recvFps;
+		this.recvPacketLossRate = recvPacketLossRate;
+		this.availableSendBitrate = availableSendBitrate;
+		this.availableRecvBitrate = availableRecvBitrate;
+		this.rttMs = rttMs;
+	}
+
+	@Override
+	public String toString() {
+		return "RtcStatsDelta{" +
+			"pluginId=" + pluginId +
+			", feedId=" + feedId +
+			", publisher=" + publisher +
+			", intervalMs=" + intervalMs +
+			", sendBitrate=" + sendBitrate +
+			", sendVideoBitrate=" + sendVideoBitrate +
+			", sendFps=" + sendFps +
+			", recvBitrate=" + recvBitrate +
+			", recvVideoBitrate=" + recvVideoBitrate +
+			", recvFps=" + recvFps +
+			", recvPacketLossRate=" + recvPacketLossRate +
+			", availableSendBitrate=" + availableSendBitrate +
+			", availableRecvBitrate=" + availableRecvBitrate +
+			", rttMs=" + rttMs +
+			'}';
+	}
+}
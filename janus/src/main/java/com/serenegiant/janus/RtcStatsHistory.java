@@ -0,0 +1,106 @@
+package com.serenegiant.janus;
+/*
+ * JanusRTCAndroid
+ * Video chat sample app using videoroom plugin on janus-gateway server and WebRTC.
+ *
+ * Copyright (c) 2018 saki t_saki@serenegiant.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+*/
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * fixed-size ring buffer of RtcStatsSnapshot of one PeerConnection,
+ * snapshots are allocated only once and overwritten from the oldest one
+ * not thread safe, accessed only on the stats lane
+ */
+public class RtcStatsHistory {
+	@NonNull
+	private final RtcStatsSnapshot[] mSnapshots;
+	/** index of the latest snapshot */
+	private int mHead = -1;
+	private int mSize;
+	/** true while the obtained slot is not committed yet */
+	private boolean mPending;
+	/** round of RtcStatsCollector that updated this history last */
+	/*package*/ long round;
+
+	/**
+	 * コンストラクタ
+	 * @param capacity number of snapshots to keep, at least 2 to calculate deltas
+	 * @throws IllegalArgumentException
+	 */
+	public RtcStatsHistory(final int capacity) {
+		if (capacity < 2) {
+			throw new IllegalArgumentException("capacity should be 2 or more:" + capacity);
+		}
+		mSnapshots = new RtcStatsSnapshot[capacity];
+		for (int i = 0; i < capacity; i++) {
+			mSnapshots[i] = new RtcStatsSnapshot();
+		}
+	}
+
+	public int capacity() {
+		return mSnapshots.length;
+	}
+
+	/**
+	 * @return number of committed snapshots
+	 */
+	public int size() {
+		return mSize;
+	}
+
+	/**
+	 * @param age 0: latest, 1: previous one...
+	 * @return null if the snapshot does not exist
+	 */
+	@Nullable
+	public RtcStatsSnapshot get(final int age) {
+		if ((age < 0) || (age >= mSize)) {
+			return null;
+		}
+		final int n = mSnapshots.length;
+		return mSnapshots[(mHead - age + n) % n];
+	}
+
+	/**
+	 * get the slot for next snapshot, the oldest snapshot is dropped when full
+	 * @param timestampUs
+	 * @return
+	 */
+	@NonNull
+	/*package*/ RtcStatsSnapshot obtain(final long timestampUs) {
+		if (!mPending && (mSize == mSnapshots.length)) {
+			mSize--;
+		}
+		mPending = true;
+		final RtcStatsSnapshot result = mSnapshots[(mHead + 1) % mSnapshots.length];
+		result.reset(timestampUs);
+		return result;
+	}
+
+	/**
+	 * make the snapshot obtained last the latest one
+	 */
+	/*package*/ void commit() {
+		if (mPending) {
+			mPending = false;
+			mHead = (mHead + 1) % mSnapshots.length;
+			mSize++;
+		}
+	}
+}
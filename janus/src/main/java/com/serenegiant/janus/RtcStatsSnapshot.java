@@ -0,0 +1,294 @@
+package com.serenegiant.janus;
+/*
+ * JanusRTCAndroid
+ * Video chat sample app using videoroom plugin on janus-gateway server and WebRTC.
+ *
+ * Copyright (c) 2018 saki t_saki@serenegiant.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+*/
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * typed stats of one PeerConnection at one time, parsed from RTCStatsReport
+ * (outbound-rtp, inbound-rtp and the selected candidate-pair).
+ * instances and their entries are reused by RtcStatsHistory
+ * so that stats polling does not allocate Map<String, String> every period
+ */
+public class RtcStatsSnapshot {
+
+	/**
+	 * outbound-rtp/inbound-rtp of one ssrc
+	 */
+	public static class RtpStats {
+		public long ssrc;
+		/** "audio" or "video" */
+		@Nullable
+		public String kind;
+		/** bytesSent or bytesReceived */
+		public long bytes;
+		/** packetsSent or packetsReceived */
+		public long packets;
+		/** inbound only */
+		public long packetsLost;
+		/** framesEncoded or framesDecoded */
+		public long frames;
+		/** inbound only[秒] */
+		public double jitter;
+		public long nackCount;
+		public long pliCount;
+
+		public boolean isVideo() {
+			return "video".equals(kind);
+		}
+
+		private void reset() {
+			ssrc = 0;
+			kind = null;
+			bytes = packets = packetsLost = frames = 0;
+			jitter = 0;
+			nackCount = pliCount = 0;
+		}
+
+		@Override
+		public String toString() {
+			return "RtpStats{" +
+				"ssrc=" + ssrc +
+				", kind=" + kind +
+				", bytes=" + bytes +
+				", packets=" + packets +
+				", packetsLost=" + packetsLost +
+				", frames=" + frames +
+				'}';
+		}
+	}
+
+	/**
+	 * nominated and succeeded candidate-pair, bandwidth estimation of the transport
+	 */
+	public static class CandidatePairStats {
+		/** [秒] */
+		public double currentRoundTripTime;
+		/** [bps] */
+		public double availableOutgoingBitrate;
+		/** [bps] */
+		public double availableIncomingBitrate;
+		public long bytesSent;
+		public long bytesReceived;
+
+		private void reset() {
+			currentRoundTripTime = 0;
+			availableOutgoingBitrate = availableIncomingBitrate = 0;
+			bytesSent = bytesReceived = 0;
+		}
+
+		@Override
+		public String toString() {
+			return "CandidatePairStats{" +
+				"rtt=" + currentRoundTripTime +
+				", availableOutgoingBitrate=" + availableOutgoingBitrate +
+				", availableIncomingBitrate=" + availableIncomingBitrate +
+				'}';
+		}
+	}
+
+	/** timestamp of RTCStatsReport[マイクロ秒] */
+	public long timestampUs;
+	private final List<RtpStats> mOutbound = new ArrayList<>();
+	private int mNumOutbound;
+	private final List<RtpStats> mInbound = new ArrayList<>();
+	private int mNumInbound;
+	private final CandidatePairStats mCandidatePair = new CandidatePairStats();
+	private boolean mHasCandidatePair;
+
+	/*package*/ RtcStatsSnapshot() {
+	}
+
+	public int getOutboundCount() {
+		return mNumOutbound;
+	}
+
+	@NonNull
+	public RtpStats getOutbound(final int index) {
+		if ((index < 0) || (index >= mNumOutbound)) {
+			throw new IndexOutOfBoundsException("index=" + index + ",size=" + mNumOutbound);
+		}
+		return mOutbound.get(index);
+	}
+
+	public int getInboundCount() {
+		return mNumInbound;
+	}
+
+	@NonNull
+	public RtpStats getInbound(final int index) {
+		if ((index < 0) || (index >= mNumInbound)) {
+			throw new IndexOutOfBoundsException("index=" + index + ",size=" + mNumInbound);
+		}
+		return mInbound.get(index);
+	}
+
+	/**
+	 * @return null if no candidate pair is selected yet
+	 */
+	@Nullable
+	public CandidatePairStats getCandidatePair() {
+		return mHasCandidatePair ? mCandidatePair : null;
+	}
+
+	/**
+	 * find outbound-rtp/inbound-rtp of the ssrc
+	 * @param ssrc
+	 * @param outbound
+	 * @return
+	 */
+	@Nullable
+	public RtpStats find(final long ssrc, final boolean outbound) {
+		final List<RtpStats> list = outbound ? mOutbound : mInbound;
+		final int n = outbound ? mNumOutbound : mNumInbound;
+		for (int i = 0; i < n; i++) {
+			final RtpStats stats = list.get(i);
+			if (stats.ssrc == ssrc) {
+				return stats;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * clear entries to reuse this instance, entry objects are kept
+	 * @param timestampUs
+	 */
+	/*package*/ void reset(final long timestampUs) {
+		this.timestampUs = timestampUs;
+		mNumOutbound = mNumInbound = 0;
+		mHasCandidatePair = false;
+		mCandidatePair.reset();
+	}
+
+	/**
+	 * parse one RTCStats, other types than outbound-rtp/inbound-rtp/candidate-pair are ignored
+	 * @param type RTCStats#getType
+	 * @param members RTCStats#getMembers
+	 * @return true if the stats was added
+	 */
+	/*package*/ boolean add(@NonNull final String type,
+		@NonNull final Map<String, Object> members) {
+
+		switch (type) {
+		case "outbound-rtp":
+		{
+			if (Boolean.TRUE.equals(members.get("isRemote"))) {
+				return false;
+			}
+			final RtpStats stats = obtain(mOutbound, mNumOutbound++);
+			parseRtp(stats, members);
+			stats.bytes = toLong(members.get("bytesSent"));
+			stats.packets = toLong(members.get("packetsSent"));
+			stats.frames = toLong(members.get("framesEncoded"));
+			return true;
+		}
+		case "inbound-rtp":
+		{
+			if (Boolean.TRUE.equals(members.get("isRemote"))) {
+				return false;
+			}
+			final RtpStats stats = obtain(mInbound, mNumInbound++);
+			parseRtp(stats, members);
+			stats.bytes = toLong(members.get("bytesReceived"));
+			stats.packets = toLong(members.get("packetsReceived"));
+			stats.packetsLost = toLong(members.get("packetsLost"));
+			stats.frames = toLong(members.get("framesDecoded"));
+			stats.jitter = toDouble(members.get("jitter"));
+			return true;
+		}
+		case "candidate-pair":
+			// 使用中のcandidate pairだけ
+			if (mHasCandidatePair
+				|| !Boolean.TRUE.equals(members.get("nominated"))
+				|| !"succeeded".equals(members.get("state"))) {
+				return false;
+			}
+			mHasCandidatePair = true;
+			mCandidatePair.currentRoundTripTime = toDouble(members.get("currentRoundTripTime"));
+			mCandidatePair.availableOutgoingBitrate = toDouble(members.get("availableOutgoingBitrate"));
+			mCandidatePair.availableIncomingBitrate = toDouble(members.get("availableIncomingBitrate"));
+			mCandidatePair.bytesSent = toLong(members.get("bytesSent"));
+			mCandidatePair.bytesReceived = toLong(members.get("bytesReceived"));
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	@NonNull
+	private static RtpStats obtain(@NonNull final List<RtpStats> list, final int index) {
+		final RtpStats result;
+		if (index < list.size()) {
+			result = list.get(index);
+			result.reset();
+		} else {
+			result = new RtpStats();
+			list.add(result);
+		}
+		return result;
+	}
+
+	private static void parseRtp(@NonNull final RtpStats stats,
+		@NonNull final Map<String, Object> members) {
+
+		stats.ssrc = toLong(members.get("ssrc"));
+		// 古いlibwebrtcはkindではなくmediaType
+		final Object kind = members.containsKey("kind") ? members.get("kind") : members.get("mediaType");
+		stats.kind = kind instanceof String ? (String)kind : null;
+		stats.nackCount = toLong(members.get("nackCount"));
+		stats.pliCount = toLong(members.get("pliCount"));
+	}
+
+	/**
+	 * RTCStats members are Long/Integer(uint32/int32), BigInteger(uint64) or Double
+	 * @param value
+	 * @return 0 if value is not a number
+	 */
+	private static long toLong(@Nullable final Object value) {
+		if (value instanceof BigInteger) {
+			// uint64でも実用上はlongの範囲に収まる
+			return ((BigInteger)value).longValue();
+		} else if (value instanceof Number) {
+			return ((Number)value).longValue();
+		}
+		return 0;
+	}
+
+	private static double toDouble(@Nullable final Object value) {
+		return value instanceof Number ? ((Number)value).doubleValue() : 0;
+	}
+
+	@Override
+	public String toString() {
+		return "RtcStatsSnapshot{" +
+			"timestampUs=" + timestampUs +
+			", outbound=" + mOutbound.subList(0, mNumOutbound) +
+			", inbound=" + mInbound.subList(0, mNumInbound) +
+			", candidatePair=" + getCandidatePair() +
+			'}';
+	}
+}
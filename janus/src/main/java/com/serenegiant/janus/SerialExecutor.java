@@ -0,0 +1,163 @@
+package com.serenegiant.janus;
+/*
+ * JanusRTCAndroid
+ * Video chat sample app using videoroom plugin on janus-gateway server and WebRTC.
+ *
+ * Copyright (c) 2018 saki t_saki@serenegiant.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+*/
+
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+
+/**
+ * executor lane that runs tasks one by one in submitted order on the backing executor.
+ * 複数のレーンで同じスレッドプールを共有しても各レーン内の実行順は保証される。
+ * バックエンドがシングルスレッドならスレッドも固定される(PeerConnectionFactory用)
+ * queue depth and latency(time from submit to start) of tasks are counted for monitoring
+ */
+/*package*/ class SerialExecutor implements Executor {
+	private static final boolean DEBUG = false;	// set false on production
+	private static final String TAG = SerialExecutor.class.getSimpleName();
+
+	private static final class Task {
+		@NonNull
+		private final Runnable runnable;
+		/** time when the task was submitted[ナノ秒] */
+		private final long submitted;
+
+		private Task(@NonNull final Runnable runnable, final long submitted) {
+			this.runnable = runnable;
+			this.submitted = submitted;
+		}
+	}
+
+	@NonNull
+	private final String mName;
+	@NonNull
+	private final Executor mBackend;
+	private final Object mSync = new Object();
+	private final ArrayDeque<Task> mTasks = new ArrayDeque<>();
+	/** true while a task of this lane is submitted to/running on the backend */
+	private boolean mActive;
+	// statistics, guarded by mSync
+	private long mExecuted;
+	private long mTotalLatencyNs;
+	private long mMaxLatencyNs;
+	private long mTotalRunNs;
+
+	/**
+	 * コンストラクタ
+	 * @param name name of this lane
+	 * @param backend
+	 */
+	public SerialExecutor(@NonNull final String name, @NonNull final Executor backend) {
+		mName = name;
+		mBackend = backend;
+	}
+
+	@NonNull
+	public String getName() {
+		return mName;
+	}
+
+	@Override
+	public void execute(@NonNull final Runnable command) {
+		synchronized (mSync) {
+			mTasks.add(new Task(command, System.nanoTime()));
+			if (!mActive) {
+				mActive = true;
+				mBackend.execute(mRunner);
+			}
+		}
+	}
+
+	/**
+	 * number of tasks waiting or running
+	 * @return
+	 */
+	public int getQueueDepth() {
+		synchronized (mSync) {
+			return mTasks.size() + (mActive ? 1 : 0);
+		}
+	}
+
+	/**
+	 * get snapshot of statistics
+	 * @return
+	 */
+	@NonNull
+	public ExecutorStats getStats() {
+		synchronized (mSync) {
+			return new ExecutorStats(mName,
+				mTasks.size() + (mActive ? 1 : 0),
+				mExecuted,
+				mExecuted > 0 ? mTotalLatencyNs / mExecuted / 1000 : 0,
+				mMaxLatencyNs / 1000,
+				mExecuted > 0 ? mTotalRunNs / mExecuted / 1000 : 0);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "SerialExecutor{" + mName + "}";
+	}
+
+	/**
+	 * run one task and then resubmit itself to the backend if this lane has more tasks,
+	 * 1つずつバックエンドへ投げるので他のレーンのタスクも公平に実行される
+	 */
+	private final Runnable mRunner = new Runnable() {
+		@Override
+		public void run() {
+			final Task task;
+			synchronized (mSync) {
+				task = mTasks.poll();
+			}
+			final long start = System.nanoTime();
+			try {
+				if (task != null) {
+					task.runnable.run();
+				}
+			} catch (final Exception e) {
+				// 例外で後続のタスクが止まらないようにする
+				// (スレッドが入れ替わるとPeerConnectionFactoryのスレッドが変わってしまう)
+				Log.w(TAG, mName + ":", e);
+			} finally {
+				final long run = System.nanoTime() - start;
+				synchronized (mSync) {
+					if (task != null) {
+						final long latency = start - task.submitted;
+						mExecuted++;
+						mTotalLatencyNs += latency;
+						if (latency > mMaxLatencyNs) {
+							mMaxLatencyNs = latency;
+						}
+						mTotalRunNs += run;
+					}
+					if (mTasks.isEmpty()) {
+						mActive = false;
+					} else {
+						mBackend.execute(this);
+					}
+				}
+			}
+			if (DEBUG) Log.v(TAG, mName + ":finished task");
+		}
+	};
+}
@@ -0,0 +1,170 @@
+package com.serenegiant.janus;
+/*
+ * JanusRTCAndroid
+ * Video chat sample app using videoroom plugin on janus-gateway server and WebRTC.
+ *
+ * Copyright (c) 2018 saki t_saki@serenegiant.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+*/
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.serenegiant.janus.response.ServerInfo;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * on-disk cache of ServerInfo per server url
+ * ServerInfoはjanus-gatewayを更新しない限り変わらないので
+ * 有効期限内であれば接続時のinfo要求を省略できる
+ * 1サーバー1ファイルで、ファイル名はurlのハッシュ値(衝突時はurlを比較して無視する)
+ */
+/*package*/ class ServerInfoCache {
+	private static final boolean DEBUG = false;	// set false on production
+	private static final String TAG = ServerInfoCache.class.getSimpleName();
+
+	/** default time to live of cached ServerInfo[ミリ秒] */
+	public static final long DEFAULT_TTL_MS = TimeUnit.HOURS.toMillis(24);
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final String PREFIX = "server-info-";
+
+	@NonNull
+	private final File mDir;
+	private final long mTtlMs;
+	@NonNull
+	private final Gson mGson;
+
+	/**
+	 * コンストラクタ
+	 * @param dir directory to store cache files(ex. Context#getCacheDir)
+	 * @param ttlMs time to live[ミリ秒]
+	 * @param gson Gson that can read/write ServerInfo
+	 */
+	/*package*/ ServerInfoCache(@NonNull final File dir, final long ttlMs,
+		@NonNull final Gson gson) {
+
+		mDir = dir;
+		mTtlMs = ttlMs;
+		mGson = gson;
+	}
+
+	/**
+	 * get cached ServerInfo if it is not expired
+	 * @param url
+	 * @return null if not cached or expired
+	 */
+	@Nullable
+	public ServerInfo get(@NonNull final String url) {
+		return get(url, System.currentTimeMillis());
+	}
+
+	@Nullable
+	/*package*/ synchronized ServerInfo get(@NonNull final String url, final long nowMs) {
+		final File file = getFile(url);
+		if (!file.isFile()) {
+			return null;
+		}
+		try (final Reader reader = new InputStreamReader(new FileInputStream(file), UTF8)) {
+			final JsonObject json = new JsonParser().parse(reader).getAsJsonObject();
+			final long savedAt = json.get("saved_at").getAsLong();
+			if (!url.equals(json.get("url").getAsString())) {
+				// ハッシュ値の衝突
+				return null;
+			}
+			if ((nowMs < savedAt) || (nowMs - savedAt >= mTtlMs)) {
+				if (DEBUG) Log.v(TAG, "get:expired," + url);
+				//noinspection ResultOfMethodCallIgnored
+				file.delete();
+				return null;
+			}
+			return mGson.fromJson(json.get("info"), ServerInfo.class);
+		} catch (final IOException | JsonParseException | IllegalStateException
+			| NullPointerException e) {
+
+			// 壊れたキャッシュは削除して無視する
+			if (DEBUG) Log.w(TAG, e);
+			//noinspection ResultOfMethodCallIgnored
+			file.delete();
+			return null;
+		}
+	}
+
+	/**
+	 * save ServerInfo
+	 * @param url
+	 * @param info
+	 */
+	public void put(@NonNull final String url, @NonNull final ServerInfo info) {
+		put(url, info, System.currentTimeMillis());
+	}
+
+	/*package*/ synchronized void put(@NonNull final String url,
+		@NonNull final ServerInfo info, final long nowMs) {
+
+		if (!mDir.isDirectory() && !mDir.mkdirs()) {
+			if (DEBUG) Log.w(TAG, "put:failed to create " + mDir);
+			return;
+		}
+		final JsonObject json = new JsonObject();
+		json.addProperty("url", url);
+		json.addProperty("saved_at", nowMs);
+		json.add("info", mGson.toJsonTree(info));
+		// 書き込み途中のファイルを読まないように一時ファイルへ書いてからrenameする
+		final File file = getFile(url);
+		final File tmp = new File(mDir, file.getName() + ".tmp");
+		try (final Writer writer = new OutputStreamWriter(new FileOutputStream(tmp), UTF8)) {
+			mGson.toJson(json, writer);
+		} catch (final IOException e) {
+			if (DEBUG) Log.w(TAG, e);
+			//noinspection ResultOfMethodCallIgnored
+			tmp.delete();
+			return;
+		}
+		if (!tmp.renameTo(file)) {
+			//noinspection ResultOfMethodCallIgnored
+			tmp.delete();
+		}
+	}
+
+	/**
+	 * remove cached ServerInfo
+	 * @param url
+	 */
+	public synchronized void remove(@NonNull final String url) {
+		//noinspection ResultOfMethodCallIgnored
+		getFile(url).delete();
+	}
+
+	@NonNull
+	private File getFile(@NonNull final String url) {
+		return new File(mDir, PREFIX + Integer.toHexString(url.hashCode()));
+	}
+}
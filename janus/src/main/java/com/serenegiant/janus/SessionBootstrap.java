@@ -0,0 +1,174 @@
+package com.serenegiant.janus;
+/*
+ * JanusRTCAndroid
+ * Video chat sample app using videoroom plugin on janus-gateway server and WebRTC.
+ *
+ * Copyright (c) 2018 saki t_saki@serenegiant.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+*/
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import com.serenegiant.janus.request.Creator;
+import com.serenegiant.janus.response.ServerInfo;
+import com.serenegiant.janus.response.Session;
+
+/**
+ * セッション生成までの接続処理
+ * セッションの生成にServerInfoは不要なのでinfoとcreateを同時に要求して
+ * 接続時間を1往復分短縮する。ServerInfoがキャッシュされていればinfo要求自体を省略する
+ */
+/*package*/ class SessionBootstrap {
+	private static final boolean DEBUG = false;	// set false on production
+	private static final String TAG = SessionBootstrap.class.getSimpleName();
+
+	/**
+	 * callback listener of bootstrap,
+	 * this is called on the thread that completes each request
+	 */
+	public interface Listener {
+		/**
+		 * ServerInfo is available, this may be called before or after #onSessionCreated
+		 * and is not called if info request failed
+		 * @param info
+		 * @param cached true if info was read from the cache
+		 */
+		public void onServerInfo(@NonNull final ServerInfo info, final boolean cached);
+
+		/**
+		 * the session was created
+		 * @param session
+		 */
+		public void onSessionCreated(@NonNull final Session session);
+
+		/**
+		 * failed to create session
+		 * @param t
+		 */
+		public void onFailure(@NonNull final Throwable t);
+	}
+
+	@NonNull
+	private final JanusTransport mTransport;
+	@NonNull
+	private final TransactionManager mTransactionManager;
+	@Nullable
+	private final ServerInfoCache mCache;
+	@NonNull
+	private final String mUrl;
+	private final Object mSync = new Object();
+	@Nullable
+	private JanusTransport.Cancelable mInfoCall;
+	@Nullable
+	private JanusTransport.Cancelable mCreateCall;
+	private volatile boolean mCanceled;
+
+	/**
+	 * コンストラクタ
+	 * @param transport
+	 * @param manager
+	 * @param cache null if ServerInfo should not be cached
+	 * @param url url of janus-gateway, used as the key of cache
+	 */
+	/*package*/ SessionBootstrap(@NonNull final JanusTransport transport,
+		@NonNull final TransactionManager manager,
+		@Nullable final ServerInfoCache cache,
+		@NonNull final String url) {
+
+		mTransport = transport;
+		mTransactionManager = manager;
+		mCache = cache;
+		mUrl = url;
+	}
+
+	/**
+	 * request ServerInfo(if not cached) and create session concurrently
+	 * @param listener
+	 */
+	public void start(@NonNull final Listener listener) {
+		if (DEBUG) Log.v(TAG, "start:");
+		final ServerInfo cached = mCache != null ? mCache.get(mUrl) : null;
+		// セッション生成を先に送る
+		final JanusTransport.Cancelable createCall = mTransport.create(
+			new Creator(mTransactionManager),
+			new JanusTransport.Callback<Session>() {
+				@Override
+				public void onResponse(@NonNull final Session response) {
+					if (mCanceled) return;
+					if ("success".equals(response.janus)) {
+						if (DEBUG) Log.v(TAG, "create:success");
+						listener.onSessionCreated(response);
+					} else {
+						listener.onFailure(new RuntimeException("unexpected response:" + response));
+					}
+				}
+
+				@Override
+				public void onFailure(@NonNull final Throwable t) {
+					if (!mCanceled) {
+						listener.onFailure(t);
+					}
+				}
+			});
+		synchronized (mSync) {
+			mCreateCall = createCall;
+		}
+		if (cached != null) {
+			if (DEBUG) Log.v(TAG, "start:use cached ServerInfo");
+			listener.onServerInfo(cached, true);
+			return;
+		}
+		final JanusTransport.Cancelable infoCall = mTransport.getInfo(
+			new JanusTransport.Callback<ServerInfo>() {
+				@Override
+				public void onResponse(@NonNull final ServerInfo response) {
+					if (mCanceled) return;
+					if (DEBUG) Log.v(TAG, "info:success");
+					if (mCache != null) {
+						mCache.put(mUrl, response);
+					}
+					listener.onServerInfo(response, false);
+				}
+
+				@Override
+				public void onFailure(@NonNull final Throwable t) {
+					// ServerInfoが無くてもデフォルト値で動作できるのでエラーにしない
+					if (DEBUG) Log.w(TAG, t);
+				}
+			});
+		synchronized (mSync) {
+			mInfoCall = infoCall;
+		}
+	}
+
+	/**
+	 * cancel requests in progress, listener is not called after this
+	 */
+	public void cancel() {
+		mCanceled = true;
+		synchronized (mSync) {
+			if (mInfoCall != null) {
+				mInfoCall.cancel();
+				mInfoCall = null;
+			}
+			if (mCreateCall != null) {
+				mCreateCall.cancel();
+				mCreateCall = null;
+			}
+		}
+	}
+}
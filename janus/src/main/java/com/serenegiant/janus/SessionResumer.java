@@ -0,0 +1,122 @@
+package com.serenegiant.janus;
+/*
+ * JanusRTCAndroid
+ * Video chat sample app using videoroom plugin on janus-gateway server and WebRTC.
+ *
+ * Copyright (c) 2018 saki t_saki@serenegiant.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+*/
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import com.serenegiant.janus.request.Claim;
+import com.serenegiant.janus.response.EventRoom;
+
+/**
+ * ネットワークが切り替わった時にセッションとプラグインのハンドルを維持したまま
+ * 新しい接続でセッションをclaimし直す
+ * セッションの生成・アタッチ・join・offer/answerのやり直しが不要なので
+ * 再アタッチするよりも速く復帰できる
+ * (メディアの経路はJanusPlugin#restartIceでICE restartして復帰させる)
+ */
+/*package*/ class SessionResumer {
+	private static final boolean DEBUG = false;	// set false on production
+	private static final String TAG = SessionResumer.class.getSimpleName();
+
+	/**
+	 * callback listener of resume,
+	 * this is called on the thread that completes the request
+	 */
+	public interface Listener {
+		/**
+		 * the session was claimed on the new connection
+		 * @param elapsedMs time from start of resume[ミリ秒]
+		 */
+		public void onResumed(final long elapsedMs);
+		/**
+		 * the session could not be claimed(ex. already reaped by janus-gateway),
+		 * the caller should fall back to create new session
+		 * @param t
+		 */
+		public void onResumeFailed(@NonNull final Throwable t);
+	}
+
+	@NonNull
+	private final JanusTransport mTransport;
+	@NonNull
+	private final TransactionManager mTransactionManager;
+	private final long mSessionId;
+	@Nullable
+	private JanusTransport.Cancelable mCall;
+
+	/**
+	 * コンストラクタ
+	 * @param transport
+	 * @param manager
+	 * @param sessionId id of the session to resume
+	 */
+	/*package*/ SessionResumer(@NonNull final JanusTransport transport,
+		@NonNull final TransactionManager manager,
+		final long sessionId) {
+
+		mTransport = transport;
+		mTransactionManager = manager;
+		mSessionId = sessionId;
+	}
+
+	/**
+	 * drop the current connection and claim the session on new connection
+	 * @param listener
+	 */
+	public synchronized void resume(@NonNull final Listener listener) {
+		if (DEBUG) Log.v(TAG, "resume:session=" + JanusId.toString(mSessionId));
+		cancel();
+		final long start = System.nanoTime();
+		mTransport.reconnect();
+		mCall = mTransport.claim(mSessionId,
+			new Claim(mTransactionManager, mSessionId, null),
+			new JanusTransport.Callback<EventRoom>() {
+				@Override
+				public void onResponse(@NonNull final EventRoom response) {
+					final long elapsedMs = (System.nanoTime() - start) / 1000000L;
+					if ("success".equals(response.janus)) {
+						if (DEBUG) Log.v(TAG, "resume:success," + elapsedMs + "ms");
+						listener.onResumed(elapsedMs);
+					} else {
+						listener.onResumeFailed(
+							new RuntimeException("unexpected response:" + response));
+					}
+				}
+
+				@Override
+				public void onFailure(@NonNull final Throwable t) {
+					if (DEBUG) Log.w(TAG, t);
+					listener.onResumeFailed(t);
+				}
+			});
+	}
+
+	/**
+	 * cancel resume in progress
+	 */
+	public synchronized void cancel() {
+		if (mCall != null) {
+			mCall.cancel();
+			mCall = null;
+		}
+	}
+}
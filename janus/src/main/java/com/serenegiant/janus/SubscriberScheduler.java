@@ -0,0 +1,373 @@
+package com.serenegiant.janus;
+/*
+ * JanusRTCAndroid
+ * Video chat sample app using videoroom plugin on janus-gateway server and WebRTC.
+ *
+ * Copyright (c) 2018 saki t_saki@serenegiant.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+*/
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import com.serenegiant.janus.response.PublisherInfo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Subscriberの生成(attach → join → answer)を同時に最大maxParallel個まで並列に実行する
+ * 1つずつ順に生成すると多人数のルームでは後の方のフィードが表示されるまでに時間がかかり
+ * 全部を一度に生成するとjanus-gatewayと端末の両方に負荷が集中するので同時実行数を制限する
+ * アプリが表示中としてマークしたフィードを優先して生成し、
+ * フィード毎に最初のフレームが届くまでの時間(TTFF)を記録する
+ */
+public class SubscriberScheduler {
+	private static final boolean DEBUG = false;	// set false on production
+	private static final String TAG = SubscriberScheduler.class.getSimpleName();
+
+	/**
+	 * the slot is released if the setup does not complete within this time[ミリ秒],
+	 * so that a stuck feed does not block the others
+	 */
+	public static final long DEFAULT_SETUP_TIMEOUT_MS = 10000;
+
+	/**
+	 * start setting up subscriber of the feed,
+	 * this is called without holding the lock and must not block
+	 */
+	public interface Starter {
+		public void start(@NonNull final PublisherInfo info);
+	}
+
+	/**
+	 * snapshot of per-feed setup timing
+	 */
+	public static class FeedStats {
+		public final long feedId;
+		public final boolean visible;
+		/** time waiting for free slot[ミリ秒], -1 if not started yet */
+		public final long queuedMs;
+		/** time from start until the subscriber entered the room[ミリ秒], -1 if not yet */
+		public final long setupMs;
+		/** time from enqueue until first video frame[ミリ秒], -1 if not yet */
+		public final long ttffMs;
+
+		private FeedStats(@NonNull final Feed feed) {
+			feedId = feed.info.id;
+			visible = feed.visible;
+			queuedMs = feed.startMs >= 0 ? feed.startMs - feed.enqueueMs : -1;
+			setupMs = feed.setupMs >= 0 ? feed.setupMs - feed.startMs : -1;
+			ttffMs = feed.firstFrameMs >= 0 ? feed.firstFrameMs - feed.enqueueMs : -1;
+		}
+
+		@Override
+		public String toString() {
+			return "FeedStats{" +
+				"feedId=" + JanusId.toString(feedId) +
+				", visible=" + visible +
+				", queuedMs=" + queuedMs +
+				", setupMs=" + setupMs +
+				", ttffMs=" + ttffMs +
+				'}';
+		}
+	}
+
+	private static class Feed {
+		@NonNull
+		private final PublisherInfo info;
+		/** FIFO order within same priority */
+		private final long seq;
+		private final long enqueueMs;
+		private boolean visible;
+		private long startMs = -1;
+		private long setupMs = -1;
+		private long firstFrameMs = -1;
+		@Nullable
+		private HashedWheelTimer.Timeout timeout;
+
+		private Feed(@NonNull final PublisherInfo info, final long seq,
+			final long enqueueMs, final boolean visible) {
+
+			this.info = info;
+			this.seq = seq;
+			this.enqueueMs = enqueueMs;
+			this.visible = visible;
+		}
+
+		private boolean isRunning() {
+			return (startMs >= 0) && (setupMs < 0) && (timeout != null);
+		}
+	}
+
+	private final Object mSync = new Object();
+	private final int mMaxParallel;
+	private final long mSetupTimeoutMs;
+	@NonNull
+	private final Starter mStarter;
+	@NonNull
+	private final KeepAliveScheduler.Clock mClock;
+	@NonNull
+	private final HashedWheelTimer mTimer;
+	/** feeds waiting for free slot, guarded by mSync */
+	private final List<Feed> mPending = new ArrayList<>();
+	/** all feeds including running and completed, guarded by mSync */
+	private final LongHashMap<Feed> mFeeds = new LongHashMap<>();
+	/** feed ids that the app marked as visible before they were enqueued */
+	private final LongHashMap<Boolean> mVisible = new LongHashMap<>();
+	private int mRunning;
+	private long mSeq;
+	private boolean mReleased;
+
+	/**
+	 * コンストラクタ
+	 * @param maxParallel maximum number of subscribers that are set up concurrently
+	 * @param starter
+	 */
+	/*package*/ SubscriberScheduler(final int maxParallel, @NonNull final Starter starter) {
+		this(maxParallel, DEFAULT_SETUP_TIMEOUT_MS, starter,
+			KeepAliveScheduler.SYSTEM_CLOCK, TransactionManager.getTimer());
+	}
+
+	/**
+	 * コンストラクタ
+	 * @param maxParallel
+	 * @param setupTimeoutMs
+	 * @param starter
+	 * @param clock
+	 * @param timer
+	 */
+	/*package*/ SubscriberScheduler(final int maxParallel, final long setupTimeoutMs,
+		@NonNull final Starter starter,
+		@NonNull final KeepAliveScheduler.Clock clock,
+		@NonNull final HashedWheelTimer timer) {
+
+		mMaxParallel = Math.max(1, maxParallel);
+		mSetupTimeoutMs = setupTimeoutMs;
+		mStarter = starter;
+		mClock = clock;
+		mTimer = timer;
+	}
+
+	public int getMaxParallel() {
+		return mMaxParallel;
+	}
+
+	/**
+	 * add the feed to set up, the feed that is already added is ignored
+	 * @param info
+	 */
+	public void enqueue(@NonNull final PublisherInfo info) {
+		synchronized (mSync) {
+			if (mReleased || mFeeds.containsKey(info.id)) {
+				return;
+			}
+			final Boolean visible = mVisible.get(info.id);
+			final Feed feed = new Feed(info, mSeq++, mClock.currentTimeMillis(),
+				(visible != null) && visible);
+			if (DEBUG) Log.v(TAG, "enqueue:" + JanusId.toString(info.id) + ",visible=" + feed.visible);
+			mFeeds.put(info.id, feed);
+			mPending.add(feed);
+		}
+		schedule();
+	}
+
+	/**
+	 * mark the feed visible/invisible on the screen,
+	 * visible feeds are set up before invisible ones
+	 * @param feedId
+	 * @param visible
+	 */
+	public void setVisible(final long feedId, final boolean visible) {
+		synchronized (mSync) {
+			mVisible.put(feedId, visible);
+			final Feed feed = mFeeds.get(feedId);
+			if (feed != null) {
+				feed.visible = visible;
+			}
+		}
+	}
+
+	/**
+	 * the subscriber of the feed entered the room(signaling completed), releases the slot
+	 * @param feedId
+	 */
+	public void onSetupCompleted(final long feedId) {
+		synchronized (mSync) {
+			final Feed feed = mFeeds.get(feedId);
+			if ((feed == null) || !feed.isRunning()) {
+				return;
+			}
+			if (DEBUG) Log.v(TAG, "onSetupCompleted:" + JanusId.toString(feedId));
+			feed.setupMs = mClock.currentTimeMillis();
+			releaseSlotLocked(feed);
+		}
+		schedule();
+	}
+
+	/**
+	 * first video frame of the feed arrived
+	 * @param feedId
+	 */
+	public void onFirstFrame(final long feedId) {
+		synchronized (mSync) {
+			final Feed feed = mFeeds.get(feedId);
+			if ((feed != null) && (feed.firstFrameMs < 0)) {
+				feed.firstFrameMs = mClock.currentTimeMillis();
+				if (DEBUG) Log.v(TAG, "onFirstFrame:" + new FeedStats(feed));
+			}
+		}
+	}
+
+	/**
+	 * remove the feed(left the room or failed to set up), releases the slot if running
+	 * @param feedId
+	 */
+	public void remove(final long feedId) {
+		synchronized (mSync) {
+			final Feed feed = mFeeds.remove(feedId);
+			if (feed == null) {
+				return;
+			}
+			if (DEBUG) Log.v(TAG, "remove:" + JanusId.toString(feedId));
+			mPending.remove(feed);
+			if (feed.isRunning()) {
+				releaseSlotLocked(feed);
+			}
+		}
+		schedule();
+	}
+
+	/**
+	 * number of feeds that are being set up now
+	 * @return
+	 */
+	public int getRunningCount() {
+		synchronized (mSync) {
+			return mRunning;
+		}
+	}
+
+	/**
+	 * number of feeds waiting for free slot
+	 * @return
+	 */
+	public int getPendingCount() {
+		synchronized (mSync) {
+			return mPending.size();
+		}
+	}
+
+	/**
+	 * get setup timing of each feed in the order of enqueue
+	 * @return
+	 */
+	@NonNull
+	public List<FeedStats> getStats() {
+		final List<FeedStats> result;
+		synchronized (mSync) {
+			final List<Feed> feeds = mFeeds.values();
+			Collections.sort(feeds, (a, b) -> Long.compare(a.seq, b.seq));
+			result = new ArrayList<>(feeds.size());
+			for (final Feed feed: feeds) {
+				result.add(new FeedStats(feed));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * cancel all pending feeds
+	 */
+	public void release() {
+		synchronized (mSync) {
+			mReleased = true;
+			for (final Feed feed: mFeeds.values()) {
+				if (feed.timeout != null) {
+					feed.timeout.cancel();
+					feed.timeout = null;
+				}
+			}
+			mPending.clear();
+			mFeeds.clear();
+			mVisible.clear();
+			mRunning = 0;
+		}
+	}
+
+	/**
+	 * start pending feeds while free slot is available
+	 */
+	private void schedule() {
+		final List<PublisherInfo> start = new ArrayList<>();
+		synchronized (mSync) {
+			while (!mReleased && (mRunning < mMaxParallel) && !mPending.isEmpty()) {
+				final Feed feed = pollLocked();
+				feed.startMs = mClock.currentTimeMillis();
+				feed.timeout = mTimer.newTimeout(() -> onTimeout(feed),
+					mSetupTimeoutMs, TimeUnit.MILLISECONDS);
+				mRunning++;
+				start.add(feed.info);
+			}
+		}
+		// ロックの外で開始する
+		for (final PublisherInfo info: start) {
+			if (DEBUG) Log.v(TAG, "schedule:start " + JanusId.toString(info.id));
+			mStarter.start(info);
+		}
+	}
+
+	/**
+	 * remove the feed with highest priority(visible first, then FIFO) from pending list
+	 * @return
+	 */
+	@NonNull
+	private Feed pollLocked() {
+		Feed found = null;
+		for (final Feed feed: mPending) {
+			if ((found == null)
+				|| (feed.visible && !found.visible)
+				|| ((feed.visible == found.visible) && (feed.seq < found.seq))) {
+				found = feed;
+			}
+		}
+		mPending.remove(found);
+		return found;
+	}
+
+	private void releaseSlotLocked(@NonNull final Feed feed) {
+		if (feed.timeout != null) {
+			feed.timeout.cancel();
+			feed.timeout = null;
+		}
+		mRunning--;
+	}
+
+	private void onTimeout(@NonNull final Feed feed) {
+		synchronized (mSync) {
+			if ((mFeeds.get(feed.info.id) != feed) || !feed.isRunning()) {
+				return;
+			}
+			if (DEBUG) Log.v(TAG, "onTimeout:" + JanusId.toString(feed.info.id));
+			// 完了扱いにはせずにスロットだけ開放する
+			feed.timeout = null;
+			mRunning--;
+		}
+		schedule();
+	}
+}
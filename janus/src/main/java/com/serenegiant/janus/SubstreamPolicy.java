@@ -0,0 +1,75 @@
+package com.serenegiant.janus;
+/*
+ * JanusRTCAndroid
+ * Video chat sample app using videoroom plugin on janus-gateway server and WebRTC.
+ *
+ * Copyright (c) 2018 saki t_saki@serenegiant.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+*/
+
+import android.support.annotation.NonNull;
+
+/**
+ * policy to select simulcast layer of a remote feed from the size it is rendered,
+ * set with JanusClient#setSubstreamPolicy
+ */
+public interface SubstreamPolicy {
+
+	/**
+	 * simulcast layer that janus-gateway relays to the subscriber
+	 */
+	public static class Layer {
+		/** substream(spatial layer), 0 is the lowest resolution */
+		public final int substream;
+		/** temporal layer, 0 is the lowest frame rate */
+		public final int temporal;
+
+		public Layer(final int substream, final int temporal) {
+			this.substream = substream;
+			this.temporal = temporal;
+		}
+
+		@Override
+		public boolean equals(final Object o) {
+			if (this == o) return true;
+			if (!(o instanceof Layer)) return false;
+			final Layer other = (Layer) o;
+			return (substream == other.substream) && (temporal == other.temporal);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * substream + temporal;
+		}
+
+		@Override
+		public String toString() {
+			return "Layer{" +
+				"substream=" + substream +
+				", temporal=" + temporal +
+				'}';
+		}
+	}
+
+	/**
+	 * select layer for the rendered size,
+	 * this may be called from any thread, so the implementation should be stateless
+	 * @param width rendered width[pixels], 0 if the feed is not visible
+	 * @param height rendered height[pixels], 0 if the feed is not visible
+	 * @return
+	 */
+	@NonNull
+	public Layer select(final int width, final int height);
+}
@@ -0,0 +1,242 @@
+package com.serenegiant.janus;
+/*
+ * JanusRTCAndroid
+ * Video chat sample app using videoroom plugin on janus-gateway server and WebRTC.
+ *
+ * Copyright (c) 2018 saki t_saki@serenegiant.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+*/
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * select simulcast layer of each remote feed from the size it is rendered
+ * with SubstreamPolicy, and request it to janus-gateway through Sender.
+ * changes are debounced so that resizing views(layout, pip <-> fullscreen)
+ * sends only the final layer instead of one configure per size
+ */
+/*package*/ class SubstreamSelector {
+	private static final boolean DEBUG = false;	// set false on production
+	private static final String TAG = SubstreamSelector.class.getSimpleName();
+
+	/**
+	 * send configure request of the layer to janus-gateway,
+	 * called on the timer thread or the thread that called #resend
+	 */
+	public interface Sender {
+		public void configure(final long feedId, @NonNull final SubstreamPolicy.Layer layer);
+	}
+
+	/**
+	 * state of each feed, guarded by mSync
+	 */
+	private static class Feed {
+		private int width;
+		private int height;
+		/** layer that was requested last time */
+		@Nullable
+		private SubstreamPolicy.Layer sent;
+		/** layer that waits the debounce time */
+		@Nullable
+		private SubstreamPolicy.Layer pending;
+		@Nullable
+		private HashedWheelTimer.Timeout timeout;
+		/** incremented on each schedule to ignore timeouts that were replaced */
+		private int generation;
+	}
+
+	@NonNull
+	private final HashedWheelTimer mTimer;
+	private final long mDebounceMs;
+	@NonNull
+	private final Sender mSender;
+	private final Object mSync = new Object();
+	@NonNull
+	private final LongHashMap<Feed> mFeeds = new LongHashMap<>();
+	@NonNull
+	private SubstreamPolicy mPolicy;
+
+	/**
+	 * コンストラクタ
+	 * @param policy
+	 * @param debounceMs[ミリ秒]
+	 * @param sender
+	 */
+	public SubstreamSelector(@NonNull final SubstreamPolicy policy,
+		final long debounceMs, @NonNull final Sender sender) {
+
+		this(TransactionManager.getTimer(), policy, debounceMs, sender);
+	}
+
+	/**
+	 * コンストラクタ
+	 * @param timer
+	 * @param policy
+	 * @param debounceMs[ミリ秒]
+	 * @param sender
+	 */
+	/*package*/ SubstreamSelector(@NonNull final HashedWheelTimer timer,
+		@NonNull final SubstreamPolicy policy,
+		final long debounceMs, @NonNull final Sender sender) {
+
+		mTimer = timer;
+		mPolicy = policy;
+		mDebounceMs = debounceMs;
+		mSender = sender;
+	}
+
+	/**
+	 * replace the policy and select layers of all feeds again
+	 * @param policy
+	 */
+	public void setPolicy(@NonNull final SubstreamPolicy policy) {
+		if (DEBUG) Log.v(TAG, "setPolicy:" + policy);
+		synchronized (mSync) {
+			mPolicy = policy;
+			for (final long feedId: mFeeds.keys()) {
+				final Feed feed = mFeeds.get(feedId);
+				updateLocked(feedId, feed, policy.select(feed.width, feed.height));
+			}
+		}
+	}
+
+	/**
+	 * the size the feed is rendered is changed, this can be called from any thread
+	 * @param feedId
+	 * @param width [pixels], 0 if the feed is not visible
+	 * @param height [pixels], 0 if the feed is not visible
+	 */
+	public void setViewSize(final long feedId, final int width, final int height) {
+		if (DEBUG) Log.v(TAG, "setViewSize:" + JanusId.toString(feedId) + "," + width + "x" + height);
+		synchronized (mSync) {
+			Feed feed = mFeeds.get(feedId);
+			if (feed == null) {
+				feed = new Feed();
+				mFeeds.put(feedId, feed);
+			}
+			feed.width = width;
+			feed.height = height;
+			updateLocked(feedId, feed, mPolicy.select(width, height));
+		}
+	}
+
+	/**
+	 * send the selected layer again immediately,
+	 * called when the subscriber of the feed is (re)created because
+	 * layers that were selected before that are not applied to the new handle
+	 * @param feedId
+	 */
+	public void resend(final long feedId) {
+		final SubstreamPolicy.Layer layer;
+		synchronized (mSync) {
+			final Feed feed = mFeeds.get(feedId);
+			// pending layer is sent when the debounce time expires
+			layer = (feed != null) && (feed.pending == null) ? feed.sent : null;
+		}
+		if (layer != null) {
+			if (DEBUG) Log.v(TAG, "resend:" + JanusId.toString(feedId) + "," + layer);
+			mSender.configure(feedId, layer);
+		}
+	}
+
+	/**
+	 * the feed left
+	 * @param feedId
+	 */
+	public void remove(final long feedId) {
+		synchronized (mSync) {
+			final Feed feed = mFeeds.remove(feedId);
+			if (feed != null) {
+				cancelLocked(feed);
+			}
+		}
+	}
+
+	public void clear() {
+		synchronized (mSync) {
+			for (final Feed feed: mFeeds.values()) {
+				cancelLocked(feed);
+			}
+			mFeeds.clear();
+		}
+	}
+
+	/**
+	 * @param feedId
+	 * @return layer that was requested last time, null if not requested yet
+	 */
+	@Nullable
+	public SubstreamPolicy.Layer getLayer(final long feedId) {
+		synchronized (mSync) {
+			final Feed feed = mFeeds.get(feedId);
+			return feed != null ? feed.sent : null;
+		}
+	}
+
+	private void updateLocked(final long feedId,
+		@NonNull final Feed feed, @NonNull final SubstreamPolicy.Layer layer) {
+
+		final SubstreamPolicy.Layer current = feed.pending != null ? feed.pending : feed.sent;
+		if (layer.equals(current)) {
+			return;
+		}
+		cancelLocked(feed);
+		if (layer.equals(feed.sent)) {
+			// returned to the requested layer before the debounce time expires
+			return;
+		}
+		feed.pending = layer;
+		final int generation = ++feed.generation;
+		feed.timeout = mTimer.newTimeout(new Runnable() {
+			@Override
+			public void run() {
+				flush(feedId, feed, generation);
+			}
+		}, mDebounceMs, TimeUnit.MILLISECONDS);
+	}
+
+	private void cancelLocked(@NonNull final Feed feed) {
+		if (feed.timeout != null) {
+			feed.timeout.cancel();
+			feed.timeout = null;
+		}
+		feed.pending = null;
+		feed.generation++;
+	}
+
+	/**
+	 * debounce time expired, called on the timer thread
+	 */
+	private void flush(final long feedId, @NonNull final Feed feed, final int generation) {
+		final SubstreamPolicy.Layer layer;
+		synchronized (mSync) {
+			if ((mFeeds.get(feedId) != feed) || (feed.generation != generation)
+				|| (feed.pending == null)) {
+
+				return;
+			}
+			layer = feed.pending;
+			feed.pending = null;
+			feed.timeout = null;
+			feed.sent = layer;
+		}
+		if (DEBUG) Log.v(TAG, "flush:" + JanusId.toString(feedId) + "," + layer);
+		mSender.configure(feedId, layer);
+	}
+}
@@ -0,0 +1,118 @@
+package com.serenegiant.janus;
+/*
+ * JanusRTCAndroid
+ * Video chat sample app using videoroom plugin on janus-gateway server and WebRTC.
+ *
+ * Copyright (c) 2018 saki t_saki@serenegiant.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+*/
+
+import android.support.annotation.NonNull;
+
+import java.security.SecureRandom;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * strategy to generate transaction id
+ */
+public interface TransactionIdGenerator {
+	/** length of transaction id */
+	public static final int LENGTH = 12;
+
+	/**
+	 * generate new transaction id
+	 * @return
+	 */
+	@NonNull
+	public String next();
+
+	/**
+	 * generate random string as transaction id
+	 * (previous implementation, allocates and contends on shared Random)
+	 */
+	public static class RandomIdGenerator implements TransactionIdGenerator {
+		private final Random rnd = new Random();
+
+		@NonNull
+		@Override
+		public String next() {
+			final char[] buf = new char[LENGTH];
+			for (int i = 0; i < LENGTH; i++) {
+				buf[i] = CounterIdGenerator.DIGITS[rnd.nextInt(CounterIdGenerator.DIGITS.length)];
+			}
+			return new String(buf);
+		}
+	}
+
+	/**
+	 * encode monotonic counter into fixed width base62 string.
+	 * Random prefix is generated once per instance so that transaction ids
+	 * of new client(ex. after reconnecting) do not collide with old ones.
+	 */
+	public static class CounterIdGenerator implements TransactionIdGenerator {
+		/*package*/ static final char[] DIGITS
+			= "0123456789abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ".toCharArray();
+		/** length of random prefix */
+		public static final int PREFIX_LENGTH = 4;
+
+		private final char[] mPrefix;
+		private final AtomicLong mCounter = new AtomicLong();
+		/** work buffer to encode counter, reused to reduce allocation */
+		private final ThreadLocal<char[]> mBuffer = new ThreadLocal<char[]>() {
+			@Override
+			protected char[] initialValue() {
+				final char[] buf = new char[LENGTH];
+				System.arraycopy(mPrefix, 0, buf, 0, mPrefix.length);
+				return buf;
+			}
+		};
+
+		/**
+		 * コンストラクタ
+		 * ランダムプレフィックス付き
+		 */
+		public CounterIdGenerator() {
+			this(true);
+		}
+
+		/**
+		 * コンストラクタ
+		 * @param withRandomPrefix
+		 */
+		public CounterIdGenerator(final boolean withRandomPrefix) {
+			mPrefix = new char[withRandomPrefix ? PREFIX_LENGTH : 0];
+			if (withRandomPrefix) {
+				final Random rnd = new SecureRandom();
+				for (int i = 0; i < PREFIX_LENGTH; i++) {
+					mPrefix[i] = DIGITS[rnd.nextInt(DIGITS.length)];
+				}
+			}
+		}
+
+		@NonNull
+		@Override
+		public String next() {
+			final char[] buf = mBuffer.get();
+			long value = mCounter.getAndIncrement();
+			// wrap around is practically impossible(62^8 ≒ 2.1×10^14)
+			for (int i = LENGTH - 1; i >= mPrefix.length; i--) {
+				buf[i] = DIGITS[(int)(value % 62)];
+				value /= 62;
+			}
+			return new String(buf);
+		}
+	}
+}
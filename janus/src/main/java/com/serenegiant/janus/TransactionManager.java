@@ -21,96 +21,244 @@ package com.serenegiant.janus;
 
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import android.util.Log;
 
-import org.json.JSONObject;
+import com.serenegiant.janus.response.EventRoom;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * manage relation ship between request and response over network connection
+ * JanusRTCClient毎にインスタンスを生成する。
+ * 登録したトランザクションは応答を処理するか期限切れになると削除される
  */
 public class TransactionManager {
+	private static final boolean DEBUG = false;	// set false on production
+	private static final String TAG = TransactionManager.class.getSimpleName();
+
+	/** デフォルトのトランザクションの有効期限[ミリ秒] */
+	public static final long DEFAULT_TIMEOUT_MS = 30000;
+
 	/**
-	 * helper class to generate random strings for transaction id
+	 * timer to expire transactions, shared by all instances
+	 * (and timeouts of asynchronous requests of JanusTransport)
 	 */
-	private static class RandomString {
-		final String str = "0123456789abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ";
-		final Random rnd = new Random();
+	private static HashedWheelTimer sTimer;
+
+	@NonNull
+	/*package*/ static synchronized HashedWheelTimer getTimer() {
+		if (sTimer == null) {
+			sTimer = new HashedWheelTimer(100, TimeUnit.MILLISECONDS, 512);
+		}
+		return sTimer;
+	}
+
+	/**
+	 * callback listener when app receives transaction message
+	 */
+	public interface TransactionCallback {
+		/**
+		 * usually this is called from from long poll
+		 * @param transaction
+		 * @param body
+		 * @return true: handled, if return true, assignment will be removed.
+		 */
+		public boolean onReceived(@NonNull final String transaction,
+								  @NonNull final EventRoom body);
+	}
 
+	/**
+	 * callback listener when transaction expired without being handled
+	 */
+	public interface TimeoutCallback {
 		/**
-		 * generate random string
-		 * @param length length of random string
-		 * @return
+		 * called from timer thread
+		 * @param transaction
 		 */
-		public String get(int length) {
-			final StringBuilder sb = new StringBuilder(length);
-			for (int i = 0; i < length; i++) {
-				sb.append(str.charAt(rnd.nextInt(str.length())));
-			}
-			return sb.toString();
+		public void onTimeout(@NonNull final String transaction);
+	}
+
+	/**
+	 * statistics of TransactionManager
+	 */
+	public static class Stats {
+		/** number of transactions waiting for response */
+		public final int pending;
+		/** number of handled transactions */
+		public final long completed;
+		/** number of expired transactions */
+		public final long expired;
+		/** average latency from registration to handled[ナノ秒] */
+		public final long averageLatencyNs;
+		/** max latency from registration to handled[ナノ秒] */
+		public final long maxLatencyNs;
+
+		private Stats(final int pending, final long completed, final long expired,
+			final long totalLatencyNs, final long maxLatencyNs) {
+
+			this.pending = pending;
+			this.completed = completed;
+			this.expired = expired;
+			this.averageLatencyNs = completed > 0 ? totalLatencyNs / completed : 0;
+			this.maxLatencyNs = maxLatencyNs;
 		}
+
+		@Override
+		public String toString() {
+			return "Stats{" +
+				"pending=" + pending +
+				", completed=" + completed +
+				", expired=" + expired +
+				", averageLatencyNs=" + averageLatencyNs +
+				", maxLatencyNs=" + maxLatencyNs +
+				'}';
+		}
+	}
+
+	/**
+	 * registered transaction, also works as the task to expire itself
+	 */
+	private class Entry implements Runnable {
+		@NonNull
+		private final String transaction;
+		@NonNull
+		private final TransactionCallback callback;
+		@Nullable
+		private final TimeoutCallback timeoutCallback;
+		private final long registeredNs = System.nanoTime();
+		private HashedWheelTimer.Timeout timeout;
+
+		private Entry(@NonNull final String transaction,
+			@NonNull final TransactionCallback callback,
+			@Nullable final TimeoutCallback timeoutCallback) {
+
+			this.transaction = transaction;
+			this.callback = callback;
+			this.timeoutCallback = timeoutCallback;
+		}
+
+		@Override
+		public void run() {
+			expire(this);
+		}
+	}
+
+	/**
+	 * hold transaction id - Entry pair(s)
+	 */
+	private final ConcurrentHashMap<String, Entry>
+		mTransactions = new ConcurrentHashMap<>();
+	@NonNull
+	private final TransactionIdGenerator mIdGenerator;
+	@NonNull
+	private final HashedWheelTimer mTimer;
+	private final long mDefaultTimeoutMs;
+	private final AtomicLong mCompleted = new AtomicLong();
+	private final AtomicLong mExpired = new AtomicLong();
+	private final AtomicLong mTotalLatencyNs = new AtomicLong();
+	private final AtomicLong mMaxLatencyNs = new AtomicLong();
+
+	/**
+	 * コンストラクタ
+	 */
+	public TransactionManager() {
+		this(DEFAULT_TIMEOUT_MS);
 	}
 
 	/**
-	 * statically hold RandomString instance to generate random strings for transaction id
+	 * コンストラクタ
+	 * @param defaultTimeoutMs default timeout of transactions[ミリ秒]
 	 */
-	private static final RandomString mRandomString = new RandomString();
-	
+	public TransactionManager(final long defaultTimeoutMs) {
+		this(new TransactionIdGenerator.CounterIdGenerator(), defaultTimeoutMs);
+	}
+
 	/**
-	 * hold transaction id - TransactionCallback pair(s)
+	 * コンストラクタ
+	 * @param idGenerator strategy to generate transaction id
+	 * @param defaultTimeoutMs default timeout of transactions[ミリ秒]
 	 */
-	private static final Map<String, TransactionCallback>
-		sTransactions = new HashMap<String, TransactionCallback>();
-	
+	public TransactionManager(@NonNull final TransactionIdGenerator idGenerator,
+		final long defaultTimeoutMs) {
+
+		this(idGenerator, defaultTimeoutMs, getTimer());
+	}
+
+	/**
+	 * コンストラクタ
+	 * @param idGenerator strategy to generate transaction id
+	 * @param defaultTimeoutMs default timeout of transactions[ミリ秒]
+	 * @param timer
+	 */
+	/*package*/ TransactionManager(@NonNull final TransactionIdGenerator idGenerator,
+		final long defaultTimeoutMs,
+		@NonNull final HashedWheelTimer timer) {
+
+		mIdGenerator = idGenerator;
+		mDefaultTimeoutMs = defaultTimeoutMs;
+		mTimer = timer;
+	}
+
 	/**
 	 * get transaction and assign it to specific callback
-	 * @param length
 	 * @param callback
 	 * @return
 	 */
-	public static String get(int length, @Nullable final TransactionCallback callback) {
-		final String transaction = mRandomString.get(length);
+	@NonNull
+	public String get(@Nullable final TransactionCallback callback) {
+		return get(callback, mDefaultTimeoutMs, null);
+	}
+
+	/**
+	 * get transaction and assign it to specific callback with deadline
+	 * @param callback
+	 * @param timeoutMs the transaction is removed when it is not handled within this period
+	 * @param timeoutCallback
+	 * @return
+	 */
+	@NonNull
+	public String get(@Nullable final TransactionCallback callback,
+		final long timeoutMs, @Nullable final TimeoutCallback timeoutCallback) {
+
+		final String transaction = mIdGenerator.next();
 		if (callback != null) {
-			synchronized (sTransactions) {
-				sTransactions.put(transaction, callback);
+			final Entry entry = new Entry(transaction, callback, timeoutCallback);
+			entry.timeout = mTimer.newTimeout(entry, timeoutMs, TimeUnit.MILLISECONDS);
+			mTransactions.put(transaction, entry);
+			if (entry.timeout.isExpired()) {
+				// expired before registration
+				expire(entry);
 			}
 		}
 		return transaction;
 	}
-	
-	/**
-	 * callback listener when app receives transaction message
-	 */
-	public interface TransactionCallback {
-		/**
-		 * usually this is called from from long poll
-		 * @param transaction
-		 * @param body
-		 * @return true: handled, if return true, assignment will be removed.
-		 */
-		public boolean onReceived(@NonNull final String transaction,
-								  final JSONObject body);
-	}
-	
+
 	/**
 	 * call callback related to the specific transaction
+	 * callback is called without any lock
 	 * @param transaction
 	 * @param body
 	 * @return true: handled
 	 */
-	public static boolean handleTransaction(
+	public boolean handleTransaction(
 		@NonNull final String transaction,
-		@NonNull final JSONObject body) {
-		
-		TransactionCallback callback = null;
-		final boolean result;
-		synchronized (sTransactions) {
-			if (sTransactions.containsKey(transaction)) {
-				callback = sTransactions.get(transaction);
+		@NonNull final EventRoom body) {
+
+		final Entry entry = mTransactions.get(transaction);
+		final boolean result = entry != null && entry.callback.onReceived(transaction, body);
+		if (result && mTransactions.remove(transaction, entry)) {
+			entry.timeout.cancel();
+			final long latency = System.nanoTime() - entry.registeredNs;
+			mCompleted.incrementAndGet();
+			mTotalLatencyNs.addAndGet(latency);
+			for ( ; ; ) {
+				final long max = mMaxLatencyNs.get();
+				if ((latency <= max) || mMaxLatencyNs.compareAndSet(max, latency)) {
+					break;
+				}
 			}
-			result = callback != null && callback.onReceived(transaction, body);
 		}
 		return result;
 	}
@@ -119,18 +267,40 @@ public class TransactionManager {
 	 * remove specific transaction
  	 * @param transaction
 	 */
-	public static void removeTransaction(final String transaction) {
-		synchronized (sTransactions) {
-			sTransactions.remove(transaction);
+	public void removeTransaction(final String transaction) {
+		final Entry entry = mTransactions.remove(transaction);
+		if (entry != null) {
+			entry.timeout.cancel();
 		}
 	}
 
 	/**
 	 * clear transaction - callback mapping
 	 */
-	public static void clearTransactions() {
-		synchronized (sTransactions) {
-			sTransactions.clear();
+	public void clearTransactions() {
+		for (final String transaction: mTransactions.keySet()) {
+			removeTransaction(transaction);
+		}
+	}
+
+	/**
+	 * get statistics
+	 * @return
+	 */
+	@NonNull
+	public Stats getStats() {
+		return new Stats(mTransactions.size(),
+			mCompleted.get(), mExpired.get(),
+			mTotalLatencyNs.get(), mMaxLatencyNs.get());
+	}
+
+	private void expire(@NonNull final Entry entry) {
+		if (mTransactions.remove(entry.transaction, entry)) {
+			if (DEBUG) Log.v(TAG, "expire:" + entry.transaction);
+			mExpired.incrementAndGet();
+			if (entry.timeoutCallback != null) {
+				entry.timeoutCallback.onTimeout(entry.transaction);
+			}
 		}
 	}
 }
@@ -0,0 +1,309 @@
+package com.serenegiant.janus;
+/*
+ * JanusRTCAndroid
+ * Video chat sample app using videoroom plugin on janus-gateway server and WebRTC.
+ *
+ * Copyright (c) 2018 saki t_saki@serenegiant.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+*/
+
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import com.serenegiant.janus.request.Trickle;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * hold local ice candidates for a short window and send them in one trickle request
+ * instead of one request per candidate.
+ * The completion marker is folded into the final batch.
+ */
+/*package*/ class TrickleBatcher {
+	private static final boolean DEBUG = false;	// set false on production
+	private static final String TAG = TrickleBatcher.class.getSimpleName();
+
+	/**
+	 * timer for batch windows, tick is finer than that of TransactionManager
+	 * because the window is only tens of milliseconds
+	 */
+	private static HashedWheelTimer sTimer;
+
+	@NonNull
+	/*package*/ static synchronized HashedWheelTimer getTimer() {
+		if (sTimer == null) {
+			sTimer = new HashedWheelTimer(10, TimeUnit.MILLISECONDS, 64);
+		}
+		return sTimer;
+	}
+
+	/**
+	 * candidates to send in one request
+	 */
+	public static class Batch {
+		@NonNull
+		public final List<Trickle.Candidate> candidates;
+		/** true if this batch has the completion marker */
+		public final boolean completed;
+		/** time when the first candidate of this batch was added[ナノ秒] */
+		private final long firstNs;
+
+		private Batch(@NonNull final List<Trickle.Candidate> candidates,
+			final boolean completed, final long firstNs) {
+
+			this.candidates = Collections.unmodifiableList(candidates);
+			this.completed = completed;
+			this.firstNs = firstNs;
+		}
+
+		@Override
+		public String toString() {
+			return "Batch{" +
+				"candidates=" + candidates.size() +
+				", completed=" + completed +
+				'}';
+		}
+	}
+
+	/**
+	 * send batch to janus-gateway,
+	 * implementation should call #onAck when server acknowledged the batch
+	 */
+	public interface Sender {
+		public void send(@NonNull final Batch batch);
+	}
+
+	/**
+	 * snapshot of statistics
+	 */
+	public static class Stats {
+		/** number of sent requests */
+		public final long requests;
+		/** number of sent candidates */
+		public final long candidates;
+		/** number of acknowledged requests */
+		public final long acked;
+		/** average time from the first candidate of a batch to server ack[ミリ秒] */
+		public final long avgAckMs;
+		/** maximum time from the first candidate of a batch to server ack[ミリ秒] */
+		public final long maxAckMs;
+
+		private Stats(final long requests, final long candidates,
+			final long acked, final long avgAckMs, final long maxAckMs) {
+
+			this.requests = requests;
+			this.candidates = candidates;
+			this.acked = acked;
+			this.avgAckMs = avgAckMs;
+			this.maxAckMs = maxAckMs;
+		}
+
+		/**
+		 * @return average number of candidates per request
+		 */
+		public float candidatesPerRequest() {
+			return requests > 0 ? candidates / (float)requests : 0;
+		}
+
+		@Override
+		public String toString() {
+			return "Stats{" +
+				"requests=" + requests +
+				", candidates=" + candidates +
+				", candidatesPerRequest=" + candidatesPerRequest() +
+				", acked=" + acked +
+				", avgAckMs=" + avgAckMs +
+				", maxAckMs=" + maxAckMs +
+				'}';
+		}
+	}
+
+	@NonNull
+	private final Executor mExecutor;
+	@NonNull
+	private final HashedWheelTimer mTimer;
+	private final long mWindowMs;
+	@NonNull
+	private final Sender mSender;
+	private final Object mSync = new Object();
+	@NonNull
+	private List<Trickle.Candidate> mPending = new ArrayList<>();
+	private long mFirstNs;
+	@Nullable
+	private HashedWheelTimer.Timeout mTimeout;
+	private boolean mCompleted;
+	// statistics, guarded by mSync
+	private long mRequests;
+	private long mCandidates;
+	private long mAcked;
+	private long mTotalAckNs;
+	private long mMaxAckNs;
+
+	/**
+	 * コンストラクタ
+	 * @param executor executor to call Sender#send, usually the lane of the plugin
+	 * @param windowMs window to hold candidates[ミリ秒], 0以下なら即座に送信する
+	 * @param sender
+	 */
+	public TrickleBatcher(@NonNull final Executor executor,
+		final long windowMs, @NonNull final Sender sender) {
+
+		this(executor, getTimer(), windowMs, sender);
+	}
+
+	/**
+	 * コンストラクタ
+	 * @param executor executor to call Sender#send, usually the lane of the plugin
+	 * @param timer
+	 * @param windowMs window to hold candidates[ミリ秒], 0以下なら即座に送信する
+	 * @param sender
+	 */
+	/*package*/ TrickleBatcher(@NonNull final Executor executor,
+		@NonNull final HashedWheelTimer timer,
+		final long windowMs, @NonNull final Sender sender) {
+
+		mExecutor = executor;
+		mTimer = timer;
+		mWindowMs = windowMs;
+		mSender = sender;
+	}
+
+	/**
+	 * add local ice candidate,
+	 * the first candidate of a batch starts the window
+	 * @param candidate
+	 */
+	public void add(@NonNull final Trickle.Candidate candidate) {
+		if (DEBUG) Log.v(TAG, "add:" + candidate);
+		synchronized (mSync) {
+			if (mCompleted) {
+				// ICE restart等で再び収集が始まった
+				mCompleted = false;
+			}
+			if (mPending.isEmpty()) {
+				mFirstNs = System.nanoTime();
+			}
+			mPending.add(candidate);
+			if (mWindowMs <= 0) {
+				flushLocked(false);
+			} else if (mTimeout == null) {
+				mTimeout = mTimer.newTimeout(mFlushTask, mWindowMs, TimeUnit.MILLISECONDS);
+			}
+		}
+	}
+
+	/**
+	 * gathering completed, send pending candidates with the completion marker immediately
+	 */
+	public void complete() {
+		if (DEBUG) Log.v(TAG, "complete:");
+		synchronized (mSync) {
+			if (!mCompleted) {
+				if (mPending.isEmpty()) {
+					mFirstNs = System.nanoTime();
+				}
+				mCompleted = true;
+				flushLocked(true);
+			}
+		}
+	}
+
+	/**
+	 * discard pending candidates
+	 */
+	public void cancel() {
+		if (DEBUG) Log.v(TAG, "cancel:");
+		synchronized (mSync) {
+			cancelTimeoutLocked();
+			mPending = new ArrayList<>();
+		}
+	}
+
+	/**
+	 * number of candidates that are not sent yet
+	 * @return
+	 */
+	public int pendingCount() {
+		synchronized (mSync) {
+			return mPending.size();
+		}
+	}
+
+	/**
+	 * Sender should call this when janus-gateway acknowledged the batch
+	 * @param batch
+	 */
+	public void onAck(@NonNull final Batch batch) {
+		final long latency = System.nanoTime() - batch.firstNs;
+		synchronized (mSync) {
+			mAcked++;
+			mTotalAckNs += latency;
+			if (latency > mMaxAckNs) {
+				mMaxAckNs = latency;
+			}
+		}
+	}
+
+	/**
+	 * get snapshot of statistics
+	 * @return
+	 */
+	@NonNull
+	public Stats getStats() {
+		synchronized (mSync) {
+			return new Stats(mRequests, mCandidates, mAcked,
+				mAcked > 0 ? TimeUnit.NANOSECONDS.toMillis(mTotalAckNs / mAcked) : 0,
+				TimeUnit.NANOSECONDS.toMillis(mMaxAckNs));
+		}
+	}
+
+	private void flushLocked(final boolean completed) {
+		cancelTimeoutLocked();
+		if (!mPending.isEmpty() || completed) {
+			final Batch batch = new Batch(mPending, completed, mFirstNs);
+			mPending = new ArrayList<>();
+			mRequests++;
+			mCandidates += batch.candidates.size();
+			if (DEBUG) Log.v(TAG, "flush:" + batch);
+			mExecutor.execute(() -> mSender.send(batch));
+		}
+	}
+
+	private void cancelTimeoutLocked() {
+		if (mTimeout != null) {
+			mTimeout.cancel();
+			mTimeout = null;
+		}
+	}
+
+	/**
+	 * called on the timer thread when the window expired
+	 */
+	private final Runnable mFlushTask = new Runnable() {
+		@Override
+		public void run() {
+			synchronized (mSync) {
+				mTimeout = null;
+				flushLocked(false);
+			}
+		}
+	};
+}
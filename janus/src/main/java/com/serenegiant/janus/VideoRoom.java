@@ -20,12 +20,15 @@ package com.serenegiant.janus;
 */
 
 import com.serenegiant.janus.request.Attach;
+import com.serenegiant.janus.request.Claim;
 import com.serenegiant.janus.request.Creator;
 import com.serenegiant.janus.request.Destroy;
 import com.serenegiant.janus.request.Detach;
 import com.serenegiant.janus.request.Hangup;
+import com.serenegiant.janus.request.KeepAlive;
 import com.serenegiant.janus.request.Message;
 import com.serenegiant.janus.request.Trickle;
+import com.serenegiant.janus.request.TrickleBatch;
 import com.serenegiant.janus.request.TrickleCompleted;
 import com.serenegiant.janus.response.EventRoom;
 import com.serenegiant.janus.response.Plugin;
@@ -87,6 +90,13 @@ public interface VideoRoom {
 		@Path("plugin_id") final BigInteger pluginId,
 		@Body final TrickleCompleted trickle);
 
+	@POST("{api}/{session_id}/{plugin_id}")
+	public Call<EventRoom> trickle(
+		@Path("api") final String api,
+		@Path("session_id") final BigInteger sessionId,
+		@Path("plugin_id") final BigInteger pluginId,
+		@Body final TrickleBatch trickle);
+
 	@POST("{api}/{session_id}/{plugin_id}")
 	public Call<ResponseBody> send(
 		@Path("api") final String api,
@@ -108,6 +118,18 @@ public interface VideoRoom {
 		@Path("plugin_id") final BigInteger pluginId,
 		@Body final Hangup hangup);
 	
+	@POST("{api}/{session_id}")
+	public Call<EventRoom> keepAlive(
+		@Path("api") final String api,
+		@Path("session_id") final BigInteger sessionId,
+		@Body final KeepAlive keepAlive);
+
+	@POST("{api}/{session_id}")
+	public Call<EventRoom> claim(
+		@Path("api") final String api,
+		@Path("session_id") final BigInteger sessionId,
+		@Body final Claim claim);
+
 	@POST("{api}/{session_id}")
 	public Call<Void> destroy(
 		@Path("api") final String api,
@@ -0,0 +1,86 @@
+package com.serenegiant.janus;
+/*
+ * JanusRTCAndroid
+ * Video chat sample app using videoroom plugin on janus-gateway server and WebRTC.
+ *
+ * Copyright (c) 2018 saki t_saki@serenegiant.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+*/
+
+import android.support.annotation.NonNull;
+
+/**
+ * select the smallest substream that covers the rendered size,
+ * assuming each substream is half the size of the next one
+ * as libwebrtc scales simulcast layers(1/4, 1/2, 1 for 3 layers).
+ * feeds that are much smaller than the lowest substream(thumbnails) also
+ * get lower temporal layer, and invisible feeds get the lowest layers
+ */
+public class ViewportSubstreamPolicy implements SubstreamPolicy {
+	/** highest temporal layer janus-gateway accepts */
+	public static final int MAX_TEMPORAL = 2;
+	/** allow upscaling the layer up to this ratio before selecting the next one */
+	private static final float UPSCALE_TOLERANCE = 1.25f;
+	/** rendered size smaller than lowest substream * this is regarded as thumbnail */
+	private static final float THUMBNAIL_RATIO = 0.5f;
+
+	private final int mWidth;
+	private final int mHeight;
+	private final int mNumLayers;
+
+	/**
+	 * コンストラクタ
+	 * @param width width of the published video(highest substream)
+	 * @param height height of the published video(highest substream)
+	 * @param numLayers number of substreams
+	 */
+	public ViewportSubstreamPolicy(final int width, final int height, final int numLayers) {
+		if ((width <= 0) || (height <= 0) || (numLayers <= 0)) {
+			throw new IllegalArgumentException("invalid parameters:"
+				+ width + "x" + height + ",numLayers=" + numLayers);
+		}
+		mWidth = width;
+		mHeight = height;
+		mNumLayers = numLayers;
+	}
+
+	@NonNull
+	@Override
+	public Layer select(final int width, final int height) {
+		if ((width <= 0) || (height <= 0)) {
+			return new Layer(0, 0);
+		}
+		// compare the longer sides so that rotated views select the same layer
+		final int published = Math.max(mWidth, mHeight);
+		final int rendered = Math.max(width, height);
+		final int top = mNumLayers - 1;
+		for (int i = 0; i < top; i++) {
+			final int size = published >> (top - i);
+			if (size * UPSCALE_TOLERANCE >= rendered) {
+				final boolean thumbnail = (i == 0) && (rendered < size * THUMBNAIL_RATIO);
+				return new Layer(i, thumbnail ? MAX_TEMPORAL - 1 : MAX_TEMPORAL);
+			}
+		}
+		return new Layer(top, MAX_TEMPORAL);
+	}
+
+	@Override
+	public String toString() {
+		return "ViewportSubstreamPolicy{" +
+			mWidth + "x" + mHeight +
+			", numLayers=" + mNumLayers +
+			'}';
+	}
+}
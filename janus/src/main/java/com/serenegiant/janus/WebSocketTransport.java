@@ -0,0 +1,634 @@
+package com.serenegiant.janus;
+/*
+ * JanusRTCAndroid
+ * Video chat sample app using videoroom plugin on janus-gateway server and WebRTC.
+ *
+ * Copyright (c) 2018 saki t_saki@serenegiant.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+*/
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.serenegiant.janus.request.Attach;
+import com.serenegiant.janus.request.Claim;
+import com.serenegiant.janus.request.Creator;
+import com.serenegiant.janus.request.Destroy;
+import com.serenegiant.janus.request.Detach;
+import com.serenegiant.janus.request.KeepAlive;
+import com.serenegiant.janus.request.Message;
+import com.serenegiant.janus.request.Trickle;
+import com.serenegiant.janus.request.TrickleBatch;
+import com.serenegiant.janus.request.TrickleCompleted;
+import com.serenegiant.janus.response.EventRoom;
+import com.serenegiant.janus.response.Plugin;
+import com.serenegiant.janus.response.ServerInfo;
+import com.serenegiant.janus.response.Session;
+
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+
+/**
+ * JanusTransport implementation over WebSocket,
+ * all requests, replies and events go through one persistent socket.
+ * Replies(ack/success/error/server_info) are matched to requests with transaction,
+ * other messages are passed to EventListener and handled with TransactionManager
+ * same as long poll responses.
+ */
+/*package*/ class WebSocketTransport implements JanusTransport {
+	private static final boolean DEBUG = false;	// set false on production
+	private static final String TAG = WebSocketTransport.class.getSimpleName();
+
+	/**
+	 * sub protocol of janus-gateway WebSocket transport
+	 */
+	private static final String PROTOCOL = "janus-protocol";
+	private final Object mSync = new Object();
+	@NonNull
+	private final OkHttpClient mClient;
+	@NonNull
+	private final Request mRequest;
+	@NonNull
+	private final Gson mGson;
+	@NonNull
+	private final Executor mExecutor;
+	@NonNull
+	private final TransactionManager mTransactionManager;
+	private final long mReplyTimeoutMs;
+	@NonNull
+	private final HashedWheelTimer mTimer;
+	/**
+	 * hold transaction id - PendingReply pair(s) of requests waiting its reply
+	 */
+	@NonNull
+	private final Map<String, PendingReply> mPendingReplies
+		= new ConcurrentHashMap<>();
+	/**
+	 * events received before #startEvents is called
+	 */
+	@NonNull
+	private final List<EventRoom> mPendingEvents = new ArrayList<>();
+	@Nullable
+	private WebSocket mWebSocket;
+	@Nullable
+	private EventListener mEventListener;
+	@Nullable
+	private volatile ActivityListener mActivityListener;
+	private volatile boolean mReleased;
+
+	/**
+	 * コンストラクタ
+	 * @param client
+	 * @param url ws://... or wss://...
+	 * @param gson
+	 * @param executor executor to deliver events
+	 * @param transactionManager to generate transaction id for requests without model class
+	 * @param replyTimeoutMs
+	 */
+	public WebSocketTransport(@NonNull final OkHttpClient client,
+		@NonNull final String url,
+		@NonNull final Gson gson,
+		@NonNull final Executor executor,
+		@NonNull final TransactionManager transactionManager,
+		final long replyTimeoutMs) {
+
+		mClient = client;
+		mRequest = new Request.Builder()
+			.url(url)
+			.header("Sec-WebSocket-Protocol", PROTOCOL)
+			.build();
+		mGson = gson;
+		mExecutor = executor;
+		mTransactionManager = transactionManager;
+		mReplyTimeoutMs = replyTimeoutMs;
+		mTimer = TransactionManager.getTimer();
+	}
+
+	@NonNull
+	@Override
+	public Cancelable getInfo(@NonNull final Callback<ServerInfo> callback) {
+		final JsonObject json = new JsonObject();
+		json.addProperty("janus", "info");
+		json.addProperty("transaction", mTransactionManager.get(null));
+		return enqueue(json, ServerInfo.class, callback);
+	}
+
+	@NonNull
+	@Override
+	public Cancelable create(@NonNull final Creator creator,
+		@NonNull final Callback<Session> callback) {
+
+		return enqueue(toJson(creator, JanusId.NONE, JanusId.NONE), Session.class, callback);
+	}
+
+	@NonNull
+	@Override
+	public Cancelable attach(final long sessionId,
+		@NonNull final Attach attach,
+		@NonNull final Callback<Plugin> callback) {
+
+		return enqueue(toJson(attach, sessionId, JanusId.NONE), Plugin.class, callback);
+	}
+
+	@NonNull
+	@Override
+	public Cancelable send(final long sessionId,
+		final long handleId,
+		@NonNull final Message message,
+		@NonNull final Callback<EventRoom> callback) {
+
+		return enqueue(toJson(message, sessionId, handleId), EventRoom.class, callback);
+	}
+
+	@NonNull
+	@Override
+	public Cancelable trickle(final long sessionId,
+		final long handleId,
+		@NonNull final Trickle trickle,
+		@NonNull final Callback<EventRoom> callback) {
+
+		return enqueue(toJson(trickle, sessionId, handleId), EventRoom.class, callback);
+	}
+
+	@NonNull
+	@Override
+	public Cancelable trickleCompleted(final long sessionId,
+		final long handleId,
+		@NonNull final TrickleCompleted trickle,
+		@NonNull final Callback<EventRoom> callback) {
+
+		return enqueue(toJson(trickle, sessionId, handleId), EventRoom.class, callback);
+	}
+
+	@NonNull
+	@Override
+	public Cancelable trickle(final long sessionId,
+		final long handleId,
+		@NonNull final TrickleBatch trickle,
+		@NonNull final Callback<EventRoom> callback) {
+
+		return enqueue(toJson(trickle, sessionId, handleId), EventRoom.class, callback);
+	}
+
+	@NonNull
+	@Override
+	public Cancelable detach(final long sessionId,
+		final long handleId,
+		@NonNull final Detach detach,
+		@NonNull final Callback<Detach> callback) {
+
+		return enqueue(toJson(detach, sessionId, handleId), JsonObject.class,
+			new Callback<JsonObject>() {
+				@Override
+				public void onResponse(@NonNull final JsonObject response) {
+					callback.onResponse(detach);
+				}
+
+				@Override
+				public void onFailure(@NonNull final Throwable t) {
+					callback.onFailure(t);
+				}
+			});
+	}
+
+	@Override
+	public void destroy(final long sessionId,
+		@NonNull final Destroy destroy) throws IOException {
+
+		execute(toJson(destroy, sessionId, JanusId.NONE), JsonObject.class);
+	}
+
+	@NonNull
+	@Override
+	public Cancelable keepAlive(final long sessionId,
+		@NonNull final KeepAlive keepAlive,
+		@NonNull final Callback<EventRoom> callback) {
+
+		return enqueue(toJson(keepAlive, sessionId, JanusId.NONE), EventRoom.class, callback);
+	}
+
+	@Override
+	public void setActivityListener(@Nullable final ActivityListener listener) {
+		mActivityListener = listener;
+	}
+
+	@Override
+	public void startEvents(final long sessionId,
+		@NonNull final EventListener listener) {
+
+		if (DEBUG) Log.v(TAG, "startEvents:");
+		final List<EventRoom> pending;
+		synchronized (mSync) {
+			mEventListener = listener;
+			pending = new ArrayList<>(mPendingEvents);
+			mPendingEvents.clear();
+		}
+		for (final EventRoom body: pending) {
+			dispatchEvent(listener, body);
+		}
+	}
+
+	@Override
+	public void cancel() {
+		if (DEBUG) Log.v(TAG, "cancel:");
+		synchronized (mSync) {
+			mEventListener = null;
+			mPendingEvents.clear();
+		}
+		for (final PendingReply reply: mPendingReplies.values()) {
+			reply.fail(new IOException("Canceled"));
+		}
+		mPendingReplies.clear();
+	}
+
+	@NonNull
+	@Override
+	public Cancelable claim(final long sessionId,
+		@NonNull final Claim claim,
+		@NonNull final Callback<EventRoom> callback) {
+
+		return enqueue(toJson(claim, sessionId, JanusId.NONE), EventRoom.class, callback);
+	}
+
+	/**
+	 * close the current WebSocket that may be already dead on the old network,
+	 * failures of the old WebSocket are ignored and next request opens new one
+	 */
+	@Override
+	public void reconnect() {
+		if (DEBUG) Log.v(TAG, "reconnect:");
+		cancel();
+		final WebSocket webSocket;
+		synchronized (mSync) {
+			webSocket = mWebSocket;
+			mWebSocket = null;
+		}
+		if (webSocket != null) {
+			webSocket.cancel();
+		}
+	}
+
+	@Override
+	public void release() {
+		if (DEBUG) Log.v(TAG, "release:");
+		mReleased = true;
+		cancel();
+		synchronized (mSync) {
+			if (mWebSocket != null) {
+				mWebSocket.close(1000, null);
+				mWebSocket = null;
+			}
+		}
+	}
+
+	/**
+	 * number of requests that are waiting its reply
+	 * @return
+	 */
+	/*package*/ int pendingReplyCount() {
+		return mPendingReplies.size();
+	}
+
+//--------------------------------------------------------------------------------
+	/**
+	 * convert request model into json and add ids that http transport carries on its path
+	 * @param request
+	 * @param sessionId
+	 * @param handleId
+	 * @return
+	 */
+	@NonNull
+	private JsonObject toJson(@NonNull final Object request,
+		final long sessionId, final long handleId) {
+
+		final JsonObject json = mGson.toJsonTree(request).getAsJsonObject();
+		addId(json, "session_id", sessionId);
+		addId(json, "handle_id", handleId);
+		return json;
+	}
+
+	/**
+	 * add id as unsigned JSON number if id is not JanusId.NONE
+	 * @param json
+	 * @param name
+	 * @param id
+	 */
+	private static void addId(@NonNull final JsonObject json,
+		@NonNull final String name, final long id) {
+
+		if (id > 0) {
+			json.addProperty(name, id);
+		} else if (id != JanusId.NONE) {
+			json.addProperty(name, JanusId.toBigInteger(id));
+		}
+	}
+
+	@NonNull
+	private WebSocket requireWebSocket() throws IOException {
+		synchronized (mSync) {
+			if (mReleased) {
+				throw new IOException("already released");
+			}
+			if (mWebSocket == null) {
+				mWebSocket = mClient.newWebSocket(mRequest, mWebSocketListener);
+			}
+			return mWebSocket;
+		}
+	}
+
+	/**
+	 * send request and wait its reply
+	 * @param json
+	 * @param clazz
+	 * @param <T>
+	 * @return
+	 * @throws IOException
+	 */
+	@NonNull
+	private <T> T execute(@NonNull final JsonObject json,
+		@NonNull final Class<T> clazz) throws IOException {
+
+		final PendingReply reply = new PendingReply(null);
+		sendRequest(json, reply);
+		reply.await(mReplyTimeoutMs);
+		final T result = reply.convert(clazz);
+		if (result == null) {
+			throw new IOException("unexpected response:" + reply.reply);
+		}
+		return result;
+	}
+
+	/**
+	 * send request and call callback when its reply arrives
+	 * or fail with timeout if no reply arrives within reply timeout
+	 * @param json
+	 * @param clazz
+	 * @param callback
+	 * @param <T>
+	 * @return
+	 */
+	@NonNull
+	private <T> Cancelable enqueue(@NonNull final JsonObject json,
+		@NonNull final Class<T> clazz,
+		@NonNull final Callback<T> callback) {
+
+		final AsyncRequest<T> request = new AsyncRequest<>(callback);
+		final PendingReply reply = new PendingReply(new Callback<PendingReply>() {
+			@Override
+			public void onResponse(@NonNull final PendingReply response) {
+				final T result;
+				try {
+					result = response.convert(clazz);
+				} catch (final Exception e) {
+					request.onFailure(e);
+					return;
+				}
+				if (result != null) {
+					request.onResponse(result);
+				} else {
+					request.onFailure(new RuntimeException("unexpected response:" + response.reply));
+				}
+			}
+
+			@Override
+			public void onFailure(@NonNull final Throwable t) {
+				request.onFailure(t);
+			}
+		});
+		try {
+			sendRequest(json, reply);
+		} catch (final IOException e) {
+			request.onFailure(e);
+		}
+		return request.start(reply, mReplyTimeoutMs, mTimer);
+	}
+
+	private void sendRequest(@NonNull final JsonObject json,
+		@NonNull final PendingReply reply) throws IOException {
+
+		final String transaction = json.get("transaction").getAsString();
+		reply.transaction = transaction;
+		// WebSocketを取得できない時に応答待ちが残らないように登録前に取得する
+		final WebSocket webSocket = requireWebSocket();
+		mPendingReplies.put(transaction, reply);
+		final String text = mGson.toJson(json);
+		if (DEBUG) Log.v(TAG, "sendRequest:" + text);
+		if (!webSocket.send(text)) {
+			mPendingReplies.remove(transaction);
+			throw new IOException("failed to send request, WebSocket is already closed");
+		}
+		final ActivityListener listener = mActivityListener;
+		if (listener != null) {
+			listener.onActivity();
+		}
+	}
+
+	/**
+	 * WebSocketからのメッセージ受信時の処理
+	 * @param text
+	 */
+	private void handleMessage(@NonNull final String text) {
+		if (DEBUG) Log.v(TAG, "handleMessage:" + text);
+		final EventRoom body;
+		try {
+			// 受信したテキストは1回だけデコードする
+			body = EventDecoder.decode(text);
+		} catch (final JsonParseException | IOException e) {
+			final EventListener listener;
+			synchronized (mSync) {
+				listener = mEventListener;
+			}
+			if (listener != null) {
+				listener.onFailure(e);
+			}
+			return;
+		}
+		if (!"event".equals(body.janus) && (body.transaction != null)) {
+			// 要求に対する直接の応答
+			final PendingReply reply = mPendingReplies.remove(body.transaction);
+			if (reply != null) {
+				reply.complete(text, body);
+				return;
+			}
+		}
+		final EventListener listener;
+		synchronized (mSync) {
+			listener = mEventListener;
+			if (listener == null) {
+				mPendingEvents.add(body);
+				return;
+			}
+		}
+		dispatchEvent(listener, body);
+	}
+
+	private void dispatchEvent(@NonNull final EventListener listener,
+		@NonNull final EventRoom body) {
+
+		try {
+			mExecutor.execute(() -> listener.onEvent(body));
+		} catch (final Exception e) {
+			// ignore, will be already released.
+		}
+	}
+
+	private void handleFailure(@NonNull final WebSocket webSocket,
+		@NonNull final Throwable t) {
+
+		if (DEBUG) Log.v(TAG, "handleFailure:" + t);
+		final EventListener listener;
+		synchronized (mSync) {
+			if (webSocket != mWebSocket) {
+				// failure of the WebSocket that was already dropped by #reconnect
+				return;
+			}
+			mWebSocket = null;
+			listener = mEventListener;
+		}
+		for (final PendingReply reply: mPendingReplies.values()) {
+			reply.fail(t);
+		}
+		mPendingReplies.clear();
+		if ((listener != null) && !mReleased) {
+			listener.onFailure(t);
+		}
+	}
+
+	private final WebSocketListener mWebSocketListener = new WebSocketListener() {
+		@Override
+		public void onOpen(final WebSocket webSocket, final Response response) {
+			if (DEBUG) Log.v(TAG, "onOpen:");
+		}
+
+		@Override
+		public void onMessage(final WebSocket webSocket, final String text) {
+			handleMessage(text);
+		}
+
+		@Override
+		public void onClosed(final WebSocket webSocket, final int code, final String reason) {
+			if (DEBUG) Log.v(TAG, "onClosed:" + code + "," + reason);
+			handleFailure(webSocket, new IOException("WebSocket closed:" + code + "," + reason));
+		}
+
+		@Override
+		public void onFailure(final WebSocket webSocket, final Throwable t, final Response response) {
+			if (DEBUG) Log.v(TAG, "onFailure:" + t);
+			handleFailure(webSocket, t);
+		}
+	};
+
+	/**
+	 * holder of request waiting its reply
+	 */
+	private class PendingReply implements Cancelable {
+		private final CountDownLatch latch = new CountDownLatch(1);
+		@Nullable
+		private final Callback<PendingReply> callback;
+		private String transaction;
+		private String reply;
+		@Nullable
+		private EventRoom decoded;
+		private Throwable error;
+		private volatile boolean canceled;
+
+		private PendingReply(@Nullable final Callback<PendingReply> callback) {
+			this.callback = callback;
+		}
+
+		/**
+		 * convert reply into model class
+		 * EventRoomは受信時にデコード済みなのでそのまま返す
+		 * @param clazz
+		 * @param <T>
+		 * @return
+		 */
+		@Nullable
+		private <T> T convert(@NonNull final Class<T> clazz) {
+			return (clazz == EventRoom.class) && (decoded != null)
+				? clazz.cast(decoded) : mGson.fromJson(reply, clazz);
+		}
+
+		private void complete(@NonNull final String reply,
+			@Nullable final EventRoom decoded) {
+
+			if (latch.getCount() > 0) {
+				this.reply = reply;
+				this.decoded = decoded;
+				latch.countDown();
+				if ((callback != null) && !canceled) {
+					callback.onResponse(this);
+				}
+			}
+		}
+
+		private void fail(@NonNull final Throwable t) {
+			if (latch.getCount() > 0) {
+				this.error = t;
+				latch.countDown();
+				if ((callback != null) && !canceled) {
+					callback.onFailure(t);
+				}
+			}
+		}
+
+		private void await(final long timeoutMs) throws IOException {
+			try {
+				if (!latch.await(timeoutMs, TimeUnit.MILLISECONDS)) {
+					mPendingReplies.remove(transaction);
+					throw new InterruptedIOException("timeout");
+				}
+			} catch (final InterruptedException e) {
+				mPendingReplies.remove(transaction);
+				throw new InterruptedIOException();
+			}
+			if (error != null) {
+				throw error instanceof IOException
+					? (IOException)error : new IOException(error);
+			}
+		}
+
+		@Override
+		public void cancel() {
+			canceled = true;
+			if (transaction != null) {
+				mPendingReplies.remove(transaction);
+			}
+		}
+
+		@Override
+		public boolean isCanceled() {
+			return canceled;
+		}
+	}
+}
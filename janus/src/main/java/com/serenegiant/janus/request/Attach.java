@@ -22,6 +22,7 @@ package com.serenegiant.janus.request;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
+import com.serenegiant.janus.JanusId;
 import com.serenegiant.janus.TransactionManager;
 import com.serenegiant.janus.response.Session;
 
@@ -32,26 +33,38 @@ public class Attach {
 	public final String janus;
 	@NonNull
 	public final String transaction;
-	@NonNull
-	public final BigInteger session_id;
+	public final long session_id;
 	@NonNull
 	public final String plugin;
 	
-	public Attach(@NonNull final BigInteger session_id,
+	public Attach(@NonNull final TransactionManager manager,
+		final long session_id,
 		@NonNull final String plugin,
 		@Nullable TransactionManager.TransactionCallback callback) {
 		
 		this.janus = "attach";
-		this.transaction = TransactionManager.get(12, callback);
+		this.transaction = manager.get(callback);
 		this.session_id = session_id;
 		this.plugin = plugin;
 	}
+
+	/**
+	 * for compatibility with BigInteger ids
+	 */
+	public Attach(@NonNull final TransactionManager manager,
+		@NonNull final BigInteger session_id,
+		@NonNull final String plugin,
+		@Nullable TransactionManager.TransactionCallback callback) {
+
+		this(manager, JanusId.valueOf(session_id), plugin, callback);
+	}
 	
-	public Attach(@NonNull final Session session,
+	public Attach(@NonNull final TransactionManager manager,
+		@NonNull final Session session,
 		@NonNull final String plugin,
 		@Nullable TransactionManager.TransactionCallback callback) {
 
-		this(session.id(), plugin, callback);
+		this(manager, session.id(), plugin, callback);
 	}
 	
 	@Override
@@ -59,7 +72,7 @@ public class Attach {
 		return "Attach{" +
 			"janus='" + janus + '\'' +
 			", transaction='" + transaction + '\'' +
-			", session_id=" + session_id +
+			", session_id=" + JanusId.toString(session_id) +
 			", plugin='" + plugin + '\'' +
 			'}';
 	}
@@ -19,6 +19,8 @@ package com.serenegiant.janus.request;
  *
 */
 
+import android.support.annotation.Nullable;
+
 /**
  * message body
  */
@@ -26,11 +28,23 @@ public class Configure {
 	public final String request;
 	public final boolean audio;
 	public final boolean video;
+	/**
+	 * true: request new offer with ICE restart(subscriber only), null: omitted
+	 */
+	@Nullable
+	public final Boolean restart;
 	
 	public Configure(final boolean audio, final boolean video) {
+		this(audio, video, null);
+	}
+	
+	public Configure(final boolean audio, final boolean video,
+		@Nullable final Boolean restart) {
+
 		this.request = "configure";
 		this.audio = audio;
 		this.video = video;
+		this.restart = restart;
 	}
 	
 	@Override
@@ -39,6 +53,7 @@ public class Configure {
 			"request='" + request + '\'' +
 			", audio=" + audio +
 			", video=" + video +
+			", restart=" + restart +
 			'}';
 	}
 }
@@ -0,0 +1,119 @@
+package com.serenegiant.janus.request;
+/*
+ * JanusRTCAndroid
+ * Video chat sample app using videoroom plugin on janus-gateway server and WebRTC.
+ *
+ * Copyright (c) 2018 saki t_saki@serenegiant.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+*/
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * message body of subscriber to select simulcast substream/temporal layer
+ * that janus-gateway relays, the publisher should publish with simulcast
+ */
+public class ConfigureSubstream {
+	public final String request;
+	/** substream(spatial layer) 0-2, 0 is the lowest resolution, null: omitted */
+	@Nullable
+	public final Integer substream;
+	/** temporal layer 0-2, 0 is the lowest frame rate, null: omitted */
+	@Nullable
+	public final Integer temporal;
+	/** only for multistream subscriber, null: omitted */
+	@Nullable
+	public final List<Stream> streams;
+
+	/**
+	 * select layers of the subscriber handle
+	 * @param substream negative value does not change substream
+	 * @param temporal negative value does not change temporal layer
+	 * @return
+	 */
+	@NonNull
+	public static ConfigureSubstream of(final int substream, final int temporal) {
+		return new ConfigureSubstream(layer(substream), layer(temporal), null);
+	}
+
+	/**
+	 * select layers of a stream of multistream subscriber
+	 * @param mid mid of the video stream on the subscriber PeerConnection
+	 * @param substream negative value does not change substream
+	 * @param temporal negative value does not change temporal layer
+	 * @return
+	 */
+	@NonNull
+	public static ConfigureSubstream of(@NonNull final String mid,
+		final int substream, final int temporal) {
+
+		return new ConfigureSubstream(null, null, Collections.singletonList(
+			new Stream(mid, layer(substream), layer(temporal))));
+	}
+
+	private ConfigureSubstream(@Nullable final Integer substream,
+		@Nullable final Integer temporal, @Nullable final List<Stream> streams) {
+
+		this.request = "configure";
+		this.substream = substream;
+		this.temporal = temporal;
+		this.streams = streams;
+	}
+
+	@Nullable
+	private static Integer layer(final int layer) {
+		return layer >= 0 ? layer : null;
+	}
+
+	public static class Stream {
+		@NonNull
+		public final String mid;
+		@Nullable
+		public final Integer substream;
+		@Nullable
+		public final Integer temporal;
+
+		public Stream(@NonNull final String mid,
+			@Nullable final Integer substream, @Nullable final Integer temporal) {
+
+			this.mid = mid;
+			this.substream = substream;
+			this.temporal = temporal;
+		}
+
+		@Override
+		public String toString() {
+			return "Stream{" +
+				"mid='" + mid + '\'' +
+				", substream=" + substream +
+				", temporal=" + temporal +
+				'}';
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "ConfigureSubstream{" +
+			"request='" + request + '\'' +
+			", substream=" + substream +
+			", temporal=" + temporal +
+			", streams=" + streams +
+			'}';
+	}
+}
@@ -29,9 +29,9 @@ public class Creator {
 	@NonNull
 	public final String transaction;
 	
-	public Creator() {
+	public Creator(@NonNull final TransactionManager manager) {
 		this.janus = "create";
-		this.transaction = TransactionManager.get(12, null);
+		this.transaction = manager.get(null);
 	}
 	
 	@Override
@@ -22,6 +22,7 @@ package com.serenegiant.janus.request;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
+import com.serenegiant.janus.JanusId;
 import com.serenegiant.janus.TransactionManager;
 import com.serenegiant.janus.response.Session;
 
@@ -32,20 +33,31 @@ public class Destroy {
 	public final String janus;
 	@NonNull
 	public final String transaction;
-	@NonNull
-	public final BigInteger session_id;
+	public final long session_id;
 	
-	public Destroy(@NonNull final BigInteger session_id,
+	public Destroy(@NonNull final TransactionManager manager,
+		final long session_id,
 		@Nullable final TransactionManager.TransactionCallback callback) {
 
 		this.janus = "destroy";
-		this.transaction = TransactionManager.get(12, callback);
+		this.transaction = manager.get(callback);
 		this.session_id = session_id;
 	}
+
+	/**
+	 * for compatibility with BigInteger ids
+	 */
+	public Destroy(@NonNull final TransactionManager manager,
+		@NonNull final BigInteger session_id,
+		@Nullable final TransactionManager.TransactionCallback callback) {
+
+		this(manager, JanusId.valueOf(session_id), callback);
+	}
 	
-	public Destroy(@NonNull final Session session,
+	public Destroy(@NonNull final TransactionManager manager,
+		@NonNull final Session session,
 		@NonNull final TransactionManager.TransactionCallback callback) {
-		this(session.data.id, callback);
+		this(manager, session.data.id, callback);
 	}
 	
 	@Override
@@ -53,7 +65,7 @@ public class Destroy {
 		return "Destroy{" +
 			"janus='" + janus + '\'' +
 			", transaction='" + transaction + '\'' +
-			", session_id=" + session_id +
+			", session_id=" + JanusId.toString(session_id) +
 			'}';
 	}
 }
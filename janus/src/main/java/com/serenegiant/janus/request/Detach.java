@@ -22,6 +22,7 @@ package com.serenegiant.janus.request;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
+import com.serenegiant.janus.JanusId;
 import com.serenegiant.janus.TransactionManager;
 import com.serenegiant.janus.response.Session;
 
@@ -32,21 +33,32 @@ public class Detach {
 	public final String janus;
 	@NonNull
 	public final String transaction;
-	@NonNull
-	public final BigInteger session_id;
+	public final long session_id;
 	
-	public Detach(@NonNull final BigInteger session_id,
+	public Detach(@NonNull final TransactionManager manager,
+		final long session_id,
 		@Nullable final TransactionManager.TransactionCallback callback) {
 
 		this.janus = "detach";
-		this.transaction = TransactionManager.get(12, callback);
+		this.transaction = manager.get(callback);
 		this.session_id = session_id;
 	}
+
+	/**
+	 * for compatibility with BigInteger ids
+	 */
+	public Detach(@NonNull final TransactionManager manager,
+		@NonNull final BigInteger session_id,
+		@Nullable final TransactionManager.TransactionCallback callback) {
+
+		this(manager, JanusId.valueOf(session_id), callback);
+	}
 	
-	public Detach(@NonNull final Session session,
+	public Detach(@NonNull final TransactionManager manager,
+		@NonNull final Session session,
 		@Nullable TransactionManager.TransactionCallback callback) {
 
-		this(session.id(), callback);
+		this(manager, session.id(), callback);
 	}
 	
 	@Override
@@ -54,7 +66,7 @@ public class Detach {
 		return "Detach{" +
 			"janus='" + janus + '\'' +
 			", transaction='" + transaction + '\'' +
-			", session_id=" + session_id +
+			", session_id=" + JanusId.toString(session_id) +
 			'}';
 	}
 }
@@ -22,6 +22,8 @@ package com.serenegiant.janus.request;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
+import com.serenegiant.janus.JanusId;
+
 import java.math.BigInteger;
 
 /**
@@ -33,12 +35,15 @@ public class Join {
 	public final String ptype;
 	public final String username;
 	public final String display;
-	public final BigInteger feed;
+	/**
+	 * feed id to subscribe, JanusId.NONE for publisher
+	 */
+	public final long feed;
 	
 	public Join(final int room, @NonNull final String pType,
 		@Nullable final String username,
 		@Nullable final String display,
-		@Nullable final BigInteger feed) {
+		final long feed) {
 
 		this.request = "join";
 		this.room = room;
@@ -47,6 +52,17 @@ public class Join {
 		this.display = display;
 		this.feed = feed;
 	}
+
+	/**
+	 * for compatibility with BigInteger ids
+	 */
+	public Join(final int room, @NonNull final String pType,
+		@Nullable final String username,
+		@Nullable final String display,
+		@Nullable final BigInteger feed) {
+
+		this(room, pType, username, display, JanusId.valueOf(feed));
+	}
 	
 	@Override
 	public String toString() {
@@ -56,7 +72,7 @@ public class Join {
 			", ptype='" + ptype + '\'' +
 			", username='" + username + '\'' +
 			", display='" + display + '\'' +
-			", feed='" + feed + '\'' +
+			", feed='" + JanusId.toString(feed) + '\'' +
 			'}';
 	}
 }
@@ -0,0 +1,53 @@
+package com.serenegiant.janus.request;
+/*
+ * JanusRTCAndroid
+ * Video chat sample app using videoroom plugin on janus-gateway server and WebRTC.
+ *
+ * Copyright (c) 2018 saki t_saki@serenegiant.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+*/
+
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.serenegiant.janus.JanusId;
+import com.serenegiant.janus.TransactionManager;
+
+public class KeepAlive {
+	@NonNull
+	public final String janus;
+	@NonNull
+	public final String transaction;
+	public final long session_id;
+
+	public KeepAlive(@NonNull final TransactionManager manager,
+		final long session_id,
+		@Nullable final TransactionManager.TransactionCallback callback) {
+
+		this.janus = "keepalive";
+		this.transaction = manager.get(callback);
+		this.session_id = session_id;
+	}
+
+	@Override
+	public String toString() {
+		return "KeepAlive{" +
+			"janus='" + janus + '\'' +
+			", transaction='" + transaction + '\'' +
+			", session_id=" + JanusId.toString(session_id) +
+			'}';
+	}
+}
@@ -22,6 +22,7 @@ package com.serenegiant.janus.request;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
+import com.serenegiant.janus.JanusId;
 import com.serenegiant.janus.Room;
 import com.serenegiant.janus.TransactionManager;
 
@@ -32,46 +33,72 @@ public class Message {
 	public final String janus;
 	@NonNull
 	public final String transaction;
-	@NonNull
-	public final BigInteger session_id;
-	@NonNull
-	public final BigInteger handle_id;
+	public final long session_id;
+	public final long handle_id;
 	
 	public final Object body;
 	public final Object jsep;
 	
-	public Message(@NonNull final BigInteger session_id,
-		@NonNull final BigInteger handle_id,
+	public Message(@NonNull final TransactionManager manager,
+		final long session_id,
+		final long handle_id,
 		final Object body, final Object jsep,
 		@Nullable final TransactionManager.TransactionCallback callback) {
 
 		this.janus = "message";
-		this.transaction = TransactionManager.get(12, callback);
+		this.transaction = manager.get(callback);
 		this.session_id = session_id;
 		this.handle_id = handle_id;
 		this.body = body;
 		this.jsep = jsep;
 	}
 
-	public Message(@NonNull final BigInteger session_id,
+	/**
+	 * for compatibility with BigInteger ids
+	 */
+	public Message(@NonNull final TransactionManager manager,
+		@NonNull final BigInteger session_id,
+		@NonNull final BigInteger handle_id,
+		final Object body, final Object jsep,
+		@Nullable final TransactionManager.TransactionCallback callback) {
+
+		this(manager, JanusId.valueOf(session_id), JanusId.valueOf(handle_id), body, jsep, callback);
+	}
+
+	public Message(@NonNull final TransactionManager manager,
+		final long session_id,
+		final long handle_id,
+		final Object body,
+		@Nullable final TransactionManager.TransactionCallback callback) {
+
+		this(manager, session_id, handle_id, body, null, callback);
+	}
+
+	/**
+	 * for compatibility with BigInteger ids
+	 */
+	public Message(@NonNull final TransactionManager manager,
+		@NonNull final BigInteger session_id,
 		@NonNull final BigInteger handle_id,
 		final Object body,
 		@Nullable final TransactionManager.TransactionCallback callback) {
 
-		this(session_id, handle_id, body, null, callback);
+		this(manager, JanusId.valueOf(session_id), JanusId.valueOf(handle_id), body, null, callback);
 	}
 
-	public Message(@NonNull final Room room, final Object body,
+	public Message(@NonNull final TransactionManager manager,
+		@NonNull final Room room, final Object body,
 				   @Nullable final TransactionManager.TransactionCallback callback) {
 
-		this(room.sessionId, room.pluginId, body, null, callback);
+		this(manager, room.sessionId, room.pluginId, body, null, callback);
 	}
 
-	public Message(@NonNull final Room room,
+	public Message(@NonNull final TransactionManager manager,
+		@NonNull final Room room,
 		final Object body, final Object jsep,
 		@Nullable final TransactionManager.TransactionCallback callback) {
 
-		this(room.sessionId, room.pluginId, body, jsep, callback);
+		this(manager, room.sessionId, room.pluginId, body, jsep, callback);
 	}
 	
 	@Override
@@ -79,8 +106,8 @@ public class Message {
 		return "Message{" +
 			"janus='" + janus + '\'' +
 			", transaction='" + transaction + '\'' +
-			", session_id=" + session_id +
-			", handle_id=" + handle_id +
+			", session_id=" + JanusId.toString(session_id) +
+			", handle_id=" + JanusId.toString(handle_id) +
 			", body=" + body +
 			", jsep=" + jsep +
 			'}';
@@ -0,0 +1,128 @@
+package com.serenegiant.janus.request;
+/*
+ * JanusRTCAndroid
+ * Video chat sample app using videoroom plugin on janus-gateway server and WebRTC.
+ *
+ * Copyright (c) 2018 saki t_saki@serenegiant.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+*/
+
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.serenegiant.janus.JanusId;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * message body for multistream subscriber,
+ * join with streams list and then add/remove feeds with subscribe/unsubscribe
+ * on the same handle(and the same PeerConnection)
+ */
+public class Subscribe {
+	public final String request;
+	/** only for join */
+	@Nullable
+	public final Integer room;
+	/** only for join */
+	@Nullable
+	public final String ptype;
+	@NonNull
+	public final List<Stream> streams;
+
+	/**
+	 * join as multistream subscriber
+	 * @param room
+	 * @param feeds feed ids to subscribe at first
+	 * @return
+	 */
+	public static Subscribe join(final int room, @NonNull final Collection<Long> feeds) {
+		return new Subscribe("join", room, "subscriber", toStreams(feeds));
+	}
+
+	/**
+	 * add feeds to existing multistream subscriber
+	 * @param feeds
+	 * @return
+	 */
+	public static Subscribe subscribe(@NonNull final Collection<Long> feeds) {
+		return new Subscribe("subscribe", null, null, toStreams(feeds));
+	}
+
+	/**
+	 * remove feeds from existing multistream subscriber
+	 * @param feeds
+	 * @return
+	 */
+	public static Subscribe unsubscribe(@NonNull final Collection<Long> feeds) {
+		return new Subscribe("unsubscribe", null, null, toStreams(feeds));
+	}
+
+	private Subscribe(@NonNull final String request,
+		@Nullable final Integer room, @Nullable final String ptype,
+		@NonNull final List<Stream> streams) {
+
+		this.request = request;
+		this.room = room;
+		this.ptype = ptype;
+		this.streams = streams;
+	}
+
+	@NonNull
+	private static List<Stream> toStreams(@NonNull final Collection<Long> feeds) {
+		final List<Stream> result = new ArrayList<>(feeds.size());
+		for (final long feed: feeds) {
+			result.add(new Stream(feed, null));
+		}
+		return Collections.unmodifiableList(result);
+	}
+
+	/**
+	 * feed(and optionally one of its streams) to subscribe/unsubscribe
+	 */
+	public static class Stream {
+		public final long feed;
+		/** mid of the publisher's stream, null: all streams of the feed */
+		@Nullable
+		public final String mid;
+
+		public Stream(final long feed, @Nullable final String mid) {
+			this.feed = feed;
+			this.mid = mid;
+		}
+
+		@Override
+		public String toString() {
+			return "Stream{" +
+				"feed=" + JanusId.toString(feed) +
+				", mid='" + mid + '\'' +
+				'}';
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "Subscribe{" +
+			"request='" + request + '\'' +
+			", room=" + room +
+			", ptype='" + ptype + '\'' +
+			", streams=" + streams +
+			'}';
+	}
+}
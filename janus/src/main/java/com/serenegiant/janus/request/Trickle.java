@@ -22,6 +22,7 @@ package com.serenegiant.janus.request;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
+import com.serenegiant.janus.JanusId;
 import com.serenegiant.janus.Room;
 import com.serenegiant.janus.TransactionManager;
 
@@ -34,38 +35,51 @@ public class Trickle {
 	public final String janus;
 	@NonNull
 	public final String transaction;
-	@NonNull
-	public final BigInteger session_id;
-	@NonNull
-	public final BigInteger handle_id;
+	public final long session_id;
+	public final long handle_id;
 	@NonNull
 	public final Candidate candidate;
 
-	public Trickle(@NonNull final BigInteger session_id,
-		@NonNull final BigInteger handle_id,
+	public Trickle(@NonNull final TransactionManager manager,
+		final long session_id,
+		final long handle_id,
 		@NonNull final Candidate candidate,
 		@Nullable final TransactionManager.TransactionCallback callback) {
 
 		this.janus = "trickle";
-		this.transaction = TransactionManager.get(12, callback);
+		this.transaction = manager.get(callback);
 		this.session_id = session_id;
 		this.handle_id = handle_id;
 		this.candidate = candidate;
 	}
+
+	/**
+	 * for compatibility with BigInteger ids
+	 */
+	public Trickle(@NonNull final TransactionManager manager,
+		@NonNull final BigInteger session_id,
+		@NonNull final BigInteger handle_id,
+		@NonNull final Candidate candidate,
+		@Nullable final TransactionManager.TransactionCallback callback) {
+
+		this(manager, JanusId.valueOf(session_id), JanusId.valueOf(handle_id), candidate, callback);
+	}
 	
-	public Trickle(@NonNull final Room room,
+	public Trickle(@NonNull final TransactionManager manager,
+		@NonNull final Room room,
 	   @NonNull final Candidate candidate,
 		@Nullable final TransactionManager.TransactionCallback callback) {
 	   
-	   this(room.sessionId, room.pluginId, candidate, callback);
+	   this(manager, room.sessionId, room.pluginId, candidate, callback);
 	}
 	
-	public Trickle(@NonNull final Room room,
+	public Trickle(@NonNull final TransactionManager manager,
+		@NonNull final Room room,
 		@NonNull final IceCandidate candidate,
 		@Nullable final TransactionManager.TransactionCallback callback) {
 		
 
-		this(room.sessionId, room.pluginId,
+		this(manager, room.sessionId, room.pluginId,
 			new Candidate(candidate.sdpMLineIndex,
 				candidate.sdpMid, candidate.sdp),
 			callback);
@@ -99,7 +113,7 @@ public class Trickle {
 		return "Trickle{" +
 			"janus='" + janus + '\'' +
 			", transaction='" + transaction + '\'' +
-			", session_id=" + session_id +
+			", session_id=" + JanusId.toString(session_id) +
 			", candidate=" + candidate +
 			'}';
 	}
@@ -0,0 +1,103 @@
+package com.serenegiant.janus.request;
+/*
+ * JanusRTCAndroid
+ * Video chat sample app using videoroom plugin on janus-gateway server and WebRTC.
+ *
+ * Copyright (c) 2018 saki t_saki@serenegiant.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+*/
+
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.serenegiant.janus.JanusId;
+import com.serenegiant.janus.Room;
+import com.serenegiant.janus.TransactionManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * trickle request that sends multiple candidates at once,
+ * {"janus":"trickle","candidates":[{...},{...},{"completed":true}]}
+ * the completion marker is appended as the last element when gathering completed
+ */
+public class TrickleBatch {
+	@NonNull
+	public final String janus;
+	@NonNull
+	public final String transaction;
+	public final long session_id;
+	public final long handle_id;
+	/**
+	 * Trickle.Candidate and optional TrickleCompleted.Candidate as the last one
+	 */
+	@NonNull
+	public final List<Object> candidates;
+
+	public TrickleBatch(@NonNull final TransactionManager manager,
+		final long session_id,
+		final long handle_id,
+		@NonNull final List<Trickle.Candidate> candidates,
+		final boolean completed,
+		@Nullable final TransactionManager.TransactionCallback callback) {
+
+		this.janus = "trickle";
+		this.transaction = manager.get(callback);
+		this.session_id = session_id;
+		this.handle_id = handle_id;
+		final List<Object> list = new ArrayList<Object>(candidates);
+		if (completed) {
+			list.add(new TrickleCompleted.Candidate());
+		}
+		this.candidates = Collections.unmodifiableList(list);
+	}
+
+	public TrickleBatch(@NonNull final TransactionManager manager,
+		@NonNull final Room room,
+		@NonNull final List<Trickle.Candidate> candidates,
+		final boolean completed,
+		@Nullable final TransactionManager.TransactionCallback callback) {
+
+		this(manager, room.sessionId, room.pluginId, candidates, completed, callback);
+	}
+
+	/**
+	 * @return number of candidates except the completion marker
+	 */
+	public int numCandidates() {
+		return isCompleted() ? candidates.size() - 1 : candidates.size();
+	}
+
+	/**
+	 * @return true if this request has the completion marker
+	 */
+	public boolean isCompleted() {
+		return !candidates.isEmpty()
+			&& (candidates.get(candidates.size() - 1) instanceof TrickleCompleted.Candidate);
+	}
+
+	@Override
+	public String toString() {
+		return "TrickleBatch{" +
+			"janus='" + janus + '\'' +
+			", transaction='" + transaction + '\'' +
+			", session_id=" + JanusId.toString(session_id) +
+			", candidates=" + candidates +
+			'}';
+	}
+}
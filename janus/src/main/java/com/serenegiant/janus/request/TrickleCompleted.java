@@ -22,6 +22,7 @@ package com.serenegiant.janus.request;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
+import com.serenegiant.janus.JanusId;
 import com.serenegiant.janus.Room;
 import com.serenegiant.janus.TransactionManager;
 
@@ -32,28 +33,39 @@ public class TrickleCompleted {
 	public final String janus;
 	@NonNull
 	public final String transaction;
-	@NonNull
-	public final BigInteger session_id;
-	@NonNull
-	public final BigInteger handle_id;
+	public final long session_id;
+	public final long handle_id;
 	@NonNull
 	public final Candidate candidate;
 
-	public TrickleCompleted(@NonNull final BigInteger session_id,
-		@NonNull final BigInteger handle_id,
+	public TrickleCompleted(@NonNull final TransactionManager manager,
+		final long session_id,
+		final long handle_id,
 		@Nullable final TransactionManager.TransactionCallback callback) {
 
 		this.janus = "trickle";
-		this.transaction = TransactionManager.get(12, callback);
+		this.transaction = manager.get(callback);
 		this.session_id = session_id;
 		this.handle_id = handle_id;
 		this.candidate = new Candidate();
 	}
+
+	/**
+	 * for compatibility with BigInteger ids
+	 */
+	public TrickleCompleted(@NonNull final TransactionManager manager,
+		@NonNull final BigInteger session_id,
+		@NonNull final BigInteger handle_id,
+		@Nullable final TransactionManager.TransactionCallback callback) {
+
+		this(manager, JanusId.valueOf(session_id), JanusId.valueOf(handle_id), callback);
+	}
 	
-	public TrickleCompleted(@NonNull final Room room,
+	public TrickleCompleted(@NonNull final TransactionManager manager,
+		@NonNull final Room room,
 		@Nullable final TransactionManager.TransactionCallback callback) {
 
-	   this(room.sessionId, room.pluginId, callback);
+	   this(manager, room.sessionId, room.pluginId, callback);
 	}
 	
 	public static class Candidate {
@@ -76,7 +88,7 @@ public class TrickleCompleted {
 		return "Trickle{" +
 			"janus='" + janus + '\'' +
 			", transaction='" + transaction + '\'' +
-			", session_id=" + session_id +
+			", session_id=" + JanusId.toString(session_id) +
 			", candidate=" + candidate +
 			'}';
 	}
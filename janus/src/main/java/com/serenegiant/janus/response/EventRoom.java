@@ -19,27 +19,46 @@ package com.serenegiant.janus.response;
  *
 */
 
+import android.support.annotation.Nullable;
+
+import com.serenegiant.janus.JanusId;
 import com.serenegiant.janus.request.JsepSdp;
 
-import java.math.BigInteger;
+import org.json.JSONObject;
+
 import java.util.Arrays;
 
 public class EventRoom {
 	public final String janus;
-	public final BigInteger sender;
+	public final long sender;
 	public final String transaction;
 	public final PluginData plugindata;
 	public final JsepSdp jsep;
+	/**
+	 * fields that are not bound to this model(ex. media/slowlink/error),
+	 * only set when decoded by streaming decoder
+	 */
+	@Nullable
+	public final transient JSONObject extras;
 	
-	public EventRoom(final String janus, final BigInteger sender,
+	public EventRoom(final String janus, final long sender,
 		final String transaction,
 		final PluginData plugindata, final JsepSdp jsep) {
 		
+		this(janus, sender, transaction, plugindata, jsep, null);
+	}
+	
+	public EventRoom(final String janus, final long sender,
+		final String transaction,
+		final PluginData plugindata, final JsepSdp jsep,
+		@Nullable final JSONObject extras) {
+		
 		this.janus = janus;
 		this.sender = sender;
 		this.transaction = transaction;
 		this.plugindata = plugindata;
 		this.jsep = jsep;
+		this.extras = extras;
 	}
 	
 	public static class PluginData {
@@ -68,21 +87,40 @@ public class EventRoom {
 		public final boolean started;
 		public final String audio_codec;
 		public final String video_codec;
-		public final BigInteger unpublished;
-		public final BigInteger leaving;
-		public final BigInteger id;
-		public final BigInteger private_id;
+		public final long unpublished;
+		public final long leaving;
+		public final long id;
+		public final long private_id;
 		public PublisherInfo[] publishers;
+		/**
+		 * streams of multistream subscriber("attached"/"updated")
+		 */
+		public final StreamInfo[] streams;
 		
 		public Data(final String videoroom, final int room,
 			final String description,
 			final boolean configured, final boolean started,
 			final String audio_codec, final String video_codec,
-			final BigInteger unpublished,
-			final BigInteger leaving,
-			final BigInteger id, final BigInteger private_id,
+			final long unpublished,
+			final long leaving,
+			final long id, final long private_id,
 			final PublisherInfo[] publishers) {
 
+			this(videoroom, room, description, configured, started,
+				audio_codec, video_codec, unpublished, leaving,
+				id, private_id, publishers, null);
+		}
+		
+		public Data(final String videoroom, final int room,
+			final String description,
+			final boolean configured, final boolean started,
+			final String audio_codec, final String video_codec,
+			final long unpublished,
+			final long leaving,
+			final long id, final long private_id,
+			final PublisherInfo[] publishers,
+			final StreamInfo[] streams) {
+
 			this.videoroom = videoroom;
 			this.room = room;
 			this.description = description;
@@ -95,6 +133,7 @@ public class EventRoom {
 			this.id = id;
 			this.private_id = private_id;
 			this.publishers = publishers;
+			this.streams = streams;
 		}
 		
 		@Override
@@ -107,11 +146,12 @@ public class EventRoom {
 				", started=" + started +
 				", audio_codec='" + audio_codec + '\'' +
 				", video_codec='" + video_codec + '\'' +
-				", unpublished='" + unpublished + '\'' +
-				", leaving=" + leaving +
-				", id=" + id +
-				", private_id=" + private_id +
+				", unpublished='" + JanusId.toString(unpublished) + '\'' +
+				", leaving=" + JanusId.toString(leaving) +
+				", id=" + JanusId.toString(id) +
+				", private_id=" + JanusId.toString(private_id) +
 				", publishers=" + Arrays.toString(publishers) +
+				", streams=" + Arrays.toString(streams) +
 				'}';
 		}
 	}
@@ -120,10 +160,11 @@ public class EventRoom {
 	public String toString() {
 		return "EventRoom{" +
 			"janus='" + janus + '\'' +
-			", sender='" + sender + '\'' +
+			", sender='" + JanusId.toString(sender) + '\'' +
 			", transaction='" + transaction + '\'' +
 			", plugindata=" + plugindata +
 			", jsep=" + jsep +
+			", extras=" + extras +
 			'}';
 	}
 }
@@ -19,7 +19,7 @@ package com.serenegiant.janus.response;
  *
 */
 
-import java.math.BigInteger;
+import com.serenegiant.janus.JanusId;
 
 public class Plugin {
 	public final String janus;
@@ -33,15 +33,15 @@ public class Plugin {
 	}
 	
 	public static class Data {
-		public final BigInteger id;
+		public final long id;
 		
-		public Data(final BigInteger id) {
+		public Data(final long id) {
 			this.id = id;
 		}
 	}
 	
-	public BigInteger id() {
-		return data != null ? data.id : null;
+	public long id() {
+		return data != null ? data.id : JanusId.NONE;
 	}
 	
 	@Override
@@ -49,7 +49,7 @@ public class Plugin {
 		return "Plugin{" +
 			"janus='" + janus + '\'' +
 			", transaction='" + transaction + '\'' +
-			", id=" + id() +
+			", id=" + JanusId.toString(id()) +
 			'}';
 	}
 }
@@ -19,16 +19,16 @@ package com.serenegiant.janus.response;
  *
 */
 
-import java.math.BigInteger;
+import com.serenegiant.janus.JanusId;
 
 public class PublisherInfo {
-	public final BigInteger id;
+	public final long id;
 	public final String display;
 	public final String audio_codec;
 	public final String video_codec;
 	public boolean talking;
 	
-	public PublisherInfo(final BigInteger id,
+	public PublisherInfo(final long id,
 		final String display,
 		final String audio_codec, final String video_codec,
 		final boolean talking) {
@@ -52,7 +52,7 @@ public class PublisherInfo {
 		if (o == null || getClass() != o.getClass()) return false;
 		final PublisherInfo publisher = (PublisherInfo) o;
 		
-		return (id != null) && id.equals(publisher.id);
+		return (id != JanusId.NONE) && (id == publisher.id);
 	}
 	
 	/**
@@ -61,13 +61,13 @@ public class PublisherInfo {
 	 */
 	@Override
 	public int hashCode() {
-		return id != null ? id.hashCode() : super.hashCode();
+		return id != JanusId.NONE ? (int)(id ^ (id >>> 32)) : super.hashCode();
 	}
 	
 	@Override
 	public String toString() {
 		return "PublisherInfo{" +
-			"id=" + id +
+			"id=" + JanusId.toString(id) +
 			", display='" + display + '\'' +
 			", audio_codec='" + audio_codec + '\'' +
 			", video_codec='" + video_codec + '\'' +
@@ -19,7 +19,7 @@ package com.serenegiant.janus.response;
  *
 */
 
-import java.math.BigInteger;
+import com.serenegiant.janus.JanusId;
 
 public class Session {
 
@@ -34,15 +34,15 @@ public class Session {
 	}
 	
 	public static class Data {
-		public final BigInteger id;
+		public final long id;
 		
-		public Data(final BigInteger id) {
+		public Data(final long id) {
 			this.id = id;
 		}
 	}
 	
-	public BigInteger id() {
-		return data != null ? data.id : null;
+	public long id() {
+		return data != null ? data.id : JanusId.NONE;
 	}
 	
 	@Override
@@ -50,7 +50,7 @@ public class Session {
 		return "Session{" +
 			"janus='" + janus + '\'' +
 			", transaction='" + transaction + '\'' +
-			", id=" + id() +
+			", id=" + JanusId.toString(id()) +
 			'}';
 	}
 }
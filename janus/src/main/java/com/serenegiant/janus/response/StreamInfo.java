@@ -0,0 +1,66 @@
+package com.serenegiant.janus.response;
+/*
+ * JanusRTCAndroid
+ * Video chat sample app using videoroom plugin on janus-gateway server and WebRTC.
+ *
+ * Copyright (c) 2018 saki t_saki@serenegiant.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+*/
+
+
+import com.serenegiant.janus.JanusId;
+
+/**
+ * stream of multistream subscriber, mapped to one m-line(transceiver)
+ * of the subscriber PeerConnection
+ */
+public class StreamInfo {
+	/** "audio", "video" or "data" */
+	public final String type;
+	/** false when the stream was unsubscribed or the publisher stopped it */
+	public final boolean active;
+	public final int mindex;
+	public final String mid;
+	/** id of the publisher that this stream comes from */
+	public final long feed_id;
+	public final String feed_mid;
+	public final String feed_display;
+	
+	public StreamInfo(final String type, final boolean active,
+		final int mindex, final String mid,
+		final long feed_id, final String feed_mid, final String feed_display) {
+
+		this.type = type;
+		this.active = active;
+		this.mindex = mindex;
+		this.mid = mid;
+		this.feed_id = feed_id;
+		this.feed_mid = feed_mid;
+		this.feed_display = feed_display;
+	}
+	
+	@Override
+	public String toString() {
+		return "StreamInfo{" +
+			"type='" + type + '\'' +
+			", active=" + active +
+			", mindex=" + mindex +
+			", mid='" + mid + '\'' +
+			", feed_id=" + JanusId.toString(feed_id) +
+			", feed_mid='" + feed_mid + '\'' +
+			", feed_display='" + feed_display + '\'' +
+			'}';
+	}
+}
@@ -22,6 +22,7 @@ public class AppRTCConst {
 	public static final String AUDIO_CODEC_OPUS = "opus";
 	public static final String AUDIO_CODEC_ISAC = "ISAC";
 	public static final String VIDEO_CODEC_PARAM_START_BITRATE = "x-google-start-bitrate";
+	public static final String VIDEO_CODEC_PARAM_MAX_BITRATE = "x-google-max-bitrate";
 	public static final String VIDEO_FLEXFEC_FIELDTRIAL =
 		"WebRTC-FlexFEC-03-Advertised/Enabled/WebRTC-FlexFEC-03/Enabled/";
 	public static final String VIDEO_VP8_INTEL_HW_ENCODER_FIELDTRIAL = "WebRTC-IntelVP8/Enabled/";
@@ -30,6 +31,8 @@ public class AppRTCConst {
 	public static final String DISABLE_WEBRTC_AGC_FIELDTRIAL =
 		"WebRTC-Audio-MinimizeResamplingOnMobile/Enabled/";
 	public static final String AUDIO_CODEC_PARAM_BITRATE = "maxaveragebitrate";
+	public static final String AUDIO_CODEC_PARAM_DTX = "usedtx";
+	public static final String AUDIO_CODEC_PARAM_FEC = "useinbandfec";
 	public static final String AUDIO_ECHO_CANCELLATION_CONSTRAINT = "googEchoCancellation";
 	public static final String AUDIO_AUTO_GAIN_CONTROL_CONSTRAINT = "googAutoGainControl";
 	public static final String AUDIO_HIGH_PASS_FILTER_CONSTRAINT = "googHighpassFilter";
@@ -9,6 +9,7 @@ package org.appspot.apprtc;
  *  in the file PATENTS.  All contributing project authors may
  *  be found in the AUTHORS file in the root of the source tree.
  */
+import android.support.annotation.Nullable;
 import android.util.Log;
 
 import static org.appspot.apprtc.AppRTCConst.*;
@@ -43,6 +44,11 @@ public class PeerConnectionParameters {
 	public final boolean enableRtcEventLog;
 	public final boolean useLegacyAudioDevice;
 	public final DataChannelParameters dataChannelParameters;
+	/**
+	 * SDP munging parameters, null uses defaults(only codec preference and audio start bitrate)
+	 */
+	@Nullable
+	public final SdpParameters sdpParameters;
 	
 	public PeerConnectionParameters(boolean videoCallEnabled, boolean loopback, boolean tracing,
 		int videoWidth, int videoHeight, int videoFps, int videoMaxBitrate, String videoCodec,
@@ -52,6 +58,24 @@ public class PeerConnectionParameters {
 		boolean disableBuiltInNS, boolean disableWebRtcAGCAndHPF, boolean enableRtcEventLog,
 		boolean useLegacyAudioDevice, DataChannelParameters dataChannelParameters) {
 
+		this(videoCallEnabled, loopback, tracing,
+			videoWidth, videoHeight, videoFps, videoMaxBitrate, videoCodec,
+			videoCodecHwAcceleration, videoFlexfecEnabled, audioStartBitrate,
+			audioCodec, noAudioProcessing, aecDump, saveInputAudioToFile,
+			useOpenSLES, disableBuiltInAEC, disableBuiltInAGC,
+			disableBuiltInNS, disableWebRtcAGCAndHPF, enableRtcEventLog,
+			useLegacyAudioDevice, dataChannelParameters, null);
+	}
+
+	public PeerConnectionParameters(boolean videoCallEnabled, boolean loopback, boolean tracing,
+		int videoWidth, int videoHeight, int videoFps, int videoMaxBitrate, String videoCodec,
+		boolean videoCodecHwAcceleration, boolean videoFlexfecEnabled, int audioStartBitrate,
+		String audioCodec, boolean noAudioProcessing, boolean aecDump, boolean saveInputAudioToFile,
+		boolean useOpenSLES, boolean disableBuiltInAEC, boolean disableBuiltInAGC,
+		boolean disableBuiltInNS, boolean disableWebRtcAGCAndHPF, boolean enableRtcEventLog,
+		boolean useLegacyAudioDevice, DataChannelParameters dataChannelParameters,
+		@Nullable final SdpParameters sdpParameters) {
+
 		this.videoCallEnabled = videoCallEnabled;
 		this.loopback = loopback;
 		this.tracing = tracing;
@@ -75,6 +99,7 @@ public class PeerConnectionParameters {
 		this.enableRtcEventLog = enableRtcEventLog;
 		this.useLegacyAudioDevice = useLegacyAudioDevice;
 		this.dataChannelParameters = dataChannelParameters;
+		this.sdpParameters = sdpParameters;
 	}
 
 	public String getSdpVideoCodecName() {
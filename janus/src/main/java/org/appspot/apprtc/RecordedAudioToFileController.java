@@ -22,7 +22,7 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
 
 import javax.annotation.Nullable;
 
@@ -36,13 +36,13 @@ public class RecordedAudioToFileController
 	private static final long MAX_FILE_SIZE_IN_BYTES = 58348800L;
 	
 	private final Object lock = new Object();
-	private final ExecutorService executor;
+	private final Executor executor;
 	@Nullable
 	private OutputStream rawAudioFileOutputStream = null;
 	private boolean isRunning;
 	private long fileSizeInBytes = 0;
 	
-	public RecordedAudioToFileController(ExecutorService executor) {
+	public RecordedAudioToFileController(Executor executor) {
 		Log.d(TAG, "ctor");
 		this.executor = executor;
 	}
@@ -136,18 +136,22 @@ public class RecordedAudioToFileController
 			}
 		}
 		// Append the recorded 16-bit audio samples to the open output file.
+		// The executor may not be the one that calls stop(), so the stream is
+		// accessed while holding the lock.
 		executor.execute(() -> {
-			if (rawAudioFileOutputStream != null) {
-				try {
-					// Set a limit on max file size. 58348800 bytes corresponds to
-					// approximately 10 minutes of recording in mono at 48kHz.
-					if (fileSizeInBytes < MAX_FILE_SIZE_IN_BYTES) {
-						// Writes samples.getData().length bytes to output stream.
-						rawAudioFileOutputStream.write(samples.getData());
-						fileSizeInBytes += samples.getData().length;
+			synchronized (lock) {
+				if (rawAudioFileOutputStream != null) {
+					try {
+						// Set a limit on max file size. 58348800 bytes corresponds to
+						// approximately 10 minutes of recording in mono at 48kHz.
+						if (fileSizeInBytes < MAX_FILE_SIZE_IN_BYTES) {
+							// Writes samples.getData().length bytes to output stream.
+							rawAudioFileOutputStream.write(samples.getData());
+							fileSizeInBytes += samples.getData().length;
+						}
+					} catch (IOException e) {
+						Log.e(TAG, "Failed to write audio to file: " + e.getMessage());
 					}
-				} catch (IOException e) {
-					Log.e(TAG, "Failed to write audio to file: " + e.getMessage());
 				}
 			}
 		});
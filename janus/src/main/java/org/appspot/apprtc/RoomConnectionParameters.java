@@ -17,6 +17,19 @@ import android.support.annotation.Nullable;
  * Struct holding the connection parameters of an AppRTC room.
  */
 public class RoomConnectionParameters {
+	/**
+	 * default window to hold local ice candidates before sending them at once[ミリ秒]
+	 */
+	public static final long DEFAULT_TRICKLE_BATCH_WINDOW_MS = 50;
+	/**
+	 * default maximum number of subscribers that are set up concurrently
+	 */
+	public static final int DEFAULT_MAX_PARALLEL_SUBSCRIBERS = 3;
+	/**
+	 * default maximum number of events that are received with one long poll request(maxev)
+	 */
+	public static final int DEFAULT_LONG_POLL_MAX_EVENTS = 10;
+
 	@NonNull
 	public final String roomUrl;
 	@NonNull
@@ -28,11 +41,78 @@ public class RoomConnectionParameters {
 	public final String userName;
 	@Nullable
 	public final String displayName;
+	/**
+	 * window to hold local ice candidates before sending them
+	 * in one trickle request[ミリ秒], 0 sends each candidate immediately
+	 */
+	public final long trickleBatchWindowMs;
+	/**
+	 * maximum number of subscribers that are set up(attach/join/answer) concurrently
+	 */
+	public final int maxParallelSubscribers;
+	/**
+	 * true: receive all remote feeds with one multistream subscriber(one PeerConnection),
+	 * false: one subscriber(and one PeerConnection) for each remote feed
+	 * janus-gateway 1.x以降が必要
+	 */
+	public final boolean multistream;
+	/**
+	 * maximum number of events that are received with one long poll request(maxev),
+	 * 1 or less receives one event with each long poll request.
+	 * only used when the transport is http long poll
+	 */
+	public final int longPollMaxEvents;
 	
 	public RoomConnectionParameters(
 		@Nullable final String roomUrl, @NonNull final String apiName,
 		final int roomId, final boolean loopback, final String urlParameters,
 		@Nullable final String userName, @Nullable final String displayName) {
+		this(roomUrl, apiName, roomId,
+			loopback, urlParameters,
+			userName, displayName, DEFAULT_TRICKLE_BATCH_WINDOW_MS);
+	}
+	
+	public RoomConnectionParameters(
+		@Nullable final String roomUrl, @NonNull final String apiName,
+		final int roomId, final boolean loopback, final String urlParameters,
+		@Nullable final String userName, @Nullable final String displayName,
+		final long trickleBatchWindowMs) {
+		this(roomUrl, apiName, roomId,
+			loopback, urlParameters,
+			userName, displayName, trickleBatchWindowMs,
+			DEFAULT_MAX_PARALLEL_SUBSCRIBERS);
+	}
+	
+	public RoomConnectionParameters(
+		@Nullable final String roomUrl, @NonNull final String apiName,
+		final int roomId, final boolean loopback, final String urlParameters,
+		@Nullable final String userName, @Nullable final String displayName,
+		final long trickleBatchWindowMs, final int maxParallelSubscribers) {
+		this(roomUrl, apiName, roomId,
+			loopback, urlParameters,
+			userName, displayName, trickleBatchWindowMs,
+			maxParallelSubscribers, false);
+	}
+	
+	public RoomConnectionParameters(
+		@Nullable final String roomUrl, @NonNull final String apiName,
+		final int roomId, final boolean loopback, final String urlParameters,
+		@Nullable final String userName, @Nullable final String displayName,
+		final long trickleBatchWindowMs, final int maxParallelSubscribers,
+		final boolean multistream) {
+		this(roomUrl, apiName, roomId,
+			loopback, urlParameters,
+			userName, displayName, trickleBatchWindowMs,
+			maxParallelSubscribers, multistream,
+			DEFAULT_LONG_POLL_MAX_EVENTS);
+	}
+	
+	public RoomConnectionParameters(
+		@Nullable final String roomUrl, @NonNull final String apiName,
+		final int roomId, final boolean loopback, final String urlParameters,
+		@Nullable final String userName, @Nullable final String displayName,
+		final long trickleBatchWindowMs, final int maxParallelSubscribers,
+		final boolean multistream, final int longPollMaxEvents) {
 		this.roomUrl = roomUrl;
 		this.apiName = apiName;
 		this.roomId = roomId;
@@ -40,6 +120,10 @@ public class RoomConnectionParameters {
 		this.urlParameters = urlParameters;
 		this.userName = userName;
 		this.displayName = displayName;
+		this.trickleBatchWindowMs = trickleBatchWindowMs;
+		this.maxParallelSubscribers = maxParallelSubscribers;
+		this.multistream = multistream;
+		this.longPollMaxEvents = longPollMaxEvents;
 	}
 	
 	public RoomConnectionParameters(
@@ -0,0 +1,120 @@
+package org.appspot.apprtc;
+/*
+ * JanusRTCAndroid
+ * Video chat sample app using videoroom plugin on janus-gateway server and WebRTC.
+ *
+ * Copyright (c) 2018 saki t_saki@serenegiant.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+*/
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import org.appspot.apprtc.util.SdpTransformer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * SDP munging parameters, SdpTransformerChain is built from these
+ * and PeerConnectionParameters once per plugin
+ */
+public class SdpParameters {
+	/**
+	 * start bitrate of video codec[kbps], 0 does not set x-google-start-bitrate
+	 */
+	public final int videoStartBitrate;
+	/**
+	 * true: remove codecs other than the selected audio/video codec (and their rtx/red/fec)
+	 * to shrink SDP
+	 */
+	public final boolean removeUnusedCodecs;
+	/**
+	 * URIs of RTP header extensions to remove from SDP
+	 */
+	@NonNull
+	public final List<String> removedHeaderExtensions;
+	public final boolean opusDtx;
+	public final boolean opusFec;
+	/**
+	 * packet time of opus[ミリ秒], 0 does not change a=ptime
+	 */
+	public final int opusPtime;
+	/**
+	 * number of simulcast layers of the published video(2-3),
+	 * 0 or 1 publishes a single stream
+	 */
+	public final int simulcastLayers;
+	/**
+	 * additional transformers applied after built-in ones in this order
+	 */
+	@NonNull
+	public final List<SdpTransformer> transformers;
+
+	public SdpParameters(final int videoStartBitrate,
+		final boolean removeUnusedCodecs,
+		@Nullable final Collection<String> removedHeaderExtensions) {
+
+		this(videoStartBitrate, removeUnusedCodecs, removedHeaderExtensions,
+			false, true, 0, null);
+	}
+
+	public SdpParameters(final int videoStartBitrate,
+		final boolean removeUnusedCodecs,
+		@Nullable final Collection<String> removedHeaderExtensions,
+		final boolean opusDtx, final boolean opusFec, final int opusPtime,
+		@Nullable final Collection<SdpTransformer> transformers) {
+
+		this(videoStartBitrate, removeUnusedCodecs, removedHeaderExtensions,
+			opusDtx, opusFec, opusPtime, 0, transformers);
+	}
+
+	public SdpParameters(final int videoStartBitrate,
+		final boolean removeUnusedCodecs,
+		@Nullable final Collection<String> removedHeaderExtensions,
+		final boolean opusDtx, final boolean opusFec, final int opusPtime,
+		final int simulcastLayers,
+		@Nullable final Collection<SdpTransformer> transformers) {
+
+		this.videoStartBitrate = videoStartBitrate;
+		this.removeUnusedCodecs = removeUnusedCodecs;
+		this.removedHeaderExtensions = removedHeaderExtensions != null
+			? Collections.unmodifiableList(new ArrayList<>(removedHeaderExtensions))
+			: Collections.<String>emptyList();
+		this.opusDtx = opusDtx;
+		this.opusFec = opusFec;
+		this.opusPtime = opusPtime;
+		this.simulcastLayers = simulcastLayers;
+		this.transformers = transformers != null
+			? Collections.unmodifiableList(new ArrayList<>(transformers))
+			: Collections.<SdpTransformer>emptyList();
+	}
+
+	/**
+	 * @return true if opus parameters are different from libwebrtc defaults
+	 */
+	public boolean hasOpusParameters() {
+		return opusDtx || !opusFec || (opusPtime > 0);
+	}
+
+	/**
+	 * @return true if the published video should be sent as simulcast
+	 */
+	public boolean isSimulcastEnabled() {
+		return simulcastLayers > 1;
+	}
+}
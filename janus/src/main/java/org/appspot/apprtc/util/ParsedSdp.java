@@ -0,0 +1,641 @@
+package org.appspot.apprtc.util;
+/*
+ * JanusRTCAndroid
+ * Video chat sample app using videoroom plugin on janus-gateway server and WebRTC.
+ *
+ * Copyright (c) 2018 saki t_saki@serenegiant.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+*/
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.appspot.apprtc.AppRTCConst.*;
+
+/**
+ * parsed SDP, session level lines and media sections with rtpmap/fmtp indexes
+ * SDP文字列を1回だけ走査して行に分割し、各メディアセクションのrtpmap/fmtpを
+ * payload typeで引けるようにしておく
+ * 複数の書き換えをこのモデルに適用してから最後に1回だけ文字列化する
+ * 正規表現は使わない
+ */
+public class ParsedSdp {
+	private static final String CRLF = "\r\n";
+
+	/**
+	 * lines before the first m= line
+	 */
+	@NonNull
+	private final List<String> mSessionLines;
+	@NonNull
+	private final List<MediaSection> mMediaSections;
+	/** length of the original SDP, used to size the output buffer */
+	private final int mLength;
+
+	private ParsedSdp(@NonNull final List<String> sessionLines,
+		@NonNull final List<MediaSection> mediaSections, final int length) {
+
+		mSessionLines = sessionLines;
+		mMediaSections = mediaSections;
+		mLength = length;
+	}
+
+	/**
+	 * parse SDP in one pass
+	 * 行の区切りはCRLFだがLFだけでも読めるようにする
+	 * @param sdp
+	 * @return
+	 */
+	@NonNull
+	public static ParsedSdp parse(@NonNull final String sdp) {
+		final List<String> sessionLines = new ArrayList<>();
+		final List<MediaSection> mediaSections = new ArrayList<>();
+		MediaSection current = null;
+		final int n = sdp.length();
+		int start = 0;
+		while (start < n) {
+			int end = sdp.indexOf('\n', start);
+			if (end < 0) {
+				end = n;
+			}
+			final int lineEnd = (end > start) && (sdp.charAt(end - 1) == '\r') ? end - 1 : end;
+			final String line = sdp.substring(start, lineEnd);
+			if (line.startsWith("m=")) {
+				current = new MediaSection(line);
+				mediaSections.add(current);
+			} else if (current != null) {
+				current.addLine(line);
+			} else {
+				sessionLines.add(line);
+			}
+			start = end + 1;
+		}
+		return new ParsedSdp(sessionLines, mediaSections, n);
+	}
+
+	/**
+	 * @return media sections in the order of m= lines, unmodifiable
+	 */
+	@NonNull
+	public List<MediaSection> getMediaSections() {
+		return Collections.unmodifiableList(mMediaSections);
+	}
+
+	/**
+	 * @return true if any munging operation changed this SDP
+	 */
+	public boolean isModified() {
+		for (final MediaSection section: mMediaSections) {
+			if (section.mModified) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * move payload types of the codec to the front of m= lines
+	 * of all audio or video sections that have the codec
+	 * @param codec encoding name of rtpmap, case insensitive
+	 * @param isAudio
+	 * @return true if any section has the codec
+	 */
+	public boolean preferCodec(@NonNull final String codec, final boolean isAudio) {
+		final String type = isAudio ? "audio" : "video";
+		boolean found = false;
+		for (final MediaSection section: mMediaSections) {
+			if (type.equals(section.type)) {
+				final List<String> payloadTypes = section.getPayloadTypes(codec);
+				if (!payloadTypes.isEmpty()) {
+					section.movePayloadTypesToFront(payloadTypes);
+					found = true;
+				}
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * set start bitrate(video) or max average bitrate(audio) to fmtp of the codec
+	 * in all sections that have the codec
+	 * @param codec encoding name of rtpmap, case insensitive
+	 * @param isVideoCodec
+	 * @param bitrateKbps
+	 * @return true if any section has the codec
+	 */
+	public boolean setStartBitrate(@NonNull final String codec,
+		final boolean isVideoCodec, final int bitrateKbps) {
+
+		boolean found = false;
+		for (final MediaSection section: mMediaSections) {
+			final List<String> payloadTypes = section.getPayloadTypes(codec);
+			if (!payloadTypes.isEmpty()) {
+				if (isVideoCodec) {
+					section.setFmtpParameter(payloadTypes.get(0),
+						VIDEO_CODEC_PARAM_START_BITRATE, Integer.toString(bitrateKbps));
+				} else {
+					section.setFmtpParameter(payloadTypes.get(0),
+						AUDIO_CODEC_PARAM_BITRATE, Integer.toString(bitrateKbps * 1000));
+				}
+				found = true;
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * serialize to SDP string, every line is terminated with CRLF
+	 * @return
+	 */
+	@NonNull
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder(mLength + 128);
+		for (final String line: mSessionLines) {
+			sb.append(line).append(CRLF);
+		}
+		for (final MediaSection section: mMediaSections) {
+			section.write(sb);
+		}
+		return sb.toString();
+	}
+
+//--------------------------------------------------------------------------------
+	/**
+	 * media section, m= line and following lines until next m= line
+	 */
+	public static class MediaSection {
+		/** "audio", "video" or "application" */
+		@NonNull
+		public final String type;
+		/** m= line without payload types(m=<media> <port> <proto>) */
+		@NonNull
+		private final String mHeader;
+		/** payload types(fmt) of m= line */
+		@NonNull
+		private final List<String> mFormats;
+		@NonNull
+		private final String mOriginalMLine;
+		/** lines after m= line */
+		@NonNull
+		private final List<String> mLines = new ArrayList<>();
+		/** rtpmaps in the order of lines */
+		@NonNull
+		private final List<Rtpmap> mRtpmaps = new ArrayList<>();
+		/** index of a=fmtp line keyed by payload type */
+		@NonNull
+		private final Map<String, Integer> mFmtps = new HashMap<>();
+		@Nullable
+		private String mMid;
+		private boolean mModified;
+
+		private MediaSection(@NonNull final String mLine) {
+			mOriginalMLine = mLine;
+			// m=<media> <port> <proto> <fmt> ...
+			final List<String> parts = splitBySpace(mLine, 2);
+			type = parts.isEmpty() ? "" : parts.get(0);
+			if (parts.size() > 3) {
+				mHeader = "m=" + parts.get(0) + " " + parts.get(1) + " " + parts.get(2);
+				mFormats = new ArrayList<>(parts.subList(3, parts.size()));
+			} else {
+				// 書式が不正な時はm=行を書き換えない
+				mHeader = mLine;
+				mFormats = new ArrayList<>();
+			}
+		}
+
+		private void addLine(@NonNull final String line) {
+			final int index = mLines.size();
+			mLines.add(line);
+			if (line.startsWith("a=rtpmap:")) {
+				// a=rtpmap:<payload type> <encoding name>/<clock rate> [/<encoding parameters>]
+				final int space = line.indexOf(' ');
+				final int slash = space > 0 ? line.indexOf('/', space) : -1;
+				if (slash > space + 1) {
+					mRtpmaps.add(new Rtpmap(line.substring(9, space),
+						line.substring(space + 1, slash), index));
+				}
+			} else if (line.startsWith("a=fmtp:")) {
+				final int space = line.indexOf(' ');
+				if (space > 7) {
+					mFmtps.put(line.substring(7, space), index);
+				}
+			} else if (line.startsWith("a=mid:")) {
+				mMid = line.substring(6);
+			}
+		}
+
+		@Nullable
+		public String getMid() {
+			return mMid;
+		}
+
+		/**
+		 * @return payload types of m= line, unmodifiable
+		 */
+		@NonNull
+		public List<String> getFormats() {
+			return Collections.unmodifiableList(mFormats);
+		}
+
+		/**
+		 * @param codec encoding name, case insensitive
+		 * @return payload types of the codec in the order of rtpmap lines
+		 */
+		@NonNull
+		public List<String> getPayloadTypes(@NonNull final String codec) {
+			List<String> result = null;
+			for (final Rtpmap rtpmap: mRtpmaps) {
+				if (codec.equalsIgnoreCase(rtpmap.encodingName)) {
+					if (result == null) {
+						result = new ArrayList<>(2);
+					}
+					result.add(rtpmap.payloadType);
+				}
+			}
+			return result != null ? result : Collections.<String>emptyList();
+		}
+
+		/**
+		 * @param payloadType
+		 * @return encoding name of the payload type or null if no rtpmap
+		 */
+		@Nullable
+		public String getEncodingName(@NonNull final String payloadType) {
+			for (final Rtpmap rtpmap: mRtpmaps) {
+				if (payloadType.equals(rtpmap.payloadType)) {
+					return rtpmap.encodingName;
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * @param payloadType
+		 * @return parameters of a=fmtp line or null if no fmtp for the payload type
+		 */
+		@Nullable
+		public String getFmtp(@NonNull final String payloadType) {
+			final Integer index = mFmtps.get(payloadType);
+			if (index != null) {
+				final String line = mLines.get(index);
+				return line.substring(line.indexOf(' ') + 1);
+			}
+			return null;
+		}
+
+		/**
+		 * move payload types to the front of m= line keeping their order,
+		 * payload types that m= line does not have are ignored
+		 * @param payloadTypes
+		 */
+		public void movePayloadTypesToFront(@NonNull final List<String> payloadTypes) {
+			int pos = 0;
+			for (final String pt: payloadTypes) {
+				final int index = mFormats.indexOf(pt);
+				if (index >= pos) {
+					if (index != pos) {
+						mFormats.remove(index);
+						mFormats.add(pos, pt);
+						mModified = true;
+					}
+					pos++;
+				}
+			}
+		}
+
+		/**
+		 * set parameter of a=fmtp line,
+		 * the value is replaced if the parameter already exists,
+		 * a=fmtp line is added just after a=rtpmap line if the payload type does not have it
+		 * @param payloadType
+		 * @param key
+		 * @param value
+		 */
+		public void setFmtpParameter(@NonNull final String payloadType,
+			@NonNull final String key, @NonNull final String value) {
+
+			final Integer index = mFmtps.get(payloadType);
+			if (index != null) {
+				final String line = mLines.get(index);
+				mLines.set(index, replaceParameter(line, key, value));
+			} else {
+				int insertAt = mLines.size();
+				for (final Rtpmap rtpmap: mRtpmaps) {
+					if (payloadType.equals(rtpmap.payloadType)) {
+						insertAt = rtpmap.lineIndex + 1;
+						break;
+					}
+				}
+				mLines.add(insertAt, "a=fmtp:" + payloadType + " " + key + "=" + value);
+				reindex();
+			}
+			mModified = true;
+		}
+
+		/**
+		 * get value of the parameter in a=fmtp line
+		 * @param payloadType
+		 * @param key
+		 * @return value of the parameter or null if not found
+		 */
+		@Nullable
+		public String getFmtpParameter(@NonNull final String payloadType, @NonNull final String key) {
+			final String params = getFmtp(payloadType);
+			if (params != null) {
+				for (final String param: params.split(";")) {
+					final int eq = param.indexOf('=');
+					if ((eq > 0) && key.equals(param.substring(0, eq).trim())) {
+						return param.substring(eq + 1).trim();
+					}
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * remove payload types from m= line with their a=rtpmap, a=fmtp and a=rtcp-fb lines
+		 * @param payloadTypes
+		 * @return true if any payload type was removed
+		 */
+		public boolean removePayloadTypes(@NonNull final Collection<String> payloadTypes) {
+			if (!mFormats.removeAll(payloadTypes)) {
+				return false;
+			}
+			for (int i = mLines.size() - 1; i >= 0; i--) {
+				final String pt = payloadTypeOf(mLines.get(i));
+				if ((pt != null) && payloadTypes.contains(pt)) {
+					mLines.remove(i);
+				}
+			}
+			reindex();
+			mModified = true;
+			return true;
+		}
+
+		/**
+		 * remove a=extmap lines of RTP header extensions
+		 * @param uris URIs of the header extensions
+		 * @return true if any line was removed
+		 */
+		public boolean removeExtmaps(@NonNull final Collection<String> uris) {
+			boolean removed = false;
+			for (int i = mLines.size() - 1; i >= 0; i--) {
+				final String line = mLines.get(i);
+				// a=extmap:<value>["/"<direction>] <URI> <extensionattributes>
+				if (line.startsWith("a=extmap:")) {
+					final int space = line.indexOf(' ');
+					if (space > 0) {
+						int end = line.indexOf(' ', space + 1);
+						if (end < 0) {
+							end = line.length();
+						}
+						if (uris.contains(line.substring(space + 1, end))) {
+							mLines.remove(i);
+							removed = true;
+						}
+					}
+				}
+			}
+			if (removed) {
+				reindex();
+				mModified = true;
+			}
+			return removed;
+		}
+
+		/**
+		 * set value of a=<name>:<value> line,
+		 * the line is replaced if it exists, otherwise it is added to the end of this section
+		 * @param name
+		 * @param value
+		 * @return true if changed
+		 */
+		public boolean setAttribute(@NonNull final String name, @NonNull final String value) {
+			final String prefix = "a=" + name + ":";
+			final String attr = prefix + value;
+			for (int i = 0; i < mLines.size(); i++) {
+				final String line = mLines.get(i);
+				if (line.startsWith(prefix)) {
+					if (attr.equals(line)) {
+						return false;
+					}
+					mLines.set(i, attr);
+					mModified = true;
+					return true;
+				}
+			}
+			mLines.add(attr);
+			mModified = true;
+			return true;
+		}
+
+		/**
+		 * @param name
+		 * @return true if this section has a=<name> or a=<name>:<value> line
+		 */
+		public boolean hasAttribute(@NonNull final String name) {
+			final String flag = "a=" + name;
+			final String prefix = flag + ":";
+			for (final String line: mLines) {
+				if (line.equals(flag) || line.startsWith(prefix)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * @param name
+		 * @return values of all a=<name>:<value> lines in the order of lines
+		 */
+		@NonNull
+		public List<String> getAttributeValues(@NonNull final String name) {
+			final String prefix = "a=" + name + ":";
+			List<String> result = null;
+			for (final String line: mLines) {
+				if (line.startsWith(prefix)) {
+					if (result == null) {
+						result = new ArrayList<>();
+					}
+					result.add(line.substring(prefix.length()));
+				}
+			}
+			return result != null ? result : Collections.<String>emptyList();
+		}
+
+		/**
+		 * add a=<name>:<value> line just after the last line of the same attribute,
+		 * or to the end of this section if there is no such line.
+		 * unlike #setAttribute, existing lines are kept(ex. a=ssrc, a=ssrc-group)
+		 * @param name
+		 * @param value
+		 */
+		public void addAttribute(@NonNull final String name, @NonNull final String value) {
+			final String prefix = "a=" + name + ":";
+			int insertAt = mLines.size();
+			for (int i = mLines.size() - 1; i >= 0; i--) {
+				if (mLines.get(i).startsWith(prefix)) {
+					insertAt = i + 1;
+					break;
+				}
+			}
+			if (insertAt == mLines.size()) {
+				addLine(prefix + value);
+			} else {
+				mLines.add(insertAt, prefix + value);
+				reindex();
+			}
+			mModified = true;
+		}
+
+		private void write(@NonNull final StringBuilder sb) {
+			if (mFormats.isEmpty() || !mModified) {
+				sb.append(mOriginalMLine);
+			} else {
+				sb.append(mHeader);
+				for (final String format: mFormats) {
+					sb.append(' ').append(format);
+				}
+			}
+			sb.append(CRLF);
+			for (final String line: mLines) {
+				sb.append(line).append(CRLF);
+			}
+		}
+
+		/**
+		 * rebuild rtpmap/fmtp indexes after inserting line
+		 */
+		private void reindex() {
+			final List<String> lines = new ArrayList<>(mLines);
+			mLines.clear();
+			mRtpmaps.clear();
+			mFmtps.clear();
+			for (final String line: lines) {
+				addLine(line);
+			}
+		}
+
+		@Override
+		public String toString() {
+			return "MediaSection{" +
+				"type='" + type + '\'' +
+				", mid='" + mMid + '\'' +
+				", formats=" + mFormats +
+				'}';
+		}
+	}
+
+	private static class Rtpmap {
+		@NonNull
+		private final String payloadType;
+		@NonNull
+		private final String encodingName;
+		/** index in MediaSection#mLines */
+		private final int lineIndex;
+
+		private Rtpmap(@NonNull final String payloadType,
+			@NonNull final String encodingName, final int lineIndex) {
+
+			this.payloadType = payloadType;
+			this.encodingName = encodingName;
+			this.lineIndex = lineIndex;
+		}
+	}
+
+	/**
+	 * split by space without regex
+	 * @param line
+	 * @param start
+	 * @return
+	 */
+	@NonNull
+	private static List<String> splitBySpace(@NonNull final String line, final int start) {
+		final List<String> result = new ArrayList<>();
+		final int n = line.length();
+		int begin = start;
+		for (int i = start; i <= n; i++) {
+			if ((i == n) || (line.charAt(i) == ' ')) {
+				if (i > begin) {
+					result.add(line.substring(begin, i));
+				}
+				begin = i + 1;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @param line
+	 * @return payload type of a=rtpmap, a=fmtp or a=rtcp-fb line, null if other lines
+	 */
+	@Nullable
+	private static String payloadTypeOf(@NonNull final String line) {
+		final int start;
+		if (line.startsWith("a=rtpmap:")) {
+			start = 9;
+		} else if (line.startsWith("a=fmtp:")) {
+			start = 7;
+		} else if (line.startsWith("a=rtcp-fb:")) {
+			start = 10;
+		} else {
+			return null;
+		}
+		final int space = line.indexOf(' ', start);
+		return space > start ? line.substring(start, space) : null;
+	}
+
+	/**
+	 * replace or append parameter of a=fmtp line
+	 * @param line a=fmtp:<payload type> <parameters>
+	 * @param key
+	 * @param value
+	 * @return
+	 */
+	@NonNull
+	private static String replaceParameter(@NonNull final String line,
+		@NonNull final String key, @NonNull final String value) {
+
+		final int space = line.indexOf(' ');
+		int pos = space + 1;
+		final int n = line.length();
+		while (pos < n) {
+			int end = line.indexOf(';', pos);
+			if (end < 0) {
+				end = n;
+			}
+			int keyStart = pos;
+			while ((keyStart < end) && (line.charAt(keyStart) == ' ')) {
+				keyStart++;
+			}
+			final int eq = line.indexOf('=', keyStart);
+			if ((eq > keyStart) && (eq < end)
+				&& (eq - keyStart == key.length()) && line.startsWith(key, keyStart)) {
+
+				return line.substring(0, eq + 1) + value + line.substring(end);
+			}
+			pos = end + 1;
+		}
+		return line + "; " + key + "=" + value;
+	}
+}
@@ -0,0 +1,36 @@
+package org.appspot.apprtc.util;
+/*
+ * JanusRTCAndroid
+ * Video chat sample app using videoroom plugin on janus-gateway server and WebRTC.
+ *
+ * Copyright (c) 2018 saki t_saki@serenegiant.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+*/
+
+import android.support.annotation.NonNull;
+
+/**
+ * one step of SDP munging, applied to ParsedSdp by SdpTransformerChain
+ */
+public interface SdpTransformer {
+	/**
+	 * munge SDP, implementation should change ParsedSdp only when necessary
+	 * because unchanged SDP is not serialized again
+	 * @param sdp
+	 * @param isRemote true: remote SDP(set with setRemoteDescription),
+	 * 					false: local SDP(created by createOffer/createAnswer)
+	 */
+	public void transform(@NonNull final ParsedSdp sdp, final boolean isRemote);
+}
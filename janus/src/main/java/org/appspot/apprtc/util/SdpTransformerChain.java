@@ -0,0 +1,161 @@
+package org.appspot.apprtc.util;
+/*
+ * JanusRTCAndroid
+ * Video chat sample app using videoroom plugin on janus-gateway server and WebRTC.
+ *
+ * Copyright (c) 2018 saki t_saki@serenegiant.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+*/
+
+import android.support.annotation.NonNull;
+
+import org.appspot.apprtc.PeerConnectionParameters;
+import org.appspot.apprtc.SdpParameters;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.appspot.apprtc.AppRTCConst.*;
+
+/**
+ * ordered SdpTransformers, SDP is parsed once, all transformers are applied
+ * to the ParsedSdp and it is serialized once only when it is changed
+ * immutable, so it can be used from any thread
+ */
+public class SdpTransformerChain {
+
+	@NonNull
+	private final List<SdpTransformer> mTransformers;
+
+	/**
+	 * コンストラクタ
+	 * @param transformers applied in this order
+	 */
+	public SdpTransformerChain(@NonNull final List<SdpTransformer> transformers) {
+		mTransformers = Collections.unmodifiableList(new ArrayList<>(transformers));
+	}
+
+	/**
+	 * build the chain from PeerConnectionParameters
+	 * 1. remove unused codecs
+	 * 2. codec preference(ISAC, video codec)
+	 * 3. remove RTP header extensions
+	 * 4. start/max bitrate(remote SDP only)
+	 * 5. opus dtx/fec/ptime
+	 * 6. simulcast(local SDP only)
+	 * 7. transformers of SdpParameters
+	 * @param parameters
+	 * @param isVideoCallEnabled
+	 * @return
+	 */
+	@NonNull
+	public static SdpTransformerChain create(
+		@NonNull final PeerConnectionParameters parameters,
+		final boolean isVideoCallEnabled) {
+
+		final List<SdpTransformer> transformers = new ArrayList<>();
+		final SdpParameters sdpParameters = parameters.sdpParameters;
+		final boolean preferIsac = AUDIO_CODEC_ISAC.equals(parameters.audioCodec);
+		final String videoCodec = isVideoCallEnabled ? parameters.getSdpVideoCodecName() : null;
+		if ((sdpParameters != null) && sdpParameters.removeUnusedCodecs) {
+			final List<String> audioCodecs = new ArrayList<>();
+			audioCodecs.add(preferIsac ? AUDIO_CODEC_ISAC : AUDIO_CODEC_OPUS);
+			audioCodecs.add("telephone-event");
+			transformers.add(SdpTransformers.removeUnusedCodecs(true, audioCodecs));
+			if (videoCodec != null) {
+				final List<String> videoCodecs = new ArrayList<>();
+				videoCodecs.add(videoCodec);
+				videoCodecs.add("red");
+				videoCodecs.add("ulpfec");
+				if (parameters.videoFlexfecEnabled) {
+					videoCodecs.add("flexfec-03");
+				}
+				transformers.add(SdpTransformers.removeUnusedCodecs(false, videoCodecs));
+			}
+		}
+		if (preferIsac) {
+			transformers.add(SdpTransformers.preferCodec(AUDIO_CODEC_ISAC, true));
+		}
+		if (videoCodec != null) {
+			transformers.add(SdpTransformers.preferCodec(videoCodec, false));
+		}
+		if ((sdpParameters != null) && !sdpParameters.removedHeaderExtensions.isEmpty()) {
+			transformers.add(SdpTransformers.removeHeaderExtensions(
+				sdpParameters.removedHeaderExtensions));
+		}
+		if (parameters.audioStartBitrate > 0) {
+			transformers.add(SdpTransformers.startBitrate(AUDIO_CODEC_OPUS, false,
+				parameters.audioStartBitrate));
+		}
+		if ((sdpParameters != null) && (videoCodec != null)) {
+			if (sdpParameters.videoStartBitrate > 0) {
+				transformers.add(SdpTransformers.startBitrate(videoCodec, true,
+					sdpParameters.videoStartBitrate));
+			}
+			if (parameters.videoMaxBitrate > 0) {
+				transformers.add(SdpTransformers.maxBitrate(videoCodec,
+					parameters.videoMaxBitrate));
+			}
+		}
+		if (sdpParameters != null) {
+			if (sdpParameters.hasOpusParameters()) {
+				transformers.add(SdpTransformers.opus(sdpParameters.opusDtx,
+					sdpParameters.opusFec, sdpParameters.opusPtime));
+			}
+			if ((videoCodec != null) && sdpParameters.isSimulcastEnabled()) {
+				transformers.add(SdpTransformers.simulcast(
+					Math.min(sdpParameters.simulcastLayers, SdpTransformers.MAX_SIMULCAST_LAYERS)));
+			}
+			transformers.addAll(sdpParameters.transformers);
+		}
+		return new SdpTransformerChain(transformers);
+	}
+
+	/**
+	 * @return transformers in the order they are applied, unmodifiable
+	 */
+	@NonNull
+	public List<SdpTransformer> getTransformers() {
+		return mTransformers;
+	}
+
+	public boolean isEmpty() {
+		return mTransformers.isEmpty();
+	}
+
+	/**
+	 * apply all transformers to SDP
+	 * @param description
+	 * @param isRemote
+	 * @return munged SDP or the same instance as description if nothing changed
+	 */
+	@NonNull
+	public String apply(@NonNull final String description, final boolean isRemote) {
+		if (mTransformers.isEmpty()) {
+			return description;
+		}
+		final ParsedSdp sdp = ParsedSdp.parse(description);
+		for (final SdpTransformer transformer: mTransformers) {
+			transformer.transform(sdp, isRemote);
+		}
+		return sdp.isModified() ? sdp.toString() : description;
+	}
+
+	@Override
+	public String toString() {
+		return "SdpTransformerChain" + mTransformers;
+	}
+}
@@ -0,0 +1,384 @@
+package org.appspot.apprtc.util;
+/*
+ * JanusRTCAndroid
+ * Video chat sample app using videoroom plugin on janus-gateway server and WebRTC.
+ *
+ * Copyright (c) 2018 saki t_saki@serenegiant.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+*/
+
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+
+import static org.appspot.apprtc.AppRTCConst.*;
+
+/**
+ * built-in SdpTransformers
+ */
+public class SdpTransformers {
+	private SdpTransformers() {
+		// インスタンス化をエラーとするためにデフォルトコンストラクタをprivateに
+	}
+
+	/**
+	 * RTP header extensions that are not used by janus-gateway videoroom,
+	 * can be passed to #removeHeaderExtensions to shrink SDP
+	 */
+	public static final List<String> UNUSED_HEADER_EXTENSIONS
+		= Collections.unmodifiableList(Arrays.asList(
+			"urn:ietf:params:rtp-hdrext:toffset",
+			"http://www.webrtc.org/experiments/rtp-hdrext/playout-delay",
+			"http://www.webrtc.org/experiments/rtp-hdrext/video-content-type",
+			"http://www.webrtc.org/experiments/rtp-hdrext/video-timing",
+			"http://www.webrtc.org/experiments/rtp-hdrext/color-space"));
+
+	/**
+	 * maximum number of simulcast layers, janus-gateway accepts up to 3 substreams
+	 */
+	public static final int MAX_SIMULCAST_LAYERS = 3;
+
+	private static final String RTX = "rtx";
+
+	/**
+	 * move payload types of the codec to the front of m= line
+	 * @param codec encoding name
+	 * @param isAudio
+	 * @return
+	 */
+	@NonNull
+	public static SdpTransformer preferCodec(@NonNull final String codec, final boolean isAudio) {
+		return new SdpTransformer() {
+			@Override
+			public void transform(@NonNull final ParsedSdp sdp, final boolean isRemote) {
+				sdp.preferCodec(codec, isAudio);
+			}
+
+			@Override
+			public String toString() {
+				return "preferCodec(" + codec + ")";
+			}
+		};
+	}
+
+	/**
+	 * remove payload types other than the codecs from audio or video sections,
+	 * rtx of the remaining codecs are kept.
+	 * sections that do not have any of the codecs are not changed
+	 * not to fail negotiation with remote peer that does not support them
+	 * @param isAudio
+	 * @param codecs encoding names to keep, case insensitive
+	 * @return
+	 */
+	@NonNull
+	public static SdpTransformer removeUnusedCodecs(final boolean isAudio,
+		@NonNull final Collection<String> codecs) {
+
+		final String type = isAudio ? "audio" : "video";
+		final Set<String> keep = new HashSet<>();
+		for (final String codec: codecs) {
+			keep.add(codec.toLowerCase(Locale.US));
+		}
+		return new SdpTransformer() {
+			@Override
+			public void transform(@NonNull final ParsedSdp sdp, final boolean isRemote) {
+				for (final ParsedSdp.MediaSection section: sdp.getMediaSections()) {
+					if (type.equals(section.type)) {
+						removeUnusedCodecs(section, keep);
+					}
+				}
+			}
+
+			@Override
+			public String toString() {
+				return "removeUnusedCodecs(" + type + "," + keep + ")";
+			}
+		};
+	}
+
+	/**
+	 * remove a=extmap lines of the RTP header extensions
+	 * @param uris
+	 * @return
+	 */
+	@NonNull
+	public static SdpTransformer removeHeaderExtensions(@NonNull final Collection<String> uris) {
+		final Set<String> removed = new HashSet<>(uris);
+		return new SdpTransformer() {
+			@Override
+			public void transform(@NonNull final ParsedSdp sdp, final boolean isRemote) {
+				for (final ParsedSdp.MediaSection section: sdp.getMediaSections()) {
+					section.removeExtmaps(removed);
+				}
+			}
+
+			@Override
+			public String toString() {
+				return "removeHeaderExtensions(" + removed + ")";
+			}
+		};
+	}
+
+	/**
+	 * set start bitrate of the codec to remote SDP,
+	 * x-google-start-bitrate for video codec and maxaveragebitrate for audio codec
+	 * @param codec
+	 * @param isVideoCodec
+	 * @param bitrateKbps
+	 * @return
+	 */
+	@NonNull
+	public static SdpTransformer startBitrate(@NonNull final String codec,
+		final boolean isVideoCodec, final int bitrateKbps) {
+
+		return new SdpTransformer() {
+			@Override
+			public void transform(@NonNull final ParsedSdp sdp, final boolean isRemote) {
+				if (isRemote) {
+					sdp.setStartBitrate(codec, isVideoCodec, bitrateKbps);
+				}
+			}
+
+			@Override
+			public String toString() {
+				return "startBitrate(" + codec + "," + bitrateKbps + "kbps)";
+			}
+		};
+	}
+
+	/**
+	 * set x-google-max-bitrate of the video codec to remote SDP
+	 * @param codec
+	 * @param bitrateKbps
+	 * @return
+	 */
+	@NonNull
+	public static SdpTransformer maxBitrate(@NonNull final String codec, final int bitrateKbps) {
+		return new SdpTransformer() {
+			@Override
+			public void transform(@NonNull final ParsedSdp sdp, final boolean isRemote) {
+				if (isRemote) {
+					setFmtpParameter(sdp, "video", codec,
+						VIDEO_CODEC_PARAM_MAX_BITRATE, Integer.toString(bitrateKbps));
+				}
+			}
+
+			@Override
+			public String toString() {
+				return "maxBitrate(" + codec + "," + bitrateKbps + "kbps)";
+			}
+		};
+	}
+
+	/**
+	 * set usedtx/useinbandfec of opus and a=ptime of audio sections
+	 * @param dtx
+	 * @param fec
+	 * @param ptime packet time[ミリ秒], 0 does not change a=ptime
+	 * @return
+	 */
+	@NonNull
+	public static SdpTransformer opus(final boolean dtx, final boolean fec, final int ptime) {
+		return new SdpTransformer() {
+			@Override
+			public void transform(@NonNull final ParsedSdp sdp, final boolean isRemote) {
+				setFmtpParameter(sdp, "audio", AUDIO_CODEC_OPUS,
+					AUDIO_CODEC_PARAM_DTX, dtx ? "1" : "0");
+				setFmtpParameter(sdp, "audio", AUDIO_CODEC_OPUS,
+					AUDIO_CODEC_PARAM_FEC, fec ? "1" : "0");
+				if (ptime > 0) {
+					for (final ParsedSdp.MediaSection section: sdp.getMediaSections()) {
+						if ("audio".equals(section.type)
+							&& !section.getPayloadTypes(AUDIO_CODEC_OPUS).isEmpty()) {
+							section.setAttribute("ptime", Integer.toString(ptime));
+						}
+					}
+				}
+			}
+
+			@Override
+			public String toString() {
+				return "opus(dtx=" + dtx + ",fec=" + fec + ",ptime=" + ptime + ")";
+			}
+		};
+	}
+
+	/**
+	 * add simulcast layers to sending video sections of local SDP with a=ssrc-group:SIM,
+	 * new ssrcs have the same attributes(cname/msid) as the original one
+	 * and their own rtx ssrc when the original has FID group.
+	 * janus-gateway detects simulcast from SIM group, the order of ssrcs is
+	 * the order of substreams(lowest resolution first).
+	 * sections that are receive only or already have SIM group are not changed
+	 * @param numLayers number of layers including the original one, 2-MAX_SIMULCAST_LAYERS
+	 * @return
+	 */
+	@NonNull
+	public static SdpTransformer simulcast(final int numLayers) {
+		if ((numLayers < 2) || (numLayers > MAX_SIMULCAST_LAYERS)) {
+			throw new IllegalArgumentException("invalid number of layers:" + numLayers);
+		}
+		final Random random = new Random();
+		return new SdpTransformer() {
+			@Override
+			public void transform(@NonNull final ParsedSdp sdp, final boolean isRemote) {
+				if (isRemote) {
+					return;
+				}
+				for (final ParsedSdp.MediaSection section: sdp.getMediaSections()) {
+					if ("video".equals(section.type)
+						&& !section.hasAttribute("recvonly")
+						&& !section.hasAttribute("inactive")) {
+
+						addSimulcast(section, numLayers, random);
+					}
+				}
+			}
+
+			@Override
+			public String toString() {
+				return "simulcast(" + numLayers + ")";
+			}
+		};
+	}
+
+	private static void addSimulcast(@NonNull final ParsedSdp.MediaSection section,
+		final int numLayers, @NonNull final Random random) {
+
+		final List<String> groups = section.getAttributeValues("ssrc-group");
+		for (final String group: groups) {
+			if (group.startsWith("SIM ")) {
+				return;
+			}
+		}
+		// a=ssrc:<ssrc> <attribute>:<value>
+		final List<String> ssrcs = section.getAttributeValues("ssrc");
+		if (ssrcs.isEmpty()) {
+			return;
+		}
+		final String primary = ssrcOf(ssrcs.get(0));
+		String rtx = null;
+		for (final String group: groups) {
+			// FID <ssrc> <rtx ssrc>
+			final String[] parts = group.split(" ");
+			if ((parts.length == 3) && "FID".equals(parts[0]) && primary.equals(parts[1])) {
+				rtx = parts[2];
+				break;
+			}
+		}
+		final List<String> attributes = new ArrayList<>();
+		final Set<String> used = new HashSet<>();
+		for (final String value: ssrcs) {
+			final String ssrc = ssrcOf(value);
+			used.add(ssrc);
+			if (primary.equals(ssrc) && (value.length() > ssrc.length())) {
+				attributes.add(value.substring(ssrc.length() + 1));
+			}
+		}
+		final StringBuilder sim = new StringBuilder("SIM ").append(primary);
+		for (int i = 1; i < numLayers; i++) {
+			final String ssrc = newSsrc(random, used);
+			sim.append(' ').append(ssrc);
+			for (final String attribute: attributes) {
+				section.addAttribute("ssrc", ssrc + " " + attribute);
+			}
+			if (rtx != null) {
+				final String rtxSsrc = newSsrc(random, used);
+				for (final String attribute: attributes) {
+					section.addAttribute("ssrc", rtxSsrc + " " + attribute);
+				}
+				section.addAttribute("ssrc-group", "FID " + ssrc + " " + rtxSsrc);
+			}
+		}
+		section.addAttribute("ssrc-group", sim.toString());
+	}
+
+	@NonNull
+	private static String ssrcOf(@NonNull final String value) {
+		final int space = value.indexOf(' ');
+		return space > 0 ? value.substring(0, space) : value;
+	}
+
+	/**
+	 * @return random non-zero 32bit unsigned ssrc that is not used in the section
+	 */
+	@NonNull
+	private static String newSsrc(@NonNull final Random random, @NonNull final Set<String> used) {
+		for ( ; ; ) {
+			final long ssrc = random.nextInt() & 0xffffffffL;
+			if ((ssrc != 0) && used.add(Long.toString(ssrc))) {
+				return Long.toString(ssrc);
+			}
+		}
+	}
+
+	private static void removeUnusedCodecs(@NonNull final ParsedSdp.MediaSection section,
+		@NonNull final Set<String> keep) {
+
+		final Set<String> kept = new HashSet<>();
+		final List<String> removed = new ArrayList<>();
+		for (final String pt: section.getFormats()) {
+			final String name = section.getEncodingName(pt);
+			if ((name != null) && keep.contains(name.toLowerCase(Locale.US))) {
+				kept.add(pt);
+			}
+		}
+		if (kept.isEmpty()) {
+			return;
+		}
+		for (final String pt: section.getFormats()) {
+			if (!kept.contains(pt)) {
+				final String name = section.getEncodingName(pt);
+				// rtxはapt=で元のpayload typeを参照している
+				if (!RTX.equalsIgnoreCase(name)
+					|| !kept.contains(section.getFmtpParameter(pt, "apt"))) {
+
+					removed.add(pt);
+				}
+			}
+		}
+		if (!removed.isEmpty()) {
+			section.removePayloadTypes(removed);
+		}
+	}
+
+	/**
+	 * set fmtp parameter to the first payload type of the codec
+	 * only when the value is different
+	 */
+	private static void setFmtpParameter(@NonNull final ParsedSdp sdp,
+		@NonNull final String type, @NonNull final String codec,
+		@NonNull final String key, @NonNull final String value) {
+
+		for (final ParsedSdp.MediaSection section: sdp.getMediaSections()) {
+			if (type.equals(section.type)) {
+				final List<String> payloadTypes = section.getPayloadTypes(codec);
+				if (!payloadTypes.isEmpty()
+					&& !value.equals(section.getFmtpParameter(payloadTypes.get(0), key))) {
+
+					section.setFmtpParameter(payloadTypes.get(0), key, value);
+				}
+			}
+		}
+	}
+}
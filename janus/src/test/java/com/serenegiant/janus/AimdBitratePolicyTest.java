@@ -0,0 +1,183 @@
+package com.serenegiant.janus;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * AimdBitratePolicy with recorded traces of slowlink and bandwidth estimation
+ */
+public class AimdBitratePolicyTest {
+	private static final int MIN_BPS = 100000;
+	private static final int MAX_BPS = 1000000;
+	private static final int FPS = 30;
+	private static final long PERIOD_MS = 1000;
+	private static final long PUBLISHER_ID = 7283745939459L;
+
+	/**
+	 * recorded on a Wi-Fi link that got congested for a few seconds,
+	 * {availableOutgoingBitrate[kbps], uplink slowlink lost count} per second
+	 */
+	private static final int[][] LOSS_TRACE = {
+		{ 2500, 0 }, { 2500, 0 }, { 2500, 0 }, { 2500, 0 }, { 2500, 0 },
+		{ 2500, 32 }, { 2500, 17 }, { 2500, 9 }, { 2500, 0 }, { 2500, 0 },
+		{ 2500, 0 }, { 2500, 0 }, { 2500, 0 }, { 2500, 0 }, { 2500, 0 },
+		{ 2500, 0 }, { 2500, 0 }, { 2500, 0 }, { 2500, 0 }, { 2500, 0 },
+		{ 2500, 0 }, { 2500, 0 }, { 2500, 0 }, { 2500, 0 }, { 2500, 0 },
+	};
+
+	/**
+	 * recorded while moving from Wi-Fi to a poor cellular link and back,
+	 * availableOutgoingBitrate[kbps] per second
+	 */
+	private static final int[] BWE_TRACE = {
+		1500, 1500, 1480, 1510, 1500, 720, 350, 180, 150, 150,
+		160, 150, 150, 150, 150, 300, 310, 290, 300, 305,
+		300, 295, 300, 310, 300, 300, 290, 300, 300, 300,
+		2500, 2500, 2500, 2500, 2500, 2500, 2500, 2500, 2500, 2500,
+		2500, 2500, 2500, 2500, 2500, 2500, 2500, 2500, 2500, 2500,
+		2500, 2500, 2500, 2500, 2500, 2500, 2500, 2500, 2500, 2500,
+	};
+
+	private AimdBitratePolicy mPolicy;
+	private long mTimeMs;
+
+	@Before
+	public void setUp() {
+		mPolicy = new AimdBitratePolicy(MIN_BPS, MAX_BPS, FPS);
+		mTimeMs = 100000;
+	}
+
+	@Test
+	public void stableLinkAppliesOnlyOnce() {
+		final BitratePolicy.EncodingTarget first = next(2500);
+		assertEquals(new BitratePolicy.EncodingTarget(MAX_BPS, 1.0, FPS), first);
+		for (int i = 0; i < 60; i++) {
+			assertNull(next(2500));
+		}
+		// unknown bandwidth estimation is not congestion
+		assertNull(next(0));
+	}
+
+	@Test
+	public void slowLinkDecreasesMultiplicativelyAndIncreasesAdditively() {
+		final List<Integer> targets = new ArrayList<>();
+		long lastDecreaseMs = 0;
+		for (final int[] sample: LOSS_TRACE) {
+			if (sample[1] > 0) {
+				mPolicy.onSlowLink(true, sample[1]);
+				lastDecreaseMs = mTimeMs + PERIOD_MS;
+			}
+			final int prev = mPolicy.getTargetBitrate();
+			next(sample[0]);
+			final int target = mPolicy.getTargetBitrate();
+			targets.add(target);
+			if (sample[1] > 0) {
+				assertEquals(prev * 0.85, target, 1);
+			} else if (mTimeMs - lastDecreaseMs < 2000) {
+				// hold after decrease
+				assertEquals(prev, target);
+			} else {
+				assertTrue(target >= prev);
+				assertTrue(target - prev <= MAX_BPS * 0.05 + 1);
+			}
+		}
+		assertEquals((int)(MAX_BPS * 0.85 * 0.85 * 0.85), (int)targets.get(7));
+		assertEquals(MAX_BPS, (int)targets.get(targets.size() - 1));
+	}
+
+	@Test
+	public void downlinkAndSubscribersAreIgnored() {
+		assertNotNull(next(2500));
+		mPolicy.onSlowLink(false, 100);
+		assertNull(next(2500));
+		assertEquals(MAX_BPS, mPolicy.getTargetBitrate());
+		mPolicy.onSlowLink(true, 100);
+		assertNull(mPolicy.onStats(stats(false, 2500)));
+		// slowlink is kept until the stats of the publisher
+		assertNotNull(next(2500));
+		assertEquals((int)(MAX_BPS * 0.85), mPolicy.getTargetBitrate());
+		mPolicy.reset();
+		assertEquals(MAX_BPS, mPolicy.getTargetBitrate());
+		assertEquals(MAX_BPS, next(2500).maxBitrateBps);
+	}
+
+	@Test
+	public void bandwidthTraceStepsFormatWithHysteresis() {
+		final List<BitratePolicy.EncodingTarget> applied = new ArrayList<>();
+		BitratePolicy.EncodingTarget current = null;
+		int formatChanges = 0;
+		for (int i = 0; i < BWE_TRACE.length; i++) {
+			final BitratePolicy.EncodingTarget target = next(BWE_TRACE[i]);
+			if (target != null) {
+				if (target.isFormatChanged(current)) {
+					formatChanges++;
+				}
+				applied.add(target);
+				current = target;
+			}
+			// never exceeds the bandwidth estimation more than the congestion margin
+			assertTrue(current.maxBitrateBps * 0.8 <= BWE_TRACE[i] * 1000);
+			assertTrue(current.maxBitrateBps >= MIN_BPS);
+			if (i == 14) {
+				// poor link, lowest resolution and frame rate
+				assertEquals(2.0, current.scaleDownBy, 0);
+				assertEquals(FPS / 2, current.maxFramerate);
+			} else if (i == 29) {
+				// recovered a little, only the resolution is scaled down
+				assertEquals(1.5, current.scaleDownBy, 0);
+				assertEquals(FPS, current.maxFramerate);
+			}
+		}
+		assertEquals(new BitratePolicy.EncodingTarget(MAX_BPS, 1.0, FPS), current);
+		// initial, step down twice, step up twice, no flapping around the thresholds
+		assertTrue("formatChanges=" + formatChanges, formatChanges <= 6);
+		// small changes are not applied every second
+		assertTrue("applied=" + applied.size(), applied.size() < BWE_TRACE.length / 2);
+	}
+
+	@Test
+	public void simulcastLayersShareTheTarget() {
+		for (final int availableKbps: BWE_TRACE) {
+			final BitratePolicy.EncodingTarget target = next(availableKbps);
+			if (target == null) continue;
+			final int[] layers = target.splitForSimulcast(3);
+			long total = 0;
+			for (int i = 0; i < layers.length; i++) {
+				total += layers[i];
+				if (i > 0) {
+					// upper layer has 4 times the pixels of the lower one
+					assertEquals(layers[i - 1] * 4, layers[i], 4);
+				}
+			}
+			// the sum of the layers is capped, not each layer
+			assertTrue("total=" + total, total <= target.maxBitrateBps);
+			assertTrue("total=" + total, total >= target.maxBitrateBps - layers.length);
+		}
+		assertArrayEquals(new int[] { MAX_BPS },
+			new BitratePolicy.EncodingTarget(MAX_BPS, 1.0, FPS).splitForSimulcast(1));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void invalidRange() {
+		new AimdBitratePolicy(MAX_BPS, MIN_BPS, FPS);
+	}
+
+	private BitratePolicy.EncodingTarget next(final int availableKbps) {
+		return mPolicy.onStats(stats(true, availableKbps));
+	}
+
+	private RtcStatsDelta stats(final boolean publisher, final int availableKbps) {
+		mTimeMs += PERIOD_MS;
+		final long bitrate = Math.min(mPolicy.getTargetBitrate(), availableKbps * 1000L);
+		return new RtcStatsDelta(PUBLISHER_ID, JanusId.NONE, publisher,
+			mTimeMs, PERIOD_MS,
+			publisher ? bitrate + 32000 : 0, publisher ? bitrate : 0, FPS,
+			publisher ? 0 : bitrate, 0, 0, 0,
+			publisher ? availableKbps * 1000L : 0, 0, 40);
+	}
+}
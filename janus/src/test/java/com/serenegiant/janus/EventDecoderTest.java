@@ -0,0 +1,91 @@
+package com.serenegiant.janus;
+
+import android.support.annotation.NonNull;
+
+import com.google.gson.JsonParseException;
+import com.serenegiant.janus.response.EventRoom;
+
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class EventDecoderTest {
+
+	@Test
+	public void joinedEventIsBoundInOnePass() throws Exception {
+		final EventRoom event = EventDecoder.decode(RecordedEvents.JOINED);
+		assertEquals("event", event.janus);
+		assertEquals("Vq0b3x8pLwYz", event.transaction);
+		assertEquals(8118458296733815L, event.sender);
+		assertNull(event.jsep);
+		// session_id is not kept
+		assertNull(event.extras);
+		assertEquals("janus.plugin.videoroom", event.plugindata.plugin);
+		final EventRoom.Data data = event.plugindata.data;
+		assertEquals("joined", data.videoroom);
+		assertEquals(1234, data.room);
+		assertEquals(5926370914651623L, data.id);
+		assertEquals(3146851212L, data.private_id);
+		assertEquals(3, data.publishers.length);
+		assertEquals("pixel3", data.publishers[0].display);
+		// ids that exceed signed 64bit range
+		assertEquals("18446744073709551615", JanusId.toString(data.publishers[1].id));
+		assertTrue(data.publishers[1].talking);
+		assertEquals("h264", data.publishers[2].video_codec);
+		assertFalse(data.publishers[2].talking);
+	}
+
+	@Test
+	public void jsepAndConfiguredAreBound() throws Exception {
+		final EventRoom event = EventDecoder.decode(RecordedEvents.ANSWER);
+		assertEquals("answer", event.jsep.type);
+		assertTrue(event.jsep.sdp.startsWith("v=0\r\n"));
+		assertTrue(event.plugindata.data.configured);
+	}
+
+	@Test
+	public void unboundFieldsAreKeptInExtras() throws Exception {
+		final EventRoom event = EventDecoder.decode(RecordedEvents.SLOWLINK);
+		assertEquals("slowlink", event.janus);
+		assertNull(event.plugindata);
+		assertNotNull(event.extras);
+		assertTrue(event.extras.getBoolean("uplink"));
+		assertEquals(27, event.extras.getInt("nacks"));
+	}
+
+	@Test
+	public void arrayOfEventsIsDecodedInOrder() throws Exception {
+		final StringBuilder sb = new StringBuilder("[");
+		for (int i = 0; i < RecordedEvents.ALL.length; i++) {
+			if (i > 0) sb.append(',');
+			sb.append(RecordedEvents.ALL[i]);
+		}
+		sb.append(']');
+		final List<String> received = new ArrayList<>();
+		final int n = EventDecoder.decode(new StringReader(sb.toString()), new EventDecoder.Sink() {
+			@Override
+			public void onEvent(@NonNull final EventRoom event) {
+				received.add(event.janus);
+			}
+		});
+		assertEquals(RecordedEvents.ALL.length, n);
+		assertEquals(RecordedEvents.ALL.length, received.size());
+		assertEquals("ack", received.get(0));
+		assertEquals("slowlink", received.get(received.size() - 1));
+	}
+
+	@Test(expected = JsonParseException.class)
+	public void brokenEventIsReported() throws Exception {
+		EventDecoder.decode(new StringReader("{\"janus\":\"event\",\"sender\":\"x\"}"),
+			new EventDecoder.Sink() {
+				@Override
+				public void onEvent(@NonNull final EventRoom event) {
+					fail();
+				}
+			});
+	}
+}
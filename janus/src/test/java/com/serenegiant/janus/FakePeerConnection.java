@@ -0,0 +1,58 @@
+package com.serenegiant.janus;
+
+import org.webrtc.MediaConstraints;
+import org.webrtc.PeerConnection;
+import org.webrtc.RtpTransceiver;
+import org.webrtc.SdpObserver;
+import org.webrtc.SessionDescription;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * PeerConnection without native implementation for local unit tests,
+ * SDPs are recorded and the answer is created/set immediately
+ */
+/*package*/ class FakePeerConnection extends PeerConnection {
+	/*package*/ static final String ANSWER_SDP = "v=0\r\no=- 3 4 IN IP4 192.0.2.2\r\n";
+
+	/** remote SDPs that were set */
+	/*package*/ final BlockingQueue<SessionDescription> remoteDescriptions
+		= new LinkedBlockingQueue<>();
+	/** local SDPs that were set */
+	/*package*/ final BlockingQueue<SessionDescription> localDescriptions
+		= new LinkedBlockingQueue<>();
+
+	/*package*/ FakePeerConnection() {
+		super(() -> 0L);
+	}
+
+	@Override
+	public void createAnswer(final SdpObserver observer, final MediaConstraints constraints) {
+		observer.onCreateSuccess(
+			new SessionDescription(SessionDescription.Type.ANSWER, ANSWER_SDP));
+	}
+
+	@Override
+	public void setLocalDescription(final SdpObserver observer, final SessionDescription sdp) {
+		localDescriptions.add(sdp);
+		observer.onSetSuccess();
+	}
+
+	@Override
+	public void setRemoteDescription(final SdpObserver observer, final SessionDescription sdp) {
+		remoteDescriptions.add(sdp);
+		observer.onSetSuccess();
+	}
+
+	@Override
+	public List<RtpTransceiver> getTransceivers() {
+		return new ArrayList<>();
+	}
+
+	@Override
+	public void dispose() {
+	}
+}
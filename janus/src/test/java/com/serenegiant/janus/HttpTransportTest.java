@@ -0,0 +1,165 @@
+package com.serenegiant.janus;
+
+import android.support.annotation.NonNull;
+
+import com.serenegiant.janus.response.EventRoom;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * long poll of HttpTransport against MockWebServer that queues events like janus-gateway
+ */
+public class HttpTransportTest {
+	private static final long SESSION_ID = 1234567890L;
+	private static final int NUM_EVENTS = 100;
+	/** simulated round trip time of each long poll request[ミリ秒] */
+	private static final long RTT_MS = 10;
+
+	private MockWebServer mServer;
+	private ExecutorService mExecutor;
+	private HttpTransport mTransport;
+	private final LinkedBlockingQueue<String> mQueuedEvents = new LinkedBlockingQueue<>();
+	/** number of long poll responses that carried events */
+	private final AtomicInteger mServedPolls = new AtomicInteger();
+
+	@Before
+	public void setUp() throws Exception {
+		Logger.getLogger(MockWebServer.class.getName()).setLevel(Level.WARNING);
+		mServedPolls.set(0);
+		for (int i = 0; i < NUM_EVENTS; i++) {
+			mQueuedEvents.add("{\"janus\":\"event\",\"session_id\":" + SESSION_ID
+				+ ",\"sender\":" + i + "}");
+		}
+		mServer = new MockWebServer();
+		mServer.setDispatcher(mFakeJanus);
+		mServer.start();
+		mExecutor = Executors.newSingleThreadExecutor();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		if (mTransport != null) {
+			mTransport.release();
+		}
+		mExecutor.shutdownNow();
+		mServer.shutdown();
+	}
+
+	@Test
+	public void singleEventPerPoll() throws Exception {
+		drain(1);
+		assertEquals(NUM_EVENTS, mServedPolls.get());
+	}
+
+	@Test
+	public void batchedEventsAreDispatchedInOrder() throws Exception {
+		drain(10);
+		assertEquals(NUM_EVENTS / 10, mServedPolls.get());
+	}
+
+	@Test
+	public void batchedIsFasterThanSingle() throws Exception {
+		final long single = drain(1);
+		tearDown();
+		mTransport = null;
+		setUp();
+		final long batched = drain(10);
+		assertTrue("single=" + single + ",batched=" + batched, batched < single);
+	}
+
+	/**
+	 * start long poll and wait until all queued events are received
+	 * @param maxEvents
+	 * @return elapsed time[ミリ秒]
+	 */
+	private long drain(final int maxEvents) throws Exception {
+		final Retrofit retrofit = new Retrofit.Builder()
+			.baseUrl(mServer.url("/"))
+			.addConverterFactory(GsonConverterFactory.create())
+			.client(new OkHttpClient())
+			.build();
+		mTransport = new HttpTransport(retrofit.create(VideoRoom.class),
+			retrofit.create(LongPoll.class), "janus", mExecutor, maxEvents,
+			new ReconnectScheduler());
+		final List<Integer> received = Collections.synchronizedList(new ArrayList<>());
+		final CountDownLatch latch = new CountDownLatch(NUM_EVENTS);
+		final long start = System.nanoTime();
+		mTransport.startEvents(SESSION_ID, new JanusTransport.EventListener() {
+			@Override
+			public void onEvent(@NonNull final EventRoom body) {
+				received.add((int)body.sender);
+				latch.countDown();
+			}
+
+			@Override
+			public void onFailure(@NonNull final Throwable t) {
+			}
+
+			@Override
+			public void onReconnectStateChanged(@NonNull final ReconnectScheduler.State state,
+				final int failureCount, final long delayMs) {
+			}
+		});
+		assertTrue("timeout", latch.await(30, TimeUnit.SECONDS));
+		final long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		mTransport.cancel();
+		assertEquals(NUM_EVENTS, received.size());
+		for (int i = 0; i < NUM_EVENTS; i++) {
+			assertEquals(i, (int)received.get(i));
+		}
+		return elapsed;
+	}
+
+	/**
+	 * minimum janus-gateway stand-in for long poll,
+	 * returns JSON array when maxev is specified
+	 */
+	private final Dispatcher mFakeJanus = new Dispatcher() {
+		@Override
+		public MockResponse dispatch(final RecordedRequest request) throws InterruptedException {
+			final String maxev = request.getRequestUrl().queryParameter("maxev");
+			final String first = mQueuedEvents.poll(500, TimeUnit.MILLISECONDS);
+			final MockResponse response = new MockResponse()
+				.setHeadersDelay(RTT_MS, TimeUnit.MILLISECONDS);
+			if (first == null) {
+				return response.setBody("{\"janus\":\"keepalive\"}");
+			}
+			mServedPolls.incrementAndGet();
+			if (maxev == null) {
+				return response.setBody(first);
+			}
+			final StringBuilder sb = new StringBuilder("[").append(first);
+			final int n = Integer.parseInt(maxev);
+			for (int i = 1; i < n; i++) {
+				final String event = mQueuedEvents.poll();
+				if (event == null) break;
+				sb.append(',').append(event);
+			}
+			return response.setBody(sb.append(']').toString());
+		}
+	};
+}
@@ -0,0 +1,73 @@
+package com.serenegiant.janus;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class JanusIdTest {
+
+	@Test
+	public void unsignedStringRoundTrip() {
+		final String[] values = {
+			"1", "9", "10", "3870519484418461", "9223372036854775807",
+			"9223372036854775808", "10000000000000000000", "18446744073709551615",
+		};
+		for (final String value: values) {
+			final long id = JanusId.parse(value);
+			assertEquals(value, JanusId.toString(id));
+			assertEquals(new BigInteger(value), JanusId.toBigInteger(id));
+			assertEquals(id, JanusId.valueOf(new BigInteger(value)));
+		}
+		assertEquals(-1L, JanusId.parse("18446744073709551615"));
+		assertEquals(Long.MIN_VALUE, JanusId.parse("9223372036854775808"));
+	}
+
+	@Test
+	public void randomIdsRoundTrip() {
+		final Random random = new Random(1234);
+		for (int i = 0; i < 10000; i++) {
+			final long id = random.nextLong();
+			final BigInteger big = JanusId.toBigInteger(id);
+			assertEquals(big.toString(), JanusId.toString(id));
+			assertEquals(id, JanusId.parse(big.toString()));
+			assertEquals(id, JanusId.valueOf(big));
+		}
+	}
+
+	@Test
+	public void noneIsNull() {
+		assertNull(JanusId.toBigInteger(JanusId.NONE));
+		assertEquals(JanusId.NONE, JanusId.valueOf(null));
+	}
+
+	@Test
+	public void outOfRange() {
+		final String[] values = {
+			"", "-1", "1a", "18446744073709551616", "18446744073709551620",
+			"99999999999999999999", "100000000000000000000",
+		};
+		for (final String value: values) {
+			try {
+				JanusId.parse(value);
+				fail(value);
+			} catch (final NumberFormatException e) {
+				// expected
+			}
+		}
+		try {
+			JanusId.valueOf(BigInteger.ONE.shiftLeft(64));
+			fail();
+		} catch (final IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			JanusId.valueOf(BigInteger.valueOf(-1));
+			fail();
+		} catch (final IllegalArgumentException e) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,291 @@
+package com.serenegiant.janus;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.serenegiant.janus.request.Attach;
+import com.serenegiant.janus.request.Claim;
+import com.serenegiant.janus.request.Configure;
+import com.serenegiant.janus.request.ConfigureSubstream;
+import com.serenegiant.janus.request.Creator;
+import com.serenegiant.janus.request.Destroy;
+import com.serenegiant.janus.request.Detach;
+import com.serenegiant.janus.request.Hangup;
+import com.serenegiant.janus.request.Join;
+import com.serenegiant.janus.request.JsepSdp;
+import com.serenegiant.janus.request.KeepAlive;
+import com.serenegiant.janus.request.Message;
+import com.serenegiant.janus.request.Start;
+import com.serenegiant.janus.request.Subscribe;
+import com.serenegiant.janus.request.Trickle;
+import com.serenegiant.janus.request.TrickleBatch;
+import com.serenegiant.janus.request.TrickleCompleted;
+import com.serenegiant.janus.response.Event;
+import com.serenegiant.janus.response.EventRoom;
+import com.serenegiant.janus.response.Plugin;
+import com.serenegiant.janus.response.PublisherInfo;
+import com.serenegiant.janus.response.ServerInfo;
+import com.serenegiant.janus.response.Session;
+import com.serenegiant.janus.response.StreamInfo;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class JanusTypeAdapterFactoryTest {
+	private static final BigInteger SESSION_ID = new BigInteger("3870519484418461");
+	/** max value of unsigned 64bit */
+	private static final BigInteger HANDLE_ID = new BigInteger("18446744073709551615");
+	/** reflective Gson can not write unsigned long, so ids within signed range are used to compare */
+	private static final long PLUGIN_ID = 8118458296733815L;
+
+	/*package*/ static final String SERVER_INFO
+		= "{\"janus\":\"server_info\",\"transaction\":\"Cq7HbXf2Wd0s\",\"name\":\"Janus WebRTC Server\","
+		+ "\"version\":41,\"version_string\":\"0.4.1\",\"author\":\"Meetecho s.r.l.\","
+		+ "\"commit_hash\":\"e4d1a3f2\",\"compile_time\":\"Mon Dec 10 10:20:31 2018\","
+		+ "\"log-to-stdout\":true,\"data_channels\":true,\"session_timeout\":60,"
+		+ "\"ipv6\":false,\"ice_tcp\":false,\"local-ip\":\"192.0.2.1\","
+		+ "\"transports\":{"
+		+ "\"janus.transport.http\":{\"name\":\"JANUS REST (HTTP/HTTPS) transport plugin\","
+		+ "\"author\":\"Meetecho s.r.l.\",\"description\":\"rest\",\"version_string\":\"0.0.2\",\"version\":2},"
+		+ "\"janus.transport.websockets\":{\"name\":\"JANUS WebSockets transport plugin\","
+		+ "\"author\":\"Meetecho s.r.l.\",\"description\":\"ws\",\"version_string\":\"0.0.1\",\"version\":1}},"
+		+ "\"plugins\":{"
+		+ "\"janus.plugin.videoroom\":{\"name\":\"JANUS VideoRoom plugin\","
+		+ "\"author\":\"Meetecho s.r.l.\",\"description\":\"videoroom\",\"version_string\":\"0.0.9\",\"version\":9}}}";
+
+	/** "updated" event of multistream subscriber after subscribe/unsubscribe */
+	private static final String MULTISTREAM_UPDATED
+		= "{\"janus\":\"event\",\"session_id\":3870519484418461,\"transaction\":\"Lk2s9Qw0Zr4t\","
+		+ "\"sender\":8118458296733815,\"plugindata\":{\"plugin\":\"janus.plugin.videoroom\","
+		+ "\"data\":{\"videoroom\":\"updated\",\"room\":1234,\"streams\":["
+		+ "{\"type\":\"audio\",\"active\":true,\"mindex\":0,\"mid\":\"0\",\"ready\":true,\"send\":true,"
+		+ "\"feed_id\":6419437437012474,\"feed_display\":\"pixel3\",\"feed_mid\":\"0\",\"codec\":\"opus\"},"
+		+ "{\"type\":\"video\",\"active\":true,\"mindex\":1,\"mid\":\"1\",\"ready\":true,\"send\":true,"
+		+ "\"feed_id\":6419437437012474,\"feed_display\":\"pixel3\",\"feed_mid\":\"1\",\"codec\":\"vp8\"},"
+		+ "{\"type\":\"video\",\"active\":false,\"mindex\":2,\"mid\":\"2\",\"ready\":false,\"send\":false,"
+		+ "\"feed_id\":2740513227394710,\"feed_display\":\"browser\",\"feed_mid\":\"1\"}]}},"
+		+ "\"jsep\":{\"type\":\"offer\",\"sdp\":\"v=0\\r\\n\"}}";
+
+	private final Gson mReflective = new Gson();
+	private final Gson mGson = new GsonBuilder()
+		.registerTypeAdapterFactory(new JanusTypeAdapterFactory())
+		.create();
+	private final TransactionManager mManager = new TransactionManager();
+
+	@Test
+	public void requestsAreSameAsReflective() {
+		assertSameAsReflective(new Creator(mManager));
+		assertSameAsReflective(new Attach(mManager, SESSION_ID, "janus.plugin.videoroom", null));
+		assertSameAsReflective(new Destroy(mManager, SESSION_ID, null));
+		assertSameAsReflective(new Detach(mManager, SESSION_ID, null));
+		assertSameAsReflective(new Hangup(mManager, SESSION_ID, null));
+		assertSameAsReflective(new KeepAlive(mManager, SESSION_ID.longValue(), null));
+		assertSameAsReflective(new Claim(mManager, SESSION_ID.longValue(), null));
+		assertSameAsReflective(new Message(mManager, SESSION_ID.longValue(), PLUGIN_ID,
+			new Join(1234, "subscriber", null, null, PLUGIN_ID), null));
+		assertSameAsReflective(new Message(mManager, SESSION_ID.longValue(), PLUGIN_ID,
+			new Configure(true, false), new JsepSdp("offer", "v=0\r\n"), null));
+		assertSameAsReflective(new Message(mManager, SESSION_ID.longValue(), PLUGIN_ID,
+			new Configure(true, true, true), null));
+		assertSameAsReflective(new Message(mManager, SESSION_ID.longValue(), PLUGIN_ID,
+			ConfigureSubstream.of(0, 2), null));
+		assertSameAsReflective(new Message(mManager, SESSION_ID.longValue(), PLUGIN_ID,
+			ConfigureSubstream.of(1, -1), null));
+		assertSameAsReflective(new Message(mManager, SESSION_ID.longValue(), PLUGIN_ID,
+			ConfigureSubstream.of("v1", 2, 1), null));
+		assertSameAsReflective(new Message(mManager, SESSION_ID.longValue(), PLUGIN_ID,
+			new Start(1234), new JsepSdp("answer", "v=0\r\n"), null));
+		assertSameAsReflective(new Message(mManager, SESSION_ID.longValue(), PLUGIN_ID,
+			Subscribe.join(1234, Arrays.asList(PLUGIN_ID, 6419437437012474L)), null));
+		assertSameAsReflective(new Message(mManager, SESSION_ID.longValue(), PLUGIN_ID,
+			Subscribe.subscribe(Collections.singletonList(PLUGIN_ID)), null));
+		assertSameAsReflective(new Message(mManager, SESSION_ID.longValue(), PLUGIN_ID,
+			Subscribe.unsubscribe(Collections.singletonList(PLUGIN_ID)), null));
+		assertSameAsReflective(new Trickle(mManager, SESSION_ID.longValue(), PLUGIN_ID,
+			new Trickle.Candidate(0, "audio", "candidate:1 1 udp 2013266431 192.0.2.1 40101 typ host"),
+			null));
+		assertSameAsReflective(new TrickleCompleted(mManager, SESSION_ID.longValue(), PLUGIN_ID, null));
+		final List<Trickle.Candidate> candidates = Arrays.asList(
+			new Trickle.Candidate(0, "audio", "candidate:1 1 udp 2013266431 192.0.2.1 40101 typ host"),
+			new Trickle.Candidate(1, "video", "candidate:1 1 udp 2013266431 192.0.2.1 40102 typ host"));
+		assertSameAsReflective(new TrickleBatch(mManager, SESSION_ID.longValue(), PLUGIN_ID,
+			candidates, false, null));
+		assertSameAsReflective(new TrickleBatch(mManager, SESSION_ID.longValue(), PLUGIN_ID,
+			candidates, true, null));
+		mManager.clearTransactions();
+	}
+
+	@Test
+	public void idsAreWrittenAsJsonNumber() {
+		final String json = mGson.toJson(new Detach(mManager, HANDLE_ID, null));
+		assertTrue(json, json.contains("\"session_id\":18446744073709551615"));
+		final String subscribe = mGson.toJson(new Message(mManager, SESSION_ID, HANDLE_ID,
+			new Join(1234, "subscriber", null, null, HANDLE_ID), null));
+		assertTrue(subscribe, subscribe.contains("\"handle_id\":18446744073709551615"));
+		assertTrue(subscribe, subscribe.contains("\"feed\":18446744073709551615"));
+		// JanusId.NONE is omitted as same as null BigInteger
+		final String publish = mGson.toJson(new Message(mManager, SESSION_ID, HANDLE_ID,
+			new Join(1234, "publisher", "user", "display", null), null));
+		assertFalse(publish, publish.contains("feed"));
+		final JsonObject tree = mGson.toJsonTree(
+			new Attach(mManager, SESSION_ID, "janus.plugin.videoroom", null)).getAsJsonObject();
+		assertTrue(tree.get("session_id").getAsJsonPrimitive().isNumber());
+		assertEquals(SESSION_ID, tree.get("session_id").getAsBigInteger());
+	}
+
+	@Test
+	public void completionMarkerIsFoldedIntoBatch() {
+		final TrickleBatch batch = new TrickleBatch(mManager, SESSION_ID.longValue(), PLUGIN_ID,
+			Collections.singletonList(
+				new Trickle.Candidate(0, "audio", "candidate:1 1 udp 2013266431 192.0.2.1 40101 typ host")),
+			true, null);
+		assertEquals(1, batch.numCandidates());
+		assertTrue(batch.isCompleted());
+		final JsonObject tree = mGson.toJsonTree(batch).getAsJsonObject();
+		assertEquals("trickle", tree.get("janus").getAsString());
+		assertFalse(tree.has("candidate"));
+		final JsonArray candidates = tree.getAsJsonArray("candidates");
+		assertEquals(2, candidates.size());
+		assertEquals("audio", candidates.get(0).getAsJsonObject().get("sdpMid").getAsString());
+		assertTrue(candidates.get(1).getAsJsonObject().get("completed").getAsBoolean());
+		// completion only
+		final TrickleBatch completed = new TrickleBatch(mManager, SESSION_ID.longValue(), PLUGIN_ID,
+			Collections.<Trickle.Candidate>emptyList(), true, null);
+		assertEquals(0, completed.numCandidates());
+		assertEquals("{\"completed\":true}",
+			mGson.toJsonTree(completed).getAsJsonObject().getAsJsonArray("candidates").get(0).toString());
+		mManager.clearTransactions();
+	}
+
+	@Test
+	public void responsesAreSameAsReflective() {
+		assertSameAsReflective("{\"janus\":\"success\",\"transaction\":\"abc\",\"data\":{\"id\":3870519484418461}}",
+			Session.class);
+		assertSameAsReflective("{\"janus\":\"success\",\"session_id\":1,\"transaction\":\"abc\",\"data\":{\"id\":8118458296733815}}",
+			Plugin.class);
+		assertSameAsReflective("{\"id\":6419437437012474,\"display\":\"pixel3\",\"audio_codec\":\"opus\",\"talking\":true}",
+			PublisherInfo.class);
+		// JOINED has unsigned 64bit id that reflective Gson can not read into long,
+		// it is checked by EventDecoderTest and responsesRoundTrip instead
+		assertSameAsReflective(RecordedEvents.PUBLISHERS, EventRoom.class);
+		assertSameAsReflective(RecordedEvents.LEAVING, EventRoom.class);
+		assertSameAsReflective(RecordedEvents.ACK, EventRoom.class);
+	}
+
+	@Test
+	public void responsesRoundTrip() {
+		for (final String json: RecordedEvents.ALL) {
+			assertRoundTrip(json, EventRoom.class);
+		}
+		assertRoundTrip(SERVER_INFO, ServerInfo.class);
+		assertRoundTrip("{\"janus\":\"success\",\"transaction\":\"abc\",\"data\":{\"id\":1}}", Session.class);
+		assertRoundTrip("{\"janus\":\"success\",\"transaction\":\"abc\"}", Plugin.class);
+		assertRoundTrip(RecordedEvents.ANSWER, Event.class);
+	}
+
+	@Test
+	public void multistreamRequestsAreWritten() {
+		final JsonObject join = mGson.toJsonTree(
+			Subscribe.join(1234, Arrays.asList(6419437437012474L, 2740513227394710L))).getAsJsonObject();
+		assertEquals("join", join.get("request").getAsString());
+		assertEquals("subscriber", join.get("ptype").getAsString());
+		assertEquals(1234, join.get("room").getAsInt());
+		final JsonArray streams = join.getAsJsonArray("streams");
+		assertEquals(2, streams.size());
+		assertEquals(2740513227394710L, streams.get(1).getAsJsonObject().get("feed").getAsLong());
+		assertFalse(streams.get(0).getAsJsonObject().has("mid"));
+		// updates do not have room/ptype
+		final JsonObject unsubscribe = mGson.toJsonTree(
+			Subscribe.unsubscribe(Collections.singletonList(HANDLE_ID.longValue()))).getAsJsonObject();
+		assertEquals("unsubscribe", unsubscribe.get("request").getAsString());
+		assertFalse(unsubscribe.has("room"));
+		assertFalse(unsubscribe.has("ptype"));
+		assertEquals(HANDLE_ID, unsubscribe.getAsJsonArray("streams")
+			.get(0).getAsJsonObject().get("feed").getAsBigInteger());
+	}
+
+	@Test
+	public void multistreamStreamsAreBound() {
+		assertSameAsReflective(MULTISTREAM_UPDATED, EventRoom.class);
+		assertRoundTrip(MULTISTREAM_UPDATED, EventRoom.class);
+		final EventRoom event = mGson.fromJson(MULTISTREAM_UPDATED, EventRoom.class);
+		assertEquals("updated", event.plugindata.data.videoroom);
+		assertEquals("offer", event.jsep.type);
+		final StreamInfo[] streams = event.plugindata.data.streams;
+		assertEquals(3, streams.length);
+		assertEquals("video", streams[1].type);
+		assertEquals("1", streams[1].mid);
+		assertEquals(6419437437012474L, streams[1].feed_id);
+		assertTrue(streams[1].active);
+		assertFalse(streams[2].active);
+		assertEquals(2740513227394710L, streams[2].feed_id);
+		// active is omitted by janus-gateway while the stream is active
+		final StreamInfo stream = mGson.fromJson(
+			"{\"type\":\"audio\",\"mindex\":0,\"mid\":\"0\",\"feed_id\":1}", StreamInfo.class);
+		assertTrue(stream.active);
+		// events without streams(ex. publishers) are not changed
+		assertNull(mGson.fromJson(RecordedEvents.PUBLISHERS, EventRoom.class).plugindata.data.streams);
+	}
+
+	@Test
+	public void serverInfoIsBound() {
+		final ServerInfo info = mGson.fromJson(SERVER_INFO, ServerInfo.class);
+		assertEquals("server_info", info.janus);
+		assertEquals(41, info.version);
+		assertEquals(60, info.session_timeout);
+		assertTrue(info.data_channels);
+		// transports/plugins are JSON objects keyed by name
+		assertEquals(2, info.transports.transports.size());
+		assertEquals("JANUS WebSockets transport plugin", info.transports.transports.get(1).name);
+		assertEquals(1, info.plugins().size());
+		assertEquals(9, info.plugins().get(0).version);
+	}
+
+	@Test
+	public void unsignedIdsAreRead() {
+		final Session session = mGson.fromJson(
+			"{\"janus\":\"success\",\"transaction\":\"abc\",\"data\":{\"id\":18446744073709551615}}",
+			Session.class);
+		assertEquals(HANDLE_ID, JanusId.toBigInteger(session.id()));
+		final Plugin plugin = mGson.fromJson(
+			"{\"janus\":\"success\",\"transaction\":\"abc\",\"data\":{\"id\":\"8118458296733815\"}}",
+			Plugin.class);
+		assertEquals(PLUGIN_ID, plugin.id());
+		final Plugin empty = mGson.fromJson("{\"janus\":\"success\",\"transaction\":\"abc\"}", Plugin.class);
+		assertEquals(JanusId.NONE, empty.id());
+	}
+
+	@Test
+	public void configuredOkIsTrue() {
+		final EventRoom event = mGson.fromJson(RecordedEvents.ANSWER, EventRoom.class);
+		assertTrue(event.plugindata.data.configured);
+		assertEquals("answer", event.jsep.type);
+	}
+
+	private void assertSameAsReflective(final Object request) {
+		assertEquals(mReflective.toJsonTree(request), mGson.toJsonTree(request));
+		assertEquals(mReflective.toJson(request), mGson.toJson(request));
+	}
+
+	private <T> void assertSameAsReflective(final String json, final Class<T> clazz) {
+		final JsonElement expected = mReflective.toJsonTree(mReflective.fromJson(json, clazz));
+		final JsonElement actual = mReflective.toJsonTree(mGson.fromJson(json, clazz));
+		assertEquals(expected, actual);
+	}
+
+	private <T> void assertRoundTrip(final String json, final Class<T> clazz) {
+		final T value = mGson.fromJson(json, clazz);
+		assertNotNull(value);
+		final String written = mGson.toJson(value);
+		assertEquals(written, mGson.toJson(mGson.fromJson(written, clazz)));
+		assertEquals(mGson.toJsonTree(value), mGson.toJsonTree(mGson.fromJson(written, clazz)));
+	}
+}
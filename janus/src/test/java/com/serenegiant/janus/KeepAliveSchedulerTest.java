@@ -0,0 +1,229 @@
+package com.serenegiant.janus;
+
+import android.support.annotation.NonNull;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.serenegiant.janus.request.Trickle;
+import com.serenegiant.janus.response.EventRoom;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * KeepAliveScheduler with fake clock against MockWebServer
+ */
+public class KeepAliveSchedulerTest {
+	private static final long SESSION_ID = 1234567890L;
+	private static final long HANDLE_ID = 9876543210L;
+	/** keepalive interval of session_timeout=60 seconds */
+	private static final long INTERVAL_MS = 20000;
+	/** RTT injected by advancing the fake clock on the server[ミリ秒] */
+	private static final long RTT_MS = 30;
+
+	private MockWebServer mServer;
+	private ExecutorService mExecutor;
+	private HttpTransport mTransport;
+	private final TransactionManager mTransactionManager = new TransactionManager();
+	private final AtomicLong mNow = new AtomicLong(1000000);
+	private final KeepAliveScheduler.Clock mClock = new KeepAliveScheduler.Clock() {
+		@Override
+		public long currentTimeMillis() {
+			return mNow.get();
+		}
+	};
+	/** janus field of requests received by the server */
+	private final BlockingQueue<String> mReceived = new LinkedBlockingQueue<>();
+
+	@Before
+	public void setUp() throws Exception {
+		Logger.getLogger(MockWebServer.class.getName()).setLevel(Level.WARNING);
+		mServer = new MockWebServer();
+		mServer.setDispatcher(new Dispatcher() {
+			@Override
+			public MockResponse dispatch(final RecordedRequest request) {
+				final JsonObject json = new JsonParser()
+					.parse(request.getBody().readUtf8()).getAsJsonObject();
+				final String janus = json.get("janus").getAsString();
+				if ("keepalive".equals(janus)) {
+					assertEquals("/janus/" + SESSION_ID, request.getPath());
+					assertEquals(SESSION_ID, json.get("session_id").getAsLong());
+				}
+				mReceived.add(janus);
+				mNow.addAndGet(RTT_MS);
+				return new MockResponse()
+					.setBody("{\"janus\":\"ack\",\"session_id\":" + SESSION_ID
+						+ ",\"transaction\":\"" + json.get("transaction").getAsString() + "\"}");
+			}
+		});
+		mServer.start();
+		mExecutor = Executors.newSingleThreadExecutor();
+		final Retrofit retrofit = new Retrofit.Builder()
+			.baseUrl(mServer.url("/"))
+			.addConverterFactory(GsonConverterFactory.create(new GsonBuilder()
+				.registerTypeAdapterFactory(new JanusTypeAdapterFactory())
+				.create()))
+			.client(new OkHttpClient())
+			.build();
+		mTransport = new HttpTransport(retrofit.create(VideoRoom.class),
+			retrofit.create(LongPoll.class), "janus", mExecutor);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		mTransport.release();
+		mExecutor.shutdownNow();
+		mServer.shutdown();
+		mTransactionManager.clearTransactions();
+	}
+
+	@Test
+	public void intervalIsFractionOfSessionTimeout() {
+		assertEquals(INTERVAL_MS, KeepAliveScheduler.intervalMs(60));
+		assertEquals(10000, KeepAliveScheduler.intervalMs(30));
+		// unknown
+		assertEquals(INTERVAL_MS, KeepAliveScheduler.intervalMs(-1));
+		// janus-gateway never reaps the session
+		assertEquals(0, KeepAliveScheduler.intervalMs(0));
+	}
+
+	@Test
+	public void keepAliveIsSentWhenIdle() throws Exception {
+		final KeepAliveScheduler scheduler = createScheduler(INTERVAL_MS);
+		scheduler.start();
+		try {
+			mNow.addAndGet(INTERVAL_MS - 1);
+			assertFalse(scheduler.check());
+			mNow.addAndGet(1);
+			assertTrue(scheduler.check());
+			assertEquals("keepalive", mReceived.poll(1, TimeUnit.SECONDS));
+			final KeepAliveScheduler.Stats stats = awaitAcked(scheduler);
+			assertEquals(1, stats.sent);
+			assertEquals(0, stats.failed);
+			assertEquals(RTT_MS, stats.lastRttMs);
+			assertEquals(RTT_MS, stats.avgRttMs);
+			assertEquals(RTT_MS, stats.maxRttMs);
+			// the keepalive itself is the activity, so next one waits for the interval again
+			assertFalse(scheduler.check());
+			mNow.addAndGet(INTERVAL_MS);
+			assertTrue(scheduler.check());
+			assertEquals("keepalive", mReceived.poll(1, TimeUnit.SECONDS));
+		} finally {
+			scheduler.stop();
+		}
+	}
+
+	@Test
+	public void keepAliveIsSkippedWhileTrafficFlows() throws Exception {
+		final KeepAliveScheduler scheduler = createScheduler(INTERVAL_MS);
+		scheduler.start();
+		try {
+			for (int i = 0; i < 10; i++) {
+				mNow.addAndGet(INTERVAL_MS / 2);
+				final BlockingCallback callback = new BlockingCallback();
+				mTransport.trickle(SESSION_ID, HANDLE_ID,
+					new Trickle(mTransactionManager, SESSION_ID, HANDLE_ID,
+						new Trickle.Candidate(0, "audio", "candidate:1 1 udp 2013266431 192.0.2.1 40101 typ host"),
+						null), callback);
+				assertTrue(callback.await() instanceof EventRoom);
+				assertEquals("trickle", mReceived.poll(1, TimeUnit.SECONDS));
+				mNow.addAndGet(INTERVAL_MS / 2 - RTT_MS - 1);
+				assertFalse(scheduler.check());
+			}
+			assertNull(mReceived.poll(100, TimeUnit.MILLISECONDS));
+			final KeepAliveScheduler.Stats stats = scheduler.getStats();
+			assertEquals(0, stats.sent);
+			assertEquals(10, stats.skipped);
+			assertEquals(-1, stats.lastRttMs);
+		} finally {
+			scheduler.stop();
+		}
+	}
+
+	@Test
+	public void keepAliveIsNotSentAfterStop() throws Exception {
+		final KeepAliveScheduler scheduler = createScheduler(INTERVAL_MS);
+		scheduler.start();
+		scheduler.stop();
+		mNow.addAndGet(INTERVAL_MS * 2);
+		assertFalse(scheduler.check());
+		// activity listener is removed
+		mTransport.trickle(SESSION_ID, HANDLE_ID,
+			new Trickle(mTransactionManager, SESSION_ID, HANDLE_ID,
+				new Trickle.Candidate(0, "audio", "candidate:1 1 udp 2013266431 192.0.2.1 40101 typ host"),
+				null), new BlockingCallback());
+		assertEquals("trickle", mReceived.poll(1, TimeUnit.SECONDS));
+		assertNull(mReceived.poll(100, TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	public void disabledWhenSessionNeverExpires() {
+		final KeepAliveScheduler scheduler = createScheduler(KeepAliveScheduler.intervalMs(0));
+		scheduler.start();
+		mNow.addAndGet(INTERVAL_MS * 10);
+		assertFalse(scheduler.check());
+		scheduler.stop();
+	}
+
+	@NonNull
+	private KeepAliveScheduler createScheduler(final long intervalMs) {
+		// the timer checks only every INTERVAL_MS / 4 in real time, so it does not
+		// run during the tests and checks are driven manually with the fake clock
+		return new KeepAliveScheduler(mTransport, mTransactionManager, SESSION_ID,
+			intervalMs, mClock, TransactionManager.getTimer());
+	}
+
+	@NonNull
+	private static KeepAliveScheduler.Stats awaitAcked(
+		@NonNull final KeepAliveScheduler scheduler) throws InterruptedException {
+
+		for (int i = 0; i < 100; i++) {
+			final KeepAliveScheduler.Stats stats = scheduler.getStats();
+			if (stats.lastRttMs >= 0) {
+				return stats;
+			}
+			Thread.sleep(10);
+		}
+		fail("keepalive was not acknowledged");
+		return null;
+	}
+
+	private static class BlockingCallback implements JanusTransport.Callback<EventRoom> {
+		private final BlockingQueue<Object> result = new LinkedBlockingQueue<>();
+
+		@Override
+		public void onResponse(@NonNull final EventRoom response) {
+			result.add(response);
+		}
+
+		@Override
+		public void onFailure(@NonNull final Throwable t) {
+			result.add(t);
+		}
+
+		public Object await() throws InterruptedException {
+			return result.poll(1, TimeUnit.SECONDS);
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package com.serenegiant.janus;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class LongHashMapTest {
+
+	@Test
+	public void putGetRemove() {
+		final LongHashMap<String> map = new LongHashMap<>();
+		assertTrue(map.isEmpty());
+		assertNull(map.put(8118458296733815L, "a"));
+		assertNull(map.put(-1L, "b"));
+		assertEquals("a", map.put(8118458296733815L, "c"));
+		assertEquals(2, map.size());
+		assertEquals("c", map.get(8118458296733815L));
+		assertEquals("b", map.get(-1L));
+		assertNull(map.get(1L));
+		assertNull(map.get(JanusId.NONE));
+		assertEquals("b", map.remove(-1L));
+		assertNull(map.remove(-1L));
+		assertFalse(map.containsKey(-1L));
+		assertEquals(1, map.size());
+		map.clear();
+		assertTrue(map.isEmpty());
+		assertNull(map.get(8118458296733815L));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void noneCanNotBeKey() {
+		new LongHashMap<String>().put(JanusId.NONE, "a");
+	}
+
+	@Test
+	public void sameAsHashMap() {
+		// random operations with small key range so that collisions,
+		// backward shift deletion and rehash happen frequently
+		final Random random = new Random(1234);
+		final LongHashMap<Long> map = new LongHashMap<>(1);
+		final Map<Long, Long> expected = new HashMap<>();
+		for (int i = 0; i < 200000; i++) {
+			final long key = 1 + random.nextInt(500);
+			final Long value = (long)i;
+			switch (random.nextInt(3)) {
+			case 0:
+				assertEquals(expected.remove(key), map.remove(key));
+				break;
+			default:
+				assertEquals(expected.put(key, value), map.put(key, value));
+				break;
+			}
+			assertEquals(expected.size(), map.size());
+			final long probe = 1 + random.nextInt(500);
+			assertEquals(expected.get(probe), map.get(probe));
+		}
+		for (final Map.Entry<Long, Long> entry: expected.entrySet()) {
+			assertEquals(entry.getValue(), map.get(entry.getKey()));
+		}
+		assertEquals(expected.size(), map.values().size());
+		assertTrue(expected.values().containsAll(map.values()));
+		final long[] keys = map.keys();
+		assertEquals(expected.size(), keys.length);
+		for (final long key: keys) {
+			assertTrue(expected.containsKey(key));
+		}
+	}
+}
@@ -0,0 +1,410 @@
+package com.serenegiant.janus;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.serenegiant.janus.response.EventRoom;
+import com.serenegiant.janus.response.PublisherInfo;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.webrtc.MediaConstraints;
+import org.webrtc.SessionDescription;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * scripted join/subscribe/unsubscribe flows of JanusPlugin.MultistreamSubscriber
+ * against MockWebServer
+ */
+public class MultistreamSubscriberTest {
+	private static final long SESSION_ID = 1234567890L;
+	private static final long HANDLE_ID = 9876543210L;
+	private static final long FEED_1 = 1001;
+	private static final long FEED_2 = 1002;
+	private static final long FEED_3 = 1003;
+	private static final long FEED_4 = 1004;
+	/** feed that does not exist on the server */
+	private static final long UNKNOWN_FEED = 9999;
+	private static final String OFFER_SDP = "v=0\r\no=- 1 2 IN IP4 192.0.2.1\r\n";
+
+	private MockWebServer mServer;
+	private ExecutorService mExecutor;
+	private HttpTransport mTransport;
+	private final TransactionManager mTransactionManager = new TransactionManager();
+	/** plugin messages received by the server, "request" and feeds of "streams" */
+	private final BlockingQueue<String> mRequests = new LinkedBlockingQueue<>();
+	/** events that the server returns on long poll */
+	private final BlockingQueue<String> mEvents = new LinkedBlockingQueue<>();
+	/** events that are held until the test releases them */
+	private final List<String> mHeldEvents = new ArrayList<>();
+	/** feeds that janus-gateway relays, mid of the stream is its index */
+	private final List<Long> mServerFeeds = Collections.synchronizedList(new ArrayList<>());
+	private volatile boolean mHoldEvents;
+
+	private RecordingPluginCallback mCallback;
+	private FakePeerConnection mPeerConnection;
+	private JanusPlugin.MultistreamSubscriber mSubscriber;
+
+	@Before
+	public void setUp() throws Exception {
+		Logger.getLogger(MockWebServer.class.getName()).setLevel(Level.WARNING);
+		mServer = new MockWebServer();
+		mServer.setDispatcher(mFakeJanus);
+		mServer.start();
+		mExecutor = Executors.newSingleThreadExecutor();
+		final Retrofit retrofit = new Retrofit.Builder()
+			.baseUrl(mServer.url("/"))
+			.addConverterFactory(GsonConverterFactory.create(new GsonBuilder()
+				.registerTypeAdapterFactory(new JanusTypeAdapterFactory())
+				.create()))
+			.client(new OkHttpClient())
+			.build();
+		mTransport = new HttpTransport(retrofit.create(VideoRoom.class),
+			retrofit.create(LongPoll.class), "janus", mExecutor);
+		mCallback = new RecordingPluginCallback();
+		mPeerConnection = new FakePeerConnection();
+		mSubscriber = new JanusPlugin.MultistreamSubscriber(
+			mTransport, mTransactionManager, PluginFixtures.session(SESSION_ID), mCallback,
+			PluginFixtures.peerConnectionParameters(),
+			PluginFixtures.roomConnectionParameters(true),
+			new MediaConstraints(), false);
+		mSubscriber.setPeerConnection(mPeerConnection, null, null);
+		mTransport.startEvents(SESSION_ID, mListener);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		final CountDownLatch detached = new CountDownLatch(1);
+		mSubscriber.executor.execute(() -> {
+			mSubscriber.detach();
+			detached.countDown();
+		});
+		assertTrue(detached.await(1, TimeUnit.SECONDS));
+		mTransport.release();
+		mExecutor.shutdownNow();
+		mServer.shutdown();
+		mTransactionManager.clearTransactions();
+	}
+
+	@Test
+	public void joinSubscribeAndUnsubscribe() throws Exception {
+		join(FEED_1);
+
+		mSubscriber.subscribe(publisher(FEED_2));
+		assertEquals("subscribe:" + FEED_2, mRequests.poll(2, TimeUnit.SECONDS));
+		// "updated" with new offer renegotiates the same PeerConnection
+		assertOffer();
+		assertEquals("start", mRequests.poll(2, TimeUnit.SECONDS));
+		assertEquals(FEED_2, mCallback.enteredFeeds.poll(2, TimeUnit.SECONDS).id);
+
+		mSubscriber.unsubscribe(FEED_1);
+		assertEquals("unsubscribe:" + FEED_1, mRequests.poll(2, TimeUnit.SECONDS));
+		assertOffer();
+		assertEquals("start", mRequests.poll(2, TimeUnit.SECONDS));
+		assertEquals(Collections.singletonList(FEED_2), mServerFeeds);
+		assertNull(mRequests.poll(200, TimeUnit.MILLISECONDS));
+		assertNull(mCallback.errors.poll());
+	}
+
+	@Test
+	public void changesDuringRenegotiationAreSentTogether() throws Exception {
+		join(FEED_1);
+
+		mHoldEvents = true;
+		mSubscriber.subscribe(publisher(FEED_2));
+		assertEquals("subscribe:" + FEED_2, mRequests.poll(2, TimeUnit.SECONDS));
+		// janus-gateway can not renegotiate while previous one is in progress
+		mSubscriber.subscribe(publisher(FEED_3));
+		mSubscriber.subscribe(publisher(FEED_4));
+		assertNull(mRequests.poll(200, TimeUnit.MILLISECONDS));
+		releaseEvents();
+		assertOffer();
+		assertEquals("start", mRequests.poll(2, TimeUnit.SECONDS));
+		// feeds that were added meanwhile are sent in one request
+		assertEquals("subscribe:" + FEED_3 + "," + FEED_4, mRequests.poll(2, TimeUnit.SECONDS));
+		assertOffer();
+		assertEquals("start", mRequests.poll(2, TimeUnit.SECONDS));
+		assertEquals(Arrays.asList(FEED_1, FEED_2, FEED_3, FEED_4), mServerFeeds);
+		assertNull(mRequests.poll(200, TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	public void errorEventDoesNotStallUpdates() throws Exception {
+		join(FEED_1);
+
+		// janus-gateway rejects subscribe of unknown feed with error event without jsep
+		mSubscriber.subscribe(publisher(UNKNOWN_FEED));
+		assertEquals("subscribe:" + UNKNOWN_FEED, mRequests.poll(2, TimeUnit.SECONDS));
+		mSubscriber.subscribe(publisher(FEED_2));
+		assertEquals("subscribe:" + FEED_2, mRequests.poll(2, TimeUnit.SECONDS));
+		assertOffer();
+		assertEquals("start", mRequests.poll(2, TimeUnit.SECONDS));
+		assertEquals(Arrays.asList(FEED_1, FEED_2), mServerFeeds);
+	}
+
+	@Test
+	public void feedsDroppedByServerAreNotUnsubscribed() throws Exception {
+		join(FEED_1, FEED_2);
+
+		// the publisher left, janus-gateway removes its streams by itself
+		mServerFeeds.remove(FEED_1);
+		mEvents.add(updated(null, true));
+		assertOffer();
+		assertEquals("start", mRequests.poll(2, TimeUnit.SECONDS));
+		// leavePlugin unsubscribes the feed after that
+		mSubscriber.unsubscribe(FEED_1);
+		mSubscriber.subscribe(publisher(FEED_3));
+		assertEquals("subscribe:" + FEED_3, mRequests.poll(2, TimeUnit.SECONDS));
+		assertOffer();
+		assertEquals("start", mRequests.poll(2, TimeUnit.SECONDS));
+		assertNull(mRequests.poll(200, TimeUnit.MILLISECONDS));
+		assertEquals(Arrays.asList(FEED_2, FEED_3), mServerFeeds);
+		assertNull(mCallback.errors.poll());
+	}
+
+	/**
+	 * attach and join with feeds, wait until the answer to the first offer is sent
+	 * @param feeds
+	 */
+	private void join(final long... feeds) throws InterruptedException {
+		final StringBuilder sb = new StringBuilder("join:");
+		for (final long feed: feeds) {
+			mSubscriber.subscribe(publisher(feed));
+			sb.append(sb.length() > 5 ? "," : "").append(feed);
+		}
+		mSubscriber.attach();
+		assertEquals(sb.toString(), mRequests.poll(2, TimeUnit.SECONDS));
+		assertOffer();
+		assertEquals("start", mRequests.poll(2, TimeUnit.SECONDS));
+		final List<Long> entered = new ArrayList<>();
+		for (final long feed: feeds) {
+			entered.add(mCallback.enteredFeeds.poll(2, TimeUnit.SECONDS).id);
+		}
+		Collections.sort(entered);
+		assertEquals(mServerFeeds, entered);
+	}
+
+	private void assertOffer() throws InterruptedException {
+		final SessionDescription offer = mPeerConnection.remoteDescriptions.poll(2, TimeUnit.SECONDS);
+		assertNotNull(offer);
+		assertEquals(SessionDescription.Type.OFFER, offer.type);
+	}
+
+	private void releaseEvents() {
+		synchronized (mHeldEvents) {
+			mHoldEvents = false;
+			mEvents.addAll(mHeldEvents);
+			mHeldEvents.clear();
+		}
+	}
+
+	private void addEvent(@NonNull final String event) {
+		synchronized (mHeldEvents) {
+			if (mHoldEvents) {
+				mHeldEvents.add(event);
+			} else {
+				mEvents.add(event);
+			}
+		}
+	}
+
+	private static PublisherInfo publisher(final long id) {
+		return new PublisherInfo(id, "feed" + id, "opus", "vp8", false);
+	}
+
+	/**
+	 * create "attached"/"updated" event with current streams and new offer
+	 * @param transaction null if janus-gateway updates streams by itself
+	 * @param updated
+	 * @return
+	 */
+	private String updated(@Nullable final String transaction, final boolean updated) {
+		final JsonArray streams = new JsonArray();
+		synchronized (mServerFeeds) {
+			for (int i = 0; i < mServerFeeds.size(); i++) {
+				final JsonObject stream = new JsonObject();
+				stream.addProperty("type", "video");
+				stream.addProperty("active", true);
+				stream.addProperty("mindex", i);
+				stream.addProperty("mid", Integer.toString(i));
+				stream.addProperty("feed_id", mServerFeeds.get(i));
+				stream.addProperty("feed_mid", "1");
+				streams.add(stream);
+			}
+		}
+		final JsonObject data = new JsonObject();
+		data.addProperty("videoroom", updated ? "updated" : "attached");
+		data.addProperty("room", PluginFixtures.ROOM_ID);
+		data.add("streams", streams);
+		final JsonObject event = event(transaction, data);
+		final JsonObject jsep = new JsonObject();
+		jsep.addProperty("type", "offer");
+		jsep.addProperty("sdp", OFFER_SDP);
+		event.add("jsep", jsep);
+		return event.toString();
+	}
+
+	/**
+	 * create error event of videoroom, janus-gateway does not send jsep with it
+	 * @param transaction
+	 * @param reason
+	 * @return
+	 */
+	private static String error(@NonNull final String transaction,
+		@NonNull final String reason) {
+
+		final JsonObject data = new JsonObject();
+		data.addProperty("videoroom", "event");
+		data.addProperty("error_code", 428);
+		data.addProperty("error", reason);
+		return event(transaction, data).toString();
+	}
+
+	private static JsonObject event(@Nullable final String transaction,
+		@NonNull final JsonObject data) {
+
+		final JsonObject event = new JsonObject();
+		event.addProperty("janus", "event");
+		event.addProperty("session_id", SESSION_ID);
+		event.addProperty("sender", HANDLE_ID);
+		if (transaction != null) {
+			event.addProperty("transaction", transaction);
+		}
+		final JsonObject plugindata = new JsonObject();
+		plugindata.addProperty("plugin", "janus.plugin.videoroom");
+		plugindata.add("data", data);
+		event.add("plugindata", plugindata);
+		return event;
+	}
+
+	/**
+	 * minimum janus-gateway stand-in for attach, multistream subscriber and long poll
+	 */
+	private final Dispatcher mFakeJanus = new Dispatcher() {
+		@Override
+		public MockResponse dispatch(final RecordedRequest request) throws InterruptedException {
+			if ("GET".equals(request.getMethod())) {
+				final String event = mEvents.poll(1, TimeUnit.SECONDS);
+				return new MockResponse().setBody(event != null ? event
+					: "{\"janus\":\"keepalive\"}");
+			}
+			final JsonObject json = new JsonParser()
+				.parse(request.getBody().readUtf8()).getAsJsonObject();
+			final String janus = json.get("janus").getAsString();
+			final String transaction = json.get("transaction").getAsString();
+			final String ack = "{\"janus\":\"ack\",\"session_id\":" + SESSION_ID
+				+ ",\"transaction\":\"" + transaction + "\"}";
+			switch (janus) {
+			case "attach":
+				return new MockResponse().setBody("{\"janus\":\"success\",\"transaction\":\""
+					+ transaction + "\",\"data\":{\"id\":" + HANDLE_ID + "}}");
+			case "detach":
+				return new MockResponse().setBody("{\"janus\":\"success\",\"session_id\":"
+					+ SESSION_ID + ",\"transaction\":\"" + transaction + "\"}");
+			case "message":
+				assertEquals("/janus/" + SESSION_ID + "/" + HANDLE_ID, request.getPath());
+				break;
+			default:
+				fail("unexpected request:" + json);
+				return new MockResponse().setResponseCode(400);
+			}
+			final JsonObject body = json.getAsJsonObject("body");
+			final String req = body.get("request").getAsString();
+			if ("start".equals(req)) {
+				assertEquals("answer", json.getAsJsonObject("jsep").get("type").getAsString());
+				mRequests.add(req);
+				return new MockResponse().setBody(ack);
+			}
+			final List<Long> feeds = new ArrayList<>();
+			for (final JsonElement stream: body.getAsJsonArray("streams")) {
+				feeds.add(stream.getAsJsonObject().get("feed").getAsLong());
+			}
+			// order of feeds in the request depends on LongHashMap
+			Collections.sort(feeds);
+			final StringBuilder sb = new StringBuilder(req).append(':');
+			for (int i = 0; i < feeds.size(); i++) {
+				sb.append(i > 0 ? "," : "").append(feeds.get(i));
+			}
+			mRequests.add(sb.toString());
+			switch (req) {
+			case "join":
+				mServerFeeds.addAll(feeds);
+				addEvent(updated(transaction, false));
+				break;
+			case "subscribe":
+				if (feeds.contains(UNKNOWN_FEED)) {
+					addEvent(error(transaction, "No such feed"));
+				} else {
+					mServerFeeds.addAll(feeds);
+					addEvent(updated(transaction, true));
+				}
+				break;
+			case "unsubscribe":
+				if (!mServerFeeds.containsAll(feeds)) {
+					addEvent(error(transaction, "No such subscription"));
+				} else {
+					mServerFeeds.removeAll(feeds);
+					addEvent(updated(transaction, true));
+				}
+				break;
+			default:
+				fail("unexpected request:" + json);
+				break;
+			}
+			return new MockResponse().setBody(ack);
+		}
+	};
+
+	/**
+	 * passes events to TransactionManager or to the plugin like JanusRTCClient
+	 */
+	private final JanusTransport.EventListener mListener = new JanusTransport.EventListener() {
+		@Override
+		public void onEvent(@NonNull final EventRoom body) {
+			if ((body.transaction != null)
+				&& mTransactionManager.handleTransaction(body.transaction, body)) {
+				return;
+			}
+			if ("event".equals(body.janus)) {
+				mSubscriber.executor.execute(() -> mSubscriber.onReceived("", body));
+			}
+		}
+
+		@Override
+		public void onFailure(@NonNull final Throwable t) {
+		}
+
+		@Override
+		public void onReconnectStateChanged(@NonNull final ReconnectScheduler.State state,
+			final int failureCount, final long delayMs) {
+		}
+	};
+}
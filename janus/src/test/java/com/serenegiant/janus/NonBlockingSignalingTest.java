@@ -0,0 +1,205 @@
+package com.serenegiant.janus;
+
+import android.support.annotation.NonNull;
+
+import com.google.gson.GsonBuilder;
+import com.serenegiant.janus.request.Detach;
+import com.serenegiant.janus.request.Trickle;
+import com.serenegiant.janus.response.EventRoom;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * signaling requests of many subscribers against slow janus-gateway(MockWebServer)
+ * must not block the executor that runs PeerConnection work
+ */
+public class NonBlockingSignalingTest {
+	private static final long SESSION_ID = 1234567890L;
+	private static final int NUM_SUBSCRIBERS = 10;
+	/** injected latency of each request[ミリ秒] */
+	private static final long LATENCY_MS = 200;
+
+	private MockWebServer mServer;
+	private ExecutorService mExecutor;
+	private HttpTransport mTransport;
+	private final TransactionManager mTransactionManager = new TransactionManager();
+	private final AtomicLong mLatencyMs = new AtomicLong(LATENCY_MS);
+
+	@Before
+	public void setUp() throws Exception {
+		Logger.getLogger(MockWebServer.class.getName()).setLevel(Level.WARNING);
+		mServer = new MockWebServer();
+		mServer.setDispatcher(new okhttp3.mockwebserver.Dispatcher() {
+			@Override
+			public MockResponse dispatch(final RecordedRequest request) throws InterruptedException {
+				// each connection has its own thread, so this delays only this request
+				Thread.sleep(mLatencyMs.get());
+				return new MockResponse()
+					.setBody("{\"janus\":\"ack\",\"session_id\":" + SESSION_ID + "}");
+			}
+		});
+		mServer.start();
+		mExecutor = Executors.newSingleThreadExecutor();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		if (mTransport != null) {
+			mTransport.release();
+		}
+		mExecutor.shutdownNow();
+		mServer.shutdown();
+		mTransactionManager.clearTransactions();
+	}
+
+	@Test
+	public void executorIsNotBlockedBySlowTrickle() throws Exception {
+		mTransport = createTransport(Const.REQUEST_TIMEOUT_MS);
+		final CountDownLatch completed = new CountDownLatch(NUM_SUBSCRIBERS);
+		final AtomicInteger failures = new AtomicInteger();
+		final long start = System.nanoTime();
+		// each subscriber sends its trickle from the shared executor like JanusPlugin does
+		for (int i = 0; i < NUM_SUBSCRIBERS; i++) {
+			final long handleId = 1000 + i;
+			mExecutor.execute(() -> mTransport.trickle(SESSION_ID, handleId,
+				new Trickle(mTransactionManager, SESSION_ID, handleId,
+					new Trickle.Candidate(0, "audio", "candidate:1 1 udp 2013266431 192.0.2.1 40101 typ host"),
+					null),
+				new JanusTransport.Callback<EventRoom>() {
+					@Override
+					public void onResponse(@NonNull final EventRoom response) {
+						assertEquals("ack", response.janus);
+						completed.countDown();
+					}
+
+					@Override
+					public void onFailure(@NonNull final Throwable t) {
+						failures.incrementAndGet();
+						completed.countDown();
+					}
+				}));
+		}
+		// PeerConnection work queued behind the requests runs without waiting their replies
+		final long probeMs = probe();
+		assertTrue("completion timeout", completed.await(5, TimeUnit.SECONDS));
+		final long totalMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		assertEquals(0, failures.get());
+		// blocking call.execute() on the executor would delay the probe
+		// NUM_SUBSCRIBERS * LATENCY_MS(2 seconds), the margin is for the first connection setup
+		assertTrue("probe=" + probeMs, probeMs < NUM_SUBSCRIBERS * LATENCY_MS / 4);
+		// requests run in parallel instead of one after another on the executor
+		assertTrue("total=" + totalMs, totalMs < NUM_SUBSCRIBERS * LATENCY_MS / 2);
+		assertEquals(NUM_SUBSCRIBERS, mServer.getRequestCount());
+	}
+
+	@Test
+	public void slowRequestTimesOut() throws Exception {
+		mLatencyMs.set(2000);
+		mTransport = createTransport(300);
+		final BlockingQueue<Object> result = new LinkedBlockingQueue<>();
+		final long start = System.nanoTime();
+		mTransport.detach(SESSION_ID, 1000,
+			new Detach(mTransactionManager, SESSION_ID, null),
+			new JanusTransport.Callback<Detach>() {
+				@Override
+				public void onResponse(@NonNull final Detach response) {
+					result.add(response);
+				}
+
+				@Override
+				public void onFailure(@NonNull final Throwable t) {
+					result.add(t);
+				}
+			});
+		final Object r = result.poll(1500, TimeUnit.MILLISECONDS);
+		final long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		assertTrue(String.valueOf(r), r instanceof InterruptedIOException);
+		assertTrue("elapsed=" + elapsedMs, elapsedMs < 1500);
+		// only one callback
+		assertNull(result.poll(300, TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	public void canceledRequestDoesNotCallback() throws Exception {
+		mTransport = createTransport(Const.REQUEST_TIMEOUT_MS);
+		final List<Object> result = new ArrayList<>();
+		final JanusTransport.Cancelable call = mTransport.trickle(SESSION_ID, 1000,
+			new Trickle(mTransactionManager, SESSION_ID, 1000,
+				new Trickle.Candidate(0, "audio", "candidate:1 1 udp 2013266431 192.0.2.1 40101 typ host"),
+				null),
+			new JanusTransport.Callback<EventRoom>() {
+				@Override
+				public void onResponse(@NonNull final EventRoom response) {
+					synchronized (result) {
+						result.add(response);
+					}
+				}
+
+				@Override
+				public void onFailure(@NonNull final Throwable t) {
+					synchronized (result) {
+						result.add(t);
+					}
+				}
+			});
+		call.cancel();
+		assertTrue(call.isCanceled());
+		Thread.sleep(LATENCY_MS * 2);
+		synchronized (result) {
+			assertTrue(result.toString(), result.isEmpty());
+		}
+	}
+
+	@NonNull
+	private HttpTransport createTransport(final long requestTimeoutMs) {
+		final Dispatcher dispatcher = new Dispatcher();
+		dispatcher.setMaxRequestsPerHost(Const.HTTP_MAX_REQUESTS_PER_HOST);
+		final Retrofit retrofit = new Retrofit.Builder()
+			.baseUrl(mServer.url("/"))
+			.addConverterFactory(GsonConverterFactory.create(new GsonBuilder()
+				.registerTypeAdapterFactory(new JanusTypeAdapterFactory())
+				.create()))
+			.client(new OkHttpClient.Builder().dispatcher(dispatcher).build())
+			.build();
+		return new HttpTransport(retrofit.create(VideoRoom.class),
+			retrofit.create(LongPoll.class), "janus", mExecutor,
+			Const.LONG_POLL_MAX_EVENTS, new ReconnectScheduler(), requestTimeoutMs);
+	}
+
+	/**
+	 * @return time until a task posted to the executor runs[ミリ秒]
+	 */
+	private long probe() throws InterruptedException {
+		final long start = System.nanoTime();
+		final CountDownLatch latch = new CountDownLatch(1);
+		mExecutor.execute(latch::countDown);
+		assertTrue("executor is blocked", latch.await(5, TimeUnit.SECONDS));
+		return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+	}
+}
@@ -0,0 +1,177 @@
+package com.serenegiant.janus;
+
+import com.serenegiant.janus.response.PublisherInfo;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * ParticipantRegistry with 1000 simulated participants
+ */
+public class ParticipantRegistryTest {
+	private static final int NUM_PARTICIPANTS = 1000;
+	/** janus-gateway sends publishers list in chunks when many publishers join */
+	private static final int CHUNK = 50;
+	private static final long BASE_ID = 6419437437012474L;
+
+	@Test
+	public void joinReportsOnlyNewPublishers() {
+		final ParticipantRegistry registry = new ParticipantRegistry();
+		final PublisherInfo[] all = publishers(0, NUM_PARTICIPANTS);
+		final List<PublisherInfo> added = new ArrayList<>();
+		for (int i = 0; i < NUM_PARTICIPANTS; i += CHUNK) {
+			added.addAll(registry.join(publishers(i, CHUNK)));
+		}
+		assertEquals(NUM_PARTICIPANTS, added.size());
+		assertEquals(NUM_PARTICIPANTS, registry.size());
+		assertEquals(NUM_PARTICIPANTS, registry.getVersion());
+		// same publishers are reported again with the full list, they are not new
+		assertTrue(registry.join(all).isEmpty());
+		assertEquals(NUM_PARTICIPANTS, registry.getVersion());
+		assertTrue(registry.join(null).isEmpty());
+		assertEquals("p999", registry.get(BASE_ID + 999).display);
+		assertNull(registry.get(BASE_ID + NUM_PARTICIPANTS));
+	}
+
+	@Test
+	public void snapshotIsImmutableAndCached() {
+		final ParticipantRegistry registry = new ParticipantRegistry();
+		registry.join(publishers(0, NUM_PARTICIPANTS));
+		final ParticipantRegistry.Snapshot snapshot = registry.getSnapshot();
+		assertEquals(NUM_PARTICIPANTS, snapshot.publishers.size());
+		// in the order they joined
+		for (int i = 0; i < NUM_PARTICIPANTS; i++) {
+			assertEquals(BASE_ID + i, snapshot.publishers.get(i).id);
+		}
+		// not copied while unchanged
+		assertSame(snapshot, registry.getSnapshot());
+		try {
+			snapshot.publishers.remove(0);
+			fail("snapshot should be unmodifiable");
+		} catch (final UnsupportedOperationException e) {
+			// expected
+		}
+
+		// talking replaces PublisherInfo, so the old snapshot is not changed
+		assertTrue(registry.setTalking(BASE_ID + 10, true));
+		assertFalse(registry.setTalking(BASE_ID + 10, true));
+		assertFalse(snapshot.publishers.get(10).talking);
+		final ParticipantRegistry.Snapshot updated = registry.getSnapshot();
+		assertNotSame(snapshot, updated);
+		assertTrue(updated.publishers.get(10).talking);
+		assertEquals(snapshot.version + 1, updated.version);
+
+		assertTrue(registry.leave(BASE_ID));
+		assertFalse(registry.leave(BASE_ID));
+		assertEquals(NUM_PARTICIPANTS - 1, registry.getSnapshot().publishers.size());
+		assertEquals(BASE_ID + 1, registry.getSnapshot().publishers.get(0).id);
+		assertEquals(NUM_PARTICIPANTS, snapshot.publishers.size());
+	}
+
+	@Test
+	public void changesSinceReproduceSnapshot() {
+		final ParticipantRegistry registry = new ParticipantRegistry();
+		final Random random = new Random(1234);
+		// consumer side, keeps its own copy and applies only diffs
+		final Map<Long, PublisherInfo> mirror = new LinkedHashMap<>();
+		long version = 0;
+		int next = 0;
+		for (int round = 0; round < 200; round++) {
+			final int joins = random.nextInt(10);
+			registry.join(publishers(next, joins));
+			next += joins;
+			for (int i = 0; i < 5; i++) {
+				final long id = BASE_ID + random.nextInt(Math.max(next, 1));
+				switch (random.nextInt(3)) {
+				case 0:		registry.leave(id); break;
+				case 1:		registry.unpublish(id); break;
+				default:	registry.setTalking(id, random.nextBoolean()); break;
+				}
+			}
+			final ParticipantRegistry.ChangeSet changes = registry.getChangesSince(version);
+			assertTrue(changes.complete);
+			assertEquals(version, changes.fromVersion);
+			long prev = version;
+			for (final ParticipantRegistry.Change change: changes.changes) {
+				assertEquals(prev + 1, change.version);
+				prev = change.version;
+				switch (change.type) {
+				case JOINED:
+					assertNull(mirror.put(change.id, change.info));
+					break;
+				case LEFT:
+				case UNPUBLISHED:
+					assertNotNull(mirror.remove(change.id));
+					break;
+				case TALKING:
+					assertNotNull(mirror.put(change.id, change.info));
+					break;
+				}
+			}
+			assertEquals(registry.getVersion(), changes.toVersion);
+			version = changes.toVersion;
+			final ParticipantRegistry.Snapshot snapshot = registry.getSnapshot();
+			assertEquals(version, snapshot.version);
+			assertEquals(new ArrayList<>(mirror.values()), snapshot.publishers);
+			for (final PublisherInfo info: snapshot.publishers) {
+				assertEquals(info.talking, mirror.get(info.id).talking);
+			}
+		}
+		assertTrue(registry.getChangesSince(version).isEmpty());
+	}
+
+	@Test
+	public void truncatedHistoryIsNotComplete() {
+		final ParticipantRegistry registry = new ParticipantRegistry(100);
+		registry.join(publishers(0, NUM_PARTICIPANTS));
+		final ParticipantRegistry.ChangeSet old = registry.getChangesSince(0);
+		assertFalse(old.complete);
+		assertEquals(100, old.changes.size());
+		final ParticipantRegistry.ChangeSet recent
+			= registry.getChangesSince(NUM_PARTICIPANTS - 100);
+		assertTrue(recent.complete);
+		assertEquals(100, recent.changes.size());
+		assertEquals(BASE_ID + NUM_PARTICIPANTS - 100, recent.changes.get(0).id);
+	}
+
+	@Test
+	public void setTalkingWithManyParticipants() {
+		final ParticipantRegistry registry = new ParticipantRegistry();
+		registry.join(publishers(0, NUM_PARTICIPANTS));
+		// the last round updates only the first half of participants
+		final int n = 200 * NUM_PARTICIPANTS + NUM_PARTICIPANTS / 2;
+		final Map<Long, PublisherInfo> reference = new HashMap<>();
+		for (final PublisherInfo info: registry.getSnapshot().publishers) {
+			reference.put(info.id, info);
+		}
+		final boolean[] talking = new boolean[NUM_PARTICIPANTS];
+		for (int i = 0; i < n; i++) {
+			final int ix = i % NUM_PARTICIPANTS;
+			talking[ix] = ((i / NUM_PARTICIPANTS) & 1) == 0;
+			registry.setTalking(BASE_ID + ix, talking[ix]);
+		}
+		assertEquals(NUM_PARTICIPANTS, registry.size());
+		assertEquals(reference.keySet().size(), registry.size());
+		for (final long id: reference.keySet()) {
+			assertTrue(registry.contains(id));
+			assertEquals(talking[(int)(id - BASE_ID)], registry.get(id).talking);
+		}
+	}
+
+	private static PublisherInfo[] publishers(final int from, final int n) {
+		final PublisherInfo[] result = new PublisherInfo[n];
+		for (int i = 0; i < n; i++) {
+			result[i] = new PublisherInfo(BASE_ID + from + i, "p" + (from + i),
+				"opus", "vp8", false);
+		}
+		return result;
+	}
+}
@@ -0,0 +1,40 @@
+package com.serenegiant.janus;
+
+import com.serenegiant.janus.response.Session;
+
+import org.appspot.apprtc.PeerConnectionParameters;
+import org.appspot.apprtc.RoomConnectionParameters;
+
+/**
+ * parameters to create JanusPlugin in local unit tests,
+ * audio only without SDP munging so that SDPs are set as they are
+ */
+/*package*/ class PluginFixtures {
+	private PluginFixtures() {
+	}
+
+	/*package*/ static final int ROOM_ID = 1234;
+
+	/*package*/ static Session session(final long sessionId) {
+		return new Session("success", null, new Session.Data(sessionId));
+	}
+
+	/*package*/ static PeerConnectionParameters peerConnectionParameters() {
+		return new PeerConnectionParameters(false, false, false,
+			0, 0, 0, 0, "VP8",
+			false, false, 0,
+			"OPUS", false, false, false,
+			false, false, false,
+			false, false, false,
+			false, null);
+	}
+
+	/*package*/ static RoomConnectionParameters roomConnectionParameters(
+		final boolean multistream) {
+
+		return new RoomConnectionParameters("https://janus.example.com/janus", "janus",
+			ROOM_ID, false, null, "user", "display",
+			RoomConnectionParameters.DEFAULT_TRICKLE_BATCH_WINDOW_MS,
+			RoomConnectionParameters.DEFAULT_MAX_PARALLEL_SUBSCRIBERS, multistream);
+	}
+}
@@ -0,0 +1,208 @@
+package com.serenegiant.janus;
+
+import android.support.annotation.NonNull;
+
+import com.serenegiant.janus.response.EventRoom;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * ReconnectScheduler and long poll retry of HttpTransport with failure injection
+ */
+public class ReconnectSchedulerTest {
+	private static final long SESSION_ID = 1234567890L;
+	private static final long BASE_DELAY_MS = 20;
+	private static final long MAX_DELAY_MS = 200;
+	private static final int FAILURE_THRESHOLD = 5;
+	private static final long OPEN_DURATION_MS = 500;
+
+	private MockWebServer mServer;
+	private ExecutorService mExecutor;
+	private ReconnectScheduler mScheduler;
+	private HttpTransport mTransport;
+	private volatile boolean mFailing = true;
+	/** body of 200 response while failing, null: 503 */
+	private volatile String mFailureBody;
+	/** number of long poll requests that the client sent */
+	private final AtomicInteger mRequests = new AtomicInteger();
+	private final List<Throwable> mFailures
+		= Collections.synchronizedList(new ArrayList<>());
+	private final List<ReconnectScheduler.State> mStates
+		= Collections.synchronizedList(new ArrayList<>());
+
+	@Before
+	public void setUp() throws Exception {
+		Logger.getLogger(MockWebServer.class.getName()).setLevel(Level.WARNING);
+		mServer = new MockWebServer();
+		mServer.setDispatcher(new Dispatcher() {
+			@Override
+			public MockResponse dispatch(final RecordedRequest request) {
+				if (mFailing) {
+					return mFailureBody != null
+						? new MockResponse().setBody(mFailureBody)
+						: new MockResponse().setResponseCode(503);
+				}
+				return new MockResponse()
+					.setBody("{\"janus\":\"keepalive\"}")
+					.setHeadersDelay(50, TimeUnit.MILLISECONDS);
+			}
+		});
+		mServer.start();
+		mExecutor = Executors.newSingleThreadExecutor();
+		mScheduler = new ReconnectScheduler(BASE_DELAY_MS, MAX_DELAY_MS,
+			FAILURE_THRESHOLD, OPEN_DURATION_MS, new Random(0));
+		mTransport = createTransport(mServer.url("/"));
+	}
+
+	private HttpTransport createTransport(@NonNull final HttpUrl baseUrl) {
+		final Retrofit retrofit = new Retrofit.Builder()
+			.baseUrl(baseUrl)
+			.addConverterFactory(GsonConverterFactory.create())
+			.client(new OkHttpClient.Builder()
+				.addInterceptor(chain -> {
+					mRequests.incrementAndGet();
+					return chain.proceed(chain.request());
+				})
+				.build())
+			.build();
+		return new HttpTransport(retrofit.create(VideoRoom.class),
+			retrofit.create(LongPoll.class), "janus", mExecutor, 1, mScheduler);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		mTransport.release();
+		mExecutor.shutdownNow();
+		mServer.shutdown();
+	}
+
+	@Test
+	public void backoffDelayIsCappedAndJittered() {
+		for (int i = 1; i < 20; i++) {
+			final long exp = Math.min(MAX_DELAY_MS, BASE_DELAY_MS << (i - 1));
+			final long delay = mScheduler.nextDelayMs(i);
+			assertTrue("delay=" + delay, delay >= exp / 2);
+			assertTrue("delay=" + delay, delay <= exp);
+		}
+	}
+
+	@Test
+	public void requestRateIsBoundedWhileServerIsDown() throws Exception {
+		final CountDownLatch halfOpen = new CountDownLatch(1);
+		startEvents(halfOpen, null);
+		assertTrue(halfOpen.await(3, TimeUnit.SECONDS));
+		Thread.sleep(1000);
+		// without backoff the long poll would be retried hundreds of times per second
+		final int requests = mServer.getRequestCount();
+		assertTrue("requests=" + requests, requests <= FAILURE_THRESHOLD + 4);
+		assertEquals(ReconnectScheduler.State.BACKOFF, mStates.get(0));
+		assertTrue(mStates.contains(ReconnectScheduler.State.CIRCUIT_OPEN));
+		assertEquals(FAILURE_THRESHOLD,
+			mStates.indexOf(ReconnectScheduler.State.CIRCUIT_OPEN) + 1);
+		assertTrue(mFailures.isEmpty());
+	}
+
+	@Test
+	public void connectionRefusedIsRetriedWithBackoff() throws Exception {
+		final MockWebServer closed = new MockWebServer();
+		closed.start();
+		final HttpUrl url = closed.url("/");
+		closed.shutdown();
+		// do not release, ReconnectScheduler is shared with new transport
+		mTransport.cancel();
+		mTransport = createTransport(url);
+
+		final CountDownLatch halfOpen = new CountDownLatch(1);
+		startEvents(halfOpen, null);
+		assertTrue(halfOpen.await(3, TimeUnit.SECONDS));
+		Thread.sleep(1000);
+		final int requests = mRequests.get();
+		assertTrue("requests=" + requests, requests <= FAILURE_THRESHOLD + 4);
+		assertEquals(ReconnectScheduler.State.BACKOFF, mStates.get(0));
+		assertEquals(FAILURE_THRESHOLD,
+			mStates.indexOf(ReconnectScheduler.State.CIRCUIT_OPEN) + 1);
+		// network failure is reported once so that the client can resume the session
+		assertEquals(1, mFailures.size());
+		assertTrue(mFailures.get(0) instanceof IOException);
+	}
+
+	@Test
+	public void undecodableResponseIsRetriedWithBackoff() throws Exception {
+		mFailureBody = "{\"janus\":";
+		final CountDownLatch halfOpen = new CountDownLatch(1);
+		startEvents(halfOpen, null);
+		assertTrue(halfOpen.await(3, TimeUnit.SECONDS));
+		Thread.sleep(1000);
+		final int requests = mServer.getRequestCount();
+		assertTrue("requests=" + requests, requests <= FAILURE_THRESHOLD + 4);
+		assertEquals(ReconnectScheduler.State.BACKOFF, mStates.get(0));
+		assertFalse(mStates.contains(ReconnectScheduler.State.CONNECTED));
+		// broken body is not a network drop, the client should not resume
+		assertTrue(mFailures.isEmpty());
+	}
+
+	@Test
+	public void successResetsFailureCount() throws Exception {
+		final CountDownLatch connected = new CountDownLatch(1);
+		startEvents(null, connected);
+		Thread.sleep(100);
+		assertTrue(mScheduler.getFailureCount() > 0);
+		mFailing = false;
+		assertTrue(connected.await(3, TimeUnit.SECONDS));
+		assertEquals(ReconnectScheduler.State.CONNECTED, mScheduler.getState());
+		assertEquals(0, mScheduler.getFailureCount());
+		assertTrue(mFailures.isEmpty());
+	}
+
+	private void startEvents(final CountDownLatch halfOpen, final CountDownLatch connected) {
+		mTransport.startEvents(SESSION_ID, new JanusTransport.EventListener() {
+			@Override
+			public void onEvent(@NonNull final EventRoom body) {
+			}
+
+			@Override
+			public void onFailure(@NonNull final Throwable t) {
+				mFailures.add(t);
+			}
+
+			@Override
+			public void onReconnectStateChanged(@NonNull final ReconnectScheduler.State state,
+				final int failureCount, final long delayMs) {
+
+				mStates.add(state);
+				if ((halfOpen != null) && (state == ReconnectScheduler.State.HALF_OPEN)) {
+					halfOpen.countDown();
+				}
+				if ((connected != null) && (state == ReconnectScheduler.State.CONNECTED)) {
+					connected.countDown();
+				}
+			}
+		});
+	}
+}
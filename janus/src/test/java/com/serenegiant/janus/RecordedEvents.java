@@ -0,0 +1,78 @@
+package com.serenegiant.janus;
+
+/**
+ * events received from janus-gateway(videoroom plugin),
+ * ids/sdp are replaced but sizes and field orders are kept
+ */
+/*package*/ class RecordedEvents {
+	private RecordedEvents() {
+	}
+
+	/*package*/ static final String ACK
+		= "{\"janus\":\"ack\",\"session_id\":3870519484418461,\"transaction\":\"a7c0K1rq2mXw\"}";
+
+	/*package*/ static final String JOINED
+		= "{\"janus\":\"event\",\"session_id\":3870519484418461,\"transaction\":\"Vq0b3x8pLwYz\","
+		+ "\"sender\":8118458296733815,\"plugindata\":{\"plugin\":\"janus.plugin.videoroom\","
+		+ "\"data\":{\"videoroom\":\"joined\",\"room\":1234,\"description\":\"Demo Room\","
+		+ "\"id\":5926370914651623,\"private_id\":3146851212,\"publishers\":["
+		+ "{\"id\":6419437437012474,\"display\":\"pixel3\",\"audio_codec\":\"opus\",\"video_codec\":\"vp8\",\"talking\":false},"
+		+ "{\"id\":18446744073709551615,\"display\":\"nexus7\",\"audio_codec\":\"opus\",\"video_codec\":\"vp8\",\"talking\":true},"
+		+ "{\"id\":2740513227394710,\"display\":\"browser\",\"audio_codec\":\"opus\",\"video_codec\":\"h264\"}]}}}";
+
+	/*package*/ static final String PUBLISHERS
+		= "{\"janus\":\"event\",\"session_id\":3870519484418461,\"sender\":8118458296733815,"
+		+ "\"plugindata\":{\"plugin\":\"janus.plugin.videoroom\",\"data\":{\"videoroom\":\"event\","
+		+ "\"room\":1234,\"publishers\":[{\"id\":7531870034598012,\"display\":\"tablet\","
+		+ "\"audio_codec\":\"opus\",\"video_codec\":\"vp8\"}]}}}";
+
+	/*package*/ static final String LEAVING
+		= "{\"janus\":\"event\",\"session_id\":3870519484418461,\"sender\":8118458296733815,"
+		+ "\"plugindata\":{\"plugin\":\"janus.plugin.videoroom\",\"data\":{\"videoroom\":\"event\","
+		+ "\"room\":1234,\"leaving\":7531870034598012}}}";
+
+	/*package*/ static final String ANSWER
+		= "{\"janus\":\"event\",\"session_id\":3870519484418461,\"transaction\":\"Qm3ZtP0dLx7e\","
+		+ "\"sender\":8118458296733815,\"plugindata\":{\"plugin\":\"janus.plugin.videoroom\","
+		+ "\"data\":{\"videoroom\":\"event\",\"room\":1234,\"configured\":\"ok\","
+		+ "\"audio_codec\":\"opus\",\"video_codec\":\"vp8\"}},"
+		+ "\"jsep\":{\"type\":\"answer\",\"sdp\":\"" + sdp() + "\"}}";
+
+	/*package*/ static final String WEBRTCUP
+		= "{\"janus\":\"webrtcup\",\"session_id\":3870519484418461,\"sender\":8118458296733815}";
+
+	/*package*/ static final String MEDIA
+		= "{\"janus\":\"media\",\"session_id\":3870519484418461,\"sender\":8118458296733815,"
+		+ "\"type\":\"video\",\"receiving\":true}";
+
+	/*package*/ static final String SLOWLINK
+		= "{\"janus\":\"slowlink\",\"session_id\":3870519484418461,\"sender\":8118458296733815,"
+		+ "\"uplink\":true,\"nacks\":27}";
+
+	/** events in the ratio usually received while in a room */
+	/*package*/ static final String[] ALL = {
+		ACK, JOINED, PUBLISHERS, LEAVING, ANSWER, WEBRTCUP, MEDIA, SLOWLINK,
+	};
+
+	private static String sdp() {
+		final StringBuilder sb = new StringBuilder();
+		sb.append("v=0\\r\\no=- 1545112354011093 1 IN IP4 203.0.113.10\\r\\ns=VideoRoom 1234\\r\\nt=0 0\\r\\n")
+			.append("a=group:BUNDLE audio video\\r\\na=msid-semantic: WMS janus\\r\\n")
+			.append("m=audio 9 UDP/TLS/RTP/SAVPF 111\\r\\nc=IN IP4 203.0.113.10\\r\\na=recvonly\\r\\n")
+			.append("a=mid:audio\\r\\na=rtcp-mux\\r\\na=ice-ufrag:sHpx\\r\\na=ice-pwd:HmAOzRpWNzhlCbb93nuyRe\\r\\n")
+			.append("a=ice-options:trickle\\r\\na=fingerprint:sha-256 ")
+			.append("D2:B9:31:8F:DF:24:D8:0E:ED:D2:EF:25:9E:AF:6F:B8:34:AE:53:9C:E6:F3:8F:F2:64:15:FA:E8:7F:53:2D:38\\r\\n")
+			.append("a=setup:active\\r\\na=rtpmap:111 opus/48000/2\\r\\n")
+			.append("m=video 9 UDP/TLS/RTP/SAVPF 96 97\\r\\nc=IN IP4 203.0.113.10\\r\\na=recvonly\\r\\n")
+			.append("a=mid:video\\r\\na=rtcp-mux\\r\\na=ice-ufrag:sHpx\\r\\na=ice-pwd:HmAOzRpWNzhlCbb93nuyRe\\r\\n")
+			.append("a=rtpmap:96 VP8/90000\\r\\na=rtcp-fb:96 ccm fir\\r\\na=rtcp-fb:96 nack\\r\\n")
+			.append("a=rtcp-fb:96 nack pli\\r\\na=rtcp-fb:96 goog-remb\\r\\na=rtpmap:97 rtx/90000\\r\\n")
+			.append("a=fmtp:97 apt=96\\r\\n");
+		for (int i = 0; i < 4; i++) {
+			sb.append("a=candidate:").append(i + 1).append(" 1 udp 2013266431 203.0.113.")
+				.append(10 + i).append(" 4").append(i).append("101 typ host\\r\\n");
+		}
+		sb.append("a=end-of-candidates\\r\\n");
+		return sb.toString();
+	}
+}
@@ -0,0 +1,102 @@
+package com.serenegiant.janus;
+
+import android.support.annotation.NonNull;
+
+import com.serenegiant.janus.response.EventRoom;
+import com.serenegiant.janus.response.PublisherInfo;
+
+import org.webrtc.IceCandidate;
+import org.webrtc.MediaStream;
+import org.webrtc.MediaStreamTrack;
+import org.webrtc.SessionDescription;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * JanusPluginCallback that records the callbacks which the tests check
+ */
+/*package*/ class RecordingPluginCallback implements JanusPlugin.JanusPluginCallback {
+	/*package*/ final BlockingQueue<JanusPlugin> entered = new LinkedBlockingQueue<>();
+	/*package*/ final BlockingQueue<PublisherInfo> enteredFeeds = new LinkedBlockingQueue<>();
+	/*package*/ final BlockingQueue<Throwable> errors = new LinkedBlockingQueue<>();
+
+	@Override
+	public void onAttach(@NonNull final JanusPlugin plugin) {
+	}
+
+	@Override
+	public void onJoin(@NonNull final JanusPlugin plugin, final EventRoom room) {
+	}
+
+	@Override
+	public void onDetach(@NonNull final JanusPlugin plugin) {
+	}
+
+	@Override
+	public void onEnter(@NonNull final JanusPlugin plugin) {
+		entered.add(plugin);
+	}
+
+	@Override
+	public void onEnterFeed(@NonNull final JanusPlugin plugin,
+		@NonNull final PublisherInfo info) {
+
+		enteredFeeds.add(info);
+	}
+
+	@Override
+	public void onLeave(@NonNull final JanusPlugin plugin,
+		final long pluginId, final int numUsers) {
+	}
+
+	@Override
+	public void onAddRemoteStream(@NonNull final JanusPlugin plugin,
+		@NonNull final MediaStream remoteStream) {
+	}
+
+	@Override
+	public void onAddRemoteTrack(@NonNull final JanusPlugin plugin,
+		final long feedId, @NonNull final MediaStreamTrack track) {
+	}
+
+	@Override
+	public void onRemoveStream(@NonNull final JanusPlugin plugin,
+		@NonNull final MediaStream stream) {
+	}
+
+	@Override
+	public void onRemoteIceCandidate(@NonNull final JanusPlugin plugin,
+		final IceCandidate remoteCandidate) {
+	}
+
+	@Override
+	public void onIceConnected(@NonNull final JanusPlugin plugin) {
+	}
+
+	@Override
+	public void onIceDisconnected(@NonNull final JanusPlugin plugin) {
+	}
+
+	@Override
+	public void onLocalDescription(@NonNull final JanusPlugin plugin,
+		final SessionDescription sdp) {
+	}
+
+	@Override
+	public void createSubscriber(@NonNull final JanusPlugin plugin,
+		@NonNull final PublisherInfo info) {
+	}
+
+	@Override
+	public void onRemoteDescription(@NonNull final JanusPlugin plugin,
+		final SessionDescription sdp) {
+	}
+
+	@Override
+	public void onError(@NonNull final JanusPlugin plugin,
+		@NonNull final Throwable t) {
+
+		errors.add(t);
+	}
+}
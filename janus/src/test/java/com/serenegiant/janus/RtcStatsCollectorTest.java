@@ -0,0 +1,208 @@
+package com.serenegiant.janus;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * RtcStatsCollector with synthetic RTCStats members
+ * (same value types as libwebrtc, Long for uint32, BigInteger for uint64)
+ */
+public class RtcStatsCollectorTest {
+	private static final long PUBLISHER = 8118458296733815L;
+	private static final long SUBSCRIBER = 2384792837492374L;
+	private static final long FEED_ID = 6419437437012474L;
+	private static final long AUDIO_SSRC = 1234567L;
+	private static final long VIDEO_SSRC = 7654321L;
+	private static final long SECOND_US = 1000000L;
+
+	@Test
+	public void publisherRates() {
+		final RtcStatsCollector collector = new RtcStatsCollector();
+		collector.beginRound();
+		assertNull(publisherReport(collector, 0, 0, 0, 0));
+		collector.beginRound();
+		// 1 second later, video 125000 bytes 30 frames, audio 4000 bytes
+		final RtcStatsDelta delta = publisherReport(collector, SECOND_US, 125000, 30, 4000);
+		assertNotNull(delta);
+		assertEquals(PUBLISHER, delta.pluginId);
+		assertEquals(JanusId.NONE, delta.feedId);
+		assertTrue(delta.publisher);
+		assertEquals(1000, delta.intervalMs);
+		assertEquals(1000000, delta.sendVideoBitrate);
+		assertEquals(1032000, delta.sendBitrate);
+		assertEquals(30.0, delta.sendFps, 0.001);
+		assertEquals(0, delta.recvBitrate);
+		assertEquals(1500000, delta.availableSendBitrate);
+		assertEquals(25.0, delta.rttMs, 0.001);
+
+		collector.beginRound();
+		// 500ms later
+		final RtcStatsDelta next = publisherReport(collector, SECOND_US * 3 / 2, 187500, 45, 6000);
+		assertNotNull(next);
+		assertEquals(500, next.intervalMs);
+		assertEquals(1000000, next.sendVideoBitrate);
+		assertEquals(30.0, next.sendFps, 0.001);
+	}
+
+	@Test
+	public void subscriberRatesAndLoss() {
+		final RtcStatsCollector collector = new RtcStatsCollector();
+		collector.beginRound();
+		assertNull(subscriberReport(collector, 0, 0, 0, 0, 0));
+		collector.beginRound();
+		final RtcStatsDelta delta = subscriberReport(collector, 2 * SECOND_US, 250000, 950, 50, 48);
+		assertNotNull(delta);
+		assertEquals(FEED_ID, delta.feedId);
+		assertFalse(delta.publisher);
+		assertEquals(1000000, delta.recvVideoBitrate);
+		assertEquals(1000000, delta.recvBitrate);
+		assertEquals(24.0, delta.recvFps, 0.001);
+		assertEquals(0.05, delta.recvPacketLossRate, 0.0001);
+		assertEquals(0, delta.sendBitrate);
+		// no candidate-pair
+		assertEquals(0, delta.availableRecvBitrate);
+
+		// the stream was recreated and counters were reset
+		collector.beginRound();
+		final RtcStatsDelta reset = subscriberReport(collector, 3 * SECOND_US, 1000, 10, 0, 1);
+		assertNotNull(reset);
+		assertEquals(0, reset.recvBitrate);
+		assertEquals(0, reset.recvFps, 0.001);
+		assertEquals(0, reset.recvPacketLossRate, 0.001);
+	}
+
+	@Test
+	public void ignoredStats() {
+		final RtcStatsCollector collector = new RtcStatsCollector();
+		final RtcStatsSnapshot snapshot = collector.begin(PUBLISHER, 0);
+		final Map<String, Object> remote = rtp(AUDIO_SSRC, "audio");
+		remote.put("isRemote", true);
+		collector.add(snapshot, "outbound-rtp", remote);
+		collector.add(snapshot, "codec", new HashMap<String, Object>());
+		final Map<String, Object> pair = candidatePair();
+		pair.put("nominated", false);
+		collector.add(snapshot, "candidate-pair", pair);
+		// older libwebrtc uses mediaType instead of kind
+		final Map<String, Object> old = new HashMap<>();
+		old.put("ssrc", VIDEO_SSRC);
+		old.put("mediaType", "video");
+		old.put("bytesSent", BigInteger.valueOf(100));
+		collector.add(snapshot, "outbound-rtp", old);
+		assertEquals(1, snapshot.getOutboundCount());
+		assertTrue(snapshot.getOutbound(0).isVideo());
+		assertEquals(100, snapshot.getOutbound(0).bytes);
+		assertNull(snapshot.getCandidatePair());
+		assertNull(snapshot.find(AUDIO_SSRC, true));
+		// same timestamp can not make rates
+		assertNull(collector.end(PUBLISHER, JanusId.NONE, true));
+		collector.begin(PUBLISHER, 0);
+		assertNull(collector.end(PUBLISHER, JanusId.NONE, true));
+	}
+
+	@Test
+	public void historyIsRingBuffer() {
+		final RtcStatsCollector collector = new RtcStatsCollector(4);
+		final RtcStatsSnapshot[] first = new RtcStatsSnapshot[4];
+		for (int i = 0; i < 10; i++) {
+			collector.beginRound();
+			publisherReport(collector, i * SECOND_US, i * 1000, i, i * 100);
+			final RtcStatsHistory history = collector.getHistory(PUBLISHER);
+			assertNotNull(history);
+			assertEquals(Math.min(i + 1, 4), history.size());
+			if (i < 4) {
+				first[i] = history.get(0);
+			} else {
+				// snapshots and their entries are reused
+				assertSame(first[i % 4], history.get(0));
+			}
+			assertEquals(i * SECOND_US, history.get(0).timestampUs);
+			assertEquals(i * 1000, history.get(0).find(VIDEO_SSRC, true).bytes);
+		}
+		final RtcStatsHistory history = collector.getHistory(PUBLISHER);
+		assertEquals(6 * SECOND_US, history.get(3).timestampUs);
+		assertNull(history.get(4));
+		// obtained but not committed slot does not drop more snapshots
+		history.obtain(100 * SECOND_US);
+		history.obtain(100 * SECOND_US);
+		assertEquals(3, history.size());
+		assertEquals(9 * SECOND_US, history.get(0).timestampUs);
+		try {
+			new RtcStatsHistory(1);
+			fail("capacity should be 2 or more");
+		} catch (final IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void detachedPluginIsRemoved() {
+		final RtcStatsCollector collector = new RtcStatsCollector();
+		collector.beginRound();
+		publisherReport(collector, 0, 0, 0, 0);
+		subscriberReport(collector, 0, 0, 0, 0, 0);
+		collector.beginRound();
+		// the subscriber was detached and did not report in this round
+		publisherReport(collector, SECOND_US, 1000, 1, 100);
+		collector.beginRound();
+		assertNotNull(collector.getHistory(PUBLISHER));
+		assertNull(collector.getHistory(SUBSCRIBER));
+		// attached again, the first snapshot does not make rates
+		assertNull(subscriberReport(collector, 2 * SECOND_US, 1000, 10, 0, 1));
+	}
+
+	private static RtcStatsDelta publisherReport(final RtcStatsCollector collector,
+		final long timestampUs, final long videoBytes, final long frames, final long audioBytes) {
+
+		final RtcStatsSnapshot snapshot = collector.begin(PUBLISHER, timestampUs);
+		final Map<String, Object> video = rtp(VIDEO_SSRC, "video");
+		video.put("bytesSent", BigInteger.valueOf(videoBytes));
+		video.put("packetsSent", videoBytes / 1000);
+		video.put("framesEncoded", frames);
+		collector.add(snapshot, "outbound-rtp", video);
+		final Map<String, Object> audio = rtp(AUDIO_SSRC, "audio");
+		audio.put("bytesSent", BigInteger.valueOf(audioBytes));
+		audio.put("packetsSent", audioBytes / 100);
+		collector.add(snapshot, "outbound-rtp", audio);
+		collector.add(snapshot, "candidate-pair", candidatePair());
+		return collector.end(PUBLISHER, JanusId.NONE, true);
+	}
+
+	private static RtcStatsDelta subscriberReport(final RtcStatsCollector collector,
+		final long timestampUs, final long videoBytes,
+		final long packets, final int lost, final long frames) {
+
+		final RtcStatsSnapshot snapshot = collector.begin(SUBSCRIBER, timestampUs);
+		final Map<String, Object> video = rtp(VIDEO_SSRC, "video");
+		video.put("bytesReceived", BigInteger.valueOf(videoBytes));
+		video.put("packetsReceived", packets);
+		video.put("packetsLost", lost);
+		video.put("framesDecoded", frames);
+		video.put("jitter", 0.012);
+		collector.add(snapshot, "inbound-rtp", video);
+		return collector.end(SUBSCRIBER, FEED_ID, false);
+	}
+
+	private static Map<String, Object> rtp(final long ssrc, final String kind) {
+		final Map<String, Object> result = new HashMap<>();
+		result.put("ssrc", ssrc);
+		result.put("kind", kind);
+		result.put("isRemote", false);
+		result.put("nackCount", 0L);
+		return result;
+	}
+
+	private static Map<String, Object> candidatePair() {
+		final Map<String, Object> result = new HashMap<>();
+		result.put("state", "succeeded");
+		result.put("nominated", true);
+		result.put("currentRoundTripTime", 0.025);
+		result.put("availableOutgoingBitrate", 1500000.0);
+		result.put("bytesSent", BigInteger.valueOf(1000));
+		return result;
+	}
+}
@@ -0,0 +1,163 @@
+package com.serenegiant.janus;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class SerialExecutorTest {
+	private static final int NUM_TASKS = 1000;
+
+	@Test
+	public void tasksRunInOrderOneByOne() throws Exception {
+		final ExecutorService pool = Executors.newFixedThreadPool(4);
+		try {
+			final SerialExecutor lane = new SerialExecutor("test", pool);
+			final List<Integer> result = Collections.synchronizedList(new ArrayList<Integer>());
+			final AtomicInteger running = new AtomicInteger();
+			final AtomicInteger maxRunning = new AtomicInteger();
+			final CountDownLatch latch = new CountDownLatch(NUM_TASKS);
+			for (int i = 0; i < NUM_TASKS; i++) {
+				final int ix = i;
+				lane.execute(() -> {
+					final int n = running.incrementAndGet();
+					if (n > maxRunning.get()) {
+						maxRunning.set(n);
+					}
+					result.add(ix);
+					running.decrementAndGet();
+					latch.countDown();
+				});
+			}
+			assertTrue(latch.await(5, TimeUnit.SECONDS));
+			assertEquals(1, maxRunning.get());
+			for (int i = 0; i < NUM_TASKS; i++) {
+				assertEquals(i, (int)result.get(i));
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	@Test
+	public void blockedLaneDoesNotBlockOthers() throws Exception {
+		final ExecutorService pool = Executors.newFixedThreadPool(2);
+		try {
+			final SerialExecutor slow = new SerialExecutor("slow", pool);
+			final SerialExecutor fast = new SerialExecutor("fast", pool);
+			final CountDownLatch release = new CountDownLatch(1);
+			final CountDownLatch done = new CountDownLatch(1);
+			slow.execute(() -> {
+				try {
+					release.await(5, TimeUnit.SECONDS);
+				} catch (final InterruptedException e) {
+					// ignore
+				}
+			});
+			fast.execute(done::countDown);
+			assertTrue("fast lane is blocked", done.await(1, TimeUnit.SECONDS));
+			release.countDown();
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	@Test
+	public void exceptionDoesNotStopLane() throws Exception {
+		final ExecutorService pool = Executors.newSingleThreadExecutor();
+		try {
+			final SerialExecutor lane = new SerialExecutor("test", pool);
+			final CountDownLatch latch = new CountDownLatch(1);
+			lane.execute(() -> {
+				throw new RuntimeException("expected");
+			});
+			lane.execute(latch::countDown);
+			assertTrue(latch.await(1, TimeUnit.SECONDS));
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	@Test
+	public void statsCountQueueDepthAndLatency() throws Exception {
+		final ExecutorService pool = Executors.newSingleThreadExecutor();
+		try {
+			final SerialExecutor lane = new SerialExecutor("test", pool);
+			final CountDownLatch release = new CountDownLatch(1);
+			final CountDownLatch started = new CountDownLatch(1);
+			lane.execute(() -> {
+				started.countDown();
+				try {
+					release.await(5, TimeUnit.SECONDS);
+				} catch (final InterruptedException e) {
+					// ignore
+				}
+			});
+			final CountDownLatch done = new CountDownLatch(3);
+			for (int i = 0; i < 3; i++) {
+				lane.execute(done::countDown);
+			}
+			assertTrue(started.await(1, TimeUnit.SECONDS));
+			assertEquals(4, lane.getQueueDepth());
+			assertEquals(4, lane.getStats().queueDepth);
+			Thread.sleep(50);
+			release.countDown();
+			assertTrue(done.await(1, TimeUnit.SECONDS));
+			// the last task may be still updating statistics
+			Thread.sleep(50);
+			final ExecutorStats stats = lane.getStats();
+			assertEquals("test", stats.name);
+			assertEquals(0, stats.queueDepth);
+			assertEquals(4, stats.executed);
+			// queued tasks waited for the blocked one at least 50ms
+			assertTrue(stats.toString(), stats.maxLatencyUs >= 50000);
+			assertTrue(stats.toString(), stats.avgLatencyUs <= stats.maxLatencyUs);
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	@Test
+	public void factoryLaneIsThreadAffine() throws Exception {
+		final List<Thread> threads = Collections.synchronizedList(new ArrayList<Thread>());
+		final CountDownLatch latch = new CountDownLatch(100);
+		for (int i = 0; i < 100; i++) {
+			ExecutorLanes.FACTORY.execute(() -> {
+				threads.add(Thread.currentThread());
+				latch.countDown();
+			});
+		}
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+		for (final Thread t: threads) {
+			assertSame(threads.get(0), t);
+		}
+	}
+
+	@Test
+	public void releasedLaneIsRemovedFromStats() {
+		final SerialExecutor lane = ExecutorLanes.newLane("releasedLaneIsRemovedFromStats");
+		assertTrue(ExecutorLanes.getStats().size() >= 2);
+		assertEquals("factory", ExecutorLanes.getStats().get(0).name);
+		assertTrue(containsLane(lane));
+		ExecutorLanes.release(lane);
+		assertFalse(containsLane(lane));
+	}
+
+	private static boolean containsLane(final SerialExecutor lane) {
+		// stats are snapshots, so identify the lane by its unique name
+		for (final ExecutorStats stats: ExecutorLanes.getStats()) {
+			if (stats.name.equals(lane.getName())) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,246 @@
+package com.serenegiant.janus;
+
+import android.support.annotation.NonNull;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.serenegiant.janus.request.Creator;
+import com.serenegiant.janus.response.ServerInfo;
+import com.serenegiant.janus.response.Session;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * connect-to-session latency of SessionBootstrap against MockWebServer with injected RTT
+ */
+public class SessionBootstrapTest {
+	private static final long SESSION_ID = 1234567890L;
+	private static final int SESSION_TIMEOUT = 45;
+	/** simulated round trip time of each request[ミリ秒] */
+	private static final long RTT_MS = 200;
+	private static final String URL = "https://janus.example.com/janus";
+
+	@Rule
+	public final TemporaryFolder mFolder = new TemporaryFolder();
+
+	private MockWebServer mServer;
+	private ExecutorService mExecutor;
+	private HttpTransport mTransport;
+	private ServerInfoCache mCache;
+	private final Gson mGson = new GsonBuilder()
+		.registerTypeAdapterFactory(new JanusTypeAdapterFactory())
+		.create();
+	private final TransactionManager mTransactionManager = new TransactionManager();
+	/** "info" or "create" received by the server */
+	private final BlockingQueue<String> mReceived = new LinkedBlockingQueue<>();
+	private volatile boolean mInfoFails;
+
+	@Before
+	public void setUp() throws Exception {
+		Logger.getLogger(MockWebServer.class.getName()).setLevel(Level.WARNING);
+		mServer = new MockWebServer();
+		mServer.setDispatcher(mFakeJanus);
+		mServer.start();
+		mExecutor = Executors.newSingleThreadExecutor();
+		final Retrofit retrofit = new Retrofit.Builder()
+			.baseUrl(mServer.url("/"))
+			.addConverterFactory(GsonConverterFactory.create(mGson))
+			.client(new OkHttpClient())
+			.build();
+		mTransport = new HttpTransport(retrofit.create(VideoRoom.class),
+			retrofit.create(LongPoll.class), "janus", mExecutor);
+		mCache = new ServerInfoCache(mFolder.newFolder("janus"),
+			ServerInfoCache.DEFAULT_TTL_MS, mGson);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		mTransport.release();
+		mExecutor.shutdownNow();
+		mServer.shutdown();
+		mTransactionManager.clearTransactions();
+	}
+
+	@Test
+	public void infoAndCreateRunConcurrently() throws Exception {
+		final long sequential = connectSequentially();
+		mReceived.clear();
+		final Result result = new Result();
+		final long start = System.nanoTime();
+		new SessionBootstrap(mTransport, mTransactionManager, mCache, URL).start(result);
+		assertTrue(result.sessionLatch.await(5, TimeUnit.SECONDS));
+		final long parallel = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		assertTrue(result.infoLatch.await(5, TimeUnit.SECONDS));
+		assertTrue("sequential=" + sequential + ",parallel=" + parallel,
+			parallel < sequential);
+		assertEquals(SESSION_ID, result.session.id());
+		assertEquals(SESSION_TIMEOUT, result.info.session_timeout);
+		assertFalse(result.cached);
+		assertEquals(2, mReceived.size());
+		assertNull(result.failure);
+	}
+
+	@Test
+	public void cachedInfoSkipsInfoRequest() throws Exception {
+		// first connect saves ServerInfo
+		final Result first = new Result();
+		new SessionBootstrap(mTransport, mTransactionManager, mCache, URL).start(first);
+		assertTrue(first.infoLatch.await(5, TimeUnit.SECONDS));
+		assertNotNull(mCache.get(URL));
+		assertTrue(first.sessionLatch.await(5, TimeUnit.SECONDS));
+		mReceived.clear();
+
+		final Result second = new Result();
+		final long start = System.nanoTime();
+		new SessionBootstrap(mTransport, mTransactionManager, mCache, URL).start(second);
+		assertTrue(second.infoLatch.await(5, TimeUnit.SECONDS));
+		assertTrue(second.cached);
+		assertEquals(SESSION_TIMEOUT, second.info.session_timeout);
+		assertTrue(second.sessionLatch.await(5, TimeUnit.SECONDS));
+		final long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		// only create request, info request does not add its round trip
+		assertTrue("elapsed=" + elapsed, elapsed < RTT_MS * 2);
+		assertEquals("create", mReceived.poll());
+		assertNull(mReceived.poll(RTT_MS * 2, TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	public void infoFailureDoesNotFailSession() throws Exception {
+		mInfoFails = true;
+		final Result result = new Result();
+		new SessionBootstrap(mTransport, mTransactionManager, mCache, URL).start(result);
+		assertTrue(result.sessionLatch.await(5, TimeUnit.SECONDS));
+		assertFalse(result.infoLatch.await(RTT_MS * 2, TimeUnit.MILLISECONDS));
+		assertNull(result.failure);
+		assertNull(mCache.get(URL));
+	}
+
+	@Test
+	public void expiredCacheIsIgnored() throws Exception {
+		final ServerInfo info = mGson.fromJson(infoJson(), ServerInfo.class);
+		final long now = System.currentTimeMillis();
+		mCache.put(URL, info, now - ServerInfoCache.DEFAULT_TTL_MS + 1000);
+		final ServerInfo cached = mCache.get(URL, now);
+		assertNotNull(cached);
+		assertEquals(SESSION_TIMEOUT, cached.session_timeout);
+		assertEquals("JANUS VideoRoom plugin", cached.plugins().get(0).name);
+		assertNull(mCache.get(URL, now + 1000));
+		// expired entry was removed
+		assertNull(mCache.get(URL, now));
+		// other servers are cached separately
+		mCache.put(URL, info, now);
+		assertNull(mCache.get(URL + "2", now));
+	}
+
+	/**
+	 * info and then create like before, as the baseline
+	 * @return elapsed time[ミリ秒]
+	 */
+	private long connectSequentially() throws Exception {
+		final BlockingQueue<Object> results = new LinkedBlockingQueue<>();
+		final long start = System.nanoTime();
+		mTransport.getInfo(new JanusTransport.Callback<ServerInfo>() {
+			@Override
+			public void onResponse(@NonNull final ServerInfo response) {
+				mTransport.create(new Creator(mTransactionManager),
+					new JanusTransport.Callback<Session>() {
+						@Override
+						public void onResponse(@NonNull final Session response) {
+							results.add(response);
+						}
+
+						@Override
+						public void onFailure(@NonNull final Throwable t) {
+							results.add(t);
+						}
+					});
+			}
+
+			@Override
+			public void onFailure(@NonNull final Throwable t) {
+				results.add(t);
+			}
+		});
+		assertTrue(results.poll(5, TimeUnit.SECONDS) instanceof Session);
+		return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+	}
+
+	private static String infoJson() {
+		return "{\"janus\":\"server_info\",\"name\":\"Janus WebRTC Server\","
+			+ "\"version\":1000,\"version_string\":\"1.0.0\","
+			+ "\"session_timeout\":" + SESSION_TIMEOUT + ","
+			+ "\"data_channels\":true,\"plugins\":{\"janus.plugin.videoroom\":"
+			+ "{\"name\":\"JANUS VideoRoom plugin\",\"version\":9}}}";
+	}
+
+	/**
+	 * minimum janus-gateway stand-in for info and create
+	 */
+	private final Dispatcher mFakeJanus = new Dispatcher() {
+		@Override
+		public MockResponse dispatch(final RecordedRequest request) throws InterruptedException {
+			Thread.sleep(RTT_MS);
+			if ("GET".equals(request.getMethod())) {
+				assertEquals("/janus/info", request.getPath());
+				mReceived.add("info");
+				return mInfoFails ? new MockResponse().setResponseCode(500)
+					: new MockResponse().setBody(infoJson());
+			}
+			assertEquals("/janus", request.getPath());
+			mReceived.add("create");
+			return new MockResponse().setBody("{\"janus\":\"success\",\"data\":{\"id\":"
+				+ SESSION_ID + "}}");
+		}
+	};
+
+	private static class Result implements SessionBootstrap.Listener {
+		private final CountDownLatch infoLatch = new CountDownLatch(1);
+		private final CountDownLatch sessionLatch = new CountDownLatch(1);
+		private volatile ServerInfo info;
+		private volatile boolean cached;
+		private volatile Session session;
+		private volatile Throwable failure;
+
+		@Override
+		public void onServerInfo(@NonNull final ServerInfo info, final boolean cached) {
+			this.info = info;
+			this.cached = cached;
+			infoLatch.countDown();
+		}
+
+		@Override
+		public void onSessionCreated(@NonNull final Session session) {
+			this.session = session;
+			sessionLatch.countDown();
+		}
+
+		@Override
+		public void onFailure(@NonNull final Throwable t) {
+			failure = t;
+			sessionLatch.countDown();
+		}
+	}
+}
@@ -0,0 +1,427 @@
+package com.serenegiant.janus;
+
+import android.support.annotation.NonNull;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.serenegiant.janus.request.Configure;
+import com.serenegiant.janus.request.Message;
+import com.serenegiant.janus.response.EventRoom;
+import com.serenegiant.janus.response.PublisherInfo;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.webrtc.MediaConstraints;
+import org.webrtc.SessionDescription;
+
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * scripted claim/ICE restart flows of SessionResumer against MockWebServer
+ */
+public class SessionResumerTest {
+	private static final long SESSION_ID = 1234567890L;
+	private static final long HANDLE_ID = 9876543210L;
+	private static final long FEED_ID = 6419437437012474L;
+	private static final String OFFER_SDP = "v=0\r\no=- 1 2 IN IP4 192.0.2.1\r\n";
+
+	private MockWebServer mServer;
+	private ExecutorService mExecutor;
+	private HttpTransport mTransport;
+	private final TransactionManager mTransactionManager = new TransactionManager();
+	/** janus field of requests(or "poll") received by the server */
+	private final BlockingQueue<String> mReceived = new LinkedBlockingQueue<>();
+	/** request field of plugin messages received by the server */
+	private final BlockingQueue<String> mRequests = new LinkedBlockingQueue<>();
+	/** events that the server returns on long poll */
+	private final BlockingQueue<String> mEvents = new LinkedBlockingQueue<>();
+	/** releases the first long poll that was started on the "old network" */
+	private final CountDownLatch mOldPollRelease = new CountDownLatch(1);
+	private final AtomicInteger mPolls = new AtomicInteger();
+	private final AtomicInteger mClaims = new AtomicInteger();
+	/** response of claim, null: success */
+	private volatile MockResponse mClaimResponse;
+
+	@Before
+	public void setUp() throws Exception {
+		Logger.getLogger(MockWebServer.class.getName()).setLevel(Level.WARNING);
+		mServer = new MockWebServer();
+		mServer.setDispatcher(mFakeJanus);
+		mServer.start();
+		mExecutor = Executors.newSingleThreadExecutor();
+		final Retrofit retrofit = new Retrofit.Builder()
+			.baseUrl(mServer.url("/"))
+			.addConverterFactory(GsonConverterFactory.create(new GsonBuilder()
+				.registerTypeAdapterFactory(new JanusTypeAdapterFactory())
+				.create()))
+			.client(new OkHttpClient())
+			.build();
+		mTransport = new HttpTransport(retrofit.create(VideoRoom.class),
+			retrofit.create(LongPoll.class), "janus", mExecutor);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		mOldPollRelease.countDown();
+		mTransport.release();
+		mExecutor.shutdownNow();
+		mServer.shutdown();
+		mTransactionManager.clearTransactions();
+	}
+
+	@Test
+	public void claimResumesSessionOnNewConnection() throws Exception {
+		final RecordingListener oldListener = new RecordingListener();
+		mTransport.startEvents(SESSION_ID, oldListener);
+		assertEquals("poll", mReceived.poll(1, TimeUnit.SECONDS));
+
+		final ResumeResult result = new ResumeResult();
+		new SessionResumer(mTransport, mTransactionManager, SESSION_ID).resume(result);
+		assertEquals("claim", mReceived.poll(1, TimeUnit.SECONDS));
+		assertTrue(result.await());
+		assertNull(result.failure);
+
+		// events of the claimed session arrive on the new long poll only
+		final RecordingListener newListener = new RecordingListener();
+		mTransport.startEvents(SESSION_ID, newListener);
+		mEvents.add("{\"janus\":\"event\",\"session_id\":" + SESSION_ID
+			+ ",\"sender\":" + HANDLE_ID + "}");
+		final EventRoom event = newListener.events.poll(1, TimeUnit.SECONDS);
+		assertNotNull(event);
+		assertEquals(HANDLE_ID, event.sender);
+		// the old long poll was canceled and its failure is not reported
+		mOldPollRelease.countDown();
+		assertNull(oldListener.events.poll(200, TimeUnit.MILLISECONDS));
+		assertNull(oldListener.failures.poll());
+		assertNull(newListener.failures.poll());
+	}
+
+	@Test
+	public void subscriberRestartReceivesNewOffer() throws Exception {
+		// no long poll on the old network in this flow
+		mOldPollRelease.countDown();
+		final ResumeResult result = new ResumeResult();
+		new SessionResumer(mTransport, mTransactionManager, SESSION_ID).resume(result);
+		assertTrue(result.await());
+		final RecordingListener listener = new RecordingListener();
+		mTransport.startEvents(SESSION_ID, listener);
+
+		// configure with restart, janus-gateway replies ack and then sends new offer
+		final Message message = new Message(mTransactionManager, SESSION_ID, HANDLE_ID,
+			new Configure(true, true, true), null);
+		final BlockingQueue<Object> reply = new LinkedBlockingQueue<>();
+		mTransport.send(SESSION_ID, HANDLE_ID, message, new JanusTransport.Callback<EventRoom>() {
+			@Override
+			public void onResponse(@NonNull final EventRoom response) {
+				reply.add(response);
+			}
+
+			@Override
+			public void onFailure(@NonNull final Throwable t) {
+				reply.add(t);
+			}
+		});
+		final Object ack = reply.poll(1, TimeUnit.SECONDS);
+		assertTrue(String.valueOf(ack), ack instanceof EventRoom);
+		assertEquals("ack", ((EventRoom)ack).janus);
+		EventRoom event;
+		do {
+			event = listener.events.poll(1, TimeUnit.SECONDS);
+			assertNotNull(event);
+		} while (event.jsep == null);
+		assertEquals(message.transaction, event.transaction);
+		assertEquals("offer", event.jsep.type);
+		assertEquals(OFFER_SDP, event.jsep.sdp);
+	}
+
+	@Test
+	public void attachedSubscriberRestartsIceOnResume() throws Exception {
+		// no long poll on the old network in this flow
+		mOldPollRelease.countDown();
+		final RecordingPluginCallback callback = new RecordingPluginCallback();
+		final FakePeerConnection peerConnection = new FakePeerConnection();
+		final JanusPlugin.Subscriber subscriber = new JanusPlugin.Subscriber(
+			mTransport, mTransactionManager, PluginFixtures.session(SESSION_ID), callback,
+			PluginFixtures.peerConnectionParameters(),
+			PluginFixtures.roomConnectionParameters(false),
+			new MediaConstraints(),
+			new PublisherInfo(FEED_ID, "feed", "opus", "vp8", false), false);
+		subscriber.setPeerConnection(peerConnection, null, null);
+		mTransport.startEvents(SESSION_ID, new DispatchingListener());
+		subscriber.attach();
+		assertEquals("join", mRequests.poll(2, TimeUnit.SECONDS));
+		// subscriber receives "attached" instead of "joined"
+		assertSame(subscriber, callback.entered.poll(2, TimeUnit.SECONDS));
+		// "attached" can arrive before ack of join and resume cancels requests in flight
+		awaitCalls(subscriber);
+
+		final ResumeResult result = new ResumeResult();
+		new SessionResumer(mTransport, mTransactionManager, SESSION_ID).resume(result);
+		assertTrue(result.await());
+		assertNull(result.failure);
+		// same as JanusRTCClient after the session was claimed
+		mTransport.startEvents(SESSION_ID, new DispatchingListener());
+		subscriber.restartIce();
+		// configure with restart(checked by mFakeJanus) and answer to the new offer
+		assertEquals("configure", mRequests.poll(2, TimeUnit.SECONDS));
+		final SessionDescription offer = peerConnection.remoteDescriptions.poll(2, TimeUnit.SECONDS);
+		assertNotNull(offer);
+		assertEquals(SessionDescription.Type.OFFER, offer.type);
+		assertEquals(OFFER_SDP, offer.description);
+		assertEquals("start", mRequests.poll(2, TimeUnit.SECONDS));
+		assertNull(callback.errors.poll());
+
+		final CountDownLatch detached = new CountDownLatch(1);
+		subscriber.executor.execute(() -> {
+			subscriber.detach();
+			detached.countDown();
+		});
+		assertTrue(detached.await(1, TimeUnit.SECONDS));
+		String received;
+		do {
+			received = mReceived.poll(1, TimeUnit.SECONDS);
+		} while ((received != null) && !"detach".equals(received));
+		assertEquals("detach", received);
+	}
+
+	@Test
+	public void reapedSessionFailsToResume() throws Exception {
+		mClaimResponse = new MockResponse()
+			.setBody("{\"janus\":\"error\",\"error\":{\"code\":458,\"reason\":\"No such session\"}}");
+		final ResumeResult result = new ResumeResult();
+		new SessionResumer(mTransport, mTransactionManager, SESSION_ID).resume(result);
+		assertTrue(result.await());
+		assertNotNull(result.failure);
+	}
+
+	@Test
+	public void networkFailureFailsToResume() throws Exception {
+		mClaimResponse = new MockResponse()
+			.setSocketPolicy(SocketPolicy.DISCONNECT_AT_START);
+		final ResumeResult result = new ResumeResult();
+		new SessionResumer(mTransport, mTransactionManager, SESSION_ID).resume(result);
+		assertTrue(result.await());
+		assertTrue(String.valueOf(result.failure), result.failure instanceof IOException);
+	}
+
+	@Test
+	public void canceledResumeIsNotReported() throws Exception {
+		mClaimResponse = new MockResponse()
+			.setBody("{\"janus\":\"success\",\"session_id\":" + SESSION_ID + "}")
+			.setBodyDelay(500, TimeUnit.MILLISECONDS);
+		final ResumeResult result = new ResumeResult();
+		final SessionResumer resumer = new SessionResumer(mTransport, mTransactionManager, SESSION_ID);
+		resumer.resume(result);
+		assertEquals("claim", mReceived.poll(1, TimeUnit.SECONDS));
+		resumer.cancel();
+		// the caller canceled resume by itself, so neither callback is called
+		assertFalse(result.latch.await(1, TimeUnit.SECONDS));
+		assertFalse(result.resumed.get());
+		assertNull(result.failure);
+	}
+
+	/**
+	 * minimum janus-gateway stand-in for claim, attach, plugin messages and long poll
+	 */
+	private final Dispatcher mFakeJanus = new Dispatcher() {
+		@Override
+		public MockResponse dispatch(final RecordedRequest request) throws InterruptedException {
+			if ("GET".equals(request.getMethod())) {
+				assertTrue(request.getPath(), request.getPath().startsWith("/janus/" + SESSION_ID));
+				mReceived.add("poll");
+				if (mPolls.getAndIncrement() == 0) {
+					// the long poll on the old network never returns
+					mOldPollRelease.await(5, TimeUnit.SECONDS);
+					return new MockResponse()
+						.setBody("{\"janus\":\"event\",\"session_id\":" + SESSION_ID
+							+ ",\"sender\":1}");
+				}
+				final int claims = mClaims.get();
+				String event = mEvents.poll(2, TimeUnit.SECONDS);
+				if ((event != null) && (claims != mClaims.get())) {
+					// the session was claimed by new connection while waiting,
+					// the event is sent on the long poll of the new connection
+					mEvents.add(event);
+					event = null;
+				}
+				return new MockResponse().setBody(event != null ? event
+					: "{\"janus\":\"keepalive\"}");
+			}
+			final JsonObject json = new JsonParser()
+				.parse(request.getBody().readUtf8()).getAsJsonObject();
+			final String janus = json.get("janus").getAsString();
+			final String transaction = json.get("transaction").getAsString();
+			mReceived.add(janus);
+			switch (janus) {
+			case "claim":
+				mClaims.incrementAndGet();
+				assertEquals("/janus/" + SESSION_ID, request.getPath());
+				assertEquals(SESSION_ID, json.get("session_id").getAsLong());
+				final MockResponse response = mClaimResponse;
+				return response != null ? response
+					: new MockResponse().setBody("{\"janus\":\"success\",\"session_id\":"
+						+ SESSION_ID + ",\"transaction\":\"" + transaction + "\"}");
+			case "attach":
+				assertEquals("/janus/" + SESSION_ID, request.getPath());
+				return new MockResponse().setBody("{\"janus\":\"success\",\"transaction\":\""
+					+ transaction + "\",\"data\":{\"id\":" + HANDLE_ID + "}}");
+			case "message":
+				assertEquals("/janus/" + SESSION_ID + "/" + HANDLE_ID, request.getPath());
+				final JsonObject body = json.getAsJsonObject("body");
+				final String req = body.get("request").getAsString();
+				mRequests.add(req);
+				switch (req) {
+				case "join":
+					mEvents.add(event(transaction, "attached", null));
+					break;
+				case "configure":
+					assertTrue(body.get("restart").getAsBoolean());
+					mEvents.add(event(transaction, "event", OFFER_SDP));
+					break;
+				case "start":
+					assertEquals("answer",
+						json.getAsJsonObject("jsep").get("type").getAsString());
+					break;
+				default:
+					fail("unexpected request:" + json);
+					break;
+				}
+				return new MockResponse().setBody("{\"janus\":\"ack\",\"session_id\":"
+					+ SESSION_ID + ",\"transaction\":\"" + transaction + "\"}");
+			case "detach":
+				return new MockResponse().setBody("{\"janus\":\"success\",\"session_id\":"
+					+ SESSION_ID + ",\"transaction\":\"" + transaction + "\"}");
+			default:
+				fail("unexpected request:" + json);
+				return new MockResponse().setResponseCode(400);
+			}
+		}
+	};
+
+	/**
+	 * wait until requests of the plugin complete
+	 * @param plugin
+	 */
+	private static void awaitCalls(@NonNull final JanusPlugin plugin) throws InterruptedException {
+		for (int i = 0; i < 100; i++) {
+			synchronized (plugin.mCurrentCalls) {
+				if (plugin.mCurrentCalls.isEmpty()) {
+					return;
+				}
+			}
+			Thread.sleep(20);
+		}
+		fail("requests of the plugin did not complete");
+	}
+
+	/**
+	 * create videoroom event of the handle
+	 * @param transaction
+	 * @param videoroom
+	 * @param offer offer SDP, null if the event does not carry jsep
+	 * @return
+	 */
+	private static String event(@NonNull final String transaction,
+		@NonNull final String videoroom, final String offer) {
+
+		final JsonObject event = new JsonObject();
+		event.addProperty("janus", "event");
+		event.addProperty("session_id", SESSION_ID);
+		event.addProperty("sender", HANDLE_ID);
+		event.addProperty("transaction", transaction);
+		final JsonObject data = new JsonObject();
+		data.addProperty("videoroom", videoroom);
+		final JsonObject plugindata = new JsonObject();
+		plugindata.addProperty("plugin", "janus.plugin.videoroom");
+		plugindata.add("data", data);
+		event.add("plugindata", plugindata);
+		if (offer != null) {
+			final JsonObject jsep = new JsonObject();
+			jsep.addProperty("type", "offer");
+			jsep.addProperty("sdp", offer);
+			event.add("jsep", jsep);
+		}
+		return event.toString();
+	}
+
+	/**
+	 * passes events to TransactionManager like JanusRTCClient
+	 */
+	private class DispatchingListener extends RecordingListener {
+		@Override
+		public void onEvent(@NonNull final EventRoom body) {
+			super.onEvent(body);
+			if (body.transaction != null) {
+				mTransactionManager.handleTransaction(body.transaction, body);
+			}
+		}
+	}
+
+	private static class ResumeResult implements SessionResumer.Listener {
+		private final CountDownLatch latch = new CountDownLatch(1);
+		private final AtomicBoolean resumed = new AtomicBoolean();
+		private volatile Throwable failure;
+
+		@Override
+		public void onResumed(final long elapsedMs) {
+			assertTrue(elapsedMs >= 0);
+			resumed.set(true);
+			latch.countDown();
+		}
+
+		@Override
+		public void onResumeFailed(@NonNull final Throwable t) {
+			failure = t;
+			latch.countDown();
+		}
+
+		public boolean await() throws InterruptedException {
+			return latch.await(2, TimeUnit.SECONDS);
+		}
+	}
+
+	private static class RecordingListener implements JanusTransport.EventListener {
+		private final BlockingQueue<EventRoom> events = new LinkedBlockingQueue<>();
+		private final BlockingQueue<Throwable> failures = new LinkedBlockingQueue<>();
+
+		@Override
+		public void onEvent(@NonNull final EventRoom body) {
+			if (!"keepalive".equals(body.janus)) {
+				events.add(body);
+			}
+		}
+
+		@Override
+		public void onFailure(@NonNull final Throwable t) {
+			failures.add(t);
+		}
+
+		@Override
+		public void onReconnectStateChanged(@NonNull final ReconnectScheduler.State state,
+			final int failureCount, final long delayMs) {
+		}
+	}
+}
@@ -0,0 +1,307 @@
+package com.serenegiant.janus;
+
+import android.support.annotation.NonNull;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.serenegiant.janus.request.Attach;
+import com.serenegiant.janus.request.Join;
+import com.serenegiant.janus.request.Message;
+import com.serenegiant.janus.response.EventRoom;
+import com.serenegiant.janus.response.Plugin;
+import com.serenegiant.janus.response.PublisherInfo;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * ordering and concurrency of SubscriberScheduler,
+ * subscribers attach and join against scripted MockWebServer janus-gateway
+ */
+public class SubscriberSchedulerTest {
+	private static final long SESSION_ID = 1234567890L;
+	/** handle ids are assigned in order from HANDLE_OFFSET */
+	private static final long HANDLE_OFFSET = 1000000L;
+	/** simulated round trip time of each request[ミリ秒] */
+	private static final long RTT_MS = 50;
+	private static final int NUM_FEEDS = 12;
+	private static final int MAX_PARALLEL = 3;
+
+	private MockWebServer mServer;
+	private ExecutorService mExecutor;
+	private HttpTransport mTransport;
+	private final TransactionManager mTransactionManager = new TransactionManager();
+	/** number of feeds between attach and join on the server */
+	private final AtomicInteger mActive = new AtomicInteger();
+	private final AtomicInteger mMaxActive = new AtomicInteger();
+	private final AtomicInteger mHandles = new AtomicInteger();
+	private final AtomicLong mNow = new AtomicLong(1000);
+	private final KeepAliveScheduler.Clock mClock = new KeepAliveScheduler.Clock() {
+		@Override
+		public long currentTimeMillis() {
+			return mNow.get();
+		}
+	};
+	private final List<Long> mStarted = Collections.synchronizedList(new ArrayList<Long>());
+
+	@Before
+	public void setUp() throws Exception {
+		Logger.getLogger(MockWebServer.class.getName()).setLevel(Level.WARNING);
+		mServer = new MockWebServer();
+		mServer.setDispatcher(mFakeJanus);
+		mServer.start();
+		mExecutor = Executors.newSingleThreadExecutor();
+		final Dispatcher dispatcher = new Dispatcher();
+		// OkHttpのデフォルト(5)で制限されないようにする
+		dispatcher.setMaxRequestsPerHost(NUM_FEEDS * 2);
+		final Retrofit retrofit = new Retrofit.Builder()
+			.baseUrl(mServer.url("/"))
+			.addConverterFactory(GsonConverterFactory.create(new GsonBuilder()
+				.registerTypeAdapterFactory(new JanusTypeAdapterFactory())
+				.create()))
+			.client(new OkHttpClient.Builder().dispatcher(dispatcher).build())
+			.build();
+		mTransport = new HttpTransport(retrofit.create(VideoRoom.class),
+			retrofit.create(LongPoll.class), "janus", mExecutor);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		mTransport.release();
+		mExecutor.shutdownNow();
+		mServer.shutdown();
+		mTransactionManager.clearTransactions();
+	}
+
+	@Test
+	public void setupIsBoundedByMaxParallel() throws Exception {
+		final CountDownLatch latch = new CountDownLatch(NUM_FEEDS);
+		final SubscriberScheduler[] scheduler = new SubscriberScheduler[1];
+		scheduler[0] = new SubscriberScheduler(MAX_PARALLEL, 5000,
+			new SubscriberScheduler.Starter() {
+				@Override
+				public void start(@NonNull final PublisherInfo info) {
+					mStarted.add(info.id);
+					attachAndJoin(info, () -> {
+						scheduler[0].onSetupCompleted(info.id);
+						latch.countDown();
+					});
+				}
+			}, KeepAliveScheduler.SYSTEM_CLOCK, TransactionManager.getTimer());
+		final long start = System.nanoTime();
+		for (int i = 1; i <= NUM_FEEDS; i++) {
+			scheduler[0].enqueue(publisher(i));
+		}
+		assertTrue(latch.await(10, TimeUnit.SECONDS));
+		final long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		// attach and join of each feed take 2 round trips when they run sequentially
+		assertTrue("elapsed=" + elapsed, elapsed < NUM_FEEDS * 2 * RTT_MS);
+		assertEquals(MAX_PARALLEL, mMaxActive.get());
+		assertEquals(NUM_FEEDS, mStarted.size());
+		assertEquals(0, scheduler[0].getRunningCount());
+		assertEquals(0, scheduler[0].getPendingCount());
+		// FIFO without visible feeds
+		for (int i = 0; i < NUM_FEEDS; i++) {
+			assertEquals(i + 1, (long)mStarted.get(i));
+		}
+		for (final SubscriberScheduler.FeedStats stats: scheduler[0].getStats()) {
+			assertTrue(stats.toString(), stats.setupMs >= 0);
+		}
+		scheduler[0].release();
+	}
+
+	@Test
+	public void visibleFeedsAreStartedFirst() throws Exception {
+		final SubscriberScheduler scheduler = createScheduler(1, 5000);
+		scheduler.setVisible(5, true);
+		for (int i = 1; i <= 5; i++) {
+			scheduler.enqueue(publisher(i));
+		}
+		// marked after enqueue
+		scheduler.setVisible(4, true);
+		// feed 1 was started immediately because the slot was free,
+		// visible feeds are in the order of enqueue
+		for (int i = 1; i <= 5; i++) {
+			scheduler.onSetupCompleted(mStarted.get(mStarted.size() - 1));
+		}
+		assertEquals(Arrays.asList(1L, 4L, 5L, 2L, 3L), mStarted);
+		scheduler.release();
+	}
+
+	@Test
+	public void removedFeedReleasesSlot() throws Exception {
+		final SubscriberScheduler scheduler = createScheduler(2, 5000);
+		for (int i = 1; i <= 4; i++) {
+			scheduler.enqueue(publisher(i));
+		}
+		assertEquals(Arrays.asList(1L, 2L), mStarted);
+		// pending feed left the room
+		scheduler.remove(3);
+		assertEquals(1, scheduler.getPendingCount());
+		// running feed failed
+		scheduler.remove(1);
+		assertEquals(Arrays.asList(1L, 2L, 4L), mStarted);
+		assertEquals(2, scheduler.getRunningCount());
+		// duplicated enqueue is ignored
+		scheduler.enqueue(publisher(2));
+		assertEquals(3, mStarted.size());
+		scheduler.release();
+	}
+
+	@Test
+	public void stuckSetupIsTimedOut() throws Exception {
+		final SubscriberScheduler scheduler = new SubscriberScheduler(1, 100,
+			new SubscriberScheduler.Starter() {
+				@Override
+				public void start(@NonNull final PublisherInfo info) {
+					mStarted.add(info.id);
+				}
+			}, mClock, new HashedWheelTimer(10, TimeUnit.MILLISECONDS, 64));
+		scheduler.enqueue(publisher(1));
+		scheduler.enqueue(publisher(2));
+		assertEquals(1, mStarted.size());
+		for (int i = 0; i < 100 && mStarted.size() < 2; i++) {
+			Thread.sleep(10);
+		}
+		assertEquals(Arrays.asList(1L, 2L), mStarted);
+		// late completion of timed out feed does not release the slot twice
+		scheduler.onSetupCompleted(1);
+		assertEquals(1, scheduler.getRunningCount());
+		scheduler.release();
+	}
+
+	@Test
+	public void timeToFirstFrameIsMeasuredFromEnqueue() throws Exception {
+		final SubscriberScheduler scheduler = createScheduler(1, 5000);
+		scheduler.enqueue(publisher(1));
+		scheduler.enqueue(publisher(2));
+		mNow.addAndGet(100);
+		scheduler.onSetupCompleted(1);
+		mNow.addAndGet(50);
+		scheduler.onFirstFrame(1);
+		scheduler.onSetupCompleted(2);
+		mNow.addAndGet(30);
+		scheduler.onFirstFrame(2);
+		// only first frame counts
+		mNow.addAndGet(1000);
+		scheduler.onFirstFrame(2);
+		final List<SubscriberScheduler.FeedStats> stats = scheduler.getStats();
+		assertEquals(2, stats.size());
+		assertEquals(1, stats.get(0).feedId);
+		assertEquals(0, stats.get(0).queuedMs);
+		assertEquals(100, stats.get(0).setupMs);
+		assertEquals(150, stats.get(0).ttffMs);
+		assertEquals(2, stats.get(1).feedId);
+		assertEquals(100, stats.get(1).queuedMs);
+		assertEquals(50, stats.get(1).setupMs);
+		assertEquals(180, stats.get(1).ttffMs);
+		scheduler.release();
+	}
+
+	@NonNull
+	private SubscriberScheduler createScheduler(final int maxParallel, final long timeoutMs) {
+		return new SubscriberScheduler(maxParallel, timeoutMs,
+			new SubscriberScheduler.Starter() {
+				@Override
+				public void start(@NonNull final PublisherInfo info) {
+					mStarted.add(info.id);
+				}
+			}, mClock, TransactionManager.getTimer());
+	}
+
+	@NonNull
+	private static PublisherInfo publisher(final long id) {
+		return new PublisherInfo(id, "feed" + id, "opus", "vp8", false);
+	}
+
+	/**
+	 * attach and join like JanusPlugin.Subscriber
+	 * @param info
+	 * @param onJoined
+	 */
+	private void attachAndJoin(@NonNull final PublisherInfo info,
+		@NonNull final Runnable onJoined) {
+
+		mTransport.attach(SESSION_ID,
+			new Attach(mTransactionManager, SESSION_ID, "janus.plugin.videoroom", null),
+			new JanusTransport.Callback<Plugin>() {
+				@Override
+				public void onResponse(@NonNull final Plugin plugin) {
+					final Message message = new Message(mTransactionManager,
+						SESSION_ID, plugin.id(),
+						new Join(1234, "subscriber", null, null, info.id), null);
+					mTransport.send(SESSION_ID, plugin.id(), message,
+						new JanusTransport.Callback<EventRoom>() {
+							@Override
+							public void onResponse(@NonNull final EventRoom response) {
+								onJoined.run();
+							}
+
+							@Override
+							public void onFailure(@NonNull final Throwable t) {
+								fail(t.toString());
+							}
+						});
+				}
+
+				@Override
+				public void onFailure(@NonNull final Throwable t) {
+					fail(t.toString());
+				}
+			});
+	}
+
+	/**
+	 * minimum janus-gateway stand-in for attach and join of subscribers
+	 */
+	private final okhttp3.mockwebserver.Dispatcher mFakeJanus = new okhttp3.mockwebserver.Dispatcher() {
+		@Override
+		public MockResponse dispatch(final RecordedRequest request) throws InterruptedException {
+			final JsonObject json = new JsonParser()
+				.parse(request.getBody().readUtf8()).getAsJsonObject();
+			final String janus = json.get("janus").getAsString();
+			final String transaction = json.get("transaction").getAsString();
+			if ("attach".equals(janus)) {
+				final int active = mActive.incrementAndGet();
+				mMaxActive.accumulateAndGet(active, Math::max);
+				Thread.sleep(RTT_MS);
+				// the feed id is not known on attach, so the handle id is assigned in order
+				return new MockResponse().setBody("{\"janus\":\"success\",\"transaction\":\""
+					+ transaction + "\",\"data\":{\"id\":"
+					+ (HANDLE_OFFSET + mHandles.incrementAndGet()) + "}}");
+			}
+			assertEquals("message", janus);
+			assertEquals("subscriber", json.getAsJsonObject("body").get("ptype").getAsString());
+			assertTrue(request.getPath().startsWith("/janus/" + SESSION_ID + "/"));
+			Thread.sleep(RTT_MS);
+			mActive.decrementAndGet();
+			return new MockResponse().setBody("{\"janus\":\"ack\",\"session_id\":"
+				+ SESSION_ID + ",\"transaction\":\"" + transaction + "\"}");
+		}
+	};
+}
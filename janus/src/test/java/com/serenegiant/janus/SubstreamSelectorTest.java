@@ -0,0 +1,166 @@
+package com.serenegiant.janus;
+
+import android.support.annotation.NonNull;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * layer selection from the view size and debouncing of configure requests
+ */
+public class SubstreamSelectorTest {
+	private static final long DEBOUNCE_MS = 100;
+	private static final long FEED_ID = 6419437437012474L;
+	private static final long FEED_ID2 = FEED_ID + 1;
+
+	private HashedWheelTimer mTimer;
+	private final SubstreamPolicy mPolicy = new ViewportSubstreamPolicy(1280, 720, 3);
+	private final BlockingQueue<Request> mSent = new LinkedBlockingQueue<>();
+	private final SubstreamSelector.Sender mSender = new SubstreamSelector.Sender() {
+		@Override
+		public void configure(final long feedId, @NonNull final SubstreamPolicy.Layer layer) {
+			mSent.add(new Request(feedId, layer));
+		}
+	};
+
+	@Before
+	public void setUp() {
+		mTimer = new HashedWheelTimer(10, TimeUnit.MILLISECONDS, 64);
+	}
+
+	@Test
+	public void viewportPolicySelectsLayerFromSize() {
+		// substreams are 320, 640 and 1280 pixels wide
+		assertEquals(new SubstreamPolicy.Layer(2, 2), mPolicy.select(1920, 1080));
+		assertEquals(new SubstreamPolicy.Layer(2, 2), mPolicy.select(1280, 720));
+		assertEquals(new SubstreamPolicy.Layer(2, 2), mPolicy.select(801, 450));
+		assertEquals(new SubstreamPolicy.Layer(1, 2), mPolicy.select(800, 450));
+		assertEquals(new SubstreamPolicy.Layer(1, 2), mPolicy.select(640, 360));
+		assertEquals(new SubstreamPolicy.Layer(0, 2), mPolicy.select(400, 225));
+		assertEquals(new SubstreamPolicy.Layer(0, 2), mPolicy.select(160, 90));
+		// thumbnail, lower frame rate is enough
+		assertEquals(new SubstreamPolicy.Layer(0, 1), mPolicy.select(120, 68));
+		// rotated view selects the same layer
+		assertEquals(mPolicy.select(640, 360), mPolicy.select(360, 640));
+		// not visible
+		assertEquals(new SubstreamPolicy.Layer(0, 0), mPolicy.select(0, 0));
+		assertEquals(new SubstreamPolicy.Layer(0, 0), mPolicy.select(640, 0));
+	}
+
+	@Test
+	public void viewportPolicyWithFewerLayers() {
+		final SubstreamPolicy single = new ViewportSubstreamPolicy(1280, 720, 1);
+		assertEquals(new SubstreamPolicy.Layer(0, 2), single.select(1920, 1080));
+		assertEquals(new SubstreamPolicy.Layer(0, 2), single.select(120, 68));
+		final SubstreamPolicy two = new ViewportSubstreamPolicy(640, 480, 2);
+		assertEquals(new SubstreamPolicy.Layer(0, 2), two.select(400, 300));
+		assertEquals(new SubstreamPolicy.Layer(1, 2), two.select(401, 300));
+		try {
+			new ViewportSubstreamPolicy(1280, 720, 0);
+			fail("numLayers should be positive");
+		} catch (final IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void burstOfResizeSendsOnlyLastLayer() throws Exception {
+		final SubstreamSelector selector
+			= new SubstreamSelector(mTimer, mPolicy, DEBOUNCE_MS, mSender);
+		// animation from thumbnail to fullscreen
+		for (int width = 120; width <= 1280; width += 40) {
+			selector.setViewSize(FEED_ID, width, width * 9 / 16);
+			Thread.sleep(5);
+		}
+		final Request request = mSent.poll(1, TimeUnit.SECONDS);
+		assertNotNull(request);
+		assertEquals(FEED_ID, request.feedId);
+		assertEquals(new SubstreamPolicy.Layer(2, 2), request.layer);
+		assertNull(mSent.poll(DEBOUNCE_MS * 2, TimeUnit.MILLISECONDS));
+		assertEquals(new SubstreamPolicy.Layer(2, 2), selector.getLayer(FEED_ID));
+
+		// same layer is not requested again
+		selector.setViewSize(FEED_ID, 1000, 562);
+		assertNull(mSent.poll(DEBOUNCE_MS * 2, TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	public void revertingBeforeDebounceSendsNothing() throws Exception {
+		final SubstreamSelector selector
+			= new SubstreamSelector(mTimer, mPolicy, DEBOUNCE_MS, mSender);
+		selector.setViewSize(FEED_ID, 640, 360);
+		assertNotNull(mSent.poll(1, TimeUnit.SECONDS));
+		selector.setViewSize(FEED_ID, 120, 68);
+		selector.setViewSize(FEED_ID, 640, 360);
+		assertNull(mSent.poll(DEBOUNCE_MS * 2, TimeUnit.MILLISECONDS));
+		assertEquals(new SubstreamPolicy.Layer(1, 2), selector.getLayer(FEED_ID));
+	}
+
+	@Test
+	public void feedsAreDebouncedSeparately() throws Exception {
+		final SubstreamSelector selector
+			= new SubstreamSelector(mTimer, mPolicy, DEBOUNCE_MS, mSender);
+		selector.setViewSize(FEED_ID, 1280, 720);
+		selector.setViewSize(FEED_ID2, 120, 68);
+		final Request first = mSent.poll(1, TimeUnit.SECONDS);
+		final Request second = mSent.poll(1, TimeUnit.SECONDS);
+		assertNotNull(first);
+		assertNotNull(second);
+		final Request thumbnail = first.feedId == FEED_ID2 ? first : second;
+		assertEquals(new SubstreamPolicy.Layer(0, 1), thumbnail.layer);
+		assertEquals(new SubstreamPolicy.Layer(2, 2), selector.getLayer(FEED_ID));
+
+		// removed feed does not send pending layer
+		selector.setViewSize(FEED_ID2, 0, 0);
+		selector.remove(FEED_ID2);
+		assertNull(mSent.poll(DEBOUNCE_MS * 2, TimeUnit.MILLISECONDS));
+		assertNull(selector.getLayer(FEED_ID2));
+	}
+
+	@Test
+	public void resendAndPolicyChange() throws Exception {
+		final SubstreamSelector selector
+			= new SubstreamSelector(mTimer, mPolicy, DEBOUNCE_MS, mSender);
+		// nothing is requested yet
+		selector.resend(FEED_ID);
+		assertNull(mSent.poll());
+		selector.setViewSize(FEED_ID, 640, 360);
+		// pending layer is sent when the debounce time expires
+		selector.resend(FEED_ID);
+		assertNull(mSent.poll());
+		assertNotNull(mSent.poll(1, TimeUnit.SECONDS));
+		// subscriber was created again
+		selector.resend(FEED_ID);
+		final Request resent = mSent.poll();
+		assertNotNull(resent);
+		assertEquals(new SubstreamPolicy.Layer(1, 2), resent.layer);
+
+		// the publisher sends lower resolution, 640 pixels needs the highest layer
+		selector.setPolicy(new ViewportSubstreamPolicy(640, 360, 3));
+		final Request changed = mSent.poll(1, TimeUnit.SECONDS);
+		assertNotNull(changed);
+		assertEquals(new SubstreamPolicy.Layer(2, 2), changed.layer);
+
+		selector.setViewSize(FEED_ID, 0, 0);
+		selector.clear();
+		assertNull(mSent.poll(DEBOUNCE_MS * 2, TimeUnit.MILLISECONDS));
+		assertNull(selector.getLayer(FEED_ID));
+	}
+
+	private static class Request {
+		private final long feedId;
+		@NonNull
+		private final SubstreamPolicy.Layer layer;
+
+		private Request(final long feedId, @NonNull final SubstreamPolicy.Layer layer) {
+			this.feedId = feedId;
+			this.layer = layer;
+		}
+	}
+}
@@ -0,0 +1,55 @@
+package com.serenegiant.janus;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class TransactionIdGeneratorTest {
+
+	@Test
+	public void counterIdIsFixedWidthBase62() {
+		final TransactionIdGenerator generator
+			= new TransactionIdGenerator.CounterIdGenerator(false);
+		assertEquals("000000000000", generator.next());
+		assertEquals("000000000001", generator.next());
+		for (int i = 2; i < 62; i++) {
+			generator.next();
+		}
+		// 62 = "10" in base62
+		assertEquals("000000000010", generator.next());
+	}
+
+	@Test
+	public void counterIdsAreUnique() {
+		final TransactionIdGenerator generator
+			= new TransactionIdGenerator.CounterIdGenerator();
+		final Set<String> ids = new HashSet<>();
+		String prefix = null;
+		for (int i = 0; i < 100000; i++) {
+			final String id = generator.next();
+			assertEquals(TransactionIdGenerator.LENGTH, id.length());
+			assertTrue(id.matches("[0-9a-zA-Z]+"));
+			assertTrue(ids.add(id));
+			if (prefix == null) {
+				prefix = id.substring(0, TransactionIdGenerator.CounterIdGenerator.PREFIX_LENGTH);
+			} else {
+				// prefix is fixed per generator(client)
+				assertTrue(id.startsWith(prefix));
+			}
+		}
+	}
+
+	@Test
+	public void prefixDiffersBetweenGenerators() {
+		// ids of new client(ex. after reconnecting) must not collide with old ones
+		final Set<String> prefixes = new HashSet<>();
+		for (int i = 0; i < 100; i++) {
+			prefixes.add(new TransactionIdGenerator.CounterIdGenerator().next()
+				.substring(0, TransactionIdGenerator.CounterIdGenerator.PREFIX_LENGTH));
+		}
+		assertTrue(prefixes.size() > 95);
+	}
+}
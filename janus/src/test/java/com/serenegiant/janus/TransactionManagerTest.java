@@ -0,0 +1,104 @@
+package com.serenegiant.janus;
+
+import com.serenegiant.janus.response.EventRoom;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class TransactionManagerTest {
+	private static final EventRoom ACK = new EventRoom("ack", JanusId.NONE, null, null, null);
+	private final HashedWheelTimer mTimer
+		= new HashedWheelTimer(10, TimeUnit.MILLISECONDS, 64);
+
+	@Test
+	public void handledTransactionIsRemovedAndCounted() {
+		final TransactionManager manager = new TransactionManager(
+			new TransactionIdGenerator.CounterIdGenerator(), 1000, mTimer);
+		final String transaction = manager.get((t, body) -> true);
+		assertEquals(1, manager.getStats().pending);
+
+		assertTrue(manager.handleTransaction(transaction, ACK));
+		// already removed
+		assertFalse(manager.handleTransaction(transaction, ACK));
+		final TransactionManager.Stats stats = manager.getStats();
+		assertEquals(0, stats.pending);
+		assertEquals(1, stats.completed);
+		assertEquals(0, stats.expired);
+		assertTrue(stats.maxLatencyNs > 0);
+		assertEquals(0, mTimer.pendingTimeouts());
+	}
+
+	@Test
+	public void unhandledTransactionIsKept() {
+		final TransactionManager manager = new TransactionManager(
+			new TransactionIdGenerator.CounterIdGenerator(), 1000, mTimer);
+		final String transaction = manager.get((t, body) -> false);
+		assertFalse(manager.handleTransaction(transaction, ACK));
+		assertEquals(1, manager.getStats().pending);
+		manager.clearTransactions();
+		assertEquals(0, manager.getStats().pending);
+	}
+
+	@Test
+	public void transactionExpiresAfterDeadline() throws Exception {
+		final TransactionManager manager = new TransactionManager(
+			new TransactionIdGenerator.CounterIdGenerator(), 1000, mTimer);
+		final CountDownLatch latch = new CountDownLatch(1);
+		final AtomicReference<String> expired = new AtomicReference<>();
+		final long start = System.nanoTime();
+		final String transaction = manager.get((t, body) -> true,
+			50, t -> {
+				expired.set(t);
+				latch.countDown();
+			});
+		assertTrue(latch.await(1, TimeUnit.SECONDS));
+		assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 50);
+		assertEquals(transaction, expired.get());
+		assertFalse(manager.handleTransaction(transaction, ACK));
+		final TransactionManager.Stats stats = manager.getStats();
+		assertEquals(0, stats.pending);
+		assertEquals(1, stats.expired);
+		assertEquals(0, stats.completed);
+	}
+
+	@Test
+	public void callbackIsCalledWithoutLock() throws Exception {
+		final TransactionManager manager = new TransactionManager(
+			new TransactionIdGenerator.CounterIdGenerator(), 1000, mTimer);
+		final CountDownLatch latch = new CountDownLatch(1);
+		final String transaction = manager.get((t, body) -> {
+			// other thread must be able to use the manager while callback is running
+			final Thread thread = new Thread(() -> {
+				final String other = manager.get((t2, b2) -> true);
+				if (manager.handleTransaction(other, ACK)) {
+					latch.countDown();
+				}
+			});
+			thread.start();
+			try {
+				return latch.await(1, TimeUnit.SECONDS);
+			} catch (final InterruptedException e) {
+				return false;
+			}
+		});
+		assertTrue(manager.handleTransaction(transaction, ACK));
+		assertEquals(2, manager.getStats().completed);
+	}
+
+	@Test
+	public void instancesAreIndependent() {
+		final TransactionManager manager1 = new TransactionManager(
+			new TransactionIdGenerator.CounterIdGenerator(), 1000, mTimer);
+		final TransactionManager manager2 = new TransactionManager(
+			new TransactionIdGenerator.CounterIdGenerator(), 1000, mTimer);
+		final String transaction = manager1.get((t, body) -> true);
+		assertFalse(manager2.handleTransaction(transaction, ACK));
+		manager2.clearTransactions();
+		assertTrue(manager1.handleTransaction(transaction, ACK));
+	}
+}
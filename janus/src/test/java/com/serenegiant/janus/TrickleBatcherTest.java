@@ -0,0 +1,130 @@
+package com.serenegiant.janus;
+
+import android.support.annotation.NonNull;
+
+import com.serenegiant.janus.request.Trickle;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class TrickleBatcherTest {
+	private static final long WINDOW_MS = 100;
+
+	private ExecutorService mExecutor;
+	private HashedWheelTimer mTimer;
+	private final BlockingQueue<TrickleBatcher.Batch> mSent = new LinkedBlockingQueue<>();
+	private final TrickleBatcher.Sender mSender = new TrickleBatcher.Sender() {
+		@Override
+		public void send(@NonNull final TrickleBatcher.Batch batch) {
+			mSent.add(batch);
+		}
+	};
+
+	@Before
+	public void setUp() {
+		mExecutor = Executors.newSingleThreadExecutor();
+		mTimer = new HashedWheelTimer(10, TimeUnit.MILLISECONDS, 64);
+	}
+
+	@After
+	public void tearDown() {
+		mExecutor.shutdownNow();
+	}
+
+	@Test
+	public void candidatesInWindowAreSentAtOnce() throws Exception {
+		final TrickleBatcher batcher = new TrickleBatcher(mExecutor, mTimer, WINDOW_MS, mSender);
+		for (int i = 0; i < 10; i++) {
+			batcher.add(candidate(i));
+		}
+		assertEquals(10, batcher.pendingCount());
+		final TrickleBatcher.Batch batch = mSent.poll(1, TimeUnit.SECONDS);
+		assertNotNull(batch);
+		assertEquals(10, batch.candidates.size());
+		assertFalse(batch.completed);
+		for (int i = 0; i < 10; i++) {
+			assertEquals(candidate(i).candidate, batch.candidates.get(i).candidate);
+		}
+		assertNull(mSent.poll(WINDOW_MS * 2, TimeUnit.MILLISECONDS));
+		assertEquals(0, batcher.pendingCount());
+	}
+
+	@Test
+	public void completionIsFoldedIntoFinalBatch() throws Exception {
+		final TrickleBatcher batcher = new TrickleBatcher(mExecutor, mTimer, 10000, mSender);
+		batcher.add(candidate(0));
+		batcher.add(candidate(1));
+		// gathering completed before the window expires
+		batcher.complete();
+		final TrickleBatcher.Batch batch = mSent.poll(1, TimeUnit.SECONDS);
+		assertNotNull(batch);
+		assertEquals(2, batch.candidates.size());
+		assertTrue(batch.completed);
+		// completion marker is sent only once
+		batcher.complete();
+		assertNull(mSent.poll(WINDOW_MS, TimeUnit.MILLISECONDS));
+		final TrickleBatcher.Stats stats = batcher.getStats();
+		assertEquals(1, stats.requests);
+		assertEquals(2, stats.candidates);
+		assertEquals(2.0f, stats.candidatesPerRequest(), 0.0f);
+	}
+
+	@Test
+	public void completionWithoutPendingCandidates() throws Exception {
+		final TrickleBatcher batcher = new TrickleBatcher(mExecutor, mTimer, WINDOW_MS, mSender);
+		batcher.add(candidate(0));
+		assertEquals(1, mSent.poll(1, TimeUnit.SECONDS).candidates.size());
+		batcher.complete();
+		final TrickleBatcher.Batch batch = mSent.poll(1, TimeUnit.SECONDS);
+		assertNotNull(batch);
+		assertTrue(batch.candidates.isEmpty());
+		assertTrue(batch.completed);
+	}
+
+	@Test
+	public void zeroWindowSendsImmediately() throws Exception {
+		final TrickleBatcher batcher = new TrickleBatcher(mExecutor, mTimer, 0, mSender);
+		batcher.add(candidate(0));
+		batcher.add(candidate(1));
+		assertEquals(1, mSent.poll(1, TimeUnit.SECONDS).candidates.size());
+		assertEquals(1, mSent.poll(1, TimeUnit.SECONDS).candidates.size());
+		assertEquals(2, batcher.getStats().requests);
+	}
+
+	@Test
+	public void canceledCandidatesAreNotSent() throws Exception {
+		final TrickleBatcher batcher = new TrickleBatcher(mExecutor, mTimer, WINDOW_MS, mSender);
+		batcher.add(candidate(0));
+		batcher.cancel();
+		assertEquals(0, batcher.pendingCount());
+		assertNull(mSent.poll(WINDOW_MS * 2, TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	public void ackLatencyIsMeasuredFromFirstCandidate() throws Exception {
+		final TrickleBatcher batcher = new TrickleBatcher(mExecutor, mTimer, WINDOW_MS, mSender);
+		batcher.add(candidate(0));
+		final TrickleBatcher.Batch batch = mSent.poll(1, TimeUnit.SECONDS);
+		assertNotNull(batch);
+		batcher.onAck(batch);
+		final TrickleBatcher.Stats stats = batcher.getStats();
+		assertEquals(1, stats.acked);
+		// includes the window
+		assertTrue(stats.toString(), stats.maxAckMs >= WINDOW_MS);
+		assertTrue(stats.toString(), stats.avgAckMs <= stats.maxAckMs);
+	}
+
+	private static Trickle.Candidate candidate(final int i) {
+		return new Trickle.Candidate(0, "audio",
+			"candidate:" + i + " 1 udp 2013266431 192.0.2.1 " + (40000 + i) + " typ host");
+	}
+}
@@ -0,0 +1,241 @@
+package com.serenegiant.janus;
+
+import android.support.annotation.NonNull;
+
+import com.google.gson.GsonBuilder;
+import com.serenegiant.janus.request.Attach;
+import com.serenegiant.janus.request.Creator;
+import com.serenegiant.janus.request.Join;
+import com.serenegiant.janus.request.Message;
+import com.serenegiant.janus.response.EventRoom;
+import com.serenegiant.janus.response.Plugin;
+import com.serenegiant.janus.response.ServerInfo;
+import com.serenegiant.janus.response.Session;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+import static org.junit.Assert.*;
+
+/**
+ * WebSocketTransport against MockWebServer that behaves like janus-gateway
+ */
+public class WebSocketTransportTest {
+	private static final long SESSION_ID = 1234567890L;
+	private static final long HANDLE_ID = 987654321L;
+
+	private MockWebServer mServer;
+	private ExecutorService mExecutor;
+	private WebSocketTransport mTransport;
+	private final TransactionManager mTransactionManager = new TransactionManager();
+	private final BlockingQueue<JSONObject> mReceived = new LinkedBlockingQueue<>();
+
+	@Before
+	public void setUp() throws Exception {
+		mServer = new MockWebServer();
+		mServer.enqueue(new MockResponse().withWebSocketUpgrade(mFakeJanus));
+		mServer.start();
+		mExecutor = Executors.newSingleThreadExecutor();
+		mTransport = new WebSocketTransport(new OkHttpClient(),
+			"ws://" + mServer.getHostName() + ":" + mServer.getPort() + "/",
+			new GsonBuilder().registerTypeAdapterFactory(new JanusTypeAdapterFactory()).create(),
+			mExecutor, mTransactionManager, 3000);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		mTransport.release();
+		mExecutor.shutdownNow();
+		mServer.shutdown();
+		mTransactionManager.clearTransactions();
+	}
+
+	@Test
+	public void infoCreateAttach() throws Exception {
+		final ServerInfo info = new BlockingCallback<ServerInfo>().await(mTransport::getInfo);
+		assertEquals("server_info", info.janus);
+
+		final Session session = new BlockingCallback<Session>()
+			.await(callback -> mTransport.create(new Creator(mTransactionManager), callback));
+		assertEquals("success", session.janus);
+		assertEquals(SESSION_ID, session.id());
+
+		final Plugin plugin = new BlockingCallback<Plugin>()
+			.await(callback -> mTransport.attach(session.id(),
+				new Attach(mTransactionManager, session, "janus.plugin.videoroom", null), callback));
+		assertEquals(HANDLE_ID, plugin.id());
+
+		// 3 requests over one socket, session_id must be carried in the body
+		mReceived.take();
+		mReceived.take();
+		final JSONObject attach = mReceived.take();
+		assertEquals("attach", attach.getString("janus"));
+		assertEquals(SESSION_ID, attach.getLong("session_id"));
+		assertEquals(1, mServer.getRequestCount());
+	}
+
+	@Test
+	public void messageEventIsRoutedThroughTransactionManager() throws Exception {
+		final CountDownLatch handled = new CountDownLatch(1);
+		mTransport.startEvents(SESSION_ID, new JanusTransport.EventListener() {
+			@Override
+			public void onEvent(@NonNull final EventRoom body) {
+				mTransactionManager.handleTransaction(body.transaction, body);
+			}
+
+			@Override
+			public void onFailure(@NonNull final Throwable t) {
+				fail(t.toString());
+			}
+
+			@Override
+			public void onReconnectStateChanged(@NonNull final ReconnectScheduler.State state,
+				final int failureCount, final long delayMs) {
+			}
+		});
+		final Message message = new Message(mTransactionManager, SESSION_ID, HANDLE_ID,
+			new Join(1234, "publisher", "user", "display", null),
+			(transaction, body) -> {
+				assertEquals("event", body.janus);
+				handled.countDown();
+				return true;
+			});
+
+		final EventRoom ack = new BlockingCallback<EventRoom>()
+			.await(callback -> mTransport.send(SESSION_ID, HANDLE_ID, message, callback));
+		assertEquals("ack", ack.janus);
+		assertEquals(message.transaction, ack.transaction);
+		assertTrue(handled.await(3, TimeUnit.SECONDS));
+
+		final JSONObject sent = mReceived.take();
+		assertEquals(HANDLE_ID, sent.getLong("handle_id"));
+		assertEquals("join", sent.getJSONObject("body").getString("request"));
+	}
+
+	@Test
+	public void requestAfterReleaseFailsWithoutPendingReply() throws Exception {
+		mTransport.release();
+		final BlockingQueue<Object> result = new LinkedBlockingQueue<>();
+		final JanusTransport.Callback<ServerInfo> callback
+			= new JanusTransport.Callback<ServerInfo>() {
+			@Override
+			public void onResponse(@NonNull final ServerInfo response) {
+				result.add(response);
+			}
+
+			@Override
+			public void onFailure(@NonNull final Throwable t) {
+				result.add(t);
+			}
+		};
+		mTransport.getInfo(callback);
+		mTransport.create(new Creator(mTransactionManager), new JanusTransport.Callback<Session>() {
+			@Override
+			public void onResponse(@NonNull final Session response) {
+				result.add(response);
+			}
+
+			@Override
+			public void onFailure(@NonNull final Throwable t) {
+				result.add(t);
+			}
+		});
+		assertTrue(result.poll(1, TimeUnit.SECONDS) instanceof IOException);
+		assertTrue(result.poll(1, TimeUnit.SECONDS) instanceof IOException);
+		assertEquals(0, mTransport.pendingReplyCount());
+		// failed only once, not again with timeout
+		assertNull(result.poll(500, TimeUnit.MILLISECONDS));
+	}
+
+	/**
+	 * minimum janus-gateway stand-in
+	 */
+	private final WebSocketListener mFakeJanus = new WebSocketListener() {
+		@Override
+		public void onMessage(final WebSocket webSocket, final String text) {
+			try {
+				final JSONObject request = new JSONObject(text);
+				mReceived.add(request);
+				final String transaction = request.getString("transaction");
+				switch (request.getString("janus")) {
+				case "info":
+					webSocket.send("{\"janus\":\"server_info\",\"transaction\":\""
+						+ transaction + "\",\"name\":\"Janus WebRTC Server\",\"session_timeout\":60}");
+					break;
+				case "create":
+					webSocket.send("{\"janus\":\"success\",\"transaction\":\""
+						+ transaction + "\",\"data\":{\"id\":" + SESSION_ID + "}}");
+					break;
+				case "attach":
+					webSocket.send("{\"janus\":\"success\",\"session_id\":" + SESSION_ID
+						+ ",\"transaction\":\"" + transaction + "\",\"data\":{\"id\":" + HANDLE_ID + "}}");
+					break;
+				case "message":
+					webSocket.send("{\"janus\":\"ack\",\"session_id\":" + SESSION_ID
+						+ ",\"transaction\":\"" + transaction + "\"}");
+					webSocket.send("{\"janus\":\"event\",\"session_id\":" + SESSION_ID
+						+ ",\"sender\":" + HANDLE_ID + ",\"transaction\":\"" + transaction + "\""
+						+ ",\"plugindata\":{\"plugin\":\"janus.plugin.videoroom\""
+						+ ",\"data\":{\"videoroom\":\"joined\",\"room\":1234,\"id\":42}}}");
+					break;
+				default:
+					webSocket.send("{\"janus\":\"ack\",\"transaction\":\"" + transaction + "\"}");
+					break;
+				}
+			} catch (final JSONException e) {
+				throw new AssertionError(e);
+			}
+		}
+
+		@Override
+		public void onClosing(final WebSocket webSocket, final int code, final String reason) {
+			webSocket.close(code, reason);
+		}
+	};
+
+	private interface Request<T> {
+		public void start(@NonNull final JanusTransport.Callback<T> callback);
+	}
+
+	private static class BlockingCallback<T> implements JanusTransport.Callback<T> {
+		private final BlockingQueue<Object> result = new LinkedBlockingQueue<>();
+
+		@Override
+		public void onResponse(@NonNull final T response) {
+			result.add(response);
+		}
+
+		@Override
+		public void onFailure(@NonNull final Throwable t) {
+			result.add(t);
+		}
+
+		@SuppressWarnings("unchecked")
+		public T await(@NonNull final Request<T> request) throws Exception {
+			request.start(this);
+			final Object r = result.poll(3, TimeUnit.SECONDS);
+			if (r instanceof Throwable) {
+				throw new AssertionError((Throwable)r);
+			}
+			assertNotNull("timeout", r);
+			return (T)r;
+		}
+	}
+}
@@ -0,0 +1,165 @@
+package org.appspot.apprtc.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.appspot.apprtc.AppRTCConst.*;
+
+/**
+ * previous regex and split based implementation of SdpUtils,
+ * kept as reference of output and as baseline of benchmark
+ */
+/*package*/ class LegacySdpUtils {
+	private LegacySdpUtils() {
+	}
+
+	@SuppressWarnings("StringSplitter")
+	public static String setStartBitrate(
+		final String codec, final boolean isVideoCodec,
+		final String sdpDescription, final int bitrateKbps) {
+
+		final String[] lines = sdpDescription.split("\r\n");
+		int rtpmapLineIndex = -1;
+		boolean sdpFormatUpdated = false;
+		String codecRtpMap = null;
+		// Search for codec rtpmap in format
+		// a=rtpmap:<payload type> <encoding name>/<clock rate> [/<encoding parameters>]
+		String regex = "^a=rtpmap:(\\d+) " + codec + "(/\\d+)+[\r]?$";
+		Pattern codecPattern = Pattern.compile(regex);
+		for (int i = 0; i < lines.length; i++) {
+			Matcher codecMatcher = codecPattern.matcher(lines[i]);
+			if (codecMatcher.matches()) {
+				codecRtpMap = codecMatcher.group(1);
+				rtpmapLineIndex = i;
+				break;
+			}
+		}
+		if (codecRtpMap == null) {
+			return sdpDescription;
+		}
+		
+		// Check if a=fmtp string already exist in remote SDP for this codec and
+		// update it with new bitrate parameter.
+		regex = "^a=fmtp:" + codecRtpMap + " \\w+=\\d+.*[\r]?$";
+		codecPattern = Pattern.compile(regex);
+		for (int i = 0; i < lines.length; i++) {
+			Matcher codecMatcher = codecPattern.matcher(lines[i]);
+			if (codecMatcher.matches()) {
+				if (isVideoCodec) {
+					lines[i] += "; " + VIDEO_CODEC_PARAM_START_BITRATE + "=" + bitrateKbps;
+				} else {
+					lines[i] += "; " + AUDIO_CODEC_PARAM_BITRATE + "=" + (bitrateKbps * 1000);
+				}
+				sdpFormatUpdated = true;
+				break;
+			}
+		}
+		
+		final StringBuilder newSdpDescription = new StringBuilder();
+		for (int i = 0; i < lines.length; i++) {
+			newSdpDescription.append(lines[i]).append("\r\n");
+			// Append new a=fmtp line if no such line exist for a codec.
+			if (!sdpFormatUpdated && i == rtpmapLineIndex) {
+				String bitrateSet;
+				if (isVideoCodec) {
+					bitrateSet =
+						"a=fmtp:" + codecRtpMap + " " + VIDEO_CODEC_PARAM_START_BITRATE + "=" + bitrateKbps;
+				} else {
+					bitrateSet = "a=fmtp:" + codecRtpMap + " " + AUDIO_CODEC_PARAM_BITRATE + "="
+						+ (bitrateKbps * 1000);
+				}
+				newSdpDescription.append(bitrateSet).append("\r\n");
+			}
+		}
+		return newSdpDescription.toString();
+	}
+	
+	/**
+	 * Returns the line number containing "m=audio|video", or -1 if no such line exists.
+	 */
+	private static int findMediaDescriptionLine(
+		final boolean isAudio, final String[] sdpLines) {
+
+		final String mediaDescription = isAudio ? "m=audio " : "m=video ";
+		for (int i = 0; i < sdpLines.length; ++i) {
+			if (sdpLines[i].startsWith(mediaDescription)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	private static String joinString(
+		final Iterable<? extends CharSequence> s,
+		final String delimiter, final boolean delimiterAtEnd) {
+
+		Iterator<? extends CharSequence> iter = s.iterator();
+		if (!iter.hasNext()) {
+			return "";
+		}
+		StringBuilder buffer = new StringBuilder(iter.next());
+		while (iter.hasNext()) {
+			buffer.append(delimiter).append(iter.next());
+		}
+		if (delimiterAtEnd) {
+			buffer.append(delimiter);
+		}
+		return buffer.toString();
+	}
+	
+	private static String movePayloadTypesToFront(
+		final List<String> preferredPayloadTypes, final String mLine) {
+
+		// The format of the media description line should be: m=<media> <port> <proto> <fmt> ...
+		final List<String> origLineParts = Arrays.asList(mLine.split(" "));
+		if (origLineParts.size() <= 3) {
+			return null;
+		}
+		final List<String> header = origLineParts.subList(0, 3);
+		final List<String> unpreferredPayloadTypes =
+			new ArrayList<>(origLineParts.subList(3, origLineParts.size()));
+		unpreferredPayloadTypes.removeAll(preferredPayloadTypes);
+		// Reconstruct the line with |preferredPayloadTypes| moved to the beginning of the payload
+		// types.
+		final List<String> newLineParts = new ArrayList<>();
+		newLineParts.addAll(header);
+		newLineParts.addAll(preferredPayloadTypes);
+		newLineParts.addAll(unpreferredPayloadTypes);
+		return joinString(newLineParts, " ", false /* delimiterAtEnd */);
+	}
+	
+	public static String preferCodec(
+		final String sdpDescription, final String codec, final boolean isAudio) {
+
+		final String[] lines = sdpDescription.split("\r\n");
+		final int mLineIndex = findMediaDescriptionLine(isAudio, lines);
+		if (mLineIndex == -1) {
+			return sdpDescription;
+		}
+		// A list with all the payload types with name |codec|. The payload types are integers in the
+		// range 96-127, but they are stored as strings here.
+		final List<String> codecPayloadTypes = new ArrayList<>();
+		// a=rtpmap:<payload type> <encoding name>/<clock rate> [/<encoding parameters>]
+		final Pattern codecPattern = Pattern.compile("^a=rtpmap:(\\d+) " + codec + "(/\\d+)+[\r]?$");
+		for (String line : lines) {
+			Matcher codecMatcher = codecPattern.matcher(line);
+			if (codecMatcher.matches()) {
+				codecPayloadTypes.add(codecMatcher.group(1));
+			}
+		}
+		if (codecPayloadTypes.isEmpty()) {
+			return sdpDescription;
+		}
+		
+		final String newMLine = movePayloadTypesToFront(codecPayloadTypes, lines[mLineIndex]);
+		if (newMLine == null) {
+			return sdpDescription;
+		}
+		lines[mLineIndex] = newMLine;
+		return joinString(Arrays.asList(lines), "\r\n", true /* delimiterAtEnd */);
+	}
+}
@@ -0,0 +1,124 @@
+package org.appspot.apprtc.util;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.appspot.apprtc.AppRTCConst.*;
+import static org.junit.Assert.*;
+
+public class ParsedSdpTest {
+
+	@Test
+	public void unchangedSdpIsSame() {
+		for (final String sdp: new String[] {
+			RecordedSdps.CHROME_OFFER, RecordedSdps.JANUS_OFFER, RecordedSdps.JANUS_MULTISTREAM_OFFER}) {
+
+			final ParsedSdp parsed = ParsedSdp.parse(sdp);
+			assertFalse(parsed.isModified());
+			assertEquals(sdp, parsed.toString());
+		}
+		// LF only SDP is written with CRLF
+		assertEquals(RecordedSdps.JANUS_OFFER,
+			ParsedSdp.parse(RecordedSdps.JANUS_OFFER.replace("\r\n", "\n")).toString());
+	}
+
+	@Test
+	public void mediaSectionsAreIndexed() {
+		final ParsedSdp chrome = ParsedSdp.parse(RecordedSdps.CHROME_OFFER);
+		final List<ParsedSdp.MediaSection> sections = chrome.getMediaSections();
+		assertEquals(2, sections.size());
+		assertEquals("audio", sections.get(0).type);
+		assertEquals("0", sections.get(0).getMid());
+		assertEquals(14, sections.get(0).getFormats().size());
+		final ParsedSdp.MediaSection video = sections.get(1);
+		assertEquals("video", video.type);
+		assertEquals(30, video.getFormats().size());
+		assertEquals(Arrays.asList("102", "127", "125", "108", "124", "39", "123"),
+			video.getPayloadTypes(VIDEO_CODEC_H264));
+		assertEquals(Arrays.asList("98", "100", "35", "37"), video.getPayloadTypes("vp9"));
+		assertEquals("AV1", video.getEncodingName("45"));
+		assertEquals("profile-id=2", video.getFmtp("100"));
+		assertNull(video.getFmtp("96"));
+		assertTrue(video.getPayloadTypes("H265").isEmpty());
+		assertEquals(8, ParsedSdp.parse(RecordedSdps.JANUS_MULTISTREAM_OFFER).getMediaSections().size());
+	}
+
+	@Test
+	public void wrappersAreSameAsLegacy() {
+		for (final String sdp: new String[] {RecordedSdps.CHROME_OFFER, RecordedSdps.JANUS_OFFER}) {
+			for (final String codec: new String[] {VIDEO_CODEC_VP8, VIDEO_CODEC_VP9, VIDEO_CODEC_H264}) {
+				assertEquals(codec, LegacySdpUtils.preferCodec(sdp, codec, false),
+					SdpUtils.preferCodec(sdp, codec, false));
+			}
+			assertEquals(LegacySdpUtils.preferCodec(sdp, "G722", true),
+				SdpUtils.preferCodec(sdp, "G722", true));
+			assertEquals(LegacySdpUtils.setStartBitrate(AUDIO_CODEC_OPUS, false, sdp, 32),
+				SdpUtils.setStartBitrate(AUDIO_CODEC_OPUS, false, sdp, 32));
+			// VP8 does not have fmtp
+			assertEquals(LegacySdpUtils.setStartBitrate(VIDEO_CODEC_VP8, true, sdp, 300),
+				SdpUtils.setStartBitrate(VIDEO_CODEC_VP8, true, sdp, 300));
+		}
+		final String chrome = SdpUtils.preferCodec(RecordedSdps.CHROME_OFFER, VIDEO_CODEC_H264, false);
+		assertTrue(chrome.contains("m=video 9 UDP/TLS/RTP/SAVPF 102 127 125 108 124 39 123 96 97 98 "));
+	}
+
+	@Test
+	public void operationsAreAppliedBeforeSerialize() {
+		final ParsedSdp sdp = ParsedSdp.parse(RecordedSdps.CHROME_OFFER);
+		assertTrue(sdp.preferCodec(AUDIO_CODEC_ISAC, true));
+		assertTrue(sdp.preferCodec(VIDEO_CODEC_VP9, false));
+		assertTrue(sdp.setStartBitrate(AUDIO_CODEC_OPUS, false, 32));
+		assertTrue(sdp.isModified());
+		final String expected = LegacySdpUtils.setStartBitrate(AUDIO_CODEC_OPUS, false,
+			LegacySdpUtils.preferCodec(
+				LegacySdpUtils.preferCodec(RecordedSdps.CHROME_OFFER, AUDIO_CODEC_ISAC, true),
+				VIDEO_CODEC_VP9, false), 32);
+		assertEquals(expected, sdp.toString());
+		assertFalse(sdp.preferCodec("H265", false));
+		assertFalse(sdp.setStartBitrate("H265", true, 300));
+	}
+
+	@Test
+	public void fmtpParameterIsMerged() {
+		final ParsedSdp sdp = ParsedSdp.parse(RecordedSdps.CHROME_OFFER);
+		// legacy implementation adds second a=fmtp line when the first key has '-'
+		assertTrue(sdp.setStartBitrate(VIDEO_CODEC_H264, true, 300));
+		final ParsedSdp.MediaSection video = sdp.getMediaSections().get(1);
+		assertEquals("level-asymmetry-allowed=1;packetization-mode=1;profile-level-id=42001f; "
+			+ VIDEO_CODEC_PARAM_START_BITRATE + "=300", video.getFmtp("102"));
+		// the value is replaced instead of appending same key again
+		assertTrue(sdp.setStartBitrate(VIDEO_CODEC_H264, true, 500));
+		assertEquals("level-asymmetry-allowed=1;packetization-mode=1;profile-level-id=42001f; "
+			+ VIDEO_CODEC_PARAM_START_BITRATE + "=500", video.getFmtp("102"));
+		// fmtp line is inserted just after rtpmap and the index is updated
+		assertTrue(sdp.setStartBitrate(VIDEO_CODEC_VP8, true, 300));
+		assertEquals(VIDEO_CODEC_PARAM_START_BITRATE + "=300", video.getFmtp("96"));
+		assertTrue(sdp.setStartBitrate(VIDEO_CODEC_VP8, true, 400));
+		assertEquals(VIDEO_CODEC_PARAM_START_BITRATE + "=400", video.getFmtp("96"));
+		assertEquals("apt=96", video.getFmtp("97"));
+		final String written = sdp.toString();
+		assertTrue(written.contains("a=rtpmap:96 VP8/90000\r\na=fmtp:96 "
+			+ VIDEO_CODEC_PARAM_START_BITRATE + "=400\r\na=rtcp-fb:96 goog-remb\r\n"));
+		assertEquals(1, count(written, "a=fmtp:102 "));
+	}
+
+	@Test
+	public void allMultistreamSectionsAreMunged() {
+		final ParsedSdp sdp = ParsedSdp.parse(RecordedSdps.JANUS_MULTISTREAM_OFFER);
+		assertTrue(sdp.preferCodec(VIDEO_CODEC_H264, false));
+		assertTrue(sdp.setStartBitrate(AUDIO_CODEC_OPUS, false, 32));
+		final String written = sdp.toString();
+		assertEquals(4, count(written, "m=video 9 UDP/TLS/RTP/SAVPF 102 96 97 98 99 103\r\n"));
+		assertEquals(4, count(written, "a=fmtp:111 useinbandfec=1; " + AUDIO_CODEC_PARAM_BITRATE + "=32000\r\n"));
+	}
+
+	private static int count(final String s, final String sub) {
+		int result = 0;
+		for (int i = s.indexOf(sub); i >= 0; i = s.indexOf(sub, i + sub.length())) {
+			result++;
+		}
+		return result;
+	}
+}
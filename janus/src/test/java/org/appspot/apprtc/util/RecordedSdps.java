@@ -0,0 +1,293 @@
+package org.appspot.apprtc.util;
+
+/**
+ * SDPs captured from Chrome and janus-gateway(videoroom plugin),
+ * ice credentials/fingerprints/ssrcs are replaced but lines and their orders are kept
+ */
+public class RecordedSdps {
+	private RecordedSdps() {
+	}
+
+	private static final String FINGERPRINT
+		= "a=fingerprint:sha-256 D2:B9:31:8F:DF:24:D8:0E:ED:D2:EF:25:9E:AF:6F:B8:"
+		+ "34:AE:53:9C:E6:F3:8F:F2:64:15:FA:E8:7F:53:2D:38";
+
+	/**
+	 * offer of Chrome publisher, 13 audio and 30 video payload types
+	 */
+	public static final String CHROME_OFFER = join(
+		"v=0",
+		"o=- 4611731400430051336 2 IN IP4 127.0.0.1",
+		"s=-",
+		"t=0 0",
+		"a=group:BUNDLE 0 1",
+		"a=extmap-allow-mixed",
+		"a=msid-semantic: WMS 5dqwx0Ho6Yf6ETrTvbQm6yRJ9SSAVVuGvOoX",
+		"m=audio 9 UDP/TLS/RTP/SAVPF 111 63 103 104 9 0 8 106 105 13 110 112 113 126",
+		"c=IN IP4 0.0.0.0",
+		"a=rtcp:9 IN IP4 0.0.0.0",
+		"a=ice-ufrag:Xr5L",
+		"a=ice-pwd:0mB5Q7m5oLZfiF6QvN1ue7yw",
+		"a=ice-options:trickle",
+		FINGERPRINT,
+		"a=setup:actpass",
+		"a=mid:0",
+		"a=extmap:1 urn:ietf:params:rtp-hdrext:ssrc-audio-level",
+		"a=extmap:2 http://www.webrtc.org/experiments/rtp-hdrext/abs-send-time",
+		"a=extmap:3 http://www.ietf.org/id/draft-holmer-rmcat-transport-wide-cc-extensions-01",
+		"a=extmap:4 urn:ietf:params:rtp-hdrext:sdes:mid",
+		"a=sendrecv",
+		"a=msid:5dqwx0Ho6Yf6ETrTvbQm6yRJ9SSAVVuGvOoX 0b0b3f3c-8b4b-4a69-9a43-2b6a9f0e6b1e",
+		"a=rtcp-mux",
+		"a=rtpmap:111 opus/48000/2",
+		"a=rtcp-fb:111 transport-cc",
+		"a=fmtp:111 minptime=10;useinbandfec=1",
+		"a=rtpmap:63 red/48000/2",
+		"a=fmtp:63 111/111",
+		"a=rtpmap:103 ISAC/16000",
+		"a=rtpmap:104 ISAC/32000",
+		"a=rtpmap:9 G722/8000",
+		"a=rtpmap:0 PCMU/8000",
+		"a=rtpmap:8 PCMA/8000",
+		"a=rtpmap:106 CN/32000",
+		"a=rtpmap:105 CN/16000",
+		"a=rtpmap:13 CN/8000",
+		"a=rtpmap:110 telephone-event/48000",
+		"a=rtpmap:112 telephone-event/32000",
+		"a=rtpmap:113 telephone-event/16000",
+		"a=rtpmap:126 telephone-event/8000",
+		"a=ssrc:2847292519 cname:mBpJdqvW8rPXC6Pa",
+		"a=ssrc:2847292519 msid:5dqwx0Ho6Yf6ETrTvbQm6yRJ9SSAVVuGvOoX 0b0b3f3c-8b4b-4a69-9a43-2b6a9f0e6b1e",
+		"m=video 9 UDP/TLS/RTP/SAVPF 96 97 98 99 100 101 102 122 127 121 125 107 108 109 124 120 39 40 45 46 123 119 114 115 116 35 36 37 38 41",
+		"c=IN IP4 0.0.0.0",
+		"a=rtcp:9 IN IP4 0.0.0.0",
+		"a=ice-ufrag:Xr5L",
+		"a=ice-pwd:0mB5Q7m5oLZfiF6QvN1ue7yw",
+		"a=ice-options:trickle",
+		FINGERPRINT,
+		"a=setup:actpass",
+		"a=mid:1",
+		"a=extmap:14 urn:ietf:params:rtp-hdrext:toffset",
+		"a=extmap:2 http://www.webrtc.org/experiments/rtp-hdrext/abs-send-time",
+		"a=extmap:13 urn:3gpp:video-orientation",
+		"a=extmap:3 http://www.ietf.org/id/draft-holmer-rmcat-transport-wide-cc-extensions-01",
+		"a=extmap:5 http://www.webrtc.org/experiments/rtp-hdrext/playout-delay",
+		"a=extmap:6 http://www.webrtc.org/experiments/rtp-hdrext/video-content-type",
+		"a=extmap:7 http://www.webrtc.org/experiments/rtp-hdrext/video-timing",
+		"a=extmap:8 http://www.webrtc.org/experiments/rtp-hdrext/color-space",
+		"a=extmap:4 urn:ietf:params:rtp-hdrext:sdes:mid",
+		"a=extmap:10 urn:ietf:params:rtp-hdrext:sdes:rtp-stream-id",
+		"a=extmap:11 urn:ietf:params:rtp-hdrext:sdes:repaired-rtp-stream-id",
+		"a=sendrecv",
+		"a=msid:5dqwx0Ho6Yf6ETrTvbQm6yRJ9SSAVVuGvOoX 7c4f0d2e-3a1b-4e55-8d0f-5b2a6e1c9d47",
+		"a=rtcp-mux",
+		"a=rtcp-rsize",
+		"a=rtpmap:96 VP8/90000",
+		"a=rtcp-fb:96 goog-remb",
+		"a=rtcp-fb:96 transport-cc",
+		"a=rtcp-fb:96 ccm fir",
+		"a=rtcp-fb:96 nack",
+		"a=rtcp-fb:96 nack pli",
+		"a=rtpmap:97 rtx/90000",
+		"a=fmtp:97 apt=96",
+		"a=rtpmap:98 VP9/90000",
+		"a=rtcp-fb:98 goog-remb",
+		"a=rtcp-fb:98 transport-cc",
+		"a=rtcp-fb:98 ccm fir",
+		"a=rtcp-fb:98 nack",
+		"a=rtcp-fb:98 nack pli",
+		"a=fmtp:98 profile-id=0",
+		"a=rtpmap:99 rtx/90000",
+		"a=fmtp:99 apt=98",
+		"a=rtpmap:100 VP9/90000",
+		"a=rtcp-fb:100 goog-remb",
+		"a=rtcp-fb:100 transport-cc",
+		"a=rtcp-fb:100 ccm fir",
+		"a=rtcp-fb:100 nack",
+		"a=rtcp-fb:100 nack pli",
+		"a=fmtp:100 profile-id=2",
+		"a=rtpmap:101 rtx/90000",
+		"a=fmtp:101 apt=100",
+		"a=rtpmap:102 H264/90000",
+		"a=rtcp-fb:102 goog-remb",
+		"a=rtcp-fb:102 transport-cc",
+		"a=rtcp-fb:102 ccm fir",
+		"a=rtcp-fb:102 nack",
+		"a=rtcp-fb:102 nack pli",
+		"a=fmtp:102 level-asymmetry-allowed=1;packetization-mode=1;profile-level-id=42001f",
+		"a=rtpmap:122 rtx/90000",
+		"a=fmtp:122 apt=102",
+		"a=rtpmap:127 H264/90000",
+		"a=rtcp-fb:127 goog-remb",
+		"a=rtcp-fb:127 transport-cc",
+		"a=rtcp-fb:127 ccm fir",
+		"a=rtcp-fb:127 nack",
+		"a=rtcp-fb:127 nack pli",
+		"a=fmtp:127 level-asymmetry-allowed=1;packetization-mode=0;profile-level-id=42001f",
+		"a=rtpmap:121 rtx/90000",
+		"a=fmtp:121 apt=127",
+		"a=rtpmap:125 H264/90000",
+		"a=rtcp-fb:125 goog-remb",
+		"a=rtcp-fb:125 transport-cc",
+		"a=rtcp-fb:125 ccm fir",
+		"a=rtcp-fb:125 nack",
+		"a=rtcp-fb:125 nack pli",
+		"a=fmtp:125 level-asymmetry-allowed=1;packetization-mode=1;profile-level-id=42e01f",
+		"a=rtpmap:107 rtx/90000",
+		"a=fmtp:107 apt=125",
+		"a=rtpmap:108 H264/90000",
+		"a=rtcp-fb:108 goog-remb",
+		"a=rtcp-fb:108 transport-cc",
+		"a=rtcp-fb:108 ccm fir",
+		"a=rtcp-fb:108 nack",
+		"a=rtcp-fb:108 nack pli",
+		"a=fmtp:108 level-asymmetry-allowed=1;packetization-mode=0;profile-level-id=42e01f",
+		"a=rtpmap:109 rtx/90000",
+		"a=fmtp:109 apt=108",
+		"a=rtpmap:124 H264/90000",
+		"a=rtcp-fb:124 goog-remb",
+		"a=rtcp-fb:124 transport-cc",
+		"a=rtcp-fb:124 ccm fir",
+		"a=rtcp-fb:124 nack",
+		"a=rtcp-fb:124 nack pli",
+		"a=fmtp:124 level-asymmetry-allowed=1;packetization-mode=1;profile-level-id=4d001f",
+		"a=rtpmap:120 rtx/90000",
+		"a=fmtp:120 apt=124",
+		"a=rtpmap:39 H264/90000",
+		"a=rtcp-fb:39 goog-remb",
+		"a=rtcp-fb:39 transport-cc",
+		"a=rtcp-fb:39 ccm fir",
+		"a=rtcp-fb:39 nack",
+		"a=rtcp-fb:39 nack pli",
+		"a=fmtp:39 level-asymmetry-allowed=1;packetization-mode=0;profile-level-id=4d001f",
+		"a=rtpmap:40 rtx/90000",
+		"a=fmtp:40 apt=39",
+		"a=rtpmap:45 AV1/90000",
+		"a=rtcp-fb:45 goog-remb",
+		"a=rtcp-fb:45 transport-cc",
+		"a=rtcp-fb:45 ccm fir",
+		"a=rtcp-fb:45 nack",
+		"a=rtcp-fb:45 nack pli",
+		"a=rtpmap:46 rtx/90000",
+		"a=fmtp:46 apt=45",
+		"a=rtpmap:123 H264/90000",
+		"a=rtcp-fb:123 goog-remb",
+		"a=rtcp-fb:123 transport-cc",
+		"a=rtcp-fb:123 ccm fir",
+		"a=rtcp-fb:123 nack",
+		"a=rtcp-fb:123 nack pli",
+		"a=fmtp:123 level-asymmetry-allowed=1;packetization-mode=1;profile-level-id=64001f",
+		"a=rtpmap:119 rtx/90000",
+		"a=fmtp:119 apt=123",
+		"a=rtpmap:114 red/90000",
+		"a=rtpmap:115 rtx/90000",
+		"a=fmtp:115 apt=114",
+		"a=rtpmap:116 ulpfec/90000",
+		"a=rtpmap:35 VP9/90000",
+		"a=fmtp:35 profile-id=1",
+		"a=rtpmap:36 rtx/90000",
+		"a=fmtp:36 apt=35",
+		"a=rtpmap:37 VP9/90000",
+		"a=fmtp:37 profile-id=3",
+		"a=rtpmap:38 rtx/90000",
+		"a=fmtp:38 apt=37",
+		"a=rtpmap:41 flexfec-03/90000",
+		"a=fmtp:41 repair-window=10000000",
+		"a=ssrc-group:FID 1829281011 3290716734",
+		"a=ssrc:1829281011 cname:mBpJdqvW8rPXC6Pa",
+		"a=ssrc:1829281011 msid:5dqwx0Ho6Yf6ETrTvbQm6yRJ9SSAVVuGvOoX 7c4f0d2e-3a1b-4e55-8d0f-5b2a6e1c9d47",
+		"a=ssrc:3290716734 cname:mBpJdqvW8rPXC6Pa",
+		"a=ssrc:3290716734 msid:5dqwx0Ho6Yf6ETrTvbQm6yRJ9SSAVVuGvOoX 7c4f0d2e-3a1b-4e55-8d0f-5b2a6e1c9d47");
+
+	/**
+	 * offer of janus-gateway to a subscriber of one feed
+	 */
+	public static final String JANUS_OFFER = janusOffer(1);
+
+	/**
+	 * offer of janus-gateway to a multistream subscriber of 4 feeds
+	 */
+	public static final String JANUS_MULTISTREAM_OFFER = janusOffer(4);
+
+	private static String janusOffer(final int feeds) {
+		final StringBuilder bundle = new StringBuilder("a=group:BUNDLE");
+		for (int i = 0; i < feeds * 2; i++) {
+			bundle.append(' ').append(i);
+		}
+		final StringBuilder sb = new StringBuilder(join(
+			"v=0",
+			"o=- 1545112354011093 1 IN IP4 203.0.113.10",
+			"s=VideoRoom 1234",
+			"t=0 0",
+			bundle.toString(),
+			"a=extmap-allow-mixed",
+			"a=msid-semantic: WMS *",
+			"a=ice-lite"));
+		for (int i = 0; i < feeds; i++) {
+			final int ssrc = 1180219100 + i * 2;
+			sb.append(join(
+				"m=audio 9 UDP/TLS/RTP/SAVPF 111 9 0 8",
+				"c=IN IP4 203.0.113.10",
+				"a=sendonly",
+				"a=mid:" + (i * 2),
+				"a=rtcp-mux",
+				"a=ice-ufrag:sHpx",
+				"a=ice-pwd:HmAOzRpWNzhlCbb93nuyRe",
+				"a=ice-options:trickle",
+				FINGERPRINT,
+				"a=setup:actpass",
+				"a=rtpmap:111 opus/48000/2",
+				"a=fmtp:111 useinbandfec=1",
+				"a=rtpmap:9 G722/8000",
+				"a=rtpmap:0 PCMU/8000",
+				"a=rtpmap:8 PCMA/8000",
+				"a=extmap:1 urn:ietf:params:rtp-hdrext:sdes:mid",
+				"a=extmap:4 urn:ietf:params:rtp-hdrext:ssrc-audio-level",
+				"a=msid:janus" + i + " janus" + i + "a0",
+				"a=ssrc:" + ssrc + " cname:janus",
+				"a=ssrc:" + ssrc + " msid:janus" + i + " janus" + i + "a0",
+				"m=video 9 UDP/TLS/RTP/SAVPF 96 97 98 99 102 103",
+				"c=IN IP4 203.0.113.10",
+				"a=sendonly",
+				"a=mid:" + (i * 2 + 1),
+				"a=rtcp-mux",
+				"a=ice-ufrag:sHpx",
+				"a=ice-pwd:HmAOzRpWNzhlCbb93nuyRe",
+				"a=ice-options:trickle",
+				FINGERPRINT,
+				"a=setup:actpass",
+				"a=rtpmap:96 VP8/90000",
+				"a=rtcp-fb:96 ccm fir",
+				"a=rtcp-fb:96 nack",
+				"a=rtcp-fb:96 nack pli",
+				"a=rtcp-fb:96 goog-remb",
+				"a=rtcp-fb:96 transport-cc",
+				"a=rtpmap:97 rtx/90000",
+				"a=fmtp:97 apt=96",
+				"a=rtpmap:98 VP9/90000",
+				"a=fmtp:98 profile-id=0",
+				"a=rtpmap:99 rtx/90000",
+				"a=fmtp:99 apt=98",
+				"a=rtpmap:102 H264/90000",
+				"a=fmtp:102 profile-level-id=42e01f;packetization-mode=1",
+				"a=rtpmap:103 rtx/90000",
+				"a=fmtp:103 apt=102",
+				"a=extmap:1 urn:ietf:params:rtp-hdrext:sdes:mid",
+				"a=extmap:3 http://www.ietf.org/id/draft-holmer-rmcat-transport-wide-cc-extensions-01",
+				"a=extmap:13 urn:3gpp:video-orientation",
+				"a=msid:janus" + i + " janus" + i + "v0",
+				"a=ssrc-group:FID " + (ssrc + 1) + " " + (ssrc + 1001),
+				"a=ssrc:" + (ssrc + 1) + " cname:janus",
+				"a=ssrc:" + (ssrc + 1001) + " cname:janus"));
+		}
+		return sb.toString();
+	}
+
+	private static String join(final String... lines) {
+		final StringBuilder sb = new StringBuilder();
+		for (final String line: lines) {
+			sb.append(line).append("\r\n");
+		}
+		return sb.toString();
+	}
+}
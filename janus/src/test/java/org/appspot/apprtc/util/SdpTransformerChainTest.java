@@ -0,0 +1,193 @@
+package org.appspot.apprtc.util;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import org.appspot.apprtc.PeerConnectionParameters;
+import org.appspot.apprtc.SdpParameters;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.appspot.apprtc.AppRTCConst.*;
+import static org.junit.Assert.*;
+
+public class SdpTransformerChainTest {
+
+	@Test
+	public void defaultChainIsSameAsLegacy() {
+		final SdpTransformerChain chain = SdpTransformerChain.create(
+			parameters(VIDEO_CODEC_H264, AUDIO_CODEC_ISAC, 32, 0, null), true);
+		assertEquals(3, chain.getTransformers().size());
+		for (final String sdp: new String[] {RecordedSdps.CHROME_OFFER, RecordedSdps.JANUS_OFFER}) {
+			String expected = LegacySdpUtils.preferCodec(sdp, AUDIO_CODEC_ISAC, true);
+			expected = LegacySdpUtils.preferCodec(expected, VIDEO_CODEC_H264, false);
+			assertEquals(expected, chain.apply(sdp, false));
+			expected = LegacySdpUtils.setStartBitrate(AUDIO_CODEC_OPUS, false, expected, 32);
+			assertEquals(expected, chain.apply(sdp, true));
+		}
+		// nothing to do without video
+		final SdpTransformerChain audioOnly = SdpTransformerChain.create(
+			parameters(VIDEO_CODEC_VP8, AUDIO_CODEC_OPUS, 0, 0, null), false);
+		assertTrue(audioOnly.isEmpty());
+		assertSame(RecordedSdps.CHROME_OFFER, audioOnly.apply(RecordedSdps.CHROME_OFFER, true));
+	}
+
+	@Test
+	public void unusedCodecsAndExtensionsAreRemoved() {
+		final SdpParameters sdpParameters = new SdpParameters(0, true,
+			SdpTransformers.UNUSED_HEADER_EXTENSIONS);
+		final SdpTransformerChain chain = SdpTransformerChain.create(
+			parameters(VIDEO_CODEC_VP8, AUDIO_CODEC_OPUS, 0, 0, sdpParameters), true);
+		final String munged = chain.apply(RecordedSdps.CHROME_OFFER, false);
+		assertTrue("SDP size:" + RecordedSdps.CHROME_OFFER.length() + "=>" + munged.length(),
+			munged.length() < RecordedSdps.CHROME_OFFER.length() / 2);
+
+		final ParsedSdp sdp = ParsedSdp.parse(munged);
+		final ParsedSdp.MediaSection audio = sdp.getMediaSections().get(0);
+		assertEquals(Arrays.asList("111", "110", "112", "113", "126"), audio.getFormats());
+		final ParsedSdp.MediaSection video = sdp.getMediaSections().get(1);
+		// VP8, its rtx, red, rtx of red and ulpfec
+		assertEquals(Arrays.asList("96", "97", "114", "115", "116"), video.getFormats());
+		assertEquals("96", video.getFmtpParameter("97", "apt"));
+		assertNull(video.getEncodingName("98"));
+		assertFalse(munged.contains("a=rtcp-fb:98 "));
+		assertFalse(munged.contains("a=fmtp:98 "));
+		assertFalse(munged.contains("urn:ietf:params:rtp-hdrext:toffset"));
+		assertFalse(munged.contains("rtp-hdrext/playout-delay"));
+		assertTrue(munged.contains("transport-wide-cc-extensions-01"));
+		assertTrue(munged.contains("a=extmap:4 urn:ietf:params:rtp-hdrext:sdes:mid"));
+		// second pass does not change anything
+		assertSame(munged, chain.apply(munged, false));
+	}
+
+	@Test
+	public void sectionsWithoutTheCodecAreKept() {
+		final SdpTransformerChain chain = SdpTransformerChain.create(
+			parameters(VIDEO_CODEC_VP8, AUDIO_CODEC_OPUS, 0, 0,
+				new SdpParameters(0, true, null)), true);
+		final String av1Only = RecordedSdps.JANUS_OFFER
+			.replace("a=rtpmap:96 VP8/90000", "a=rtpmap:96 AV1/90000");
+		final ParsedSdp sdp = ParsedSdp.parse(chain.apply(av1Only, true));
+		assertEquals(Arrays.asList("111"), sdp.getMediaSections().get(0).getFormats());
+		assertEquals(Arrays.asList("96", "97", "98", "99", "102", "103"),
+			sdp.getMediaSections().get(1).getFormats());
+	}
+
+	@Test
+	public void bitrateIsSetOnlyToRemoteSdp() {
+		final SdpTransformerChain chain = SdpTransformerChain.create(
+			parameters(VIDEO_CODEC_VP9, AUDIO_CODEC_OPUS, 0, 1500,
+				new SdpParameters(800, false, null)), true);
+		final ParsedSdp.MediaSection video = ParsedSdp.parse(
+			chain.apply(RecordedSdps.CHROME_OFFER, true)).getMediaSections().get(1);
+		assertEquals("800", video.getFmtpParameter("98", VIDEO_CODEC_PARAM_START_BITRATE));
+		assertEquals("1500", video.getFmtpParameter("98", VIDEO_CODEC_PARAM_MAX_BITRATE));
+		assertEquals("0", video.getFmtpParameter("98", "profile-id"));
+		assertFalse(chain.apply(RecordedSdps.CHROME_OFFER, false)
+			.contains(VIDEO_CODEC_PARAM_MAX_BITRATE));
+	}
+
+	@Test
+	public void opusParametersAreSet() {
+		final SdpTransformerChain chain = SdpTransformerChain.create(
+			parameters(VIDEO_CODEC_VP8, AUDIO_CODEC_OPUS, 0, 0,
+				new SdpParameters(0, false, null, true, false, 40, null)), false);
+		final String munged = chain.apply(RecordedSdps.JANUS_MULTISTREAM_OFFER, false);
+		final ParsedSdp sdp = ParsedSdp.parse(munged);
+		int audio = 0;
+		for (final ParsedSdp.MediaSection section: sdp.getMediaSections()) {
+			if ("audio".equals(section.type)) {
+				assertEquals("1", section.getFmtpParameter("111", AUDIO_CODEC_PARAM_DTX));
+				assertEquals("0", section.getFmtpParameter("111", AUDIO_CODEC_PARAM_FEC));
+				audio++;
+			}
+		}
+		assertEquals(4, audio);
+		assertEquals(4, munged.split("a=ptime:40\r\n", -1).length - 1);
+		assertFalse(munged.contains("useinbandfec=1"));
+	}
+
+	@Test
+	public void customTransformersRunLastInOnePass() {
+		final StringBuilder calls = new StringBuilder();
+		final SdpTransformer custom = new SdpTransformer() {
+			@Override
+			public void transform(@NonNull final ParsedSdp sdp, final boolean isRemote) {
+				// codec preference was already applied to the same ParsedSdp
+				calls.append(sdp.getMediaSections().get(1).getFormats().get(0));
+				sdp.getMediaSections().get(0).setAttribute("maxptime", "60");
+			}
+		};
+		final SdpTransformerChain chain = SdpTransformerChain.create(
+			parameters(VIDEO_CODEC_H264, AUDIO_CODEC_OPUS, 0, 0,
+				new SdpParameters(0, false, null, false, true, 0,
+					Collections.singletonList(custom))), true);
+		final List<SdpTransformer> transformers = chain.getTransformers();
+		assertSame(custom, transformers.get(transformers.size() - 1));
+		final String munged = chain.apply(RecordedSdps.CHROME_OFFER, true);
+		assertEquals("102", calls.toString());
+		assertTrue(munged.contains("a=maxptime:60\r\nm=video"));
+	}
+
+	@Test
+	public void simulcastIsAddedToLocalVideo() {
+		final SdpTransformerChain chain = SdpTransformerChain.create(
+			parameters(VIDEO_CODEC_VP8, AUDIO_CODEC_OPUS, 0, 0,
+				new SdpParameters(0, false, null, false, true, 0, 3, null)), true);
+		final String munged = chain.apply(RecordedSdps.CHROME_OFFER, false);
+		final ParsedSdp.MediaSection video = ParsedSdp.parse(munged).getMediaSections().get(1);
+		final List<String> groups = video.getAttributeValues("ssrc-group");
+		assertEquals(4, groups.size());
+		final String sim = groups.get(groups.size() - 1);
+		final String[] ssrcs = sim.split(" ");
+		assertEquals("SIM", ssrcs[0]);
+		assertEquals(4, ssrcs.length);
+		assertEquals("1829281011", ssrcs[1]);
+		// each layer has its own rtx and the same cname/msid as the original
+		final List<String> attributes = video.getAttributeValues("ssrc");
+		assertEquals(12, attributes.size());
+		for (int i = 2; i < ssrcs.length; i++) {
+			assertTrue(groups.contains("FID " + ssrcs[i] + " " + rtxOf(groups, ssrcs[i])));
+			assertTrue(attributes.contains(ssrcs[i] + " cname:mBpJdqvW8rPXC6Pa"));
+			assertTrue(attributes.contains(ssrcs[i]
+				+ " msid:5dqwx0Ho6Yf6ETrTvbQm6yRJ9SSAVVuGvOoX 7c4f0d2e-3a1b-4e55-8d0f-5b2a6e1c9d47"));
+		}
+		// a=ssrc lines are kept together
+		assertTrue(munged.indexOf("a=ssrc-group:SIM") < munged.indexOf("a=ssrc:1829281011 "));
+		// audio is not changed
+		assertEquals(2, ParsedSdp.parse(munged).getMediaSections().get(0)
+			.getAttributeValues("ssrc").size());
+		// only once, and never to remote SDP
+		assertSame(munged, chain.apply(munged, false));
+		assertSame(RecordedSdps.JANUS_OFFER, chain.apply(RecordedSdps.JANUS_OFFER, true));
+		// receive only answer of the subscriber does not have ssrc to copy
+		final String answer = RecordedSdps.JANUS_OFFER.replace("a=sendonly", "a=recvonly");
+		assertSame(answer, chain.apply(answer, false));
+	}
+
+	private static String rtxOf(@NonNull final List<String> groups, @NonNull final String ssrc) {
+		for (final String group: groups) {
+			if (group.startsWith("FID " + ssrc + " ")) {
+				return group.substring(group.lastIndexOf(' ') + 1);
+			}
+		}
+		return null;
+	}
+
+	private static PeerConnectionParameters parameters(
+		@NonNull final String videoCodec, @NonNull final String audioCodec,
+		final int audioStartBitrate, final int videoMaxBitrate,
+		@Nullable final SdpParameters sdpParameters) {
+
+		return new PeerConnectionParameters(true, false, false,
+			1280, 720, 30, videoMaxBitrate, videoCodec,
+			true, false, audioStartBitrate,
+			audioCodec, false, false, false,
+			false, false, false,
+			false, false, false,
+			false, null, sdpParameters);
+	}
+}